@@ -14,6 +14,19 @@ android {
         versionName = "1.0"
 
         testInstrumentationRunner = "androidx.test.runner.AndroidJUnitRunner"
+
+        // Tile servers for offline downloads, one per map type, set as Gradle properties such as
+        // tileUrlTemplate.satellite=https://tiles.example.com/satellite/{z}/{x}/{y}.jpg?key=...
+        // Use a server whose terms allow bulk downloads; a map type without one can't be saved offline
+        for (type in listOf("normal", "satellite", "hybrid", "terrain")) {
+            val template = providers.gradleProperty("tileUrlTemplate.$type").getOrElse("")
+            buildConfigField("String", "TILE_URL_TEMPLATE_${type.uppercase()}",
+                "\"" + template.replace("\\", "\\\\").replace("\"", "\\\"") + "\"")
+        }
+    }
+
+    buildFeatures {
+        buildConfig = true
     }
 
     buildTypes {
@@ -29,10 +42,17 @@ android {
         sourceCompatibility = JavaVersion.VERSION_11
         targetCompatibility = JavaVersion.VERSION_11
     }
+    testOptions {
+        unitTests.all {
+            // Field recordings for TraceReplayTest: ./gradlew test -DlocationTraceDir=path/to/traces
+            it.systemProperty("locationTraceDir", System.getProperty("locationTraceDir") ?: "")
+        }
+    }
 }
 
 dependencies {
 
+    implementation(project(":geo-core"))
     implementation(libs.appcompat)
     implementation(libs.material)
 
@@ -0,0 +1,38 @@
+package com.example.myapplication;
+
+import com.example.myapplication.model.DownloadedMap;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Helpers shared by the instrumented tests: map ids for comparing lists, and latency
+ * percentiles for the timings the benchmark tests log.
+ */
+public final class TestSupport {
+
+    private TestSupport() {
+    }
+
+    // Ids of the maps, in list order
+    public static List<Long> ids(List<DownloadedMap> maps) {
+        List<Long> ids = new ArrayList<>();
+        for (DownloadedMap map : maps) {
+            ids.add(map.getId());
+        }
+        return ids;
+    }
+
+    // p50, p95 and p99 of the timings in microseconds
+    public static String describe(long[] nanos) {
+        return "p50=" + percentile(nanos, 50) / 1000.0 + "us p95=" + percentile(nanos, 95) / 1000.0 +
+                "us p99=" + percentile(nanos, 99) / 1000.0 + "us";
+    }
+
+    public static long percentile(long[] nanos, int percentile) {
+        long[] sorted = nanos.clone();
+        Arrays.sort(sorted);
+        return sorted[Math.min(sorted.length - 1, sorted.length * percentile / 100)];
+    }
+}
@@ -0,0 +1,130 @@
+package com.example.myapplication.adapter;
+
+import android.app.Instrumentation;
+import android.content.Context;
+import android.view.View;
+
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import com.example.myapplication.model.DownloadedMap;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * Counts row binds in a laid-out RecyclerView when one map is deleted from a 5k-map list.
+ */
+@RunWith(AndroidJUnit4.class)
+public class MapListAdapterTest {
+    private static final int MAPS = 5000;
+
+    private Instrumentation instrumentation;
+    private RecyclerView recyclerView;
+    private CountingAdapter adapter;
+    private List<DownloadedMap> maps;
+    private List<MapRow> rows;
+
+    @Before
+    public void setUp() throws Exception {
+        instrumentation = InstrumentationRegistry.getInstrumentation();
+        Context context = instrumentation.getTargetContext();
+        MapRow.Factory rowFactory = new MapRow.Factory(context);
+        maps = new ArrayList<>(MAPS);
+        rows = new ArrayList<>(MAPS);
+        for (int i = 0; i < MAPS; i++) {
+            DownloadedMap map = new DownloadedMap("Map " + i, 1, 1, 2, 2, 0, 0, 15, "NORMAL");
+            map.setId(i + 1);
+            maps.add(map);
+            rows.add(rowFactory.create(map));
+        }
+
+        instrumentation.runOnMainSync(() -> {
+            recyclerView = new RecyclerView(context);
+            recyclerView.setLayoutManager(new LinearLayoutManager(context));
+            recyclerView.setItemAnimator(null);
+            adapter = new CountingAdapter();
+            recyclerView.setAdapter(adapter);
+            adapter.setRows(rows);
+        });
+        awaitItemCount(MAPS);
+        layout();
+    }
+
+    @Test
+    public void deletingOneMap_bindsOnlyTheRowThatScrollsIntoView() throws Exception {
+        int visibleRows = recyclerView.getChildCount();
+        assertTrue(visibleRows > 2);
+
+        adapter.binds = 0;
+        instrumentation.runOnMainSync(() -> adapter.removeMap(maps.get(1)));
+        awaitItemCount(MAPS - 1);
+        layout();
+
+        assertTrue("Binds after one delete: " + adapter.binds, adapter.binds <= 1);
+        assertEquals(maps.get(2).getId(), adapter.getItemId(1));
+    }
+
+    @Test
+    public void reloadingAnUnchangedList_bindsNothing() throws Exception {
+        adapter.binds = 0;
+        MapRow.Factory rowFactory = new MapRow.Factory(instrumentation.getTargetContext());
+        List<MapRow> reloaded = new ArrayList<>(MAPS);
+        for (DownloadedMap map : maps) {
+            reloaded.add(rowFactory.create(map));
+        }
+        CountDownLatch shown = new CountDownLatch(1);
+        instrumentation.runOnMainSync(() -> adapter.setRows(reloaded, shown::countDown));
+        // The diff runs in the background; lay out only once it is applied
+        assertTrue("Diff did not finish", shown.await(5, TimeUnit.SECONDS));
+        layout();
+        assertEquals(0, adapter.binds);
+
+        // For comparison, a full refresh rebinds every visible row
+        instrumentation.runOnMainSync(adapter::notifyDataSetChanged);
+        layout();
+        assertEquals(recyclerView.getChildCount(), adapter.binds);
+    }
+
+    private void layout() {
+        instrumentation.runOnMainSync(() -> {
+            recyclerView.measure(View.MeasureSpec.makeMeasureSpec(1080, View.MeasureSpec.EXACTLY),
+                    View.MeasureSpec.makeMeasureSpec(1920, View.MeasureSpec.EXACTLY));
+            recyclerView.layout(0, 0, 1080, 1920);
+        });
+    }
+
+    private void awaitItemCount(int count) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (adapter.getItemCount() != count) {
+            assertTrue("Diff did not finish", System.currentTimeMillis() < deadline);
+            Thread.sleep(10);
+            instrumentation.waitForIdleSync();
+        }
+    }
+
+    private static class CountingAdapter extends MapListAdapter {
+        int binds;
+
+        CountingAdapter() {
+            super(null);
+        }
+
+        @Override
+        public void onBindViewHolder(@NonNull MapViewHolder holder, int position) {
+            binds++;
+            super.onBindViewHolder(holder, position);
+        }
+    }
+}
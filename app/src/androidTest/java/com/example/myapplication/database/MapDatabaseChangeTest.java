@@ -0,0 +1,103 @@
+package com.example.myapplication.database;
+
+import android.content.Context;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import com.example.myapplication.model.DownloadJob;
+import com.example.myapplication.model.DownloadedMap;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Change versions and per-row change events published by MapDatabaseHelper.
+ */
+@RunWith(AndroidJUnit4.class)
+public class MapDatabaseChangeTest {
+    private static final String DATABASE_NAME = "change_test.db";
+
+    private Context context;
+    private MapDatabaseHelper helper;
+    private final List<MapChange> changes = new ArrayList<>();
+    private final MapDatabaseHelper.ChangeListener listener = changes::add;
+
+    @Before
+    public void setUp() {
+        context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        context.deleteDatabase(DATABASE_NAME);
+        helper = new MapDatabaseHelper(context, DATABASE_NAME);
+        helper.addChangeListener(listener);
+    }
+
+    @After
+    public void tearDown() {
+        helper.removeChangeListener(listener);
+        helper.close();
+        context.deleteDatabase(DATABASE_NAME);
+    }
+
+    @Test
+    public void everyCommittedChange_raisesTheVersionOnce() {
+        assertEquals(0, helper.getChangeVersion());
+
+        long id = helper.addDownloadedMap(newMap("One"));
+        assertEquals(1, helper.getChangeVersion());
+
+        List<DownloadedMap> batch = Arrays.asList(newMap("Two"), newMap("Three"));
+        assertEquals(2, helper.addDownloadedMaps(batch));
+        assertEquals(3, helper.getChangeVersion());
+
+        helper.addDownloadJob(new DownloadJob(id, 10, 12, "https://tile.example.com/{z}/{x}/{y}.png", 21));
+        helper.completeDownloadJob(id, 4096);
+        helper.deleteDownloadedMap(batch.get(0).getId());
+        assertEquals(5, helper.getChangeVersion());
+
+        // Reads, job bookkeeping and deletes of missing rows change nothing
+        helper.getAllDownloadedMaps();
+        helper.updateDownloadJobStatus(id, DownloadJob.STATUS_PAUSED);
+        helper.deleteDownloadedMap(12345);
+        assertEquals(5, helper.getChangeVersion());
+
+        assertEquals(5, changes.size());
+        assertChange(changes.get(0), 1, MapChange.INSERTED, id);
+        assertChange(changes.get(1), 2, MapChange.INSERTED, batch.get(0).getId());
+        assertChange(changes.get(2), 3, MapChange.INSERTED, batch.get(1).getId());
+        assertChange(changes.get(3), 4, MapChange.UPDATED, id);
+        assertChange(changes.get(4), 5, MapChange.DELETED, batch.get(0).getId());
+    }
+
+    @Test
+    public void listeners_canQueryTheCommittedRow() {
+        final List<DownloadedMap> seen = new ArrayList<>();
+        MapDatabaseHelper.ChangeListener reader = change -> seen.add(helper.getDownloadedMap(change.getMapId()));
+        helper.addChangeListener(reader);
+        try {
+            long id = helper.addDownloadedMap(newMap("Visible"));
+            assertEquals(1, seen.size());
+            assertEquals(id, seen.get(0).getId());
+            assertEquals("Visible", seen.get(0).getLabel());
+        } finally {
+            helper.removeChangeListener(reader);
+        }
+    }
+
+    private static void assertChange(MapChange change, long version, int type, long mapId) {
+        assertEquals(version, change.getVersion());
+        assertEquals(type, change.getType());
+        assertEquals(mapId, change.getMapId());
+    }
+
+    private static DownloadedMap newMap(String label) {
+        return new DownloadedMap(label, 1, 1, 2, 2, 0, 0, 15, "NORMAL");
+    }
+}
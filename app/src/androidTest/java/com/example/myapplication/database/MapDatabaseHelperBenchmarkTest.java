@@ -0,0 +1,157 @@
+package com.example.myapplication.database;
+
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.util.Log;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import com.example.myapplication.geo.E7;
+import com.example.myapplication.model.DownloadedMap;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Ops/sec of the map metadata helper on 10k-row workloads: the old open-and-close-per-call
+ * access pattern against the persistent connection with precompiled statements.
+ */
+@RunWith(AndroidJUnit4.class)
+public class MapDatabaseHelperBenchmarkTest {
+    private static final String TAG = "MapDatabaseBenchmark";
+    private static final String BEFORE_DATABASE = "map_benchmark_before.db";
+    private static final String AFTER_DATABASE = "map_benchmark_after.db";
+    private static final int ROWS = 10_000;
+
+    private Context context;
+    private MapDatabaseHelper before;
+    private MapDatabaseHelper after;
+
+    @Before
+    public void setUp() {
+        context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        context.deleteDatabase(BEFORE_DATABASE);
+        context.deleteDatabase(AFTER_DATABASE);
+        before = new MapDatabaseHelper(context, BEFORE_DATABASE);
+        after = new MapDatabaseHelper(context, AFTER_DATABASE);
+    }
+
+    @After
+    public void tearDown() {
+        before.close();
+        after.close();
+        context.deleteDatabase(BEFORE_DATABASE);
+        context.deleteDatabase(AFTER_DATABASE);
+    }
+
+    @Test
+    public void persistentConnection_versusOpenAndClosePerCall() {
+        // Before: every call opens the database, runs one statement and closes it again
+        long start = System.nanoTime();
+        for (int i = 0; i < ROWS; i++) {
+            SQLiteDatabase db = before.getWritableDatabase();
+            db.insert("downloaded_maps", null, toValues(newMap(i)));
+            db.close();
+        }
+        double insertBefore = opsPerSecond(ROWS, start);
+
+        start = System.nanoTime();
+        for (int i = 0; i < ROWS; i++) {
+            SQLiteDatabase db = before.getReadableDatabase();
+            try (Cursor cursor = db.query("downloaded_maps", new String[]{"id"}, "label=?",
+                    new String[]{"Map " + i}, null, null, null)) {
+                assertEquals(1, cursor.getCount());
+            }
+            db.close();
+        }
+        double existsBefore = opsPerSecond(ROWS, start);
+
+        start = System.nanoTime();
+        for (int i = 1; i <= ROWS; i++) {
+            SQLiteDatabase db = before.getWritableDatabase();
+            db.delete("downloaded_maps", "id=?", new String[]{String.valueOf(i)});
+            db.close();
+        }
+        double deleteBefore = opsPerSecond(ROWS, start);
+
+        // After: one connection, compiled statements
+        start = System.nanoTime();
+        for (int i = 0; i < ROWS; i++) {
+            assertTrue(after.addDownloadedMap(newMap(i)) > 0);
+        }
+        double insertAfter = opsPerSecond(ROWS, start);
+
+        start = System.nanoTime();
+        for (int i = 0; i < ROWS; i++) {
+            assertTrue(after.isMapLabelExists("Map " + i));
+        }
+        double existsAfter = opsPerSecond(ROWS, start);
+
+        start = System.nanoTime();
+        for (int i = 0; i < ROWS; i++) {
+            assertEquals(ROWS, after.getDownloadedMapsCount());
+        }
+        double countAfter = opsPerSecond(ROWS, start);
+
+        start = System.nanoTime();
+        for (int i = 1; i <= ROWS; i++) {
+            after.deleteDownloadedMap(i);
+        }
+        double deleteAfter = opsPerSecond(ROWS, start);
+        assertEquals(0, after.getDownloadedMapsCount());
+
+        List<DownloadedMap> batch = new ArrayList<>(ROWS);
+        for (int i = 0; i < ROWS; i++) {
+            batch.add(newMap(i));
+        }
+        start = System.nanoTime();
+        assertEquals(ROWS, after.addDownloadedMaps(batch));
+        double bulkInsert = opsPerSecond(ROWS, start);
+        assertEquals(ROWS, after.getDownloadedMapsCount());
+        assertTrue(batch.get(ROWS - 1).getId() > 0);
+
+        Log.i(TAG, String.format("insert %.0f -> %.0f ops/s (bulk %.0f), label exists %.0f -> %.0f ops/s, " +
+                        "delete %.0f -> %.0f ops/s, count %.0f ops/s",
+                insertBefore, insertAfter, bulkInsert, existsBefore, existsAfter,
+                deleteBefore, deleteAfter, countAfter));
+    }
+
+    private static DownloadedMap newMap(int i) {
+        double lat = -60 + (i % 1200) * 0.1;
+        double lng = -180 + (i / 1200) * 0.1;
+        return new DownloadedMap("Map " + i, lat + 0.05, lng + 0.05, lat + 0.1, lng + 0.1,
+                lat, lng, 15, "NORMAL");
+    }
+
+    // The ContentValues the helper used to build for every insert
+    private static ContentValues toValues(DownloadedMap map) {
+        ContentValues values = new ContentValues();
+        values.put("label", map.getLabel());
+        values.put("center_lat_e7", E7.fromDegrees(map.getCenterLatitude()));
+        values.put("center_lng_e7", E7.fromDegrees(map.getCenterLongitude()));
+        values.put("northeast_lat_e7", E7.fromDegrees(map.getNorthEastLat()));
+        values.put("northeast_lng_e7", E7.fromDegrees(map.getNorthEastLng()));
+        values.put("southwest_lat_e7", E7.fromDegrees(map.getSouthWestLat()));
+        values.put("southwest_lng_e7", E7.fromDegrees(map.getSouthWestLng()));
+        values.put("zoom_level", map.getZoomLevel());
+        values.put("download_date", map.getDownloadDate().getTime());
+        values.put("file_size_bytes", map.getFileSizeBytes());
+        values.put("map_type", map.getMapType());
+        values.put("is_available_offline", map.isAvailableOffline() ? 1 : 0);
+        return values;
+    }
+
+    private static double opsPerSecond(int ops, long startNanos) {
+        return ops * 1e9 / (System.nanoTime() - startNanos);
+    }
+}
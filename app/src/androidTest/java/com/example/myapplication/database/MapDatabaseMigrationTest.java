@@ -0,0 +1,195 @@
+package com.example.myapplication.database;
+
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import com.example.myapplication.model.DownloadJob;
+import com.example.myapplication.model.DownloadedMap;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Locale;
+
+import static org.junit.Assert.*;
+
+/**
+ * Upgrades a populated version 1 database, as the first release wrote it, to the current schema.
+ */
+@RunWith(AndroidJUnit4.class)
+public class MapDatabaseMigrationTest {
+    private static final String MIGRATED_DATABASE = "migration_test.db";
+    private static final String FRESH_DATABASE = "migration_test_fresh.db";
+    private static final SimpleDateFormat V1_DATE_FORMAT = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss", Locale.getDefault());
+
+    private Context context;
+    private MapDatabaseHelper helper;
+
+    @Before
+    public void setUp() throws Exception {
+        context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        context.deleteDatabase(MIGRATED_DATABASE);
+        context.deleteDatabase(FRESH_DATABASE);
+
+        SQLiteDatabase db = SQLiteDatabase.openOrCreateDatabase(context.getDatabasePath(MIGRATED_DATABASE), null);
+        db.execSQL("CREATE TABLE downloaded_maps(id INTEGER PRIMARY KEY AUTOINCREMENT,label TEXT NOT NULL," +
+                "description TEXT,center_latitude REAL NOT NULL,center_longitude REAL NOT NULL," +
+                "northeast_latitude REAL NOT NULL,northeast_longitude REAL NOT NULL," +
+                "southwest_latitude REAL NOT NULL,southwest_longitude REAL NOT NULL,zoom_level INTEGER NOT NULL," +
+                "download_date TEXT NOT NULL,file_size_bytes INTEGER DEFAULT 0,map_type TEXT NOT NULL," +
+                "is_available_offline INTEGER DEFAULT 1)");
+        insertV1Map(db, "Berlin", "Mitte", 52.5, 13.4, 52.55, 13.45, 52.45, 13.35, "2024-03-01 09:15:30", 1_500_000, true);
+        insertV1Map(db, "Fiji", null, -17.0, 180.0, -16.5, -179.5, -17.5, 179.5, "2024-06-12 18:00:00", 0, false);
+        insertV1Map(db, "Lima", "Centro", -12.0464017, -77.0427934, -12.0, -77.0, -12.1, -77.1, "2025-01-20 23:59:59", 42, true);
+        insertV1Map(db, "Deleted", null, 0.0, 0.0, 0.1, 0.1, -0.1, -0.1, "2024-01-01 00:00:00", 0, true);
+        db.execSQL("DELETE FROM downloaded_maps WHERE label = 'Deleted'");
+        db.setVersion(1);
+        db.close();
+
+        helper = new MapDatabaseHelper(context, MIGRATED_DATABASE);
+    }
+
+    @After
+    public void tearDown() {
+        helper.close();
+        context.deleteDatabase(MIGRATED_DATABASE);
+        context.deleteDatabase(FRESH_DATABASE);
+    }
+
+    @Test
+    public void upgradeFromVersion1_keepsEveryMap() throws Exception {
+        List<DownloadedMap> maps = helper.getAllDownloadedMaps();
+        assertEquals(3, maps.size());
+
+        // Newest first, now ordered by the integer date
+        DownloadedMap lima = maps.get(0);
+        assertEquals("Lima", lima.getLabel());
+        assertEquals(3, lima.getId());
+        assertEquals("Centro", lima.getDescription());
+        assertEquals(-12.0464017, lima.getCenterLatitude(), 1e-9);
+        assertEquals(-77.0427934, lima.getCenterLongitude(), 1e-9);
+        assertEquals(V1_DATE_FORMAT.parse("2025-01-20 23:59:59"), lima.getDownloadDate());
+        assertEquals(42, lima.getFileSizeBytes());
+
+        DownloadedMap fiji = maps.get(1);
+        assertEquals("Fiji", fiji.getLabel());
+        assertNull(fiji.getDescription());
+        assertEquals(179.5, fiji.getSouthWestLng(), 1e-9);
+        assertEquals(-179.5, fiji.getNorthEastLng(), 1e-9);
+        assertFalse(fiji.isAvailableOffline());
+
+        DownloadedMap berlin = maps.get(2);
+        assertEquals(1, berlin.getId());
+        assertEquals(V1_DATE_FORMAT.parse("2024-03-01 09:15:30"), berlin.getDownloadDate());
+        assertEquals(1_500_000, berlin.getFileSizeBytes());
+        assertEquals("NORMAL", berlin.getMapType());
+        assertTrue(berlin.isAvailableOffline());
+
+        try (Cursor cursor = helper.getReadableDatabase().rawQuery("SELECT typeof(download_date)," +
+                "typeof(center_lat_e7),typeof(southwest_lng_e7),southwest_lng_e7 FROM downloaded_maps WHERE id = 1", null)) {
+            assertTrue(cursor.moveToFirst());
+            assertEquals("integer", cursor.getString(0));
+            assertEquals("integer", cursor.getString(1));
+            assertEquals("integer", cursor.getString(2));
+            assertEquals(133_500_000, cursor.getLong(3));
+        }
+        assertEquals(0, berlin.getTileCount());
+        assertEquals(7, helper.getReadableDatabase().getVersion());
+    }
+
+    @Test
+    public void upgradeFromVersion1_indexesBoundsAndAcceptsNewData() {
+        assertEquals(1, helper.getMapsContaining(52.5, 13.4).size());
+        assertEquals("Fiji", helper.getMapsContaining(-17.0, -179.9).get(0).getLabel());
+        assertEquals("Lima", helper.getNearestMaps(-12.2, -77.2, 1).get(0).getLabel());
+        assertEquals("Berlin", helper.searchMaps("mit", 10).get(0).getLabel());
+        assertEquals(1, helper.searchMaps("LI", 10).size());
+
+        // Ids of deleted maps are not handed out again
+        long id = helper.addDownloadedMap(new DownloadedMap("Paris", 48.85, 2.35, 48.9, 2.4, 48.8, 2.3, 14, "NORMAL"));
+        assertEquals(6, id);
+        assertEquals("Paris", helper.getMapsContaining(48.85, 2.35).get(0).getLabel());
+        assertEquals(id, helper.searchMaps("par", 10).get(0).getId());
+
+        // The job table from version 2 still points at the rebuilt map table
+        DownloadJob job = new DownloadJob(id, 10, 14, "https://tile.example.com/{z}/{x}/{y}.png", 300);
+        BitSet chunks = new BitSet();
+        chunks.set(0);
+        helper.addDownloadJob(job);
+        helper.updateDownloadJobProgress(id, chunks, 1024);
+        assertEquals(chunks, helper.getDownloadJob(id).getCompletedChunks());
+        helper.deleteDownloadedMap(id);
+        assertNull(helper.getDownloadJob(id));
+        assertTrue(helper.getMapsContaining(48.85, 2.35).isEmpty());
+        assertTrue(helper.searchMaps("par", 10).isEmpty());
+    }
+
+    @Test
+    public void upgradedSchema_matchesFreshInstall() {
+        MapDatabaseHelper fresh = new MapDatabaseHelper(context, FRESH_DATABASE);
+        try {
+            SQLiteDatabase migratedDb = helper.getReadableDatabase();
+            SQLiteDatabase freshDb = fresh.getReadableDatabase();
+            for (String table : new String[]{"downloaded_maps", "download_jobs", "map_bounds_index"}) {
+                assertEquals(table, describeColumns(freshDb, table), describeColumns(migratedDb, table));
+            }
+            assertEquals(schemaObjects(freshDb), schemaObjects(migratedDb));
+        } finally {
+            fresh.close();
+        }
+    }
+
+    private static void insertV1Map(SQLiteDatabase db, String label, String description, double centerLat,
+                                    double centerLng, double northEastLat, double northEastLng, double southWestLat,
+                                    double southWestLng, String downloadDate, long fileSize, boolean offline) {
+        ContentValues values = new ContentValues();
+        values.put("label", label);
+        values.put("description", description);
+        values.put("center_latitude", centerLat);
+        values.put("center_longitude", centerLng);
+        values.put("northeast_latitude", northEastLat);
+        values.put("northeast_longitude", northEastLng);
+        values.put("southwest_latitude", southWestLat);
+        values.put("southwest_longitude", southWestLng);
+        values.put("zoom_level", 15);
+        values.put("download_date", downloadDate);
+        values.put("file_size_bytes", fileSize);
+        values.put("map_type", "NORMAL");
+        values.put("is_available_offline", offline ? 1 : 0);
+        assertTrue(db.insert("downloaded_maps", null, values) > 0);
+    }
+
+    // name, type, not null, default and primary key of every column
+    private static List<String> describeColumns(SQLiteDatabase db, String table) {
+        List<String> columns = new ArrayList<>();
+        try (Cursor cursor = db.rawQuery("PRAGMA table_info(" + table + ")", null)) {
+            while (cursor.moveToNext()) {
+                columns.add(cursor.getString(1) + " " + cursor.getString(2) + " " + cursor.getInt(3) +
+                        " " + cursor.getString(4) + " " + cursor.getInt(5));
+            }
+        }
+        return columns;
+    }
+
+    private static List<String> schemaObjects(SQLiteDatabase db) {
+        List<String> objects = new ArrayList<>();
+        try (Cursor cursor = db.rawQuery("SELECT type, name FROM sqlite_master" +
+                " WHERE type IN ('index','trigger') AND name NOT LIKE 'sqlite_%' ORDER BY name", null)) {
+            while (cursor.moveToNext()) {
+                objects.add(cursor.getString(0) + " " + cursor.getString(1));
+            }
+        }
+        return objects;
+    }
+}
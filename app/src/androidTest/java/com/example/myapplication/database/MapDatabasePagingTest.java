@@ -0,0 +1,85 @@
+package com.example.myapplication.database;
+
+import android.content.Context;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import com.example.myapplication.model.DownloadedMap;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import static com.example.myapplication.TestSupport.ids;
+import static org.junit.Assert.*;
+
+/**
+ * Keyset pages of the saved map list, including runs of maps saved in the same millisecond.
+ */
+@RunWith(AndroidJUnit4.class)
+public class MapDatabasePagingTest {
+    private static final String DATABASE_NAME = "paging_test.db";
+    private static final int MAPS = 1000;
+
+    private Context context;
+    private MapDatabaseHelper helper;
+
+    @Before
+    public void setUp() {
+        context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        context.deleteDatabase(DATABASE_NAME);
+        helper = new MapDatabaseHelper(context, DATABASE_NAME);
+
+        List<DownloadedMap> maps = new ArrayList<>(MAPS);
+        for (int i = 0; i < MAPS; i++) {
+            DownloadedMap map = new DownloadedMap("Map " + i, 1, 1, 2, 2, 0, 0, 15, "NORMAL");
+            // Groups of seven maps share a timestamp, so pages often split a tie
+            map.setDownloadDate(new Date(1_700_000_000_000L + (i / 7) * 1000L));
+            maps.add(map);
+        }
+        assertEquals(MAPS, helper.addDownloadedMaps(maps));
+    }
+
+    @After
+    public void tearDown() {
+        helper.close();
+        context.deleteDatabase(DATABASE_NAME);
+    }
+
+    @Test
+    public void pages_concatenateToTheFullList() {
+        List<Long> expected = ids(helper.getAllDownloadedMaps());
+        assertEquals(MAPS, expected.size());
+
+        List<Long> paged = new ArrayList<>();
+        DownloadedMap last = null;
+        while (true) {
+            List<DownloadedMap> page = helper.getDownloadedMapsPage(last, 30);
+            assertTrue(page.size() <= 30);
+            paged.addAll(ids(page));
+            if (page.size() < 30) {
+                break;
+            }
+            last = page.get(page.size() - 1);
+        }
+        assertEquals(expected, paged);
+    }
+
+    @Test
+    public void deletingShownMaps_doesNotShiftTheNextPage() {
+        List<DownloadedMap> first = helper.getDownloadedMapsPage(null, 50);
+        List<DownloadedMap> second = helper.getDownloadedMapsPage(first.get(49), 50);
+
+        for (int i = 0; i < 20; i++) {
+            helper.deleteDownloadedMap(first.get(i).getId());
+        }
+        assertEquals(ids(second), ids(helper.getDownloadedMapsPage(first.get(49), 50)));
+        assertEquals(first.get(20).getId(), helper.getDownloadedMapsPage(null, 1).get(0).getId());
+    }
+}
@@ -0,0 +1,182 @@
+package com.example.myapplication.database;
+
+import android.content.Context;
+import android.database.Cursor;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import com.example.myapplication.geo.GeoBounds;
+import com.example.myapplication.model.DownloadedMap;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+
+import static com.example.myapplication.TestSupport.ids;
+import static org.junit.Assert.*;
+
+/**
+ * Filtered and sorted pages of the saved map list, checked against filtering and sorting in Java.
+ */
+@RunWith(AndroidJUnit4.class)
+public class MapDatabaseQueryTest {
+    private static final String DATABASE_NAME = "query_test.db";
+    private static final int MAPS = 600;
+    private static final int PAGE_SIZE = 25;
+    private static final String[] TYPES = {"NORMAL", "SATELLITE", "HYBRID", "TERRAIN"};
+    // Few distinct labels and sizes, in mixed case, so pages often split a tie
+    private static final String[] LABELS = {"alpine", "Alpine", "BAY", "bay", "Canyon", "delta", "Delta 2", "Echo"};
+    private static final long[] SIZES = {0, 1024, 4096, 4096, 65_536, 1_000_000};
+
+    private Context context;
+    private MapDatabaseHelper helper;
+    private List<DownloadedMap> saved;
+
+    @Before
+    public void setUp() {
+        context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        context.deleteDatabase(DATABASE_NAME);
+        helper = new MapDatabaseHelper(context, DATABASE_NAME);
+
+        Random random = new Random(23);
+        List<DownloadedMap> maps = new ArrayList<>(MAPS);
+        for (int i = 0; i < MAPS; i++) {
+            double south = -80 + random.nextDouble() * 150;
+            double west = -180 + random.nextDouble() * 355;
+            double north = south + random.nextDouble() * 5;
+            double east = west + random.nextDouble() * 5;
+            DownloadedMap map = new DownloadedMap(LABELS[random.nextInt(LABELS.length)],
+                    (south + north) / 2, (west + east) / 2, north, east, south, west, 12, TYPES[random.nextInt(TYPES.length)]);
+            map.setDownloadDate(new Date(1_700_000_000_000L + random.nextInt(60) * 1000L));
+            map.setFileSizeBytes(SIZES[random.nextInt(SIZES.length)]);
+            map.setAvailableOffline(random.nextInt(4) != 0);
+            maps.add(map);
+        }
+        assertEquals(MAPS, helper.addDownloadedMaps(maps));
+        // Compare with the stored values, which are rounded to E7 degrees
+        saved = helper.getAllDownloadedMaps();
+    }
+
+    @After
+    public void tearDown() {
+        helper.close();
+        context.deleteDatabase(DATABASE_NAME);
+    }
+
+    @Test
+    public void pages_matchFilteringAndSortingInJava() {
+        for (int sort = MapQuery.SORT_NEWEST; sort <= MapQuery.SORT_NEAREST; sort++) {
+            for (MapQuery query : filters()) {
+                if (sort == MapQuery.SORT_NEAREST) {
+                    query.sortByDistanceFrom(48.1, 11.6);
+                } else {
+                    query.setSort(sort);
+                }
+                assertEquals(query.toString(), expected(query), paged(query));
+            }
+        }
+    }
+
+    @Test
+    public void nearestFirst_crossesTheAntimeridian() {
+        MapQuery query = new MapQuery().sortByDistanceFrom(-17.0, 179.9).setAvailableOffline(true);
+        assertEquals(expected(query), paged(query));
+    }
+
+    @Test
+    public void defaultQuery_isTheNewestFirstList() {
+        assertEquals(ids(saved), paged(new MapQuery()));
+        assertTrue(new MapQuery().isDefault());
+        assertFalse(new MapQuery().setMapType("NORMAL").isDefault());
+        assertFalse(new MapQuery().setSort(MapQuery.SORT_LABEL).isDefault());
+    }
+
+    @Test
+    public void filtersAndSorts_useAnIndexWithoutSorting() {
+        String[] queries = {
+                "SELECT * FROM downloaded_maps WHERE map_type = 'HYBRID' ORDER BY download_date DESC, id DESC LIMIT 25",
+                "SELECT * FROM downloaded_maps WHERE is_available_offline = 1 ORDER BY download_date DESC, id DESC LIMIT 25",
+                "SELECT * FROM downloaded_maps WHERE file_size_bytes >= 1000 ORDER BY file_size_bytes DESC, id DESC LIMIT 25",
+                "SELECT * FROM downloaded_maps WHERE map_type = 'HYBRID' ORDER BY file_size_bytes DESC, id DESC LIMIT 25",
+                "SELECT * FROM downloaded_maps ORDER BY label COLLATE NOCASE ASC, id ASC LIMIT 25",
+                "SELECT * FROM downloaded_maps WHERE map_type = 'HYBRID' ORDER BY label COLLATE NOCASE ASC, id ASC LIMIT 25",
+        };
+        for (String sql : queries) {
+            StringBuilder plan = new StringBuilder();
+            try (Cursor cursor = helper.getReadableDatabase().rawQuery("EXPLAIN QUERY PLAN " + sql, null)) {
+                while (cursor.moveToNext()) {
+                    plan.append(cursor.getString(cursor.getColumnCount() - 1)).append('\n');
+                }
+            }
+            assertTrue(sql + "\n" + plan, plan.toString().contains("USING INDEX"));
+            assertFalse(sql + "\n" + plan, plan.toString().contains("TEMP B-TREE"));
+        }
+    }
+
+    // One query per filter, and one combining all of them
+    private static List<MapQuery> filters() {
+        List<MapQuery> queries = new ArrayList<>();
+        queries.add(new MapQuery());
+        queries.add(new MapQuery().setMapType("SATELLITE"));
+        queries.add(new MapQuery().setAvailableOffline(true));
+        queries.add(new MapQuery().setAvailableOffline(false));
+        queries.add(new MapQuery().setSizeRange(1000, 70_000));
+        queries.add(new MapQuery().setSizeRange(4096, Long.MAX_VALUE));
+        queries.add(new MapQuery().setMapType("TERRAIN").setAvailableOffline(true).setSizeRange(1, 100_000));
+        return queries;
+    }
+
+    private List<Long> paged(MapQuery query) {
+        List<Long> ids = new ArrayList<>();
+        DownloadedMap last = null;
+        while (true) {
+            List<DownloadedMap> page = helper.queryMaps(query, last, PAGE_SIZE);
+            for (DownloadedMap map : page) {
+                ids.add(map.getId());
+            }
+            if (page.size() < PAGE_SIZE) {
+                return ids;
+            }
+            last = page.get(page.size() - 1);
+        }
+    }
+
+    private List<Long> expected(MapQuery query) {
+        List<DownloadedMap> matches = new ArrayList<>();
+        for (DownloadedMap map : saved) {
+            if ((query.getMapType() == null || query.getMapType().equals(map.getMapType()))
+                    && (query.getAvailableOffline() == null || query.getAvailableOffline() == map.isAvailableOffline())
+                    && map.getFileSizeBytes() >= query.getMinSizeBytes()
+                    && map.getFileSizeBytes() <= query.getMaxSizeBytes()) {
+                matches.add(map);
+            }
+        }
+        Comparator<DownloadedMap> byId = Comparator.comparingLong(DownloadedMap::getId);
+        switch (query.getSort()) {
+            case MapQuery.SORT_LARGEST:
+                matches.sort(Comparator.comparingLong(DownloadedMap::getFileSizeBytes).thenComparing(byId).reversed());
+                break;
+            case MapQuery.SORT_LABEL:
+                matches.sort(Comparator.comparing(DownloadedMap::getLabel, String.CASE_INSENSITIVE_ORDER).thenComparing(byId));
+                break;
+            case MapQuery.SORT_NEAREST:
+                matches.sort(Comparator.comparingDouble((DownloadedMap map) -> GeoBounds.distanceToBoundsMeters(
+                        map.getSouthWestLat(), map.getSouthWestLng(), map.getNorthEastLat(), map.getNorthEastLng(),
+                        query.getOriginLat(), query.getOriginLng())).thenComparing(byId));
+                break;
+            default:
+                matches.sort(Comparator.comparingLong((DownloadedMap map) -> map.getDownloadDate().getTime())
+                        .thenComparing(byId).reversed());
+                break;
+        }
+        return ids(matches);
+    }
+}
@@ -0,0 +1,105 @@
+package com.example.myapplication.database;
+
+import android.content.Context;
+import android.util.Log;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import com.example.myapplication.model.DownloadedMap;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+import static com.example.myapplication.TestSupport.describe;
+import static com.example.myapplication.TestSupport.ids;
+import static org.junit.Assert.*;
+
+/**
+ * Prefix search over 100k saved maps, checked against a scan and timed.
+ */
+@RunWith(AndroidJUnit4.class)
+public class MapSearchBenchmarkTest {
+    private static final String TAG = "MapSearchBenchmark";
+    private static final String DATABASE_NAME = "search_benchmark.db";
+    private static final int MAPS = 100_000;
+    private static final int LIMIT = 50;
+    private static final String[] WORDS = {"Berlin", "Bern", "Paris", "Park", "Lima", "Lisbon", "Oslo", "Old",
+            "Town", "River", "Trail", "North", "South", "Harbor", "Market", "Zürich", "Café"};
+
+    private Context context;
+    private MapDatabaseHelper helper;
+    private final List<DownloadedMap> maps = new ArrayList<>(MAPS);
+
+    @Before
+    public void setUp() {
+        context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        context.deleteDatabase(DATABASE_NAME);
+        helper = new MapDatabaseHelper(context, DATABASE_NAME);
+
+        Random random = new Random(17);
+        for (int i = 0; i < MAPS; i++) {
+            DownloadedMap map = new DownloadedMap(WORDS[random.nextInt(WORDS.length)] + " " +
+                    WORDS[random.nextInt(WORDS.length)] + " " + i, 1, 1, 2, 2, 0, 0, 15, "NORMAL");
+            if (random.nextInt(3) == 0) {
+                map.setDescription("Near the " + WORDS[random.nextInt(WORDS.length)].toLowerCase(Locale.ROOT));
+            }
+            maps.add(map);
+        }
+        assertEquals(MAPS, helper.addDownloadedMaps(maps));
+    }
+
+    @After
+    public void tearDown() {
+        helper.close();
+        context.deleteDatabase(DATABASE_NAME);
+    }
+
+    @Test
+    public void prefixSearch_matchesScan() {
+        for (String query : new String[]{"ber", "Old town", "par, mar", "near riv", "zür", "12345", "xyz"}) {
+            assertEquals(query, scan(query), ids(helper.searchMaps(query, LIMIT)));
+        }
+        assertTrue(helper.searchMaps("  ,.;\"*  ", LIMIT).isEmpty());
+        // Operator words and syntax characters are searched as plain text
+        assertTrue(helper.searchMaps("or AND \"bern", LIMIT).isEmpty());
+    }
+
+    @Test
+    public void prefixSearch_latency() {
+        String[] queries = {"b", "ber", "old to", "par", "near", "mar", "lis", "south har", "99", "zu"};
+        long[] nanos = new long[500];
+        for (int q = 0; q < nanos.length; q++) {
+            long start = System.nanoTime();
+            helper.searchMaps(queries[q % queries.length], LIMIT);
+            nanos[q] = System.nanoTime() - start;
+        }
+        Log.i(TAG, "Search " + describe(nanos));
+    }
+
+    // Ids of the newest maps whose label or description words start with every query word
+    private List<Long> scan(String query) {
+        String[] terms = MapDatabaseHelper.toPrefixMatch(query).replace("*", "").split(" ");
+        List<Long> ids = new ArrayList<>();
+        for (int i = maps.size() - 1; i >= 0 && ids.size() < LIMIT; i--) {
+            DownloadedMap map = maps.get(i);
+            String text = (map.getLabel() + " " + (map.getDescription() != null ? map.getDescription() : ""))
+                    .toLowerCase(Locale.ROOT).replace("ü", "u").replace("é", "e");
+            boolean all = !terms[0].isEmpty();
+            for (String term : terms) {
+                all &= (" " + text).contains(" " + term.replace("ü", "u").replace("é", "e"));
+            }
+            if (all) {
+                ids.add(map.getId());
+            }
+        }
+        return ids;
+    }
+}
@@ -0,0 +1,176 @@
+package com.example.myapplication.database;
+
+import android.content.Context;
+import android.util.Log;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import com.example.myapplication.geo.E7;
+import com.example.myapplication.geo.GeoBounds;
+import com.example.myapplication.model.DownloadedMap;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static com.example.myapplication.TestSupport.describe;
+import static com.example.myapplication.TestSupport.ids;
+import static org.junit.Assert.*;
+
+/**
+ * Point, box and nearest-region lookups over 100k saved regions, checked against a brute-force scan.
+ */
+@RunWith(AndroidJUnit4.class)
+public class MapSpatialIndexBenchmarkTest {
+    private static final String TAG = "MapSpatialIndexBenchmark";
+    private static final String DATABASE_NAME = "spatial_index_benchmark.db";
+    private static final int REGIONS = 100_000;
+    private static final int QUERIES = 2000;
+
+    private Context context;
+    private MapDatabaseHelper helper;
+    // south, west, north, east of every region, indexed by id - 1
+    private final double[][] bounds = new double[REGIONS][];
+
+    @Before
+    public void setUp() {
+        context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        context.deleteDatabase(DATABASE_NAME);
+        helper = new MapDatabaseHelper(context, DATABASE_NAME);
+
+        Random random = new Random(5);
+        List<DownloadedMap> regions = new ArrayList<>(REGIONS);
+        for (int i = 0; i < REGIONS; i++) {
+            // Regions of 1 to 20 km, clustered like real saved areas would be
+            double south = snap(-60 + random.nextDouble() * 120);
+            double west = snap(-180 + random.nextDouble() * 360);
+            double height = 0.01 + random.nextDouble() * 0.17;
+            double width = 0.01 + random.nextDouble() * 0.17;
+            double north = snap(south + height);
+            double east = snap(west + width > 180 ? west + width - 360 : west + width);
+            bounds[i] = new double[]{south, west, north, east};
+            regions.add(new DownloadedMap("Region " + i, south + height / 2, west + width / 2,
+                    north, east, south, west, 15, "NORMAL"));
+        }
+        assertEquals(REGIONS, helper.addDownloadedMaps(regions));
+        assertEquals(REGIONS, regions.get(REGIONS - 1).getId());
+    }
+
+    @After
+    public void tearDown() {
+        helper.close();
+        context.deleteDatabase(DATABASE_NAME);
+    }
+
+    @Test
+    public void pointLookup_matchesScan() {
+        Random random = new Random(9);
+        long[] nanos = new long[QUERIES];
+        for (int q = 0; q < QUERIES; q++) {
+            // Half the queries land inside a known region
+            double lat;
+            double lng;
+            if (q % 2 == 0) {
+                double[] b = bounds[random.nextInt(REGIONS)];
+                lat = (b[0] + b[2]) / 2;
+                lng = b[1] + 0.001;
+            } else {
+                lat = -60 + random.nextDouble() * 120;
+                lng = -180 + random.nextDouble() * 360;
+            }
+
+            long start = System.nanoTime();
+            List<DownloadedMap> found = helper.getMapsContaining(lat, lng);
+            nanos[q] = System.nanoTime() - start;
+
+            if (q < 200) {
+                assertEquals(scanContaining(lat, lng), sortedIds(found));
+            }
+        }
+        Log.i(TAG, "Point lookup " + describe(nanos));
+    }
+
+    @Test
+    public void boxAndNearestLookups_matchScan() {
+        Random random = new Random(13);
+        long[] boxNanos = new long[QUERIES];
+        long[] nearestNanos = new long[QUERIES];
+        for (int q = 0; q < QUERIES; q++) {
+            double lat = -60 + random.nextDouble() * 120;
+            double lng = -180 + random.nextDouble() * 360;
+
+            long start = System.nanoTime();
+            List<DownloadedMap> box = helper.getMapsIntersecting(lat, lng, lat + 0.2, lng + 0.2);
+            boxNanos[q] = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            List<DownloadedMap> nearest = helper.getNearestMaps(lat, lng, 5);
+            nearestNanos[q] = System.nanoTime() - start;
+
+            if (q < 100) {
+                assertEquals(scanIntersecting(lat, lng, lat + 0.2, lng + 0.2), sortedIds(box));
+                assertEquals(5, nearest.size());
+                double[] expected = scanNearestDistances(lat, lng, 5);
+                for (int i = 0; i < 5; i++) {
+                    assertEquals(expected[i], distance(bounds[(int) nearest.get(i).getId() - 1], lat, lng), 1e-6);
+                }
+            }
+        }
+        Log.i(TAG, "Box lookup " + describe(boxNanos));
+        Log.i(TAG, "5-nearest lookup " + describe(nearestNanos));
+    }
+
+    private List<Long> scanContaining(double lat, double lng) {
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < REGIONS; i++) {
+            double[] b = bounds[i];
+            if (GeoBounds.contains(b[0], b[1], b[2], b[3], lat, lng)) {
+                ids.add(i + 1L);
+            }
+        }
+        return ids;
+    }
+
+    private List<Long> scanIntersecting(double south, double west, double north, double east) {
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < REGIONS; i++) {
+            double[] b = bounds[i];
+            if (GeoBounds.intersects(b[0], b[1], b[2], b[3], south, west, north, east)) {
+                ids.add(i + 1L);
+            }
+        }
+        return ids;
+    }
+
+    private double[] scanNearestDistances(double lat, double lng, int k) {
+        double[] distances = new double[REGIONS];
+        for (int i = 0; i < REGIONS; i++) {
+            distances[i] = distance(bounds[i], lat, lng);
+        }
+        Arrays.sort(distances);
+        return Arrays.copyOf(distances, k);
+    }
+
+    private static double distance(double[] b, double lat, double lng) {
+        return GeoBounds.distanceToBoundsMeters(b[0], b[1], b[2], b[3], lat, lng);
+    }
+
+    // Bounds as stored, so the brute-force scan sees the same edges as the index
+    private static double snap(double degrees) {
+        return E7.toDegrees(E7.fromDegrees(degrees));
+    }
+
+    private static List<Long> sortedIds(List<DownloadedMap> maps) {
+        List<Long> ids = ids(maps);
+        Collections.sort(ids);
+        return ids;
+    }
+}
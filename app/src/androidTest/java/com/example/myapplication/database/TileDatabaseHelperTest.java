@@ -0,0 +1,170 @@
+package com.example.myapplication.database;
+
+import android.content.Context;
+import android.util.Log;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import com.example.myapplication.tiles.TileDedupStats;
+import com.example.myapplication.tiles.TileMath;
+import com.example.myapplication.tiles.TileRange;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.*;
+
+/**
+ * Bulk-write throughput of the tile store: batched commits against one commit per tile,
+ * plus content-hash deduplication.
+ */
+@RunWith(AndroidJUnit4.class)
+public class TileDatabaseHelperTest {
+    private static final String TAG = "TileDatabaseHelperTest";
+    private static final long BATCHED_REGION = -1001;
+    private static final long SINGLE_REGION = -1002;
+    private static final int TILE_BYTES = 2048;
+
+    private TileDatabaseHelper tileStore;
+    private byte[] payload;
+
+    @Before
+    public void setUp() {
+        Context context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        tileStore = TileDatabaseHelper.getInstance(context, "HYBRID");
+        payload = new byte[TILE_BYTES];
+        new Random(42).nextBytes(payload);
+        cleanUp();
+    }
+
+    @After
+    public void cleanUp() {
+        tileStore.deleteRegionTiles(BATCHED_REGION);
+        tileStore.deleteRegionTiles(SINGLE_REGION);
+    }
+
+    @Test
+    public void putTile_roundTripsPayloadAfterFlush() {
+        tileStore.putTile(BATCHED_REGION, 21, 7, 9, payload);
+        tileStore.flush();
+
+        assertTrue(tileStore.hasTile(21, 7, 9));
+        assertArrayEquals(payload, tileStore.getTile(21, 7, 9));
+        assertEquals(1, tileStore.getRegionTileCount(BATCHED_REGION));
+        assertEquals(TILE_BYTES, tileStore.getRegionByteCount(BATCHED_REGION));
+    }
+
+    @Test
+    public void identicalPayloads_areStoredOnce() {
+        byte[] water = new byte[TILE_BYTES];
+        for (int i = 0; i < 100; i++) {
+            tileStore.putTile(BATCHED_REGION, 21, i, 5, i % 10 == 0 ? payload : water);
+        }
+        tileStore.flush();
+
+        TileDedupStats stats = tileStore.getRegionDedupStats(BATCHED_REGION);
+        assertEquals(100, stats.getTileCount());
+        assertEquals(2, stats.getUniqueTileCount());
+        assertEquals(100L * TILE_BYTES, stats.getLogicalBytes());
+        assertEquals(2L * TILE_BYTES, stats.getStoredBytes());
+        assertEquals(50.0, stats.getDedupRatio(), 0.001);
+        assertArrayEquals(water, tileStore.getTile(21, 1, 5));
+        assertArrayEquals(payload, tileStore.getTile(21, 10, 5));
+    }
+
+    /**
+     * A prefetch worker marks a chunk complete right after flush, so flush must not return
+     * while another worker is still committing a batch it took from the queue earlier.
+     */
+    @Test
+    public void flush_commitsEveryTileQueuedBeforeIt() throws Exception {
+        int workers = 4;
+        int tilesPerWorker = 3000;
+        ExecutorService executor = Executors.newFixedThreadPool(workers);
+        try {
+            List<Future<?>> results = new ArrayList<>();
+            for (int w = 0; w < workers; w++) {
+                final int row = w;
+                results.add(executor.submit(() -> {
+                    int verified = 0;
+                    for (int i = 0; i < tilesPerWorker; i++) {
+                        tileStore.putTile(BATCHED_REGION, 21, i, row, payload);
+                        if (i % 97 == 96) {
+                            tileStore.flush();
+                            for (; verified <= i; verified++) {
+                                assertTrue("tile " + verified + " of worker " + row + " missing after flush",
+                                        tileStore.hasTile(21, verified, row));
+                            }
+                        }
+                    }
+                }));
+            }
+            for (Future<?> result : results) {
+                result.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+        tileStore.flush();
+        assertEquals(workers * tilesPerWorker, tileStore.getRegionTileCount(BATCHED_REGION));
+    }
+
+    /**
+     * An unfinished download skips tiles another region already stored, so deleting that
+     * region's rows after sealing it must leave the ones inside the unfinished range.
+     */
+    @Test
+    public void deleteRegionTiles_handsOverlappingTilesToUnfinishedRegions() {
+        for (int x = 100; x < 104; x++) {
+            tileStore.putTile(BATCHED_REGION, 21, x, 5, payload);
+        }
+        tileStore.flush();
+        // The centers of tiles 100 and 101 in row 5
+        double lat = (TileMath.tileYToLat(5, 21) + TileMath.tileYToLat(6, 21)) / 2;
+        TileRange unfinished = new TileRange(lat, (TileMath.tileXToLng(100, 21) + TileMath.tileXToLng(101, 21)) / 2,
+                lat, (TileMath.tileXToLng(101, 21) + TileMath.tileXToLng(102, 21)) / 2, 21, 21);
+        assertEquals(2, unfinished.size());
+
+        tileStore.deleteRegionTiles(BATCHED_REGION, Collections.singletonMap(SINGLE_REGION, unfinished));
+
+        assertEquals(0, tileStore.getRegionTileCount(BATCHED_REGION));
+        assertEquals(2, tileStore.getRegionTileCount(SINGLE_REGION));
+        assertArrayEquals(payload, tileStore.getTile(21, 101, 5));
+        assertFalse(tileStore.hasTile(21, 102, 5));
+    }
+
+    @Test
+    public void bulkWrite_batchedVersusPerTileCommits() {
+        // Zoom 21 keeps the test tiles clear of anything a real download stores
+        int tiles = 20000;
+        long start = System.nanoTime();
+        for (int i = 0; i < tiles; i++) {
+            tileStore.putTile(BATCHED_REGION, 21, i, 0, payload);
+        }
+        tileStore.flush();
+        double batchedPerSecond = tiles * 1e9 / (System.nanoTime() - start);
+        assertEquals(tiles, tileStore.getRegionTileCount(BATCHED_REGION));
+
+        // Baseline: one transaction per tile, as a naive writer would do it
+        int singleTiles = 2000;
+        start = System.nanoTime();
+        for (int i = 0; i < singleTiles; i++) {
+            tileStore.putTiles(SINGLE_REGION, new int[]{21}, new int[]{i}, new int[]{1}, new byte[][]{payload});
+        }
+        double singlePerSecond = singleTiles * 1e9 / (System.nanoTime() - start);
+
+        Log.i(TAG, String.format("Batched: %.0f tiles/s (%.1f MB/s), per-tile commit: %.0f tiles/s",
+                batchedPerSecond, batchedPerSecond * TILE_BYTES / (1024 * 1024), singlePerSecond));
+    }
+}
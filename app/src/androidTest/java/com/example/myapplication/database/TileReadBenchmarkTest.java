@@ -0,0 +1,97 @@
+package com.example.myapplication.database;
+
+import android.content.Context;
+import android.util.Log;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import com.example.myapplication.tiles.PackedTileArchive;
+import com.example.myapplication.tiles.TileMath;
+import com.example.myapplication.tiles.TileRange;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.nio.ByteBuffer;
+import java.util.Random;
+
+import static com.example.myapplication.TestSupport.describe;
+import static org.junit.Assert.*;
+
+/**
+ * Random-read latency of the SQLite tile store against the sealed, memory-mapped archive.
+ */
+@RunWith(AndroidJUnit4.class)
+public class TileReadBenchmarkTest {
+    private static final String TAG = "TileReadBenchmarkTest";
+    private static final long REGION_ID = -2001;
+    private static final int ZOOM = 21;
+    private static final int SIDE = 100; // 100 x 100 tiles
+    private static final int READS = 20000;
+
+    private TileDatabaseHelper tileStore;
+
+    @Before
+    public void setUp() throws Exception {
+        Context context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        tileStore = TileDatabaseHelper.getInstance(context, "HYBRID");
+        tileStore.deleteRegionTiles(REGION_ID);
+
+        Random random = new Random(7);
+        for (int x = 0; x < SIDE; x++) {
+            for (int y = 0; y < SIDE; y++) {
+                byte[] payload = new byte[1024 + random.nextInt(8192)];
+                random.nextBytes(payload);
+                tileStore.putTile(REGION_ID, ZOOM, x, y, payload);
+            }
+        }
+        // Bounds of the 100 x 100 block of zoom 21 tiles written above
+        TileRange range = new TileRange(TileMath.tileYToLat(SIDE, ZOOM) + 1e-7, TileMath.tileXToLng(0, ZOOM) + 1e-7,
+                TileMath.tileYToLat(0, ZOOM) - 1e-7, TileMath.tileXToLng(SIDE, ZOOM) - 1e-7, ZOOM, ZOOM);
+        assertEquals(SIDE * SIDE, tileStore.sealRegion(REGION_ID, range).getTileCount());
+    }
+
+    @After
+    public void tearDown() {
+        tileStore.deleteRegionTiles(REGION_ID);
+        tileStore.getArchiveFile(REGION_ID).delete();
+    }
+
+    @Test
+    public void randomReads_archiveVersusSqlite() throws Exception {
+        Random random = new Random(11);
+        int[] xs = new int[READS];
+        int[] ys = new int[READS];
+        for (int i = 0; i < READS; i++) {
+            xs[i] = random.nextInt(SIDE);
+            ys[i] = random.nextInt(SIDE);
+        }
+
+        long[] sqliteNanos = new long[READS];
+        long checksum = 0;
+        for (int i = 0; i < READS; i++) {
+            long start = System.nanoTime();
+            byte[] tile = tileStore.getTile(ZOOM, xs[i], ys[i]);
+            sqliteNanos[i] = System.nanoTime() - start;
+            checksum += tile[0];
+        }
+
+        long[] archiveNanos = new long[READS];
+        long archiveChecksum = 0;
+        try (PackedTileArchive archive = PackedTileArchive.open(tileStore.getArchiveFile(REGION_ID))) {
+            for (int i = 0; i < READS; i++) {
+                long start = System.nanoTime();
+                ByteBuffer tile = archive.getTile(ZOOM, xs[i], ys[i]);
+                archiveNanos[i] = System.nanoTime() - start;
+                archiveChecksum += tile.get(0);
+            }
+        }
+        assertEquals(checksum, archiveChecksum);
+
+        Log.i(TAG, "SQLite  " + describe(sqliteNanos));
+        Log.i(TAG, "Archive " + describe(archiveNanos));
+    }
+}
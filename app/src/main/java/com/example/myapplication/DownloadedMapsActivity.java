@@ -1,32 +1,68 @@
 package com.example.myapplication;
 
+import android.Manifest;
 import android.content.Intent;
+import android.content.pm.PackageManager;
+import android.location.Location;
+import android.location.LocationManager;
 import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
+import android.text.Editable;
+import android.text.TextWatcher;
 import android.view.View;
+import android.widget.EditText;
 import android.widget.TextView;
 import android.widget.Toast;
 
+import androidx.annotation.NonNull;
 import androidx.appcompat.app.AlertDialog;
 import androidx.appcompat.app.AppCompatActivity;
+import androidx.core.content.ContextCompat;
 import androidx.recyclerview.widget.LinearLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
 
 import com.example.myapplication.adapter.MapListAdapter;
-import com.example.myapplication.database.MapDatabaseHelper;
+import com.example.myapplication.adapter.MapRow;
+import com.example.myapplication.database.DownloadedMapRepository;
+import com.example.myapplication.database.MapChange;
+import com.example.myapplication.database.MapQuery;
 import com.example.myapplication.model.DownloadedMap;
 
 import java.util.List;
+import java.util.Locale;
 
 /**
- * Activity to display the list of downloaded/cached maps with their labels
+ * Activity to display the list of downloaded/cached maps with their labels.
+ * The list is loaded a page at a time as it scrolls, so opening it costs the same for any number of maps.
  */
 public class DownloadedMapsActivity extends AppCompatActivity implements MapListAdapter.OnMapClickListener {
+    private static final int PAGE_SIZE = 30;
+    // Start loading the next page when this many loaded rows are left below the screen
+    private static final int PREFETCH_DISTANCE = 10;
+    // Search once typing pauses, and show at most this many matches
+    private static final long SEARCH_DEBOUNCE_MS = 250;
+    private static final int SEARCH_LIMIT = 200;
+    private static final String[] SORT_NAMES = {"Newest", "Largest", "Name", "Nearest"};
+    private static final String[] MAP_TYPES = {"NORMAL", "SATELLITE", "HYBRID", "TERRAIN"};
     
     private RecyclerView recyclerView;
+    private LinearLayoutManager layoutManager;
     private MapListAdapter adapter;
+    private MapRow.Factory rowFactory;
     private TextView emptyStateTextView;
-    private MapDatabaseHelper databaseHelper;
-    private List<DownloadedMap> downloadedMaps;
+    private EditText searchEditText;
+    private final Handler uiHandler = new Handler(Looper.getMainLooper());
+    private final Runnable searchRunnable = this::onSearchQueryChanged;
+    private final Runnable refreshRunnable = this::loadDownloadedMaps;
+    private String searchQuery = "";
+    // Sort order and filters of the list when not searching
+    private MapQuery mapQuery = new MapQuery();
+    private DownloadedMapRepository repository;
+    private DownloadedMapRepository.Request pageRequest;
+    private boolean allPagesLoaded;
+    // Change version the shown rows are up to date with; -1 before the first load
+    private long shownVersion = -1;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -35,15 +71,33 @@ public class DownloadedMapsActivity extends AppCompatActivity implements MapList
         
         initializeViews();
         setupRecyclerView();
-        loadDownloadedMaps();
+        // Patch single rows as maps are added, finished or deleted; the first page is loaded by onResume
+        repository.observeChanges(this, this::onMapChanged);
     }
 
     private void initializeViews() {
         recyclerView = findViewById(R.id.recycler_view_maps);
         emptyStateTextView = findViewById(R.id.tv_empty_state);
+        searchEditText = findViewById(R.id.et_search_maps);
+        findViewById(R.id.btn_sort_filter).setOnClickListener(v -> showSortFilterDialog());
+        searchEditText.addTextChangedListener(new TextWatcher() {
+            @Override
+            public void beforeTextChanged(CharSequence text, int start, int count, int after) {
+            }
+
+            @Override
+            public void onTextChanged(CharSequence text, int start, int before, int count) {
+            }
+
+            @Override
+            public void afterTextChanged(Editable text) {
+                uiHandler.removeCallbacks(searchRunnable);
+                uiHandler.postDelayed(searchRunnable, SEARCH_DEBOUNCE_MS);
+            }
+        });
         
-        // Initialize database helper
-        databaseHelper = MapDatabaseHelper.getInstance(this);
+        // Saved maps are loaded and deleted off the main thread
+        repository = DownloadedMapRepository.getInstance(this);
         
         // Set up action bar
         if (getSupportActionBar() != null) {
@@ -53,26 +107,165 @@ public class DownloadedMapsActivity extends AppCompatActivity implements MapList
     }
 
     private void setupRecyclerView() {
-        recyclerView.setLayoutManager(new LinearLayoutManager(this));
+        layoutManager = new LinearLayoutManager(this);
+        recyclerView.setLayoutManager(layoutManager);
         adapter = new MapListAdapter(this);
+        rowFactory = new MapRow.Factory(this);
         recyclerView.setAdapter(adapter);
+        recyclerView.addOnScrollListener(new RecyclerView.OnScrollListener() {
+            @Override
+            public void onScrolled(@NonNull RecyclerView view, int dx, int dy) {
+                if (dy > 0 && layoutManager.findLastVisibleItemPosition() >= adapter.getItemCount() - PREFETCH_DISTANCE) {
+                    loadNextPage();
+                }
+            }
+        });
     }
 
+    /**
+     * Re-read the list from its first map, as many rows as are loaded now, dropping any page
+     * still loading. The adapter diffs the result, so only rows that changed are rebound.
+     */
     private void loadDownloadedMaps() {
-        downloadedMaps = databaseHelper.getAllDownloadedMaps();
-        
-        if (downloadedMaps.isEmpty()) {
-            showEmptyState();
-        } else {
-            showMapsList();
-            adapter.setMaps(downloadedMaps);
+        if (pageRequest != null) {
+            pageRequest.cancel();
+        }
+        if (!searchQuery.isEmpty()) {
+            searchMaps();
+            return;
+        }
+        loadPage(null, Math.max(PAGE_SIZE, adapter.getMapCount()));
+    }
+
+    private void onSearchQueryChanged() {
+        String query = searchEditText.getText().toString().trim();
+        if (!query.equals(searchQuery)) {
+            searchQuery = query;
+            adapter.setRows(null);
+            loadDownloadedMaps();
+        }
+    }
+
+    // Show the maps matching searchQuery; matches are not paged
+    private void searchMaps() {
+        final long version = repository.getChangeVersion();
+        final String query = searchQuery;
+        pageRequest = repository.searchMaps(this, query, SEARCH_LIMIT, rowFactory::create,
+                new DownloadedMapRepository.Callback<List<MapRow>>() {
+            @Override
+            public void onResult(List<MapRow> rows) {
+                pageRequest = null;
+                allPagesLoaded = true;
+                adapter.setRows(rows);
+                shownVersion = version;
+                if (repository.getChangeVersion() != version) {
+                    loadDownloadedMaps();
+                    return;
+                }
+
+                if (rows.isEmpty()) {
+                    showEmptyState();
+                } else {
+                    showMapsList();
+                }
+            }
+
+            @Override
+            public void onError(Exception e) {
+                pageRequest = null;
+                Toast.makeText(DownloadedMapsActivity.this, "Error searching maps: " + e.getMessage(),
+                        Toast.LENGTH_LONG).show();
+            }
+        });
+    }
+
+    private void loadNextPage() {
+        if (pageRequest == null && !allPagesLoaded) {
+            loadPage(adapter.getLastMap(), PAGE_SIZE);
         }
     }
 
+    // Load the rows after the given map, or from the start of the list for null
+    private void loadPage(final DownloadedMap after, final int limit) {
+        final long version = repository.getChangeVersion();
+        // Rows are formatted on the reader thread along with the query
+        pageRequest = repository.loadMapsPage(this, mapQuery, after, limit, rowFactory::create,
+                new DownloadedMapRepository.Callback<List<MapRow>>() {
+            @Override
+            public void onResult(List<MapRow> rows) {
+                pageRequest = null;
+                allPagesLoaded = rows.size() < limit;
+                if (after == null) {
+                    adapter.setRows(rows);
+                } else {
+                    adapter.appendRows(rows);
+                }
+                shownVersion = version;
+                if (repository.getChangeVersion() != version) {
+                    // Maps changed while the page was read; read the shown rows again
+                    loadDownloadedMaps();
+                    return;
+                }
+
+                if (adapter.getMapCount() == 0) {
+                    showEmptyState();
+                } else {
+                    showMapsList();
+                }
+            }
+
+            @Override
+            public void onError(Exception e) {
+                pageRequest = null;
+                Toast.makeText(DownloadedMapsActivity.this, "Error loading maps: " + e.getMessage(),
+                        Toast.LENGTH_LONG).show();
+            }
+        });
+    }
+
+    /**
+     * Apply one change to the shown rows. Changes the shown rows already include are skipped, and
+     * so are changes that arrive while a page loads, since the page load then reads again.
+     */
+    private void onMapChanged(MapChange change) {
+        if (pageRequest != null || change.getVersion() <= shownVersion) {
+            return;
+        }
+        shownVersion = change.getVersion();
+        if ((!searchQuery.isEmpty() || !mapQuery.isDefault()) && change.getType() != MapChange.DELETED) {
+            // The change may add or drop matches, or move a row in an order the adapter does not
+            // know; read the list again once changes settle
+            uiHandler.removeCallbacks(refreshRunnable);
+            uiHandler.postDelayed(refreshRunnable, SEARCH_DEBOUNCE_MS);
+            return;
+        }
+        if (change.getType() == MapChange.DELETED) {
+            adapter.removeMap(change.getMapId());
+            if (adapter.getMapCount() == 0 && allPagesLoaded) {
+                showEmptyState();
+            }
+            return;
+        }
+        repository.getMap(this, change.getMapId(), rowFactory::create, row -> {
+            if (row == null) {
+                // Deleted since; its own change removes it
+                return;
+            }
+            adapter.upsertRow(row, allPagesLoaded);
+            showMapsList();
+        });
+    }
+
     private void showEmptyState() {
         recyclerView.setVisibility(View.GONE);
         emptyStateTextView.setVisibility(View.VISIBLE);
-        emptyStateTextView.setText("No downloaded maps found.\n\nGo to Maps and download some areas for offline use!");
+        if (!searchQuery.isEmpty()) {
+            emptyStateTextView.setText("No maps match \"" + searchQuery + "\".");
+        } else if (mapQuery.hasFilters()) {
+            emptyStateTextView.setText("No maps match the filters.");
+        } else {
+            emptyStateTextView.setText("No downloaded maps found.\n\nGo to Maps and download some areas for offline use!");
+        }
     }
 
     private void showMapsList() {
@@ -80,6 +273,114 @@ public class DownloadedMapsActivity extends AppCompatActivity implements MapList
         emptyStateTextView.setVisibility(View.GONE);
     }
 
+    private void showSortFilterDialog() {
+        String type = mapQuery.getMapType() != null ? mapQuery.getMapType() : "All";
+        String offline = mapQuery.getAvailableOffline() == null ? "All maps"
+                : mapQuery.getAvailableOffline() ? "Available offline" : "Not available offline";
+        String[] options = {"Sort: " + SORT_NAMES[mapQuery.getSort()], "Map type: " + type,
+                "Show: " + offline, "Clear filters"};
+
+        AlertDialog.Builder builder = new AlertDialog.Builder(this);
+        builder.setTitle("Sort & Filter");
+        builder.setItems(options, (dialog, which) -> {
+            switch (which) {
+                case 0:
+                    showSortDialog();
+                    break;
+                case 1:
+                    showMapTypeDialog();
+                    break;
+                case 2:
+                    showAvailabilityDialog();
+                    break;
+                case 3:
+                    applyMapQuery(new MapQuery(mapQuery).setMapType(null).setAvailableOffline(null)
+                            .setSizeRange(0, Long.MAX_VALUE));
+                    break;
+            }
+        });
+        builder.setNegativeButton("Cancel", (dialog, which) -> dialog.dismiss());
+        builder.show();
+    }
+
+    private void showSortDialog() {
+        AlertDialog.Builder builder = new AlertDialog.Builder(this);
+        builder.setTitle("Sort by");
+        builder.setSingleChoiceItems(SORT_NAMES, mapQuery.getSort(), (dialog, which) -> {
+            dialog.dismiss();
+            if (which == MapQuery.SORT_NEAREST) {
+                Location location = getLastKnownLocation();
+                if (location == null) {
+                    Toast.makeText(this, "Current location is not known yet", Toast.LENGTH_SHORT).show();
+                    return;
+                }
+                applyMapQuery(new MapQuery(mapQuery).sortByDistanceFrom(location.getLatitude(), location.getLongitude()));
+            } else {
+                applyMapQuery(new MapQuery(mapQuery).setSort(which));
+            }
+        });
+        builder.show();
+    }
+
+    private void showMapTypeDialog() {
+        String[] names = {"All", MAP_TYPES[0], MAP_TYPES[1], MAP_TYPES[2], MAP_TYPES[3]};
+        int checked = 0;
+        for (int i = 0; i < MAP_TYPES.length; i++) {
+            if (MAP_TYPES[i].equals(mapQuery.getMapType())) {
+                checked = i + 1;
+            }
+        }
+        AlertDialog.Builder builder = new AlertDialog.Builder(this);
+        builder.setTitle("Map type");
+        builder.setSingleChoiceItems(names, checked, (dialog, which) -> {
+            dialog.dismiss();
+            applyMapQuery(new MapQuery(mapQuery).setMapType(which == 0 ? null : MAP_TYPES[which - 1]));
+        });
+        builder.show();
+    }
+
+    private void showAvailabilityDialog() {
+        String[] names = {"All maps", "Available offline", "Not available offline"};
+        Boolean current = mapQuery.getAvailableOffline();
+        int checked = current == null ? 0 : current ? 1 : 2;
+        AlertDialog.Builder builder = new AlertDialog.Builder(this);
+        builder.setTitle("Show");
+        builder.setSingleChoiceItems(names, checked, (dialog, which) -> {
+            dialog.dismiss();
+            applyMapQuery(new MapQuery(mapQuery).setAvailableOffline(which == 0 ? null : which == 1));
+        });
+        builder.show();
+    }
+
+    // Show the list in a new order or with new filters, from its first page
+    private void applyMapQuery(MapQuery query) {
+        if (query.equals(mapQuery)) {
+            return;
+        }
+        mapQuery = query;
+        if (searchQuery.isEmpty()) {
+            adapter.setRows(null);
+            loadDownloadedMaps();
+        }
+    }
+
+    // The most recent fix any provider has, or null without location permission
+    private Location getLastKnownLocation() {
+        if (ContextCompat.checkSelfPermission(this, Manifest.permission.ACCESS_COARSE_LOCATION)
+                != PackageManager.PERMISSION_GRANTED) {
+            return null;
+        }
+        LocationManager locationManager = (LocationManager) getSystemService(LOCATION_SERVICE);
+        Location best = null;
+        for (String provider : locationManager.getProviders(true)) {
+            Location location = locationManager.getLastKnownLocation(provider);
+            if (location != null && (best == null || location.getTime() > best.getTime())) {
+                best = location;
+            }
+        }
+        return best;
+    }
+
     @Override
     public void onMapClick(DownloadedMap map) {
         // Open the map at the saved location
@@ -140,6 +441,11 @@ public class DownloadedMapsActivity extends AppCompatActivity implements MapList
         details.append("Zoom Level: ").append(map.getZoomLevel()).append("\n\n");
         details.append("Downloaded: ").append(android.text.format.DateFormat.format("MMM dd, yyyy 'at' hh:mm a", map.getDownloadDate())).append("\n\n");
         details.append("Size: ").append(map.getFormattedSize()).append("\n\n");
+        if (map.getTileCount() > 0) {
+            details.append(String.format(Locale.US, "Tiles: %,d (%,d distinct), %s stored as %s (%.1fx)",
+                    map.getTileCount(), map.getUniqueTileCount(), DownloadedMap.formatSize(map.getLogicalBytes()),
+                    DownloadedMap.formatSize(map.getStoredBytes()), map.getDedupRatio())).append("\n\n");
+        }
         details.append("Status: ").append(map.isAvailableOffline() ? "Available Offline" : "Not Available Offline");
 
         builder.setMessage(details.toString());
@@ -165,30 +471,44 @@ public class DownloadedMapsActivity extends AppCompatActivity implements MapList
     }
 
     private void deleteMap(DownloadedMap map) {
-        try {
-            databaseHelper.deleteDownloadedMap(map.getId());
-            
-            // Remove from list and update adapter
-            downloadedMaps.remove(map);
-            adapter.setMaps(downloadedMaps);
-            
-            // Show empty state if no maps left
-            if (downloadedMaps.isEmpty()) {
-                showEmptyState();
+        repository.deleteMap(this, map.getId(), new DownloadedMapRepository.Callback<Void>() {
+            @Override
+            public void onResult(Void result) {
+                // Remove from list and update adapter
+                adapter.removeMap(map);
+
+                // Show empty state if no maps left
+                if (adapter.getMapCount() == 0 && allPagesLoaded) {
+                    showEmptyState();
+                } else if (adapter.getMapCount() < PREFETCH_DISTANCE) {
+                    loadNextPage();
+                }
+
+                Toast.makeText(DownloadedMapsActivity.this, "Map \"" + map.getLabel() + "\" deleted successfully",
+                        Toast.LENGTH_SHORT).show();
             }
-            
-            Toast.makeText(this, "Map \"" + map.getLabel() + "\" deleted successfully", Toast.LENGTH_SHORT).show();
-            
-        } catch (Exception e) {
-            Toast.makeText(this, "Error deleting map: " + e.getMessage(), Toast.LENGTH_LONG).show();
-        }
+
+            @Override
+            public void onError(Exception e) {
+                Toast.makeText(DownloadedMapsActivity.this, "Error deleting map: " + e.getMessage(),
+                        Toast.LENGTH_LONG).show();
+            }
+        });
     }
 
     @Override
     protected void onResume() {
         super.onResume();
-        // Refresh the list when returning to this activity
-        loadDownloadedMaps();
+        // Refresh the list when returning to this activity, only if maps changed without being patched in
+        if (shownVersion != repository.getChangeVersion() && pageRequest == null) {
+            loadDownloadedMaps();
+        }
+    }
+
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        uiHandler.removeCallbacksAndMessages(null);
     }
 
     @Override
@@ -12,6 +12,8 @@ import androidx.appcompat.app.AppCompatActivity;
 import androidx.core.app.ActivityCompat;
 import androidx.core.content.ContextCompat;
 
+import com.example.myapplication.download.RegionDownloadManager;
+
 public class HomeActivity extends AppCompatActivity {
 
     private static final int LOCATION_PERMISSION_REQUEST_CODE = 1001;
@@ -26,6 +28,9 @@ public class HomeActivity extends AppCompatActivity {
 
         initializeViews();
         setupClickListeners();
+
+        // Pick up region downloads interrupted by the app being closed or killed
+        RegionDownloadManager.getInstance(this).resumePendingDownloads();
     }
 
     private void initializeViews() {
@@ -1,18 +1,20 @@
 package com.example.myapplication;
 
 import android.Manifest;
+import android.app.ActivityManager;
 import android.app.ProgressDialog;
 import android.content.Context;
 import android.content.DialogInterface;
 import android.content.pm.PackageManager;
 import android.location.Location;
-import android.location.LocationListener;
 import android.location.LocationManager;
 import android.net.ConnectivityManager;
+import android.net.Network;
 import android.net.NetworkInfo;
 import android.os.Bundle;
 import android.os.Handler;
 import android.os.Looper;
+import android.util.Log;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.widget.Button;
@@ -25,13 +27,33 @@ import androidx.appcompat.app.AlertDialog;
 import androidx.appcompat.app.AppCompatActivity;
 import androidx.core.app.ActivityCompat;
 
-import com.example.myapplication.database.MapDatabaseHelper;
+import com.example.myapplication.database.DownloadedMapRepository;
+import com.example.myapplication.database.TileDatabaseHelper;
+import com.example.myapplication.download.RegionDownloadManager;
+import com.example.myapplication.geo.GeoBounds;
+import com.example.myapplication.location.FixPolicy;
+import com.example.myapplication.location.FusedLocationSource;
+import com.example.myapplication.location.HandlerScheduler;
+import com.example.myapplication.location.LocationFixEngine;
+import com.example.myapplication.location.LocationSample;
+import com.example.myapplication.location.LocationSource;
+import com.example.myapplication.location.LocationTraceWriter;
+import com.example.myapplication.location.ProviderLocationSource;
+import com.example.myapplication.location.RecordingLocationSource;
+import com.example.myapplication.model.DownloadJob;
 import com.example.myapplication.model.DownloadedMap;
+import com.example.myapplication.tiles.DownloadEstimate;
+import com.example.myapplication.tiles.OfflineTileProvider;
+import com.example.myapplication.tiles.PrefetchConfig;
+import com.example.myapplication.tiles.PrefetchStats;
+import com.example.myapplication.tiles.TileCache;
+import com.example.myapplication.tiles.TilePrefetcher;
+import com.example.myapplication.tiles.TileRange;
+import com.example.myapplication.tiles.TileSizeEstimator;
+import com.example.myapplication.tiles.TileSources;
 
 import com.google.android.gms.location.FusedLocationProviderClient;
-import com.google.android.gms.location.LocationCallback;
 import com.google.android.gms.location.LocationRequest;
-import com.google.android.gms.location.LocationResult;
 import com.google.android.gms.location.LocationServices;
 import com.google.android.gms.location.Priority;
 import com.google.android.gms.maps.CameraUpdateFactory;
@@ -41,30 +63,56 @@ import com.google.android.gms.maps.SupportMapFragment;
 import com.google.android.gms.maps.model.LatLng;
 import com.google.android.gms.maps.model.LatLngBounds;
 import com.google.android.gms.maps.model.MarkerOptions;
+import com.google.android.gms.maps.model.TileOverlay;
+import com.google.android.gms.maps.model.TileOverlayOptions;
 
-import java.util.ArrayList;
-import java.util.List;
-import java.util.Timer;
-import java.util.TimerTask;
+import java.io.File;
+import java.io.IOException;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 public class MapsActivity extends AppCompatActivity implements OnMapReadyCallback {
+    private static final String TAG = "MapsActivity";
+
+    // Zoom levels fetched for an offline region
+    private static final int OFFLINE_MIN_ZOOM = 10;
+    private static final int OFFLINE_MAX_ZOOM = 16;
+    // Region saved around the current location
+    private static final double OFFLINE_RADIUS_METERS = 5000;
+
+    // Opt-in trace of every location sample, for diagnosing slow fixes
+    private static final String TRACE_DIR = "location-traces";
+    private static final long TRACE_MAX_FILE_BYTES = 1024 * 1024;
+    private static final int TRACE_MAX_FILES = 5;
 
     private GoogleMap mMap;
     private FusedLocationProviderClient fusedLocationClient;
-    private LocationCallback locationCallback;
     private Button getLocationButton;
     private Button normalButton, satelliteButton, hybridButton, terrainButton;
     private Button downloadMapButton;
     private TextView locationInfoTextView;
-    private Location currentLocation;
+    private LocationSample currentLocation;
     private ProgressDialog dialog;
     private Handler uiHandler;
-    private Timer timer;
-    private float currentAccuracy = Float.MAX_VALUE;
     private boolean isNetworkMode = false;
-    private List<Location> networkLocationCandidates;
-    private Timer networkAccuracyTimer;
-    private MapDatabaseHelper databaseHelper;
+    // The running location search; it schedules its deadlines on the shared main-thread scheduler
+    private LocationFixEngine fixEngine;
+    // Open while the user has trace recording on, otherwise null
+    private LocationTraceWriter locationTrace;
+    private DownloadedMapRepository mapRepository;
+    private RegionDownloadManager.Listener downloadListener;
+    // Download estimates and archive refreshes, off the main thread
+    private final ExecutorService backgroundExecutor = Executors.newSingleThreadExecutor();
+    private OfflineTileProvider offlineTileProvider;
+    private TileOverlay offlineTileOverlay;
+    private RegionDownloadManager.ArchiveListener archiveListener;
+    private ConnectivityManager.NetworkCallback networkCallback;
+
+    // Encoded PNG/JPEG tile bytes, as the offline provider returns them, shared by every map
+    // screen showing the same map type and bounded by their total size
+    private static TileCache tileCache;
+    private static String tileCacheMapType;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -75,11 +123,12 @@ public class MapsActivity extends AppCompatActivity implements OnMapReadyCallbac
         isNetworkMode = getIntent().getBooleanExtra("NETWORK_MODE", false);
 
         // Initialize database helper
-        databaseHelper = MapDatabaseHelper.getInstance(this);
+        mapRepository = DownloadedMapRepository.getInstance(this);
 
         initializeViews();
         initializeLocationServices();
         setupMap();
+        watchOfflineTiles();
 
         // Check if we should open a saved map
         handleSavedMapIntent();
@@ -121,6 +170,10 @@ public class MapsActivity extends AppCompatActivity implements OnMapReadyCallbac
                 getLocationFix();
             }
         });
+        getLocationButton.setOnLongClickListener(v -> {
+            toggleLocationTrace();
+            return true;
+        });
 
         // Map type button listeners
         normalButton.setOnClickListener(v -> changeMapType(GoogleMap.MAP_TYPE_NORMAL));
@@ -136,6 +189,7 @@ public class MapsActivity extends AppCompatActivity implements OnMapReadyCallbac
         if (mMap != null) {
             mMap.setMapType(mapType);
             updateButtonStates(mapType);
+            refreshOfflineTiles();
 
             // Show appropriate features based on map type
             switch (mapType) {
@@ -182,19 +236,6 @@ public class MapsActivity extends AppCompatActivity implements OnMapReadyCallbac
 
     private void initializeLocationServices() {
         fusedLocationClient = LocationServices.getFusedLocationProviderClient(this);
-        
-        locationCallback = new LocationCallback() {
-            @Override
-            public void onLocationResult(@NonNull LocationResult locationResult) {
-                if (locationResult == null) {
-                    return;
-                }
-                for (Location location : locationResult.getLocations()) {
-                    currentLocation = location;
-                    currentAccuracy = location.getAccuracy();
-                }
-            }
-        };
     }
 
     private void setupMap() {
@@ -218,6 +259,11 @@ public class MapsActivity extends AppCompatActivity implements OnMapReadyCallbac
             mMap.setMyLocationEnabled(true);
         }
 
+        // Without internet, draw the downloaded tiles over whatever Google Maps has cached
+        if (!isInternetAvailable()) {
+            showOfflineTiles();
+        }
+
         // Check if we have a pending saved map to open
         if (getIntent().getBooleanExtra("PENDING_SAVED_MAP", false)) {
             double lat = getIntent().getDoubleExtra("MAP_CENTER_LAT", 0);
@@ -261,6 +307,142 @@ public class MapsActivity extends AppCompatActivity implements OnMapReadyCallbac
         }
     }
 
+    /**
+     * Keep the offline overlay current: drawn only while there is no connection, and showing
+     * regions sealed or deleted while it is up.
+     */
+    private void watchOfflineTiles() {
+        archiveListener = mapType -> {
+            OfflineTileProvider provider = offlineTileProvider;
+            if (provider == null || !mapType.equals(getCurrentMapTypeString())) {
+                return;
+            }
+            backgroundExecutor.execute(() -> {
+                if (provider.refreshArchives()) {
+                    uiHandler.post(() -> {
+                        if (provider == offlineTileProvider && offlineTileOverlay != null) {
+                            offlineTileOverlay.clearTileCache();
+                        }
+                    });
+                }
+            });
+        };
+        RegionDownloadManager.getInstance(this).addArchiveListener(archiveListener);
+
+        ConnectivityManager connectivityManager = (ConnectivityManager) getSystemService(Context.CONNECTIVITY_SERVICE);
+        if (connectivityManager != null) {
+            networkCallback = new ConnectivityManager.NetworkCallback() {
+                @Override
+                public void onAvailable(Network network) {
+                    uiHandler.post(() -> {
+                        hideOfflineTiles();
+                        updateDownloadButtonVisibility();
+                    });
+                }
+
+                @Override
+                public void onLost(Network network) {
+                    uiHandler.post(() -> {
+                        if (!isDestroyed() && !isInternetAvailable()) {
+                            showOfflineTiles();
+                        }
+                        updateDownloadButtonVisibility();
+                    });
+                }
+            };
+            connectivityManager.registerDefaultNetworkCallback(networkCallback);
+        }
+    }
+
+    private void stopWatchingOfflineTiles() {
+        if (archiveListener != null) {
+            RegionDownloadManager.getInstance(this).removeArchiveListener(archiveListener);
+            archiveListener = null;
+        }
+        if (networkCallback != null) {
+            ((ConnectivityManager) getSystemService(Context.CONNECTIVITY_SERVICE)).unregisterNetworkCallback(networkCallback);
+            networkCallback = null;
+        }
+    }
+
+    // Draw the tiles downloaded for the current map type
+    private void showOfflineTiles() {
+        if (mMap == null || offlineTileOverlay != null) {
+            return;
+        }
+        String mapType = getCurrentMapTypeString();
+        TileDatabaseHelper tileDatabase = TileDatabaseHelper.getInstance(this, mapType);
+        offlineTileProvider = new OfflineTileProvider(tileDatabase, getTileCache(mapType), tileDatabase.getArchiveDir());
+        offlineTileOverlay = mMap.addTileOverlay(new TileOverlayOptions()
+                .tileProvider(offlineTileProvider)
+                .zIndex(1));
+    }
+
+    private void hideOfflineTiles() {
+        if (offlineTileOverlay != null) {
+            offlineTileOverlay.remove();
+            offlineTileOverlay = null;
+        }
+        if (offlineTileProvider != null) {
+            offlineTileProvider.close();
+            offlineTileProvider = null;
+        }
+    }
+
+    // Offline tiles of one map type must not be drawn over another, so swap the overlay
+    private void refreshOfflineTiles() {
+        if (offlineTileOverlay != null) {
+            hideOfflineTiles();
+            showOfflineTiles();
+        }
+    }
+
+    // GoogleMap.clear() also drops tile overlays, so put the offline tiles back afterwards
+    private void clearMap() {
+        mMap.clear();
+        if (offlineTileProvider != null) {
+            offlineTileOverlay = mMap.addTileOverlay(new TileOverlayOptions()
+                    .tileProvider(offlineTileProvider)
+                    .zIndex(1));
+        }
+    }
+
+    // A screen switching to another map type starts a new cache; screens still on the old
+    // type keep the one their overlay holds
+    private TileCache getTileCache(String mapType) {
+        synchronized (MapsActivity.class) {
+            if (tileCache == null || !mapType.equals(tileCacheMapType)) {
+                // An eighth of the app's heap budget
+                ActivityManager activityManager = (ActivityManager) getSystemService(Context.ACTIVITY_SERVICE);
+                long budget = activityManager.getMemoryClass() * 1024L * 1024L / 8;
+                tileCache = new TileCache(budget);
+                tileCacheMapType = mapType;
+            }
+            return tileCache;
+        }
+    }
+
+    @Override
+    public void onTrimMemory(int level) {
+        super.onTrimMemory(level);
+        TileCache cache;
+        synchronized (MapsActivity.class) {
+            cache = tileCache;
+        }
+        if (cache == null) {
+            return;
+        }
+
+        if (level >= TRIM_MEMORY_MODERATE || level == TRIM_MEMORY_RUNNING_CRITICAL) {
+            cache.clear();
+        } else if (level >= TRIM_MEMORY_UI_HIDDEN || level == TRIM_MEMORY_RUNNING_LOW) {
+            cache.trimToSize(cache.getMaxBytes() / 4);
+        } else {
+            cache.trimToSize(cache.getMaxBytes() / 2);
+        }
+        Log.d(TAG, "Trimmed tile cache for level " + level + ": " + cache);
+    }
+
     private void getNetworkLocation() {
         final String message = getString(R.string.please_wait_network);
         dialog = new ProgressDialog(MapsActivity.this);
@@ -282,37 +464,78 @@ public class MapsActivity extends AppCompatActivity implements OnMapReadyCallbac
 
         dialog.show();
 
-        // Initialize network location candidates list
-        networkLocationCandidates = new ArrayList<>();
-
-        // Use STRICT network-only location with accuracy improvement
-        startNetworkLocationWithAccuracyImprovement();
-    }
-
-    private void handleNetworkLocationCancel() {
-        // Stop all location updates
-        if (networkAccuracyTimer != null) {
-            networkAccuracyTimer.cancel();
+        if (ActivityCompat.checkSelfPermission(this, Manifest.permission.ACCESS_COARSE_LOCATION)
+                != PackageManager.PERMISSION_GRANTED) {
+            return;
         }
 
+        // STRICT network-only search: cell/WiFi fixes, plus cached fixes from other apps; GPS is rejected
         LocationManager locationManager = (LocationManager) getSystemService(LOCATION_SERVICE);
-        try {
-            locationManager.removeUpdates(new LocationListener() {
-                @Override public void onLocationChanged(@NonNull Location location) {}
-                @Override public void onProviderEnabled(@NonNull String provider) {}
-                @Override public void onProviderDisabled(@NonNull String provider) {}
-            });
-        } catch (Exception e) {
-            // Ignore cleanup errors
-        }
+        startLocationSearch(new LocationFixEngine(FixPolicy.network(), LocationFixEngine.SYSTEM_CLOCK,
+                HandlerScheduler.getMainThread(),
+                new LocationFixEngine.Listener() {
+            @Override
+            public void onSample(LocationSample sample, LocationSample best) {
+                currentLocation = sample;
+                if (dialog != null && dialog.isShowing()) {
+                    dialog.setMessage("Network location from " + getLocationSource(sample) +
+                                    "\nCurrent Accuracy: " + (int) sample.getAccuracyMeters() + "m" +
+                                    "\nWaiting for better accuracy...");
+                }
+            }
+
+            @Override
+            public void onSampleRejected(LocationSample sample, int reason) {
+                if (reason == LocationFixEngine.REJECTED_GPS) {
+                    makeCenterToast("Rejecting GPS location, waiting for network...", Toast.LENGTH_SHORT);
+                }
+            }
 
+            @Override
+            public void onProgress(int percent, LocationSample best, long elapsedMillis) {
+                if (dialog == null || !dialog.isShowing()) {
+                    return;
+                }
+                dialog.setProgress(percent);
+                long elapsedSeconds = elapsedMillis / 1000;
+                if (best == null) {
+                    dialog.setMessage("Searching for network location...\nElapsed: " + elapsedSeconds +
+                                    "s\nClick Cancel button to stop waiting");
+                } else {
+                    dialog.setMessage("Improving accuracy from " + getLocationSource(best) +
+                                    "\nCurrent: " + (int) best.getAccuracyMeters() + "m" +
+                                    "\nElapsed: " + elapsedSeconds + "s" +
+                                    "\nClick Cancel to use current location");
+                }
+            }
+
+            @Override
+            public void onFix(LocationSample fix) {
+                dismissDialog();
+                updateUI(fix);
+                makeCenterToast("Best network location from " + getLocationSource(fix) +
+                              " (Accuracy: " + (int) fix.getAccuracyMeters() + "m)",
+                              Toast.LENGTH_LONG);
+            }
+
+            @Override
+            public void onNoFix() {
+                dismissDialog();
+                showFallbackLocation();
+            }
+        })
+                .addSource(recorded(new ProviderLocationSource(locationManager, LocationManager.NETWORK_PROVIDER, 3000, true)))
+                .addSource(recorded(new ProviderLocationSource(locationManager, LocationManager.PASSIVE_PROVIDER, 5000, false))));
+    }
+
+    private void handleNetworkLocationCancel() {
         // Use best available location or show current area
-        if (!networkLocationCandidates.isEmpty()) {
-            Location bestLocation = getBestNetworkLocation();
+        LocationSample bestLocation = stopLocationSearch();
+        if (bestLocation != null) {
             updateUI(bestLocation);
             String source = getLocationSource(bestLocation);
             makeCenterToast("Using current network location from " + source +
-                          " (Accuracy: " + (int)bestLocation.getAccuracy() + "m)",
+                          " (Accuracy: " + (int) bestLocation.getAccuracyMeters() + "m)",
                           Toast.LENGTH_LONG);
         } else {
             // No network location available, show a default location or last known
@@ -327,22 +550,22 @@ public class MapsActivity extends AppCompatActivity implements OnMapReadyCallbac
                 == PackageManager.PERMISSION_GRANTED) {
 
             // Try to get any last known location (excluding GPS)
-            Location lastNetworkLocation = locationManager.getLastKnownLocation(LocationManager.NETWORK_PROVIDER);
-            Location lastPassiveLocation = locationManager.getLastKnownLocation(LocationManager.PASSIVE_PROVIDER);
-
-            Location fallbackLocation = null;
-
-            if (lastNetworkLocation != null && !isLocationFromGPS(lastNetworkLocation)) {
-                fallbackLocation = lastNetworkLocation;
-            } else if (lastPassiveLocation != null && !isLocationFromGPS(lastPassiveLocation)) {
-                fallbackLocation = lastPassiveLocation;
+            FixPolicy policy = FixPolicy.network();
+            long now = System.currentTimeMillis();
+            LocationSample fallbackLocation = null;
+            for (String provider : new String[]{LocationManager.NETWORK_PROVIDER, LocationManager.PASSIVE_PROVIDER}) {
+                Location lastKnown = locationManager.getLastKnownLocation(provider);
+                if (lastKnown != null && !policy.isGps(ProviderLocationSource.sampleOf(lastKnown), now)) {
+                    fallbackLocation = ProviderLocationSource.sampleOf(lastKnown);
+                    break;
+                }
             }
 
             if (fallbackLocation != null) {
                 updateUI(fallbackLocation);
-                long locationAge = (System.currentTimeMillis() - fallbackLocation.getTime()) / 1000 / 60; // minutes
+                long locationAge = (now - fallbackLocation.getTimeMillis()) / 1000 / 60; // minutes
                 makeCenterToast("Using cached network location (" + locationAge + " min old, " +
-                              (int)fallbackLocation.getAccuracy() + "m accuracy)", Toast.LENGTH_LONG);
+                              (int) fallbackLocation.getAccuracyMeters() + "m accuracy)", Toast.LENGTH_LONG);
             } else {
                 // Show approximate location based on IP or default area
                 showApproximateLocation();
@@ -358,7 +581,7 @@ public class MapsActivity extends AppCompatActivity implements OnMapReadyCallbac
         LatLng defaultLocation = new LatLng(40.7128, -74.0060); // New York City as example
 
         if (mMap != null) {
-            mMap.clear();
+            clearMap();
             mMap.addMarker(new MarkerOptions()
                     .position(defaultLocation)
                     .title("Approximate Location")
@@ -371,192 +594,69 @@ public class MapsActivity extends AppCompatActivity implements OnMapReadyCallbac
         makeCenterToast("Network location unavailable - showing approximate area", Toast.LENGTH_LONG);
     }
 
-    private void startNetworkLocationWithAccuracyImprovement() {
-        LocationManager locationManager = (LocationManager) getSystemService(LOCATION_SERVICE);
-
-        if (ActivityCompat.checkSelfPermission(this, Manifest.permission.ACCESS_COARSE_LOCATION)
-                != PackageManager.PERMISSION_GRANTED) {
-            return;
-        }
-
-        // Create location listener for network provider only
-        LocationListener networkLocationListener = new LocationListener() {
-            @Override
-            public void onLocationChanged(@NonNull Location location) {
-                // Double-check this is not from GPS
-                if (!isLocationFromGPS(location)) {
-                    // Add to candidates list for accuracy improvement
-                    networkLocationCandidates.add(location);
-                    currentLocation = location;
-                    currentAccuracy = location.getAccuracy();
-
-                    // Update progress and message
-                    uiHandler.post(() -> {
-                        if (dialog != null && dialog.isShowing()) {
-                            String source = getLocationSource(location);
-                            dialog.setMessage("Network location from " + source +
-                                            "\nCurrent Accuracy: " + (int)location.getAccuracy() + "m" +
-                                            "\nWaiting for better accuracy...");
-                        }
-                    });
-                } else {
-                    makeCenterToast("Rejecting GPS location, waiting for network...", Toast.LENGTH_SHORT);
-                }
-            }
+    // Start the engine's sources; it finishes by itself or when stopped
+    private void startLocationSearch(LocationFixEngine engine) {
+        stopLocationSearch();
+        fixEngine = engine;
+        fixEngine.start();
+    }
 
-            @Override
-            public void onProviderEnabled(@NonNull String provider) {}
+    // Stop the running search, if any; returns its best fix so far
+    private LocationSample stopLocationSearch() {
+        LocationSample best = fixEngine != null ? fixEngine.cancel() : null;
+        fixEngine = null;
+        return best;
+    }
 
-            @Override
-            public void onProviderDisabled(@NonNull String provider) {
-                makeCenterToast("Network provider disabled", Toast.LENGTH_SHORT);
+    // The source as is, or also writing its samples to the trace while recording is on
+    private LocationSource recorded(LocationSource source) {
+        if (locationTrace == null) {
+            return source;
+        }
+        final LocationTraceWriter trace = locationTrace;
+        return new RecordingLocationSource(source, trace, e -> {
+            Log.w(TAG, "Location trace stopped", e);
+            if (locationTrace == trace) {
+                closeLocationTrace();
             }
-        };
+        });
+    }
 
-        // Request location updates from NETWORK provider ONLY
+    private void toggleLocationTrace() {
+        if (locationTrace != null) {
+            long records = locationTrace.getRecordCount();
+            File directory = new File(getFilesDir(), TRACE_DIR);
+            closeLocationTrace();
+            makeCenterToast("Location trace stopped: " + records + " samples in " + directory, Toast.LENGTH_LONG);
+            return;
+        }
         try {
-            // First try to get last known network location
-            Location lastNetworkLocation = locationManager.getLastKnownLocation(LocationManager.NETWORK_PROVIDER);
-            if (lastNetworkLocation != null && !isLocationFromGPS(lastNetworkLocation)) {
-                // Use cached network location if available and not too old
-                long locationAge = System.currentTimeMillis() - lastNetworkLocation.getTime();
-                if (locationAge < 300000) { // Less than 5 minutes old
-                    networkLocationCandidates.add(lastNetworkLocation);
-                }
-            }
-
-            // Request fresh network location with frequent updates for accuracy improvement
-            locationManager.requestLocationUpdates(
-                LocationManager.NETWORK_PROVIDER,
-                3000,  // 3 second intervals for better accuracy sampling
-                0,     // No minimum distance
-                networkLocationListener,
-                Looper.getMainLooper()
-            );
-
-            // Fallback to passive provider (cached locations from other apps)
-            locationManager.requestLocationUpdates(
-                LocationManager.PASSIVE_PROVIDER,
-                5000,  // 5 second intervals
-                0,     // No minimum distance
-                networkLocationListener,
-                Looper.getMainLooper()
-            );
-
-            // Start accuracy improvement timer
-            startNetworkAccuracyMonitoring(locationManager, networkLocationListener);
-
-        } catch (Exception e) {
-            makeCenterToast("Network location not available", Toast.LENGTH_LONG);
-            if (dialog != null && dialog.isShowing()) {
-                dialog.dismiss();
-            }
+            locationTrace = new LocationTraceWriter(new File(new File(getFilesDir(), TRACE_DIR), "trace.bin"),
+                    TRACE_MAX_FILE_BYTES, TRACE_MAX_FILES);
+            makeCenterToast("Recording location trace from the next search", Toast.LENGTH_SHORT);
+        } catch (IOException e) {
+            Log.w(TAG, "Could not start location trace", e);
+            makeCenterToast("Could not start location trace", Toast.LENGTH_SHORT);
         }
     }
 
-    private void startNetworkAccuracyMonitoring(LocationManager locationManager, LocationListener listener) {
-        networkAccuracyTimer = new Timer(true);
-        final TimerTask accuracyTask = new TimerTask() {
-            private int elapsedSeconds = 0;
-
-            @Override
-            public void run() {
-                elapsedSeconds += 3;
-
-                uiHandler.post(() -> {
-                    // Check if dialog was cancelled
-                    if (dialog == null || !dialog.isShowing()) {
-                        locationManager.removeUpdates(listener);
-                        networkAccuracyTimer.cancel();
-                        return;
-                    }
-
-                    if (networkLocationCandidates.isEmpty()) {
-                        // No location yet, update progress
-                        int progress = Math.min((elapsedSeconds * 100) / 45, 30); // Max 30% until first location
-                        dialog.setProgress(progress);
-                        dialog.setMessage("Searching for network location...\nElapsed: " + elapsedSeconds + "s\nClick Cancel button to stop waiting");
-                        return;
-                    }
-
-                    // Find best accuracy location from candidates
-                    Location bestLocation = getBestNetworkLocation();
-                    float bestAccuracy = bestLocation.getAccuracy();
-                    String source = getLocationSource(bestLocation);
-
-                    // Update progress based on accuracy improvement
-                    int progress = calculateNetworkProgress(bestAccuracy, elapsedSeconds);
-                    dialog.setProgress(progress);
-                    dialog.setMessage("Improving accuracy from " + source +
-                                    "\nCurrent: " + (int)bestAccuracy + "m" +
-                                    "\nElapsed: " + elapsedSeconds + "s" +
-                                    "\nClick Cancel to use current location");
-
-                    // Check if we should complete based on accuracy or time
-                    boolean shouldComplete = false;
-
-                    if (bestAccuracy <= 100) { // Very good network accuracy
-                        shouldComplete = true;
-                    } else if (bestAccuracy <= 300 && elapsedSeconds >= 15) { // Good accuracy after 15s
-                        shouldComplete = true;
-                    } else if (bestAccuracy <= 500 && elapsedSeconds >= 30) { // Acceptable accuracy after 30s
-                        shouldComplete = true;
-                    } else if (elapsedSeconds >= 45) { // Timeout after 45s
-                        shouldComplete = true;
-                    }
-
-                    if (shouldComplete) {
-                        // Complete with best location found
-                        locationManager.removeUpdates(listener);
-                        networkAccuracyTimer.cancel();
-
-                        dialog.setProgress(100);
-                        dialog.dismiss();
-
-                        updateUI(bestLocation);
-                        makeCenterToast("Best network location from " + source +
-                                      " (Accuracy: " + (int)bestLocation.getAccuracy() + "m)",
-                                      Toast.LENGTH_LONG);
-                    }
-                });
-            }
-        };
-
-        networkAccuracyTimer.schedule(accuracyTask, 0, 3000); // Check every 3 seconds
-    }
-
-    private Location getBestNetworkLocation() {
-        if (networkLocationCandidates.isEmpty()) {
-            return currentLocation;
+    private void closeLocationTrace() {
+        if (locationTrace == null) {
+            return;
         }
-
-        Location bestLocation = networkLocationCandidates.get(0);
-        for (Location candidate : networkLocationCandidates) {
-            // Prefer more recent locations with better accuracy
-            long timeDiff = candidate.getTime() - bestLocation.getTime();
-            float accuracyDiff = bestLocation.getAccuracy() - candidate.getAccuracy();
-
-            // Choose candidate if it's significantly more accurate or much more recent
-            if (accuracyDiff > 50 || (timeDiff > 10000 && accuracyDiff > -100)) {
-                bestLocation = candidate;
-            }
+        try {
+            locationTrace.close();
+        } catch (IOException e) {
+            Log.w(TAG, "Could not close location trace", e);
         }
-
-        return bestLocation;
+        locationTrace = null;
     }
 
-    private int calculateNetworkProgress(float accuracy, int elapsedSeconds) {
-        int baseProgress = Math.min((elapsedSeconds * 100) / 45, 90); // Time-based progress
-
-        // Accuracy bonus
-        int accuracyBonus = 0;
-        if (accuracy <= 100) accuracyBonus = 10;
-        else if (accuracy <= 200) accuracyBonus = 8;
-        else if (accuracy <= 300) accuracyBonus = 6;
-        else if (accuracy <= 500) accuracyBonus = 4;
-        else if (accuracy <= 1000) accuracyBonus = 2;
-
-        return Math.min(baseProgress + accuracyBonus, 100);
+    private void dismissDialog() {
+        if (dialog != null && dialog.isShowing()) {
+            dialog.setProgress(100);
+            dialog.dismiss();
+        }
     }
 
     private void downloadOfflineMap() {
@@ -572,17 +672,21 @@ public class MapsActivity extends AppCompatActivity implements OnMapReadyCallbac
             return;
         }
 
+        if (offlinePrefetchConfig(getCurrentMapTypeString()) == null) {
+            makeCenterToast("No offline tile server is configured for the " +
+                    getCurrentMapTypeString().toLowerCase(Locale.US) + " map", Toast.LENGTH_LONG);
+            return;
+        }
+
         // Get current map bounds or use current location area
         LatLngBounds bounds;
         if (currentLocation != null) {
-            // Create bounds around current location (approximately 10km radius)
-            double lat = currentLocation.getLatitude();
-            double lng = currentLocation.getLongitude();
-            double offset = 0.05; // Approximately 5km in each direction
-
+            // Bounds holding everything within the radius of the current location
+            double[] box = GeoBounds.boundsAround(currentLocation.getLatitude(), currentLocation.getLongitude(),
+                    OFFLINE_RADIUS_METERS, new double[4]);
             bounds = new LatLngBounds(
-                new LatLng(lat - offset, lng - offset), // Southwest corner
-                new LatLng(lat + offset, lng + offset)  // Northeast corner
+                new LatLng(box[GeoBounds.SOUTH], box[GeoBounds.WEST]), // Southwest corner
+                new LatLng(box[GeoBounds.NORTH], box[GeoBounds.EAST])  // Northeast corner
             );
         } else {
             // Default bounds if no location available
@@ -608,8 +712,15 @@ public class MapsActivity extends AppCompatActivity implements OnMapReadyCallbac
         // Set map information
         LatLng center = bounds.getCenter();
         locationTextView.setText(String.format("Location: %.4f, %.4f", center.latitude, center.longitude));
-        typeTextView.setText("Type: " + getCurrentMapTypeString());
-        sizeTextView.setText("Area: ~10km radius");
+        String mapType = getCurrentMapTypeString();
+        typeTextView.setText("Type: " + mapType);
+        // Exact tile counts per zoom right away, the sizes sampled from the map type's tile
+        // server once they arrive
+        TileDatabaseHelper tileDatabase = TileDatabaseHelper.getInstance(this, mapType);
+        TilePrefetcher prefetcher = new TilePrefetcher(offlinePrefetchConfig(mapType), tileDatabase);
+        TileRange range = prefetcher.rangeFor(bounds.southwest.latitude, bounds.southwest.longitude,
+                bounds.northeast.latitude, bounds.northeast.longitude);
+        sizeTextView.setText(describeEstimate(TileSizeEstimator.countTiles(range), false));
 
         // Create and show dialog
         AlertDialog.Builder builder = new AlertDialog.Builder(this);
@@ -633,17 +744,72 @@ public class MapsActivity extends AppCompatActivity implements OnMapReadyCallbac
                 return;
             }
 
-            // Check if label already exists
-            if (databaseHelper.isMapLabelExists(label)) {
-                labelEditText.setError("A map with this label already exists");
-                return;
-            }
+            // Check if label already exists, off the main thread
+            downloadButton.setEnabled(false);
+            mapRepository.isLabelTaken(this, label, taken -> {
+                downloadButton.setEnabled(true);
+                if (taken) {
+                    labelEditText.setError("A map with this label already exists");
+                    return;
+                }
 
-            dialog.dismiss();
-            startOfflineMapDownloadWithLabel(bounds, label, description);
+                dialog.dismiss();
+                startOfflineMapDownloadWithLabel(bounds, label, description);
+            });
         });
 
         dialog.show();
+
+        backgroundExecutor.execute(() -> {
+            DownloadEstimate estimate;
+            try {
+                estimate = new TileSizeEstimator(tileDatabase, prefetcher).estimate(range);
+            } catch (InterruptedException e) {
+                return;
+            }
+            Log.d(TAG, "Download estimate: " + estimate);
+            uiHandler.post(() -> {
+                if (dialog.isShowing()) {
+                    sizeTextView.setText(describeEstimate(estimate, true));
+                }
+            });
+        });
+    }
+
+    // Tiles and, once sampled, estimated size of each zoom level of the estimate's map type,
+    // then the totals
+    private static String describeEstimate(DownloadEstimate estimate, boolean sized) {
+        StringBuilder text = new StringBuilder();
+        for (int zoom = estimate.getMinZoom(); zoom <= estimate.getMaxZoom(); zoom++) {
+            text.append(String.format(Locale.US, "Zoom %d: %,d tiles", zoom, estimate.getTileCount(zoom)));
+            if (sized) {
+                text.append(", ~").append(DownloadedMap.formatSize(estimate.getEstimatedBytes(zoom)));
+            }
+            text.append('\n');
+        }
+        text.append(String.format(Locale.US, "Total: %,d tiles", estimate.getTileCount()));
+        if (!sized) {
+            text.append(", estimated size: calculating...");
+        } else if (estimate.getSampledTiles() == 0) {
+            text.append(", ~").append(DownloadedMap.formatSize(estimate.getEstimatedBytes()))
+                    .append(" (rough guess, no tiles sampled)");
+        } else {
+            text.append(", ~").append(DownloadedMap.formatSize(estimate.getEstimatedBytes()));
+        }
+        return text.toString();
+    }
+
+    // Tile source and zoom levels of an offline region download, or null when no tile
+    // server is configured for the map type
+    private PrefetchConfig offlinePrefetchConfig(String mapType) {
+        String urlTemplate = TileSources.urlTemplate(mapType);
+        if (urlTemplate == null) {
+            return null;
+        }
+        return new PrefetchConfig()
+                .setUrlTemplate(urlTemplate)
+                .setMinZoom(OFFLINE_MIN_ZOOM)
+                .setMaxZoom(OFFLINE_MAX_ZOOM);
     }
 
     private void startOfflineMapDownloadWithLabel(LatLngBounds bounds, String label, String description) {
@@ -668,33 +834,87 @@ public class MapsActivity extends AppCompatActivity implements OnMapReadyCallbac
             downloadedMap.setDescription(description);
         }
 
-        // Save to database
-        long mapId = databaseHelper.addDownloadedMap(downloadedMap);
+        // Only a completed download job makes the map available offline
+        downloadedMap.setAvailableOffline(false);
 
-        if (mapId > 0) {
-            // Enable map caching and show success
-            enableMapCachingWithLabel(label);
-        } else {
-            Toast.makeText(this, "Failed to save map information", Toast.LENGTH_LONG).show();
-        }
+        // Save to database
+        mapRepository.addMap(this, downloadedMap, mapId -> {
+            if (mapId > 0) {
+                // Fetch the tiles for the saved area
+                downloadedMap.setId(mapId);
+                enableMapCachingWithLabel(downloadedMap);
+            } else {
+                Toast.makeText(this, "Failed to save map information", Toast.LENGTH_LONG).show();
+            }
+        });
     }
 
-    private void enableMapCachingWithLabel(String label) {
-        // Enable map caching for better offline experience
-        if (mMap != null) {
-            // Google Maps automatically caches viewed areas
-            // We can help by pre-loading the current area
-            LatLngBounds bounds = mMap.getProjection().getVisibleRegion().latLngBounds;
-
-            // Move camera around the area to trigger caching
-            LatLng center = bounds.getCenter();
-            for (int zoom = 10; zoom <= 16; zoom++) {
-                mMap.moveCamera(CameraUpdateFactory.newLatLngZoom(center, zoom));
+    private void enableMapCachingWithLabel(DownloadedMap map) {
+        // Download every tile of the saved bounds as a persistent, resumable job
+        final String label = map.getLabel();
+        final long mapId = map.getId();
+        PrefetchConfig config = offlinePrefetchConfig(map.getMapType());
+        final RegionDownloadManager downloadManager = RegionDownloadManager.getInstance(this);
+
+        final ProgressDialog downloadDialog = new ProgressDialog(MapsActivity.this);
+        downloadDialog.setTitle(getString(R.string.downloading_offline_map));
+        downloadDialog.setMessage("Downloading tiles for \"" + label + "\"");
+        downloadDialog.setProgressStyle(ProgressDialog.STYLE_HORIZONTAL);
+        downloadDialog.setMax(100);
+        downloadDialog.setCanceledOnTouchOutside(false);
+        downloadDialog.setCancelable(false);
+        downloadDialog.setButton(DialogInterface.BUTTON_NEGATIVE, "Cancel", (dialogInterface, which) -> {
+            downloadManager.cancel(mapId);
+            dialogInterface.dismiss();
+        });
+        // Leaving the screen only hides the progress; the download keeps going
+        downloadDialog.setButton(DialogInterface.BUTTON_POSITIVE, "Hide", (dialogInterface, which) ->
+                dialogInterface.dismiss());
+        downloadDialog.show();
+
+        removeDownloadListener();
+        downloadListener = new RegionDownloadManager.Listener() {
+            @Override
+            public void onProgress(long id, long completed, long total, long bytes) {
+                if (id == mapId && downloadDialog.isShowing()) {
+                    downloadDialog.setProgress((int) (completed * 100 / Math.max(1, total)));
+                    downloadDialog.setMessage("Tiles: " + completed + " / " + total +
+                            "\nDownloaded: " + (bytes / 1024) + " KB");
+                }
             }
 
-            makeCenterToast("Map \"" + label + "\" saved successfully!\nViewed areas will be cached for offline use.",
-                          Toast.LENGTH_LONG);
-            updateDownloadButtonState(true);
+            @Override
+            public void onFinished(long id, DownloadJob job, PrefetchStats result) {
+                if (id != mapId) {
+                    return;
+                }
+                removeDownloadListener();
+                if (downloadDialog.isShowing()) {
+                    downloadDialog.dismiss();
+                }
+                if (result.isCancelled()) {
+                    makeCenterToast("Download of \"" + label + "\" cancelled", Toast.LENGTH_LONG);
+                } else if (job == null || !DownloadJob.STATUS_COMPLETE.equals(job.getStatus())) {
+                    makeCenterToast("Download of \"" + label + "\" paused with " + result.getTilesFailed() +
+                            " tiles missing; it resumes when the connection returns", Toast.LENGTH_LONG);
+                } else {
+                    makeCenterToast(String.format(Locale.US,
+                            "Map \"%s\" downloaded: %d tiles, %d KB (%.0f tiles/s)",
+                            label, result.getTilesFetched() + result.getTilesSkipped(),
+                            result.getBytesFetched() / 1024, result.getTilesPerSecond()),
+                            Toast.LENGTH_LONG);
+                    updateDownloadButtonState(true);
+                }
+            }
+        };
+        downloadManager.addListener(downloadListener);
+        downloadManager.startDownload(map, config);
+    }
+
+    private void removeDownloadListener() {
+        if (downloadListener != null) {
+            RegionDownloadManager.getInstance(this).removeListener(downloadListener);
+            downloadListener = null;
         }
     }
 
@@ -746,95 +966,24 @@ public class MapsActivity extends AppCompatActivity implements OnMapReadyCallbac
         updateDownloadButtonVisibility();
     }
 
-    private void startNetworkLocationUpdates() {
-        // Create location request that STRICTLY excludes GPS
-        LocationRequest locationRequest = new LocationRequest.Builder(Priority.PRIORITY_LOW_POWER, 10000)
-                .setWaitForAccurateLocation(false)
-                .setMinUpdateIntervalMillis(5000)
-                .setMaxUpdateDelayMillis(15000)
-                .build();
-
-        if (ActivityCompat.checkSelfPermission(this, Manifest.permission.ACCESS_COARSE_LOCATION)
-                == PackageManager.PERMISSION_GRANTED) {
-
-            fusedLocationClient.requestLocationUpdates(locationRequest, new LocationCallback() {
-                @Override
-                public void onLocationResult(@NonNull LocationResult locationResult) {
-                    if (locationResult != null && !locationResult.getLocations().isEmpty()) {
-                        Location location = locationResult.getLocations().get(0);
-
-                        // STRICT CHECK: Reject GPS-based locations
-                        if (isLocationFromGPS(location)) {
-                            makeCenterToast("GPS location detected, waiting for network location...", Toast.LENGTH_SHORT);
-                            return; // Skip GPS locations
-                        }
-
-                        currentLocation = location;
-                        currentAccuracy = location.getAccuracy();
-
-                        // Stop updates after getting first network result
-                        fusedLocationClient.removeLocationUpdates(this);
-
-                        uiHandler.post(() -> {
-                            if (dialog != null && dialog.isShowing()) {
-                                dialog.dismiss();
-                            }
-                            updateUI(location);
-                            String source = getLocationSource(location);
-                            makeCenterToast("Network location found from " + source +
-                                          " (Accuracy: " + (int)location.getAccuracy() + "m)",
-                                          Toast.LENGTH_LONG);
-                        });
-                    }
-                }
-            }, Looper.getMainLooper());
-
-            // Set timeout for network location
-            uiHandler.postDelayed(() -> {
-                if (dialog != null && dialog.isShowing()) {
-                    dialog.dismiss();
-                    makeCenterToast("Network location timeout. Try moving to area with better cell/WiFi coverage.",
-                                  Toast.LENGTH_LONG);
-                }
-            }, 20000); // 20 second timeout for network-only
-        }
-    }
-
-    private boolean isLocationFromGPS(Location location) {
-        // Check if location provider is GPS
-        String provider = location.getProvider();
-        if (provider != null && provider.equals("gps")) {
-            return true;
-        }
-
-        // Additional check: GPS locations typically have very high accuracy (< 20m)
-        // and are obtained quickly, while network locations are usually > 50m accuracy
-        if (location.getAccuracy() < 20 && location.getTime() > (System.currentTimeMillis() - 30000)) {
-            return true; // Likely GPS if very accurate and recent
-        }
-
-        return false;
-    }
-
-    private String getLocationSource(Location location) {
-        String provider = location.getProvider();
-        if (provider != null) {
-            switch (provider.toLowerCase()) {
-                case "network":
-                    return "Cell Tower/WiFi";
-                case "passive":
-                    return "Cached Network";
-                case "fused":
-                    return "Network Services";
-                default:
-                    return "Network Provider";
-            }
+    private String getLocationSource(LocationSample location) {
+        switch (location.getSource()) {
+            case LocationSample.SOURCE_NETWORK:
+                return "Cell Tower/WiFi";
+            case LocationSample.SOURCE_PASSIVE:
+                return "Cached Network";
+            case LocationSample.SOURCE_FUSED:
+                return "Network Services";
+            case LocationSample.SOURCE_GPS:
+                return "Network Provider";
+            case LocationSample.SOURCE_FILTERED:
+                return "Combined Sources";
         }
 
         // Determine source based on accuracy
-        if (location.getAccuracy() > 1000) {
+        if (location.getAccuracyMeters() > 1000) {
             return "IP Geolocation";
-        } else if (location.getAccuracy() > 100) {
+        } else if (location.getAccuracyMeters() > 100) {
             return "Cell Tower";
         } else {
             return "WiFi Network";
@@ -856,10 +1005,7 @@ public class MapsActivity extends AppCompatActivity implements OnMapReadyCallbac
             dialog.setButton(DialogInterface.BUTTON_NEGATIVE, "Cancel", new DialogInterface.OnClickListener() {
                 @Override
                 public void onClick(DialogInterface dialogInterface, int which) {
-                    stopLocationUpdates();
-                    if (timer != null) {
-                        timer.cancel();
-                    }
+                    stopLocationSearch();
                     dialogInterface.dismiss();
                     makeCenterToast("Location search cancelled", Toast.LENGTH_SHORT);
                 }
@@ -867,28 +1013,44 @@ public class MapsActivity extends AppCompatActivity implements OnMapReadyCallbac
 
             dialog.show();
 
-            startLocationUpdates();
+            LocationFixEngine engine = new LocationFixEngine(FixPolicy.gps(), LocationFixEngine.SYSTEM_CLOCK,
+                    HandlerScheduler.getMainThread(),
+                    new LocationFixEngine.Listener() {
+                @Override
+                public void onSample(LocationSample sample, LocationSample best) {
+                    currentLocation = best; // the smoothed estimate rather than the raw sample
+                }
 
-            timer = new Timer(true);
-            final TimerTask task = new TimerTask() {
                 @Override
-                public void run() {
-                    uiHandler.post(new Runnable() {
-                        public void run() {
-                            if (dialog != null && dialog.isShowing()) {
-                                dialog.setMessage(message + "\nCurrent Accuracy : " + getCurrentAccuracy() + "m" +
-                                                "\nClick Cancel button to stop");
-                                updateProgressBasedOnAccuracy();
-                            } else {
-                                // Dialog was dismissed, stop the timer
-                                timer.cancel();
-                                stopLocationUpdates();
-                            }
-                        }
-                    });
+                public void onProgress(int percent, LocationSample best, long elapsedMillis) {
+                    if (dialog != null && dialog.isShowing()) {
+                        float accuracy = best != null ? best.getAccuracyMeters() : 9999;
+                        dialog.setMessage(message + "\nCurrent Accuracy : " + accuracy + "m" +
+                                        "\nClick Cancel button to stop");
+                        dialog.setProgress(percent);
+                    }
                 }
-            };
-            timer.schedule(task, 0, 5000);
+
+                @Override
+                public void onFix(LocationSample fix) {
+                    dismissDialog();
+                    updateUI(fix);
+                }
+            });
+            if (ActivityCompat.checkSelfPermission(this, Manifest.permission.ACCESS_FINE_LOCATION)
+                    == PackageManager.PERMISSION_GRANTED) {
+                LocationRequest locationRequest = new LocationRequest.Builder(Priority.PRIORITY_HIGH_ACCURACY, 5000)
+                        .setWaitForAccurateLocation(false)
+                        .setMinUpdateIntervalMillis(2000)
+                        .setMaxUpdateDelayMillis(10000)
+                        .build();
+                // Coarser providers help the fused estimate while satellites are still being acquired
+                LocationManager locationManager = (LocationManager) getSystemService(LOCATION_SERVICE);
+                engine.addSource(recorded(new FusedLocationSource(fusedLocationClient, locationRequest)))
+                        .addSource(recorded(new ProviderLocationSource(locationManager, LocationManager.NETWORK_PROVIDER, 3000, false)))
+                        .addSource(recorded(new ProviderLocationSource(locationManager, LocationManager.PASSIVE_PROVIDER, 5000, false)));
+            }
+            startLocationSearch(engine);
         } else {
             uiHandler.post(new Runnable() {
                 public void run() {
@@ -898,73 +1060,20 @@ public class MapsActivity extends AppCompatActivity implements OnMapReadyCallbac
         }
     }
 
-    private void updateProgressBasedOnAccuracy() {
-        int accuracy = (int) getCurrentAccuracy();
-        
-        if (accuracy <= 1000) {
-            dialog.setProgress(20);
-            if (accuracy <= 500) {
-                dialog.setProgress(30);
-                if (accuracy <= 100) {
-                    dialog.setProgress(40);
-                    if (accuracy <= 50) {
-                        dialog.setProgress(50);
-                        if (accuracy <= 40) {
-                            dialog.setProgress(70);
-                            if (accuracy <= 30) {
-                                dialog.setProgress(80);
-                                dialog.setProgress(100);
-                                dialog.dismiss();
-                                timer.cancel();
-                                stopLocationUpdates();
-                                updateUI(getCurrentLocation());
-                            }
-                        }
-                    }
-                }
-            }
-        }
-    }
-
-    private void startLocationUpdates() {
-        LocationRequest locationRequest = new LocationRequest.Builder(Priority.PRIORITY_HIGH_ACCURACY, 5000)
-                .setWaitForAccurateLocation(false)
-                .setMinUpdateIntervalMillis(2000)
-                .setMaxUpdateDelayMillis(10000)
-                .build();
-
-        if (ActivityCompat.checkSelfPermission(this, Manifest.permission.ACCESS_FINE_LOCATION) 
-                == PackageManager.PERMISSION_GRANTED) {
-            fusedLocationClient.requestLocationUpdates(locationRequest, locationCallback, Looper.getMainLooper());
-        }
-    }
-
-    private void stopLocationUpdates() {
-        fusedLocationClient.removeLocationUpdates(locationCallback);
-    }
-
     private boolean isGPSEnabled() {
         // For simplicity, returning true. In production, check LocationManager
         return true;
     }
 
-    private float getCurrentAccuracy() {
-        return currentAccuracy == Float.MAX_VALUE ? 9999 : currentAccuracy;
-    }
-
-    private Location getCurrentLocation() {
-        return currentLocation;
-    }
-
-    private void updateUI(Location location) {
+    private void updateUI(LocationSample location) {
         if (location != null && mMap != null) {
             LatLng currentLatLng = new LatLng(location.getLatitude(), location.getLongitude());
 
             // Add marker and move camera
-            mMap.clear();
+            clearMap();
             String markerTitle = isNetworkMode ? "Network Location" : "GPS Location";
             String markerSnippet = String.format("Accuracy: %.0fm | Source: %s",
-                    location.getAccuracy(),
+                    location.getAccuracyMeters(),
                     isNetworkMode ? "Cell/WiFi/IP" : "GPS/GNSS");
 
             mMap.addMarker(new MarkerOptions()
@@ -980,12 +1089,12 @@ public class MapsActivity extends AppCompatActivity implements OnMapReadyCallbac
             // Update info text
             String locationSource = isNetworkMode ? "Network" : "GPS";
             String locationInfo = String.format("%s Location:\nLat: %.6f, Lng: %.6f\nAccuracy: %.1fm",
-                    locationSource, location.getLatitude(), location.getLongitude(), location.getAccuracy());
+                    locationSource, location.getLatitude(), location.getLongitude(), location.getAccuracyMeters());
             locationInfoTextView.setText(locationInfo);
 
             String toastMessage = isNetworkMode ?
-                    "Network location found with accuracy: " + (int)location.getAccuracy() + "m" :
-                    "GPS location updated with accuracy: " + (int)location.getAccuracy() + "m";
+                    "Network location found with accuracy: " + (int)location.getAccuracyMeters() + "m" :
+                    "GPS location updated with accuracy: " + (int)location.getAccuracyMeters() + "m";
             makeCenterToast(toastMessage, Toast.LENGTH_SHORT);
         }
     }
@@ -1066,10 +1175,11 @@ public class MapsActivity extends AppCompatActivity implements OnMapReadyCallbac
                     updateButtonStates(GoogleMap.MAP_TYPE_HYBRID);
                     break;
             }
+            refreshOfflineTiles();
         }
 
         // Add marker and move camera
-        mMap.clear();
+        clearMap();
         mMap.addMarker(new MarkerOptions()
                 .position(location)
                 .title(mapLabel != null ? mapLabel : "Saved Location")
@@ -1087,13 +1197,12 @@ public class MapsActivity extends AppCompatActivity implements OnMapReadyCallbac
     @Override
     protected void onDestroy() {
         super.onDestroy();
-        if (timer != null) {
-            timer.cancel();
-        }
-        if (networkAccuracyTimer != null) {
-            networkAccuracyTimer.cancel();
-        }
-        stopLocationUpdates();
+        removeDownloadListener();
+        stopWatchingOfflineTiles();
+        backgroundExecutor.shutdownNow();
+        hideOfflineTiles();
+        stopLocationSearch();
+        closeLocationTrace();
         if (dialog != null && dialog.isShowing()) {
             dialog.dismiss();
         }
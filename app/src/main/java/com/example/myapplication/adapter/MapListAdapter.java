@@ -6,20 +6,50 @@ import android.view.ViewGroup;
 import android.widget.TextView;
 
 import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.AsyncListDiffer;
+import androidx.recyclerview.widget.DiffUtil;
 import androidx.recyclerview.widget.RecyclerView;
 
 import com.example.myapplication.R;
 import com.example.myapplication.model.DownloadedMap;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.List;
 
 /**
- * RecyclerView adapter for displaying downloaded maps list
+ * RecyclerView adapter for displaying downloaded maps list.
+ *
+ * Every change submits a new immutable list; AsyncListDiffer compares it with the shown list on
+ * a background thread and dispatches only the inserted, removed and changed rows. Rows have
+ * stable ids from DownloadedMap.getId(). Rows arrive as prebuilt MapRows, so binding only
+ * copies fields into views and allocates nothing.
  */
 public class MapListAdapter extends RecyclerView.Adapter<MapListAdapter.MapViewHolder> {
-    
-    private List<DownloadedMap> maps;
+
+    // Rows are the same map when the ids match, and unchanged when everything shown is equal
+    private static final DiffUtil.ItemCallback<MapRow> DIFF_CALLBACK = new DiffUtil.ItemCallback<MapRow>() {
+        @Override
+        public boolean areItemsTheSame(@NonNull MapRow oldRow, @NonNull MapRow newRow) {
+            return oldRow.getId() == newRow.getId();
+        }
+
+        @Override
+        public boolean areContentsTheSame(@NonNull MapRow oldRow, @NonNull MapRow newRow) {
+            return oldRow.equals(newRow);
+        }
+    };
+
+    // The order of MapDatabaseHelper's map pages: download date, then id, both descending
+    private static final Comparator<MapRow> NEWEST_FIRST = (a, b) -> {
+        int byDate = Long.compare(b.getMap().getDownloadDate().getTime(), a.getMap().getDownloadDate().getTime());
+        return byDate != 0 ? byDate : Long.compare(b.getId(), a.getId());
+    };
+
+    private final AsyncListDiffer<MapRow> differ = new AsyncListDiffer<>(this, DIFF_CALLBACK);
+    // The most recently submitted list; the shown list catches up once its diff is applied
+    private List<MapRow> rows = Collections.emptyList();
     private OnMapClickListener listener;
 
     public interface OnMapClickListener {
@@ -28,13 +58,87 @@ public class MapListAdapter extends RecyclerView.Adapter<MapListAdapter.MapViewH
     }
 
     public MapListAdapter(OnMapClickListener listener) {
-        this.maps = new ArrayList<>();
         this.listener = listener;
+        setHasStableIds(true);
+    }
+
+    public void setRows(List<MapRow> rows) {
+        setRows(rows, null);
+    }
+
+    // Replace the list; shown runs on the main thread once the diff is applied, or is dropped
+    // when a later change replaces this one first
+    public void setRows(List<MapRow> rows, Runnable shown) {
+        submit(rows != null ? new ArrayList<>(rows) : new ArrayList<>(), shown);
+    }
+
+    // Add the next page at the end of the list
+    public void appendRows(List<MapRow> page) {
+        List<MapRow> updated = new ArrayList<>(rows.size() + page.size());
+        updated.addAll(rows);
+        updated.addAll(page);
+        submit(updated);
+    }
+
+    public void removeMap(DownloadedMap map) {
+        removeMap(map.getId());
+    }
+
+    public void removeMap(long mapId) {
+        int position = indexOf(mapId);
+        if (position >= 0) {
+            List<MapRow> updated = new ArrayList<>(rows);
+            updated.remove(position);
+            submit(updated);
+        }
+    }
+
+    /**
+     * Put a new or changed row at its place in the newest-first order. A row that sorts after
+     * the last loaded row is only added when the whole list is loaded; otherwise a later page brings it.
+     */
+    public void upsertRow(MapRow row, boolean allLoaded) {
+        List<MapRow> updated = new ArrayList<>(rows);
+        int existing = indexOf(row.getId());
+        if (existing >= 0) {
+            updated.remove(existing);
+        }
+        int position = 0;
+        while (position < updated.size() && NEWEST_FIRST.compare(updated.get(position), row) < 0) {
+            position++;
+        }
+        if (position < updated.size() || allLoaded) {
+            updated.add(position, row);
+        }
+        submit(updated);
+    }
+
+    private int indexOf(long mapId) {
+        for (int i = 0; i < rows.size(); i++) {
+            if (rows.get(i).getId() == mapId) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private void submit(List<MapRow> updated) {
+        submit(updated, null);
+    }
+
+    private void submit(List<MapRow> updated, Runnable shown) {
+        rows = Collections.unmodifiableList(updated);
+        differ.submitList(rows, shown);
+    }
+
+    // Number of maps in the latest list, including changes whose diff is still running
+    public int getMapCount() {
+        return rows.size();
     }
 
-    public void setMaps(List<DownloadedMap> maps) {
-        this.maps = maps != null ? maps : new ArrayList<>();
-        notifyDataSetChanged();
+    // The last map in the latest list, where the next page starts; null when the list is empty
+    public DownloadedMap getLastMap() {
+        return rows.isEmpty() ? null : rows.get(rows.size() - 1).getMap();
     }
 
     @NonNull
@@ -42,110 +146,85 @@ public class MapListAdapter extends RecyclerView.Adapter<MapListAdapter.MapViewH
     public MapViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
         View view = LayoutInflater.from(parent.getContext())
                 .inflate(R.layout.item_downloaded_map, parent, false);
-        return new MapViewHolder(view);
+        return new MapViewHolder(view, listener);
     }
 
     @Override
     public void onBindViewHolder(@NonNull MapViewHolder holder, int position) {
-        DownloadedMap map = maps.get(position);
-        holder.bind(map, listener);
+        holder.bind(differ.getCurrentList().get(position));
+    }
+
+    @Override
+    public long getItemId(int position) {
+        return differ.getCurrentList().get(position).getId();
     }
 
     @Override
     public int getItemCount() {
-        return maps.size();
+        return differ.getCurrentList().size();
     }
 
-    static class MapViewHolder extends RecyclerView.ViewHolder {
-        private TextView labelTextView;
-        private TextView descriptionTextView;
-        private TextView locationTextView;
-        private TextView dateTextView;
-        private TextView mapTypeTextView;
-        private TextView statusTextView;
+    static class MapViewHolder extends RecyclerView.ViewHolder
+            implements View.OnClickListener, View.OnLongClickListener {
+        private final TextView labelTextView;
+        private final TextView descriptionTextView;
+        private final TextView locationTextView;
+        private final TextView dateTextView;
+        private final TextView mapTypeTextView;
+        private final TextView statusTextView;
+        private final OnMapClickListener listener;
+        private MapRow row;
 
-        public MapViewHolder(@NonNull View itemView) {
+        public MapViewHolder(@NonNull View itemView, OnMapClickListener listener) {
             super(itemView);
+            this.listener = listener;
             labelTextView = itemView.findViewById(R.id.tv_map_label);
             descriptionTextView = itemView.findViewById(R.id.tv_map_description);
             locationTextView = itemView.findViewById(R.id.tv_map_location);
             dateTextView = itemView.findViewById(R.id.tv_map_date);
             mapTypeTextView = itemView.findViewById(R.id.tv_map_type);
             statusTextView = itemView.findViewById(R.id.tv_map_status);
+
+            // Styling that is the same for every row, and one pair of click listeners per view
+            mapTypeTextView.setTextColor(itemView.getContext().getColor(android.R.color.white));
+            mapTypeTextView.setPadding(16, 8, 16, 8);
+            itemView.setOnClickListener(this);
+            itemView.setOnLongClickListener(this);
         }
 
-        public void bind(DownloadedMap map, OnMapClickListener listener) {
-            // Set map label
-            labelTextView.setText(map.getLabel());
-            
-            // Set description (hide if empty)
-            if (map.getDescription() != null && !map.getDescription().trim().isEmpty()) {
-                descriptionTextView.setText(map.getDescription());
+        public void bind(MapRow row) {
+            this.row = row;
+            labelTextView.setText(row.getLabel());
+
+            // Hide the description if empty
+            if (row.getDescription() != null) {
+                descriptionTextView.setText(row.getDescription());
                 descriptionTextView.setVisibility(View.VISIBLE);
             } else {
                 descriptionTextView.setVisibility(View.GONE);
             }
-            
-            // Set location info
-            locationTextView.setText(map.getBoundsDescription());
-            
-            // Set download date
-            String formattedDate = android.text.format.DateFormat.format("MMM dd, yyyy", map.getDownloadDate()).toString();
-            dateTextView.setText("Downloaded: " + formattedDate);
-            
-            // Set map type with appropriate styling
-            mapTypeTextView.setText(map.getMapType());
-            setMapTypeStyle(mapTypeTextView, map.getMapType());
-            
-            // Set status
-            if (map.isAvailableOffline()) {
-                statusTextView.setText("✓ Available Offline");
-                statusTextView.setTextColor(itemView.getContext().getResources().getColor(android.R.color.holo_green_dark));
-            } else {
-                statusTextView.setText("⚠ Not Available Offline");
-                statusTextView.setTextColor(itemView.getContext().getResources().getColor(android.R.color.holo_orange_dark));
+
+            locationTextView.setText(row.getLocation());
+            dateTextView.setText(row.getDate());
+            mapTypeTextView.setText(row.getMapType());
+            mapTypeTextView.setBackgroundColor(row.getMapTypeColor());
+            statusTextView.setText(row.getStatus());
+            statusTextView.setTextColor(row.getStatusColor());
+        }
+
+        @Override
+        public void onClick(View view) {
+            if (listener != null && row != null) {
+                listener.onMapClick(row.getMap());
             }
-            
-            // Set click listeners
-            itemView.setOnClickListener(v -> {
-                if (listener != null) {
-                    listener.onMapClick(map);
-                }
-            });
-            
-            itemView.setOnLongClickListener(v -> {
-                if (listener != null) {
-                    listener.onMapLongClick(map);
-                }
-                return true;
-            });
         }
-        
-        private void setMapTypeStyle(TextView textView, String mapType) {
-            int backgroundColor;
-            int textColor = itemView.getContext().getResources().getColor(android.R.color.white);
-            
-            switch (mapType.toUpperCase()) {
-                case "NORMAL":
-                    backgroundColor = itemView.getContext().getResources().getColor(android.R.color.holo_blue_light);
-                    break;
-                case "SATELLITE":
-                    backgroundColor = itemView.getContext().getResources().getColor(android.R.color.holo_green_dark);
-                    break;
-                case "HYBRID":
-                    backgroundColor = itemView.getContext().getResources().getColor(android.R.color.holo_orange_light);
-                    break;
-                case "TERRAIN":
-                    backgroundColor = itemView.getContext().getResources().getColor(android.R.color.holo_purple);
-                    break;
-                default:
-                    backgroundColor = itemView.getContext().getResources().getColor(android.R.color.darker_gray);
-                    break;
+
+        @Override
+        public boolean onLongClick(View view) {
+            if (listener != null && row != null) {
+                listener.onMapLongClick(row.getMap());
             }
-            
-            textView.setBackgroundColor(backgroundColor);
-            textView.setTextColor(textColor);
-            textView.setPadding(16, 8, 16, 8);
+            return true;
         }
     }
 }
@@ -0,0 +1,158 @@
+package com.example.myapplication.adapter;
+
+import android.content.Context;
+import android.content.res.ColorStateList;
+
+import com.example.myapplication.model.DownloadedMap;
+
+import java.text.DateFormat;
+import java.text.SimpleDateFormat;
+import java.util.Locale;
+import java.util.Objects;
+
+/**
+ * Everything a row of the maps list shows, formatted ahead of time so binding only sets fields.
+ * Rows are immutable and built by a Factory off the main thread; equal rows look the same.
+ */
+public final class MapRow {
+    private final DownloadedMap map;
+    private final String label;
+    private final String description; // null when the row hides it
+    private final String location;
+    private final String date;
+    private final String mapType;
+    private final int mapTypeColor;
+    private final String status;
+    private final ColorStateList statusColor;
+
+    private MapRow(DownloadedMap map, String label, String description, String location, String date,
+                   String mapType, int mapTypeColor, String status, ColorStateList statusColor) {
+        this.map = map;
+        this.label = label;
+        this.description = description;
+        this.location = location;
+        this.date = date;
+        this.mapType = mapType;
+        this.mapTypeColor = mapTypeColor;
+        this.status = status;
+        this.statusColor = statusColor;
+    }
+
+    public DownloadedMap getMap() {
+        return map;
+    }
+
+    public long getId() {
+        return map.getId();
+    }
+
+    public String getLabel() {
+        return label;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    public String getLocation() {
+        return location;
+    }
+
+    public String getDate() {
+        return date;
+    }
+
+    public String getMapType() {
+        return mapType;
+    }
+
+    public int getMapTypeColor() {
+        return mapTypeColor;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public ColorStateList getStatusColor() {
+        return statusColor;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof MapRow)) {
+            return false;
+        }
+        MapRow other = (MapRow) o;
+        return getId() == other.getId()
+                && label.equals(other.label)
+                && Objects.equals(description, other.description)
+                && location.equals(other.location)
+                && date.equals(other.date)
+                && mapType.equals(other.mapType)
+                && mapTypeColor == other.mapTypeColor
+                && status.equals(other.status)
+                && statusColor.getDefaultColor() == other.statusColor.getDefaultColor();
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(getId(), label, description, location, date, mapType, status);
+    }
+
+    /**
+     * Builds rows with colors resolved once. Safe to use from several background threads.
+     */
+    public static final class Factory {
+        private final int normalColor;
+        private final int satelliteColor;
+        private final int hybridColor;
+        private final int terrainColor;
+        private final int otherColor;
+        private final ColorStateList availableColor;
+        private final ColorStateList unavailableColor;
+        // DateFormat is not thread-safe, so lock it while in use
+        private final DateFormat dateFormat = new SimpleDateFormat("MMM dd, yyyy", Locale.getDefault());
+
+        public Factory(Context context) {
+            normalColor = context.getColor(android.R.color.holo_blue_light);
+            satelliteColor = context.getColor(android.R.color.holo_green_dark);
+            hybridColor = context.getColor(android.R.color.holo_orange_light);
+            terrainColor = context.getColor(android.R.color.holo_purple);
+            otherColor = context.getColor(android.R.color.darker_gray);
+            availableColor = ColorStateList.valueOf(context.getColor(android.R.color.holo_green_dark));
+            unavailableColor = ColorStateList.valueOf(context.getColor(android.R.color.holo_orange_dark));
+        }
+
+        public MapRow create(DownloadedMap map) {
+            String description = map.getDescription() != null && !map.getDescription().trim().isEmpty()
+                    ? map.getDescription() : null;
+            String date;
+            synchronized (dateFormat) {
+                date = "Downloaded: " + dateFormat.format(map.getDownloadDate());
+            }
+            return new MapRow(map, map.getLabel(), description, map.getBoundsDescription(), date,
+                    map.getMapType(), mapTypeColor(map.getMapType()),
+                    map.isAvailableOffline() ? "✓ Available Offline" : "⚠ Not Available Offline",
+                    map.isAvailableOffline() ? availableColor : unavailableColor);
+        }
+
+        private int mapTypeColor(String mapType) {
+            switch (mapType.toUpperCase(Locale.ROOT)) {
+                case "NORMAL":
+                    return normalColor;
+                case "SATELLITE":
+                    return satelliteColor;
+                case "HYBRID":
+                    return hybridColor;
+                case "TERRAIN":
+                    return terrainColor;
+                default:
+                    return otherColor;
+            }
+        }
+    }
+}
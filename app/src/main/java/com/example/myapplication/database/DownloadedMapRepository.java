@@ -0,0 +1,257 @@
+package com.example.myapplication.database;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.lifecycle.Lifecycle;
+import androidx.lifecycle.LifecycleEventObserver;
+import androidx.lifecycle.LifecycleOwner;
+
+import com.example.myapplication.download.RegionDownloadManager;
+import com.example.myapplication.model.DownloadedMap;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * Asynchronous access to saved maps, so activities never touch SQLite on the main thread.
+ *
+ * Writes run in order on a single writer thread; reads run on a small pool, which WAL lets
+ * proceed alongside the writer. Results are delivered on the main looper. A request tied to
+ * a LifecycleOwner is cancelled when the owner is destroyed: pending reads are abandoned and
+ * no callback reaches a dead activity. Writes that already started still complete.
+ */
+public class DownloadedMapRepository {
+    private static final String TAG = "DownloadedMapRepository";
+    private static final int READER_THREADS = 3;
+
+    /** Result of a request, called on the main thread */
+    public interface Callback<T> {
+        void onResult(T result);
+
+        default void onError(Exception e) {
+            Log.e(TAG, "Map database request failed", e);
+        }
+    }
+
+    /** Handle of a submitted request */
+    public static final class Request {
+        private volatile boolean cancelled;
+        private volatile Future<?> future;
+        private volatile Runnable onCancel;
+        private final boolean interruptible;
+
+        private Request(boolean interruptible) {
+            this.interruptible = interruptible;
+        }
+
+        // Drop the result; a queued read is also removed from its queue, and the request stops
+        // watching its owner's lifecycle
+        public void cancel() {
+            cancelled = true;
+            Future<?> pending = future;
+            if (pending != null && interruptible) {
+                pending.cancel(false);
+            }
+            Runnable cleanup = onCancel;
+            if (cleanup != null) {
+                cleanup.run();
+            }
+        }
+
+        public boolean isCancelled() {
+            return cancelled;
+        }
+    }
+
+    private static DownloadedMapRepository instance;
+
+    private final Context context;
+    private final MapDatabaseHelper database;
+    private final ExecutorService writeExecutor = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "map-db-writer");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final ExecutorService readExecutor;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    public static synchronized DownloadedMapRepository getInstance(Context context) {
+        if (instance == null) {
+            instance = new DownloadedMapRepository(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    private DownloadedMapRepository(Context context) {
+        this.context = context;
+        this.database = MapDatabaseHelper.getInstance(context);
+        final AtomicInteger threadNumber = new AtomicInteger();
+        readExecutor = Executors.newFixedThreadPool(READER_THREADS, r -> {
+            Thread thread = new Thread(r, "map-db-reader-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public Request loadAllMaps(LifecycleOwner owner, Callback<List<DownloadedMap>> callback) {
+        return submit(readExecutor, owner, database::getAllDownloadedMaps, callback);
+    }
+
+    /**
+     * The next page of the maps passing the query, in its order, after the last map already shown
+     * (null for the first page). Each map is converted by the mapper on the reader thread, e.g.
+     * into a display model. The query is copied, so the caller may go on changing it.
+     */
+    public <T> Request loadMapsPage(LifecycleOwner owner, MapQuery query, DownloadedMap after, int limit,
+                                    Function<DownloadedMap, T> mapper, Callback<List<T>> callback) {
+        final MapQuery snapshot = new MapQuery(query);
+        return submit(readExecutor, owner, () -> {
+            List<DownloadedMap> maps = database.queryMaps(snapshot, after, limit);
+            List<T> page = new ArrayList<>(maps.size());
+            for (DownloadedMap map : maps) {
+                page.add(mapper.apply(map));
+            }
+            return page;
+        }, callback);
+    }
+
+    public Request getMap(LifecycleOwner owner, long id, Callback<DownloadedMap> callback) {
+        return submit(readExecutor, owner, () -> database.getDownloadedMap(id), callback);
+    }
+
+    // Full-text search over labels and descriptions, newest saved first; each map converted by the mapper
+    public <T> Request searchMaps(LifecycleOwner owner, String query, int limit, Function<DownloadedMap, T> mapper,
+                                  Callback<List<T>> callback) {
+        return submit(readExecutor, owner, () -> {
+            List<DownloadedMap> maps = database.searchMaps(query, limit);
+            List<T> results = new ArrayList<>(maps.size());
+            for (DownloadedMap map : maps) {
+                results.add(mapper.apply(map));
+            }
+            return results;
+        }, callback);
+    }
+
+    // A single map converted by the mapper on the reader thread; null if the map no longer exists
+    public <T> Request getMap(LifecycleOwner owner, long id, Function<DownloadedMap, T> mapper, Callback<T> callback) {
+        return submit(readExecutor, owner, () -> {
+            DownloadedMap map = database.getDownloadedMap(id);
+            return map != null ? mapper.apply(map) : null;
+        }, callback);
+    }
+
+    // Current version of the saved maps; compare with the version a screen last loaded
+    public long getChangeVersion() {
+        return database.getChangeVersion();
+    }
+
+    /**
+     * Deliver each change to a saved map on the main thread until the owner is destroyed.
+     * Must be called on the main thread.
+     */
+    public void observeChanges(LifecycleOwner owner, MapDatabaseHelper.ChangeListener listener) {
+        final MapDatabaseHelper.ChangeListener forwarder = change -> mainHandler.post(() -> {
+            if (owner.getLifecycle().getCurrentState() != Lifecycle.State.DESTROYED) {
+                listener.onMapChanged(change);
+            }
+        });
+        database.addChangeListener(forwarder);
+        owner.getLifecycle().addObserver(new LifecycleEventObserver() {
+            @Override
+            public void onStateChanged(@NonNull LifecycleOwner source, @NonNull Lifecycle.Event event) {
+                if (event == Lifecycle.Event.ON_DESTROY) {
+                    database.removeChangeListener(forwarder);
+                    source.getLifecycle().removeObserver(this);
+                }
+            }
+        });
+    }
+
+    public Request isLabelTaken(LifecycleOwner owner, String label, Callback<Boolean> callback) {
+        return submit(readExecutor, owner, () -> database.isMapLabelExists(label), callback);
+    }
+
+    // Insert a map; the callback receives its new id
+    public Request addMap(LifecycleOwner owner, DownloadedMap map, Callback<Long> callback) {
+        return submit(writeExecutor, owner, () -> database.addDownloadedMap(map), callback);
+    }
+
+    // Delete a map with everything stored for it: its download job, tiles and archive
+    public Request deleteMap(LifecycleOwner owner, long id, Callback<Void> callback) {
+        return submit(writeExecutor, owner, () -> {
+            RegionDownloadManager downloadManager = RegionDownloadManager.getInstance(context);
+            downloadManager.cancel(id);
+            DownloadedMap map = database.getDownloadedMap(id);
+            database.deleteDownloadedMap(id);
+            if (map != null) {
+                downloadManager.deleteRegion(map);
+            }
+            return null;
+        }, callback);
+    }
+
+    /**
+     * Run the task and post its result to the main thread unless the request was cancelled.
+     * Must be called on the main thread when an owner is given.
+     */
+    private <T> Request submit(ExecutorService executor, LifecycleOwner owner, Callable<T> task,
+                               Callback<T> callback) {
+        final Request request = new Request(executor == readExecutor);
+        final LifecycleEventObserver observer;
+        if (owner != null && owner.getLifecycle().getCurrentState() == Lifecycle.State.DESTROYED) {
+            request.cancel();
+            observer = null;
+        } else if (owner != null) {
+            observer = (source, event) -> {
+                if (event == Lifecycle.Event.ON_DESTROY) {
+                    request.cancel();
+                }
+            };
+            // A cancelled read may never run, so the observer can't wait for the result to go;
+            // lifecycles are only touched on the main thread
+            request.onCancel = () -> mainHandler.post(() -> owner.getLifecycle().removeObserver(observer));
+            owner.getLifecycle().addObserver(observer);
+        } else {
+            observer = null;
+        }
+
+        request.future = executor.submit(() -> {
+            if (request.isCancelled() && request.interruptible) {
+                return;
+            }
+            T result = null;
+            Exception error = null;
+            try {
+                result = task.call();
+            } catch (Exception e) {
+                error = e;
+            }
+            final T finalResult = result;
+            final Exception finalError = error;
+            mainHandler.post(() -> {
+                if (observer != null) {
+                    owner.getLifecycle().removeObserver(observer);
+                }
+                if (request.isCancelled() || callback == null) {
+                    return;
+                }
+                if (finalError != null) {
+                    callback.onError(finalError);
+                } else {
+                    callback.onResult(finalResult);
+                }
+            });
+        });
+        return request;
+    }
+}
@@ -0,0 +1,37 @@
+package com.example.myapplication.database;
+
+/**
+ * One committed change to a saved map, stamped with the change version it produced.
+ */
+public final class MapChange {
+    public static final int INSERTED = 1;
+    public static final int UPDATED = 2;
+    public static final int DELETED = 3;
+
+    private final long version;
+    private final int type;
+    private final long mapId;
+
+    MapChange(long version, int type, long mapId) {
+        this.version = version;
+        this.type = type;
+        this.mapId = mapId;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public int getType() {
+        return type;
+    }
+
+    public long getMapId() {
+        return mapId;
+    }
+
+    @Override
+    public String toString() {
+        return "MapChange{version=" + version + ", type=" + type + ", mapId=" + mapId + '}';
+    }
+}
@@ -3,52 +3,107 @@ package com.example.myapplication.database;
 import android.content.ContentValues;
 import android.content.Context;
 import android.database.Cursor;
+import android.database.SQLException;
 import android.database.sqlite.SQLiteDatabase;
 import android.database.sqlite.SQLiteOpenHelper;
+import android.database.sqlite.SQLiteStatement;
 import android.util.Log;
 
+import com.example.myapplication.geo.E7;
+import com.example.myapplication.geo.GeoBounds;
+import com.example.myapplication.model.DownloadJob;
 import com.example.myapplication.model.DownloadedMap;
+import com.example.myapplication.tiles.TileDedupStats;
 
-import java.text.ParseException;
-import java.text.SimpleDateFormat;
 import java.util.ArrayList;
-import java.util.Date;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
- * SQLite database helper for managing downloaded maps metadata
+ * SQLite database helper for managing downloaded maps metadata.
+ *
+ * The singleton keeps one connection open for the life of the process, in WAL mode so the
+ * download thread can write while the UI reads. The frequent single-row operations run
+ * through precompiled statements, which are not thread-safe and are guarded by statementLock.
+ *
+ * Every committed change to a saved map bumps a change version and is published to the
+ * ChangeListeners, so screens can skip re-reading an unchanged catalog and patch in single rows.
+ *
+ * Dates are stored as epoch milliseconds and coordinates as E7 fixed-point integers, so sorting
+ * and range scans compare plain integers. Older databases are converted by MapDatabaseMigrations.
  */
 public class MapDatabaseHelper extends SQLiteOpenHelper {
     private static final String TAG = "MapDatabaseHelper";
     
     // Database Info
     private static final String DATABASE_NAME = "OfflineMaps.db";
-    private static final int DATABASE_VERSION = 1;
+    private static final int DATABASE_VERSION = 7;
     
     // Table Names
     private static final String TABLE_DOWNLOADED_MAPS = "downloaded_maps";
+    private static final String TABLE_DOWNLOAD_JOBS = "download_jobs";
+    private static final String TABLE_BOUNDS_INDEX = "map_bounds_index";
+    private static final String TABLE_SEARCH = "map_search";
     
     // Column Names
     private static final String KEY_ID = "id";
     private static final String KEY_LABEL = "label";
     private static final String KEY_DESCRIPTION = "description";
-    private static final String KEY_CENTER_LAT = "center_latitude";
-    private static final String KEY_CENTER_LNG = "center_longitude";
-    private static final String KEY_NE_LAT = "northeast_latitude";
-    private static final String KEY_NE_LNG = "northeast_longitude";
-    private static final String KEY_SW_LAT = "southwest_latitude";
-    private static final String KEY_SW_LNG = "southwest_longitude";
+    private static final String KEY_CENTER_LAT = "center_lat_e7";
+    private static final String KEY_CENTER_LNG = "center_lng_e7";
+    private static final String KEY_NE_LAT = "northeast_lat_e7";
+    private static final String KEY_NE_LNG = "northeast_lng_e7";
+    private static final String KEY_SW_LAT = "southwest_lat_e7";
+    private static final String KEY_SW_LNG = "southwest_lng_e7";
     private static final String KEY_ZOOM_LEVEL = "zoom_level";
     private static final String KEY_DOWNLOAD_DATE = "download_date";
     private static final String KEY_FILE_SIZE = "file_size_bytes";
     private static final String KEY_MAP_TYPE = "map_type";
     private static final String KEY_IS_AVAILABLE_OFFLINE = "is_available_offline";
+    private static final String KEY_TILE_COUNT = "tile_count";
+    private static final String KEY_UNIQUE_TILE_COUNT = "unique_tile_count";
+    private static final String KEY_LOGICAL_BYTES = "logical_bytes";
+    private static final String KEY_STORED_BYTES = "stored_bytes";
+
+    // Download job columns
+    private static final String KEY_JOB_MAP_ID = "map_id";
+    private static final String KEY_JOB_MIN_ZOOM = "min_zoom";
+    private static final String KEY_JOB_MAX_ZOOM = "max_zoom";
+    private static final String KEY_JOB_URL_TEMPLATE = "url_template";
+    private static final String KEY_JOB_TOTAL_TILES = "total_tiles";
+    private static final String KEY_JOB_COMPLETED_CHUNKS = "completed_chunks";
+    private static final String KEY_JOB_STATUS = "status";
+    private static final String KEY_JOB_BYTES = "bytes_downloaded";
+    private static final String KEY_JOB_UPDATED_AT = "updated_at";
+
+    // Bounds index columns; regions crossing the antimeridian are indexed over all longitudes
+    private static final String KEY_INDEX_MIN_LAT = "min_lat";
+    private static final String KEY_INDEX_MAX_LAT = "max_lat";
+    private static final String KEY_INDEX_MIN_LNG = "min_lng";
+    private static final String KEY_INDEX_MAX_LNG = "max_lng";
     
-    // Date format for database storage
-    private static final SimpleDateFormat DATE_FORMAT = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss", Locale.getDefault());
-    
+    /** Told about each committed change to a saved map, on the thread that made it */
+    public interface ChangeListener {
+        void onMapChanged(MapChange change);
+    }
+
     private static MapDatabaseHelper instance;
+
+    private final AtomicLong changeVersion = new AtomicLong();
+    private final List<ChangeListener> changeListeners = new CopyOnWriteArrayList<>();
+
+    private final Object statementLock = new Object();
+    private SQLiteStatement insertMapStatement;
+    private SQLiteStatement deleteMapStatement;
+    private SQLiteStatement deleteJobStatement;
+    private SQLiteStatement countStatement;
+    private SQLiteStatement labelExistsStatement;
     
     public static synchronized MapDatabaseHelper getInstance(Context context) {
         if (instance == null) {
@@ -58,7 +113,28 @@ public class MapDatabaseHelper extends SQLiteOpenHelper {
     }
     
     private MapDatabaseHelper(Context context) {
-        super(context, DATABASE_NAME, null, DATABASE_VERSION);
+        this(context, DATABASE_NAME);
+    }
+
+    // Separate database file, for tests and benchmarks
+    MapDatabaseHelper(Context context, String databaseName) {
+        super(context, databaseName, null, DATABASE_VERSION);
+        setWriteAheadLoggingEnabled(true);
+    }
+
+    @Override
+    public void onConfigure(SQLiteDatabase db) {
+        super.onConfigure(db);
+        // WAL only needs NORMAL sync; a crash can lose the last commit but never corrupt the file
+        db.execSQL("PRAGMA synchronous=NORMAL");
+    }
+
+    @Override
+    public synchronized void close() {
+        synchronized (statementLock) {
+            closeStatements();
+        }
+        super.close();
     }
     
     @Override
@@ -68,147 +144,861 @@ public class MapDatabaseHelper extends SQLiteOpenHelper {
                 KEY_ID + " INTEGER PRIMARY KEY AUTOINCREMENT," +
                 KEY_LABEL + " TEXT NOT NULL," +
                 KEY_DESCRIPTION + " TEXT," +
-                KEY_CENTER_LAT + " REAL NOT NULL," +
-                KEY_CENTER_LNG + " REAL NOT NULL," +
-                KEY_NE_LAT + " REAL NOT NULL," +
-                KEY_NE_LNG + " REAL NOT NULL," +
-                KEY_SW_LAT + " REAL NOT NULL," +
-                KEY_SW_LNG + " REAL NOT NULL," +
+                KEY_CENTER_LAT + " INTEGER NOT NULL," +
+                KEY_CENTER_LNG + " INTEGER NOT NULL," +
+                KEY_NE_LAT + " INTEGER NOT NULL," +
+                KEY_NE_LNG + " INTEGER NOT NULL," +
+                KEY_SW_LAT + " INTEGER NOT NULL," +
+                KEY_SW_LNG + " INTEGER NOT NULL," +
                 KEY_ZOOM_LEVEL + " INTEGER NOT NULL," +
-                KEY_DOWNLOAD_DATE + " TEXT NOT NULL," +
+                KEY_DOWNLOAD_DATE + " INTEGER NOT NULL," +
                 KEY_FILE_SIZE + " INTEGER DEFAULT 0," +
                 KEY_MAP_TYPE + " TEXT NOT NULL," +
-                KEY_IS_AVAILABLE_OFFLINE + " INTEGER DEFAULT 1" +
+                KEY_IS_AVAILABLE_OFFLINE + " INTEGER DEFAULT 1," +
+                KEY_TILE_COUNT + " INTEGER DEFAULT 0," +
+                KEY_UNIQUE_TILE_COUNT + " INTEGER DEFAULT 0," +
+                KEY_LOGICAL_BYTES + " INTEGER DEFAULT 0," +
+                KEY_STORED_BYTES + " INTEGER DEFAULT 0" +
                 ")";
         
         db.execSQL(CREATE_DOWNLOADED_MAPS_TABLE);
+        db.execSQL("CREATE INDEX idx_downloaded_maps_date ON " + TABLE_DOWNLOADED_MAPS + "(" + KEY_DOWNLOAD_DATE + ")");
+        createListIndexes(db);
+        createDownloadJobsTable(db);
+        createBoundsIndexTable(db);
+        createBoundsIndexTriggers(db);
+        createSearchTable(db);
+        createSearchTriggers(db);
         Log.d(TAG, "Database table created successfully");
     }
     
     @Override
     public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
         Log.d(TAG, "Upgrading database from version " + oldVersion + " to " + newVersion);
-        db.execSQL("DROP TABLE IF EXISTS " + TABLE_DOWNLOADED_MAPS);
-        onCreate(db);
+        // Step by step, keeping the saved maps
+        MapDatabaseMigrations.migrate(db, oldVersion, newVersion);
+    }
+
+    /**
+     * Indexes behind queryMaps. Each sort key has an index of its own and one led by map_type,
+     * so a type filter and the sort are one range scan; offline availability has one for the
+     * newest-first list. Entries end in the rowid, which breaks ties in keyset order for free.
+     */
+    private static void createListIndexes(SQLiteDatabase db) {
+        db.execSQL("CREATE INDEX idx_downloaded_maps_type_date ON " + TABLE_DOWNLOADED_MAPS +
+                "(" + KEY_MAP_TYPE + "," + KEY_DOWNLOAD_DATE + ")");
+        db.execSQL("CREATE INDEX idx_downloaded_maps_offline_date ON " + TABLE_DOWNLOADED_MAPS +
+                "(" + KEY_IS_AVAILABLE_OFFLINE + "," + KEY_DOWNLOAD_DATE + ")");
+        db.execSQL("CREATE INDEX idx_downloaded_maps_size ON " + TABLE_DOWNLOADED_MAPS + "(" + KEY_FILE_SIZE + ")");
+        db.execSQL("CREATE INDEX idx_downloaded_maps_type_size ON " + TABLE_DOWNLOADED_MAPS +
+                "(" + KEY_MAP_TYPE + "," + KEY_FILE_SIZE + ")");
+        db.execSQL("CREATE INDEX idx_downloaded_maps_label ON " + TABLE_DOWNLOADED_MAPS +
+                "(" + KEY_LABEL + " COLLATE NOCASE)");
+        db.execSQL("CREATE INDEX idx_downloaded_maps_type_label ON " + TABLE_DOWNLOADED_MAPS +
+                "(" + KEY_MAP_TYPE + "," + KEY_LABEL + " COLLATE NOCASE)");
+    }
+
+    // One row per region download, checkpointed as chunks of tiles are stored
+    private void createDownloadJobsTable(SQLiteDatabase db) {
+        db.execSQL("CREATE TABLE " + TABLE_DOWNLOAD_JOBS + "(" +
+                KEY_JOB_MAP_ID + " INTEGER PRIMARY KEY REFERENCES " + TABLE_DOWNLOADED_MAPS + "(" + KEY_ID + ") ON DELETE CASCADE," +
+                KEY_JOB_MIN_ZOOM + " INTEGER NOT NULL," +
+                KEY_JOB_MAX_ZOOM + " INTEGER NOT NULL," +
+                KEY_JOB_URL_TEMPLATE + " TEXT NOT NULL," +
+                KEY_JOB_TOTAL_TILES + " INTEGER NOT NULL," +
+                KEY_JOB_COMPLETED_CHUNKS + " BLOB," +
+                KEY_JOB_STATUS + " TEXT NOT NULL," +
+                KEY_JOB_BYTES + " INTEGER DEFAULT 0," +
+                KEY_JOB_UPDATED_AT + " INTEGER NOT NULL" +
+                ")");
     }
     
+    /**
+     * Spatial index over the saved bounds, in degrees. Uses an R*Tree where the platform SQLite
+     * has the module and falls back to an ordinary table with a latitude index.
+     */
+    static void createBoundsIndexTable(SQLiteDatabase db) {
+        String columns = KEY_INDEX_MIN_LAT + "," + KEY_INDEX_MAX_LAT + "," + KEY_INDEX_MIN_LNG + "," + KEY_INDEX_MAX_LNG;
+        try {
+            db.execSQL("CREATE VIRTUAL TABLE " + TABLE_BOUNDS_INDEX + " USING rtree(id," + columns + ")");
+        } catch (SQLException e) {
+            Log.w(TAG, "R*Tree module not available, using a plain bounds table", e);
+            db.execSQL("CREATE TABLE " + TABLE_BOUNDS_INDEX + "(id INTEGER PRIMARY KEY," +
+                    KEY_INDEX_MIN_LAT + " REAL," + KEY_INDEX_MAX_LAT + " REAL," +
+                    KEY_INDEX_MIN_LNG + " REAL," + KEY_INDEX_MAX_LNG + " REAL)");
+            db.execSQL("CREATE INDEX idx_map_bounds_lat ON " + TABLE_BOUNDS_INDEX + "(" +
+                    KEY_INDEX_MIN_LAT + "," + KEY_INDEX_MAX_LAT + ")");
+        }
+    }
+
+    // Keep the bounds index in sync with downloaded_maps
+    private static void createBoundsIndexTriggers(SQLiteDatabase db) {
+        db.execSQL("CREATE TRIGGER downloaded_maps_bounds_insert AFTER INSERT ON " + TABLE_DOWNLOADED_MAPS +
+                " BEGIN INSERT INTO " + TABLE_BOUNDS_INDEX + " VALUES (NEW." + KEY_ID + "," + indexedBounds("NEW.") + "); END");
+        db.execSQL("CREATE TRIGGER downloaded_maps_bounds_update AFTER UPDATE OF " +
+                KEY_NE_LAT + "," + KEY_NE_LNG + "," + KEY_SW_LAT + "," + KEY_SW_LNG + " ON " + TABLE_DOWNLOADED_MAPS +
+                " BEGIN DELETE FROM " + TABLE_BOUNDS_INDEX + " WHERE id = OLD." + KEY_ID + ";" +
+                " INSERT INTO " + TABLE_BOUNDS_INDEX + " VALUES (NEW." + KEY_ID + "," + indexedBounds("NEW.") + "); END");
+        db.execSQL("CREATE TRIGGER downloaded_maps_bounds_delete AFTER DELETE ON " + TABLE_DOWNLOADED_MAPS +
+                " BEGIN DELETE FROM " + TABLE_BOUNDS_INDEX + " WHERE id = OLD." + KEY_ID + "; END");
+    }
+
+    /**
+     * Full-text index over labels and descriptions, with prefix indexes for the first two and
+     * three characters. Uses FTS5 where the platform SQLite has it, which stock Android builds
+     * usually do not, and falls back to FTS4 with the same columns and query syntax.
+     */
+    static void createSearchTable(SQLiteDatabase db) {
+        String columns = KEY_LABEL + "," + KEY_DESCRIPTION;
+        try {
+            db.execSQL("CREATE VIRTUAL TABLE " + TABLE_SEARCH + " USING fts5(" + columns +
+                    ", tokenize='unicode61', prefix='2 3')");
+        } catch (SQLException e) {
+            Log.w(TAG, "FTS5 not available, using FTS4 for map search", e);
+            try {
+                db.execSQL("CREATE VIRTUAL TABLE " + TABLE_SEARCH + " USING fts4(" + columns +
+                        ", tokenize=unicode61, prefix=\"2,3\")");
+            } catch (SQLException noUnicode) {
+                Log.w(TAG, "unicode61 tokenizer not available, using the simple tokenizer", noUnicode);
+                db.execSQL("CREATE VIRTUAL TABLE " + TABLE_SEARCH + " USING fts4(" + columns + ", prefix=\"2,3\")");
+            }
+        }
+    }
+
+    // Keep the search table's rowids equal to the map ids
+    private static void createSearchTriggers(SQLiteDatabase db) {
+        db.execSQL("CREATE TRIGGER downloaded_maps_search_insert AFTER INSERT ON " + TABLE_DOWNLOADED_MAPS +
+                " BEGIN INSERT INTO " + TABLE_SEARCH + "(rowid," + KEY_LABEL + "," + KEY_DESCRIPTION + ")" +
+                " VALUES (NEW." + KEY_ID + ",NEW." + KEY_LABEL + ",NEW." + KEY_DESCRIPTION + "); END");
+        db.execSQL("CREATE TRIGGER downloaded_maps_search_update AFTER UPDATE OF " + KEY_LABEL + "," + KEY_DESCRIPTION +
+                " ON " + TABLE_DOWNLOADED_MAPS + " BEGIN DELETE FROM " + TABLE_SEARCH + " WHERE rowid = OLD." + KEY_ID + ";" +
+                " INSERT INTO " + TABLE_SEARCH + "(rowid," + KEY_LABEL + "," + KEY_DESCRIPTION + ")" +
+                " VALUES (NEW." + KEY_ID + ",NEW." + KEY_LABEL + ",NEW." + KEY_DESCRIPTION + "); END");
+        db.execSQL("CREATE TRIGGER downloaded_maps_search_delete AFTER DELETE ON " + TABLE_DOWNLOADED_MAPS +
+                " BEGIN DELETE FROM " + TABLE_SEARCH + " WHERE rowid = OLD." + KEY_ID + "; END");
+    }
+
+    // Index box in degrees of a downloaded_maps row, as SQL over the E7 columns with the given prefix
+    private static String indexedBounds(String row) {
+        String crosses = row + KEY_SW_LNG + " > " + row + KEY_NE_LNG;
+        return "MIN(" + row + KEY_SW_LAT + "," + row + KEY_NE_LAT + ") / 10000000.0," +
+                "MAX(" + row + KEY_SW_LAT + "," + row + KEY_NE_LAT + ") / 10000000.0," +
+                "CASE WHEN " + crosses + " THEN -180 ELSE " + row + KEY_SW_LNG + " / 10000000.0 END," +
+                "CASE WHEN " + crosses + " THEN 180 ELSE " + row + KEY_NE_LNG + " / 10000000.0 END";
+    }
+
     // Add a new downloaded map
     public long addDownloadedMap(DownloadedMap map) {
-        SQLiteDatabase db = this.getWritableDatabase();
-        
-        ContentValues values = new ContentValues();
-        values.put(KEY_LABEL, map.getLabel());
-        values.put(KEY_DESCRIPTION, map.getDescription());
-        values.put(KEY_CENTER_LAT, map.getCenterLatitude());
-        values.put(KEY_CENTER_LNG, map.getCenterLongitude());
-        values.put(KEY_NE_LAT, map.getNorthEastLat());
-        values.put(KEY_NE_LNG, map.getNorthEastLng());
-        values.put(KEY_SW_LAT, map.getSouthWestLat());
-        values.put(KEY_SW_LNG, map.getSouthWestLng());
-        values.put(KEY_ZOOM_LEVEL, map.getZoomLevel());
-        values.put(KEY_DOWNLOAD_DATE, DATE_FORMAT.format(map.getDownloadDate()));
-        values.put(KEY_FILE_SIZE, map.getFileSizeBytes());
-        values.put(KEY_MAP_TYPE, map.getMapType());
-        values.put(KEY_IS_AVAILABLE_OFFLINE, map.isAvailableOffline() ? 1 : 0);
-        
-        long id = db.insert(TABLE_DOWNLOADED_MAPS, null, values);
-        db.close();
-        
+        long id;
+        synchronized (statementLock) {
+            prepareStatements();
+            bindMap(insertMapStatement, map);
+            id = insertMapStatement.executeInsert();
+        }
+        if (id > 0) {
+            publishChange(MapChange.INSERTED, id);
+        }
+
         Log.d(TAG, "Added downloaded map with ID: " + id);
         return id;
     }
-    
+
+    // Add many maps in one transaction, setting each map's id; returns the number inserted
+    public int addDownloadedMaps(List<DownloadedMap> maps) {
+        SQLiteDatabase db = this.getWritableDatabase();
+        int inserted = 0;
+        long[] ids = new long[maps.size()];
+        synchronized (statementLock) {
+            prepareStatements();
+            db.beginTransactionNonExclusive();
+            try {
+                for (DownloadedMap map : maps) {
+                    bindMap(insertMapStatement, map);
+                    long id = insertMapStatement.executeInsert();
+                    if (id > 0) {
+                        map.setId(id);
+                        ids[inserted++] = id;
+                    }
+                }
+                db.setTransactionSuccessful();
+            } finally {
+                db.endTransaction();
+            }
+        }
+
+        for (int i = 0; i < inserted; i++) {
+            publishChange(MapChange.INSERTED, ids[i]);
+        }
+
+        Log.d(TAG, "Added " + inserted + " downloaded maps");
+        return inserted;
+    }
+
+    private static void bindMap(SQLiteStatement statement, DownloadedMap map) {
+        statement.clearBindings();
+        statement.bindString(1, map.getLabel());
+        if (map.getDescription() != null) {
+            statement.bindString(2, map.getDescription());
+        }
+        statement.bindLong(3, E7.fromDegrees(map.getCenterLatitude()));
+        statement.bindLong(4, E7.fromDegrees(map.getCenterLongitude()));
+        statement.bindLong(5, E7.fromDegrees(map.getNorthEastLat()));
+        statement.bindLong(6, E7.fromDegrees(map.getNorthEastLng()));
+        statement.bindLong(7, E7.fromDegrees(map.getSouthWestLat()));
+        statement.bindLong(8, E7.fromDegrees(map.getSouthWestLng()));
+        statement.bindLong(9, map.getZoomLevel());
+        statement.bindLong(10, map.getDownloadDate().getTime());
+        statement.bindLong(11, map.getFileSizeBytes());
+        statement.bindString(12, map.getMapType());
+        statement.bindLong(13, map.isAvailableOffline() ? 1 : 0);
+    }
+
+    // Compile the single-row statements on first use; callers hold statementLock
+    private void prepareStatements() {
+        if (insertMapStatement != null) {
+            return;
+        }
+        SQLiteDatabase db = this.getWritableDatabase();
+        insertMapStatement = db.compileStatement("INSERT INTO " + TABLE_DOWNLOADED_MAPS + " (" +
+                KEY_LABEL + "," + KEY_DESCRIPTION + "," + KEY_CENTER_LAT + "," + KEY_CENTER_LNG + "," +
+                KEY_NE_LAT + "," + KEY_NE_LNG + "," + KEY_SW_LAT + "," + KEY_SW_LNG + "," +
+                KEY_ZOOM_LEVEL + "," + KEY_DOWNLOAD_DATE + "," + KEY_FILE_SIZE + "," +
+                KEY_MAP_TYPE + "," + KEY_IS_AVAILABLE_OFFLINE + ") VALUES (?,?,?,?,?,?,?,?,?,?,?,?,?)");
+        deleteMapStatement = db.compileStatement("DELETE FROM " + TABLE_DOWNLOADED_MAPS + " WHERE " + KEY_ID + "=?");
+        deleteJobStatement = db.compileStatement("DELETE FROM " + TABLE_DOWNLOAD_JOBS + " WHERE " + KEY_JOB_MAP_ID + "=?");
+        countStatement = db.compileStatement("SELECT COUNT(*) FROM " + TABLE_DOWNLOADED_MAPS);
+        labelExistsStatement = db.compileStatement("SELECT EXISTS(SELECT 1 FROM " + TABLE_DOWNLOADED_MAPS +
+                " WHERE " + KEY_LABEL + "=?)");
+    }
+
+    private void closeStatements() {
+        if (insertMapStatement == null) {
+            return;
+        }
+        insertMapStatement.close();
+        deleteMapStatement.close();
+        deleteJobStatement.close();
+        countStatement.close();
+        labelExistsStatement.close();
+        insertMapStatement = null;
+    }
+
     // Get all downloaded maps
     public List<DownloadedMap> getAllDownloadedMaps() {
-        List<DownloadedMap> mapList = new ArrayList<>();
-        String selectQuery = "SELECT * FROM " + TABLE_DOWNLOADED_MAPS + " ORDER BY " + KEY_DOWNLOAD_DATE + " DESC";
+        String selectQuery = "SELECT * FROM " + TABLE_DOWNLOADED_MAPS +
+                " ORDER BY " + KEY_DOWNLOAD_DATE + " DESC, " + KEY_ID + " DESC";
         
         SQLiteDatabase db = this.getReadableDatabase();
-        Cursor cursor = db.rawQuery(selectQuery, null);
-        
-        if (cursor.moveToFirst()) {
-            do {
-                DownloadedMap map = cursorToDownloadedMap(cursor);
-                mapList.add(map);
-            } while (cursor.moveToNext());
+        List<DownloadedMap> mapList;
+        try (Cursor cursor = db.rawQuery(selectQuery, null)) {
+            mapList = readMaps(cursor);
         }
         
-        cursor.close();
-        db.close();
-        
         Log.d(TAG, "Retrieved " + mapList.size() + " downloaded maps");
         return mapList;
     }
-    
-    // Delete a downloaded map
+
+    /**
+     * One page of the newest-first map list, starting after the given map (null for the first page).
+     *
+     * Keyset pagination on (download_date, id): each page seeks straight into the date index,
+     * whose entries end in the rowid, so a page costs the same at any depth of the list and
+     * deleting rows never shifts the following pages.
+     */
+    public List<DownloadedMap> getDownloadedMapsPage(DownloadedMap after, int limit) {
+        return queryMaps(new MapQuery(), after, limit);
+    }
+
+    /**
+     * One page of the maps passing the query's filters, in its sort order, starting after the
+     * given map (null for the first page). Pages are keyset pages on (sort key, id) like
+     * getDownloadedMapsPage; the nearest-first order walks the spatial index instead.
+     */
+    public List<DownloadedMap> queryMaps(MapQuery query, DownloadedMap after, int limit) {
+        if (query.getSort() == MapQuery.SORT_NEAREST) {
+            return nearestMaps(query.getOriginLat(), query.getOriginLng(), query, after, limit);
+        }
+        String key;
+        boolean descending;
+        String afterKey = null;
+        switch (query.getSort()) {
+            case MapQuery.SORT_LARGEST:
+                key = KEY_FILE_SIZE;
+                descending = true;
+                if (after != null) {
+                    afterKey = String.valueOf(after.getFileSizeBytes());
+                }
+                break;
+            case MapQuery.SORT_LABEL:
+                key = KEY_LABEL + " COLLATE NOCASE";
+                descending = false;
+                if (after != null) {
+                    afterKey = after.getLabel();
+                }
+                break;
+            default:
+                key = KEY_DOWNLOAD_DATE;
+                descending = true;
+                if (after != null) {
+                    afterKey = String.valueOf(after.getDownloadDate().getTime());
+                }
+                break;
+        }
+
+        StringBuilder where = new StringBuilder();
+        List<String> args = new ArrayList<>();
+        appendFilters(query, "", where, args);
+        if (after != null) {
+            // The first term bounds the index range scan; the second skips ties already shown
+            String orEqual = descending ? " <= ?" : " >= ?";
+            String beyond = descending ? " < ?" : " > ?";
+            appendTerm(where, key + orEqual + " AND (" + key + beyond + " OR " + KEY_ID + beyond + ")");
+            args.add(afterKey);
+            args.add(afterKey);
+            args.add(String.valueOf(after.getId()));
+        }
+        String direction = descending ? " DESC" : " ASC";
+        String sql = "SELECT * FROM " + TABLE_DOWNLOADED_MAPS + (where.length() > 0 ? " WHERE " + where : "") +
+                " ORDER BY " + key + direction + ", " + KEY_ID + direction + " LIMIT " + limit;
+
+        SQLiteDatabase db = this.getReadableDatabase();
+        try (Cursor cursor = db.rawQuery(sql, args.toArray(new String[0]))) {
+            return readMaps(cursor);
+        }
+    }
+
+    // Add the query's filters on the maps table, whose columns carry the given prefix
+    private static void appendFilters(MapQuery query, String prefix, StringBuilder where, List<String> args) {
+        if (query == null) {
+            return;
+        }
+        if (query.getMapType() != null) {
+            appendTerm(where, prefix + KEY_MAP_TYPE + " = ?");
+            args.add(query.getMapType());
+        }
+        if (query.getAvailableOffline() != null) {
+            appendTerm(where, prefix + KEY_IS_AVAILABLE_OFFLINE + " = ?");
+            args.add(query.getAvailableOffline() ? "1" : "0");
+        }
+        if (query.getMinSizeBytes() > 0) {
+            appendTerm(where, prefix + KEY_FILE_SIZE + " >= ?");
+            args.add(String.valueOf(query.getMinSizeBytes()));
+        }
+        if (query.getMaxSizeBytes() != Long.MAX_VALUE) {
+            appendTerm(where, prefix + KEY_FILE_SIZE + " <= ?");
+            args.add(String.valueOf(query.getMaxSizeBytes()));
+        }
+    }
+
+    private static void appendTerm(StringBuilder where, String term) {
+        if (where.length() > 0) {
+            where.append(" AND ");
+        }
+        where.append(term);
+    }
+
+    /**
+     * Maps whose label or description has words starting with every word of the query, newest
+     * saved first. Returns nothing for a query without letters or digits.
+     */
+    public List<DownloadedMap> searchMaps(String query, int limit) {
+        String match = toPrefixMatch(query);
+        if (match.isEmpty()) {
+            return new ArrayList<>();
+        }
+        // The full-text table drives the query and returns rowids in descending order, so the
+        // limit stops the scan early however many maps match
+        String sql = "SELECT m.* FROM " + TABLE_SEARCH + " s JOIN " + TABLE_DOWNLOADED_MAPS + " m ON m." + KEY_ID +
+                " = s.rowid WHERE " + TABLE_SEARCH + " MATCH ? ORDER BY s.rowid DESC LIMIT " + limit;
+        SQLiteDatabase db = this.getReadableDatabase();
+        try (Cursor cursor = db.rawQuery(sql, new String[]{match})) {
+            return readMaps(cursor);
+        }
+    }
+
+    /**
+     * Turn free text into a MATCH expression of prefix terms, e.g. "Old town, Ber" into
+     * "old* town* ber*". Punctuation is dropped, which also keeps FTS operators and quotes out,
+     * and lower case keeps words like "or" from being read as operators.
+     */
+    static String toPrefixMatch(String query) {
+        StringBuilder match = new StringBuilder();
+        StringBuilder term = new StringBuilder();
+        String text = query.toLowerCase(Locale.ROOT);
+        for (int i = 0; i <= text.length(); i++) {
+            char c = i < text.length() ? text.charAt(i) : ' ';
+            if (Character.isLetterOrDigit(c)) {
+                term.append(c);
+            } else if (term.length() > 0) {
+                if (match.length() > 0) {
+                    match.append(' ');
+                }
+                match.append(term).append('*');
+                term.setLength(0);
+            }
+        }
+        return match.toString();
+    }
+
+    // Get a single downloaded map, or null if it was deleted
+    public DownloadedMap getDownloadedMap(long id) {
+        SQLiteDatabase db = this.getReadableDatabase();
+        try (Cursor cursor = db.query(TABLE_DOWNLOADED_MAPS, null, KEY_ID + "=?",
+                new String[]{String.valueOf(id)}, null, null, null)) {
+            return cursor.moveToFirst() ? new MapColumns(cursor).read(cursor) : null;
+        }
+    }
+
+    // Delete a downloaded map together with its download job
     public void deleteDownloadedMap(long id) {
         SQLiteDatabase db = this.getWritableDatabase();
-        db.delete(TABLE_DOWNLOADED_MAPS, KEY_ID + "=?", new String[]{String.valueOf(id)});
-        db.close();
-        
+        int deleted;
+        synchronized (statementLock) {
+            prepareStatements();
+            db.beginTransactionNonExclusive();
+            try {
+                deleteJobStatement.bindLong(1, id);
+                deleteJobStatement.executeUpdateDelete();
+                deleteMapStatement.bindLong(1, id);
+                deleted = deleteMapStatement.executeUpdateDelete();
+                db.setTransactionSuccessful();
+            } finally {
+                db.endTransaction();
+            }
+        }
+        if (deleted > 0) {
+            publishChange(MapChange.DELETED, id);
+        }
+
         Log.d(TAG, "Deleted downloaded map ID: " + id);
     }
     
     // Check if a map with the same label already exists
     public boolean isMapLabelExists(String label) {
-        SQLiteDatabase db = this.getReadableDatabase();
-        Cursor cursor = db.query(TABLE_DOWNLOADED_MAPS,
-                new String[]{KEY_ID},
-                KEY_LABEL + "=?",
-                new String[]{label},
-                null, null, null);
-        
-        boolean exists = cursor.getCount() > 0;
-        cursor.close();
-        db.close();
-        
-        return exists;
+        synchronized (statementLock) {
+            prepareStatements();
+            labelExistsStatement.bindString(1, label);
+            return labelExistsStatement.simpleQueryForLong() != 0;
+        }
     }
     
     // Get count of downloaded maps
     public int getDownloadedMapsCount() {
+        synchronized (statementLock) {
+            prepareStatements();
+            return (int) countStatement.simpleQueryForLong();
+        }
+    }
+
+    // Saved regions that contain the point, smallest first
+    public List<DownloadedMap> getMapsContaining(double lat, double lng) {
+        List<DownloadedMap> maps = new ArrayList<>();
+        for (DownloadedMap map : queryBoundsIndex(lat, lng, lat, lng)) {
+            if (GeoBounds.contains(map.getSouthWestLat(), map.getSouthWestLng(),
+                    map.getNorthEastLat(), map.getNorthEastLng(), lat, lng)) {
+                maps.add(map);
+            }
+        }
+        Collections.sort(maps, (a, b) -> Double.compare(area(a), area(b)));
+        return maps;
+    }
+
+    // Saved regions overlapping the box; west > east means the box crosses the antimeridian
+    public List<DownloadedMap> getMapsIntersecting(double south, double west, double north, double east) {
+        List<DownloadedMap> maps = new ArrayList<>();
+        for (DownloadedMap map : queryBoundsIndex(south, west, north, east)) {
+            if (GeoBounds.intersects(map.getSouthWestLat(), map.getSouthWestLng(),
+                    map.getNorthEastLat(), map.getNorthEastLng(), south, west, north, east)) {
+                maps.add(map);
+            }
+        }
+        return maps;
+    }
+
+    /**
+     * The k saved regions nearest to the point, nearest first, with distance 0 for regions
+     * containing it.
+     */
+    public List<DownloadedMap> getNearestMaps(final double lat, final double lng, int k) {
+        return nearestMaps(lat, lng, null, null, k);
+    }
+
+    /**
+     * Regions passing the filters in order of distance from the point, then id, starting after
+     * the given region. Searches a growing box until it holds enough regions beyond that one,
+     * then once more over a box large enough to hold anything closer than the last of them.
+     */
+    private List<DownloadedMap> nearestMaps(double lat, double lng, MapQuery filter, DownloadedMap after, int limit) {
+        if (limit <= 0) {
+            return new ArrayList<>();
+        }
+        double afterDistance = after != null ? distanceMeters(after, lat, lng) : 0;
+        List<DownloadedMap> candidates;
+        double radiusMeters = Math.max(5000, afterDistance);
+        while (true) {
+            candidates = queryBeyond(lat, lng, radiusMeters, filter, after, afterDistance);
+            if (candidates.size() >= limit || radiusMeters >= Math.PI * GeoBounds.EARTH_RADIUS_METERS) {
+                break;
+            }
+            radiusMeters *= 4;
+        }
+        if (candidates.size() >= limit) {
+            sortByDistance(candidates, lat, lng);
+            radiusMeters = distanceMeters(candidates.get(limit - 1), lat, lng);
+            candidates = queryBeyond(lat, lng, radiusMeters, filter, after, afterDistance);
+        }
+        sortByDistance(candidates, lat, lng);
+        return new ArrayList<>(candidates.subList(0, Math.min(limit, candidates.size())));
+    }
+
+    // Like queryAround, without the regions at or before the given one in nearest-first order
+    private List<DownloadedMap> queryBeyond(double lat, double lng, double radiusMeters, MapQuery filter,
+                                            DownloadedMap after, double afterDistance) {
+        List<DownloadedMap> maps = queryAround(lat, lng, radiusMeters, filter);
+        if (after != null) {
+            List<DownloadedMap> beyond = new ArrayList<>(maps.size());
+            for (DownloadedMap map : maps) {
+                double distance = distanceMeters(map, lat, lng);
+                if (distance > afterDistance || (distance == afterDistance && map.getId() > after.getId())) {
+                    beyond.add(map);
+                }
+            }
+            maps = beyond;
+        }
+        return maps;
+    }
+
+    // Regions whose index box meets the smallest lat/lng box holding the circle around a point
+    private List<DownloadedMap> queryAround(double lat, double lng, double radiusMeters, MapQuery filter) {
+        double[] box = GeoBounds.boundsAround(lat, lng, radiusMeters, new double[4]);
+        return queryBoundsIndex(box[GeoBounds.SOUTH], box[GeoBounds.WEST], box[GeoBounds.NORTH],
+                box[GeoBounds.EAST], filter);
+    }
+
+    private List<DownloadedMap> queryBoundsIndex(double south, double west, double north, double east) {
+        return queryBoundsIndex(south, west, north, east, null);
+    }
+
+    // Regions whose index box meets the box and that pass the filters, which SQLite checks on the joined rows
+    private List<DownloadedMap> queryBoundsIndex(double south, double west, double north, double east, MapQuery filter) {
+        String lngFilter = GeoBounds.crossesAntimeridian(west, east)
+                ? "(r." + KEY_INDEX_MAX_LNG + " >= ? OR r." + KEY_INDEX_MIN_LNG + " <= ?)"
+                : "r." + KEY_INDEX_MAX_LNG + " >= ? AND r." + KEY_INDEX_MIN_LNG + " <= ?";
+        StringBuilder where = new StringBuilder("r." + KEY_INDEX_MAX_LAT + " >= ? AND r." +
+                KEY_INDEX_MIN_LAT + " <= ? AND " + lngFilter);
+        List<String> args = new ArrayList<>();
+        args.add(String.valueOf(south));
+        args.add(String.valueOf(north));
+        args.add(String.valueOf(west));
+        args.add(String.valueOf(east));
+        appendFilters(filter, "m.", where, args);
+        String query = "SELECT m.* FROM " + TABLE_BOUNDS_INDEX + " r JOIN " + TABLE_DOWNLOADED_MAPS +
+                " m ON m." + KEY_ID + " = r.id WHERE " + where;
+
         SQLiteDatabase db = this.getReadableDatabase();
-        Cursor cursor = db.rawQuery("SELECT COUNT(*) FROM " + TABLE_DOWNLOADED_MAPS, null);
-        
-        int count = 0;
-        if (cursor.moveToFirst()) {
-            count = cursor.getInt(0);
+        try (Cursor cursor = db.rawQuery(query, args.toArray(new String[0]))) {
+            return readMaps(cursor);
         }
-        
-        cursor.close();
-        db.close();
-        
-        return count;
     }
-    
-    // Helper method to convert cursor to DownloadedMap object
-    private DownloadedMap cursorToDownloadedMap(Cursor cursor) {
-        DownloadedMap map = new DownloadedMap();
-        
-        map.setId(cursor.getLong(cursor.getColumnIndexOrThrow(KEY_ID)));
-        map.setLabel(cursor.getString(cursor.getColumnIndexOrThrow(KEY_LABEL)));
-        map.setDescription(cursor.getString(cursor.getColumnIndexOrThrow(KEY_DESCRIPTION)));
-        map.setCenterLatitude(cursor.getDouble(cursor.getColumnIndexOrThrow(KEY_CENTER_LAT)));
-        map.setCenterLongitude(cursor.getDouble(cursor.getColumnIndexOrThrow(KEY_CENTER_LNG)));
-        map.setNorthEastLat(cursor.getDouble(cursor.getColumnIndexOrThrow(KEY_NE_LAT)));
-        map.setNorthEastLng(cursor.getDouble(cursor.getColumnIndexOrThrow(KEY_NE_LNG)));
-        map.setSouthWestLat(cursor.getDouble(cursor.getColumnIndexOrThrow(KEY_SW_LAT)));
-        map.setSouthWestLng(cursor.getDouble(cursor.getColumnIndexOrThrow(KEY_SW_LNG)));
-        map.setZoomLevel(cursor.getInt(cursor.getColumnIndexOrThrow(KEY_ZOOM_LEVEL)));
-        map.setFileSizeBytes(cursor.getLong(cursor.getColumnIndexOrThrow(KEY_FILE_SIZE)));
-        map.setMapType(cursor.getString(cursor.getColumnIndexOrThrow(KEY_MAP_TYPE)));
-        map.setAvailableOffline(cursor.getInt(cursor.getColumnIndexOrThrow(KEY_IS_AVAILABLE_OFFLINE)) == 1);
-        
-        // Parse date
-        String dateString = cursor.getString(cursor.getColumnIndexOrThrow(KEY_DOWNLOAD_DATE));
+
+    // Nearest first, and by id between regions at the same distance so pages never overlap
+    private static void sortByDistance(List<DownloadedMap> maps, double lat, double lng) {
+        final Map<Long, Double> distances = new HashMap<>();
+        for (DownloadedMap map : maps) {
+            distances.put(map.getId(), distanceMeters(map, lat, lng));
+        }
+        Collections.sort(maps, (a, b) -> {
+            int byDistance = Double.compare(distances.get(a.getId()), distances.get(b.getId()));
+            return byDistance != 0 ? byDistance : Long.compare(a.getId(), b.getId());
+        });
+    }
+
+    private static double distanceMeters(DownloadedMap map, double lat, double lng) {
+        return GeoBounds.distanceToBoundsMeters(map.getSouthWestLat(), map.getSouthWestLng(),
+                map.getNorthEastLat(), map.getNorthEastLng(), lat, lng);
+    }
+
+    private static double area(DownloadedMap map) {
+        double width = map.getNorthEastLng() - map.getSouthWestLng();
+        return (map.getNorthEastLat() - map.getSouthWestLat()) * (width < 0 ? width + 360 : width);
+    }
+
+    // Save a new download job, replacing any previous job for the same map
+    public void addDownloadJob(DownloadJob job) {
+        SQLiteDatabase db = this.getWritableDatabase();
+
+        ContentValues values = new ContentValues();
+        values.put(KEY_JOB_MAP_ID, job.getMapId());
+        values.put(KEY_JOB_MIN_ZOOM, job.getMinZoom());
+        values.put(KEY_JOB_MAX_ZOOM, job.getMaxZoom());
+        values.put(KEY_JOB_URL_TEMPLATE, job.getUrlTemplate());
+        values.put(KEY_JOB_TOTAL_TILES, job.getTotalTiles());
+        values.put(KEY_JOB_COMPLETED_CHUNKS, job.getCompletedChunks().toByteArray());
+        values.put(KEY_JOB_STATUS, job.getStatus());
+        values.put(KEY_JOB_BYTES, job.getBytesDownloaded());
+        values.put(KEY_JOB_UPDATED_AT, System.currentTimeMillis());
+
+        db.insertWithOnConflict(TABLE_DOWNLOAD_JOBS, null, values, SQLiteDatabase.CONFLICT_REPLACE);
+        Log.d(TAG, "Added download job for map ID: " + job.getMapId());
+    }
+
+    // Get the download job of a map, or null if it has none
+    public DownloadJob getDownloadJob(long mapId) {
+        SQLiteDatabase db = this.getReadableDatabase();
+        try (Cursor cursor = db.query(TABLE_DOWNLOAD_JOBS, null, KEY_JOB_MAP_ID + "=?",
+                new String[]{String.valueOf(mapId)}, null, null, null)) {
+            return cursor.moveToFirst() ? cursorToDownloadJob(cursor) : null;
+        }
+    }
+
+    // Get every job that should continue after a restart or reconnect, oldest first
+    public List<DownloadJob> getResumableDownloadJobs() {
+        List<DownloadJob> jobs = new ArrayList<>();
+        SQLiteDatabase db = this.getReadableDatabase();
+        try (Cursor cursor = db.query(TABLE_DOWNLOAD_JOBS, null,
+                KEY_JOB_STATUS + " IN (?,?,?)",
+                new String[]{DownloadJob.STATUS_PENDING, DownloadJob.STATUS_RUNNING, DownloadJob.STATUS_PAUSED},
+                null, null, KEY_JOB_MAP_ID)) {
+            while (cursor.moveToNext()) {
+                jobs.add(cursorToDownloadJob(cursor));
+            }
+        }
+        return jobs;
+    }
+
+    // Record the chunks stored so far; called after every completed chunk
+    public void updateDownloadJobProgress(long mapId, BitSet completedChunks, long bytesDownloaded) {
+        ContentValues values = new ContentValues();
+        values.put(KEY_JOB_COMPLETED_CHUNKS, completedChunks.toByteArray());
+        values.put(KEY_JOB_BYTES, bytesDownloaded);
+        values.put(KEY_JOB_UPDATED_AT, System.currentTimeMillis());
+        getWritableDatabase().update(TABLE_DOWNLOAD_JOBS, values, KEY_JOB_MAP_ID + "=?",
+                new String[]{String.valueOf(mapId)});
+    }
+
+    public void updateDownloadJobStatus(long mapId, String status) {
+        ContentValues values = new ContentValues();
+        values.put(KEY_JOB_STATUS, status);
+        values.put(KEY_JOB_UPDATED_AT, System.currentTimeMillis());
+        getWritableDatabase().update(TABLE_DOWNLOAD_JOBS, values, KEY_JOB_MAP_ID + "=?",
+                new String[]{String.valueOf(mapId)});
+        Log.d(TAG, "Download job for map ID " + mapId + " is now " + status);
+    }
+
+    // Finish a job and make its map available offline in one transaction, recording its size on
+    // disk and what sharing identical tiles saved in its archive
+    public void completeDownloadJob(long mapId, long fileSizeBytes, TileDedupStats storage) {
+        SQLiteDatabase db = this.getWritableDatabase();
+        String[] args = {String.valueOf(mapId)};
+        int updated;
+        db.beginTransaction();
         try {
-            Date date = DATE_FORMAT.parse(dateString);
-            map.setDownloadDate(date);
-        } catch (ParseException e) {
-            Log.e(TAG, "Error parsing date: " + dateString, e);
-            map.setDownloadDate(new Date()); // Default to current date
+            ContentValues jobValues = new ContentValues();
+            jobValues.put(KEY_JOB_STATUS, DownloadJob.STATUS_COMPLETE);
+            jobValues.put(KEY_JOB_UPDATED_AT, System.currentTimeMillis());
+            db.update(TABLE_DOWNLOAD_JOBS, jobValues, KEY_JOB_MAP_ID + "=?", args);
+
+            ContentValues mapValues = new ContentValues();
+            mapValues.put(KEY_IS_AVAILABLE_OFFLINE, 1);
+            mapValues.put(KEY_FILE_SIZE, fileSizeBytes);
+            mapValues.put(KEY_TILE_COUNT, storage.getTileCount());
+            mapValues.put(KEY_UNIQUE_TILE_COUNT, storage.getUniqueTileCount());
+            mapValues.put(KEY_LOGICAL_BYTES, storage.getLogicalBytes());
+            mapValues.put(KEY_STORED_BYTES, storage.getStoredBytes());
+            updated = db.update(TABLE_DOWNLOADED_MAPS, mapValues, KEY_ID + "=?", args);
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+        if (updated > 0) {
+            publishChange(MapChange.UPDATED, mapId);
+        }
+        Log.d(TAG, "Map ID " + mapId + " is available offline");
+    }
+
+    // Version of the saved maps, raised by every committed change; starts at 0 in each process
+    public long getChangeVersion() {
+        return changeVersion.get();
+    }
+
+    public void addChangeListener(ChangeListener listener) {
+        changeListeners.add(listener);
+    }
+
+    public void removeChangeListener(ChangeListener listener) {
+        changeListeners.remove(listener);
+    }
+
+    // Called after the change is committed and outside statementLock, so listeners may query
+    private void publishChange(int type, long mapId) {
+        MapChange change = new MapChange(changeVersion.incrementAndGet(), type, mapId);
+        for (ChangeListener listener : changeListeners) {
+            listener.onMapChanged(change);
+        }
+    }
+
+    private DownloadJob cursorToDownloadJob(Cursor cursor) {
+        DownloadJob job = new DownloadJob();
+        job.setMapId(cursor.getLong(cursor.getColumnIndexOrThrow(KEY_JOB_MAP_ID)));
+        job.setMinZoom(cursor.getInt(cursor.getColumnIndexOrThrow(KEY_JOB_MIN_ZOOM)));
+        job.setMaxZoom(cursor.getInt(cursor.getColumnIndexOrThrow(KEY_JOB_MAX_ZOOM)));
+        job.setUrlTemplate(cursor.getString(cursor.getColumnIndexOrThrow(KEY_JOB_URL_TEMPLATE)));
+        job.setTotalTiles(cursor.getLong(cursor.getColumnIndexOrThrow(KEY_JOB_TOTAL_TILES)));
+        byte[] chunks = cursor.getBlob(cursor.getColumnIndexOrThrow(KEY_JOB_COMPLETED_CHUNKS));
+        job.setCompletedChunks(chunks != null ? BitSet.valueOf(chunks) : new BitSet());
+        job.setStatus(cursor.getString(cursor.getColumnIndexOrThrow(KEY_JOB_STATUS)));
+        job.setBytesDownloaded(cursor.getLong(cursor.getColumnIndexOrThrow(KEY_JOB_BYTES)));
+        job.setUpdatedAt(cursor.getLong(cursor.getColumnIndexOrThrow(KEY_JOB_UPDATED_AT)));
+        return job;
+    }
+
+    private static List<DownloadedMap> readMaps(Cursor cursor) {
+        List<DownloadedMap> maps = new ArrayList<>(cursor.getCount());
+        MapColumns columns = new MapColumns(cursor);
+        while (cursor.moveToNext()) {
+            maps.add(columns.read(cursor));
+        }
+        return maps;
+    }
+
+    // Column positions of a downloaded_maps cursor, looked up once instead of for every row, and
+    // the row the cursor is on
+    private static final class MapColumns implements DownloadedMap.StoredRow {
+        final int id;
+        final int label;
+        final int description;
+        final int centerLat;
+        final int centerLng;
+        final int northEastLat;
+        final int northEastLng;
+        final int southWestLat;
+        final int southWestLng;
+        final int zoomLevel;
+        final int downloadDate;
+        final int fileSize;
+        final int mapType;
+        final int availableOffline;
+        final int tileCount;
+        final int uniqueTileCount;
+        final int logicalBytes;
+        final int storedBytes;
+        private Cursor cursor;
+
+        MapColumns(Cursor cursor) {
+            id = cursor.getColumnIndexOrThrow(KEY_ID);
+            label = cursor.getColumnIndexOrThrow(KEY_LABEL);
+            description = cursor.getColumnIndexOrThrow(KEY_DESCRIPTION);
+            centerLat = cursor.getColumnIndexOrThrow(KEY_CENTER_LAT);
+            centerLng = cursor.getColumnIndexOrThrow(KEY_CENTER_LNG);
+            northEastLat = cursor.getColumnIndexOrThrow(KEY_NE_LAT);
+            northEastLng = cursor.getColumnIndexOrThrow(KEY_NE_LNG);
+            southWestLat = cursor.getColumnIndexOrThrow(KEY_SW_LAT);
+            southWestLng = cursor.getColumnIndexOrThrow(KEY_SW_LNG);
+            zoomLevel = cursor.getColumnIndexOrThrow(KEY_ZOOM_LEVEL);
+            downloadDate = cursor.getColumnIndexOrThrow(KEY_DOWNLOAD_DATE);
+            fileSize = cursor.getColumnIndexOrThrow(KEY_FILE_SIZE);
+            mapType = cursor.getColumnIndexOrThrow(KEY_MAP_TYPE);
+            availableOffline = cursor.getColumnIndexOrThrow(KEY_IS_AVAILABLE_OFFLINE);
+            tileCount = cursor.getColumnIndexOrThrow(KEY_TILE_COUNT);
+            uniqueTileCount = cursor.getColumnIndexOrThrow(KEY_UNIQUE_TILE_COUNT);
+            logicalBytes = cursor.getColumnIndexOrThrow(KEY_LOGICAL_BYTES);
+            storedBytes = cursor.getColumnIndexOrThrow(KEY_STORED_BYTES);
+        }
+
+        // Convert the cursor's current row to a DownloadedMap object
+        DownloadedMap read(Cursor cursor) {
+            this.cursor = cursor;
+            return DownloadedMap.fromRow(this);
+        }
+
+        @Override
+        public long getId() {
+            return cursor.getLong(id);
+        }
+
+        @Override
+        public String getLabel() {
+            return cursor.getString(label);
+        }
+
+        @Override
+        public String getDescription() {
+            return cursor.getString(description);
+        }
+
+        @Override
+        public long getCenterLatE7() {
+            return cursor.getLong(centerLat);
+        }
+
+        @Override
+        public long getCenterLngE7() {
+            return cursor.getLong(centerLng);
+        }
+
+        @Override
+        public long getNorthEastLatE7() {
+            return cursor.getLong(northEastLat);
+        }
+
+        @Override
+        public long getNorthEastLngE7() {
+            return cursor.getLong(northEastLng);
+        }
+
+        @Override
+        public long getSouthWestLatE7() {
+            return cursor.getLong(southWestLat);
+        }
+
+        @Override
+        public long getSouthWestLngE7() {
+            return cursor.getLong(southWestLng);
+        }
+
+        @Override
+        public int getZoomLevel() {
+            return cursor.getInt(zoomLevel);
+        }
+
+        @Override
+        public long getDownloadDateMillis() {
+            return cursor.getLong(downloadDate);
+        }
+
+        @Override
+        public long getFileSizeBytes() {
+            return cursor.getLong(fileSize);
+        }
+
+        @Override
+        public String getMapType() {
+            return cursor.getString(mapType);
+        }
+
+        @Override
+        public int getAvailableOffline() {
+            return cursor.getInt(availableOffline);
+        }
+
+        @Override
+        public long getTileCount() {
+            return cursor.getLong(tileCount);
+        }
+
+        @Override
+        public long getUniqueTileCount() {
+            return cursor.getLong(uniqueTileCount);
+        }
+
+        @Override
+        public long getLogicalBytes() {
+            return cursor.getLong(logicalBytes);
+        }
+
+        @Override
+        public long getStoredBytes() {
+            return cursor.getLong(storedBytes);
         }
-        
-        return map;
     }
 }
@@ -0,0 +1,216 @@
+package com.example.myapplication.database;
+
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
+import android.util.Log;
+
+import com.example.myapplication.geo.E7;
+
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+
+/**
+ * Schema steps of OfflineMaps.db, applied in order by MapDatabaseHelper.onUpgrade.
+ *
+ * Each step is written in literal SQL against the schema of its own version, so later changes
+ * to MapDatabaseHelper's column constants never change what an old step does. Every step
+ * keeps the user's saved maps; a new schema version adds a step here rather than dropping tables.
+ */
+final class MapDatabaseMigrations {
+    private static final String TAG = "MapDatabaseMigrations";
+
+    abstract static class Migration {
+        final int startVersion;
+        final int endVersion;
+
+        Migration(int startVersion, int endVersion) {
+            this.startVersion = startVersion;
+            this.endVersion = endVersion;
+        }
+
+        abstract void migrate(SQLiteDatabase db);
+    }
+
+    // Version 2: persistent download jobs
+    static final Migration MIGRATION_1_2 = new Migration(1, 2) {
+        @Override
+        void migrate(SQLiteDatabase db) {
+            db.execSQL("CREATE TABLE download_jobs(" +
+                    "map_id INTEGER PRIMARY KEY REFERENCES downloaded_maps(id) ON DELETE CASCADE," +
+                    "min_zoom INTEGER NOT NULL,max_zoom INTEGER NOT NULL,url_template TEXT NOT NULL," +
+                    "total_tiles INTEGER NOT NULL,completed_chunks BLOB,status TEXT NOT NULL," +
+                    "bytes_downloaded INTEGER DEFAULT 0,updated_at INTEGER NOT NULL)");
+        }
+    };
+
+    // Version 3: spatial index over the REAL degree bounds columns
+    static final Migration MIGRATION_2_3 = new Migration(2, 3) {
+        @Override
+        void migrate(SQLiteDatabase db) {
+            MapDatabaseHelper.createBoundsIndexTable(db);
+            String bounds = "MIN(%1$ssouthwest_latitude,%1$snortheast_latitude)," +
+                    "MAX(%1$ssouthwest_latitude,%1$snortheast_latitude)," +
+                    "CASE WHEN %1$ssouthwest_longitude > %1$snortheast_longitude THEN -180 ELSE %1$ssouthwest_longitude END," +
+                    "CASE WHEN %1$ssouthwest_longitude > %1$snortheast_longitude THEN 180 ELSE %1$snortheast_longitude END";
+            String newBounds = String.format(bounds, "NEW.");
+            db.execSQL("CREATE TRIGGER downloaded_maps_bounds_insert AFTER INSERT ON downloaded_maps" +
+                    " BEGIN INSERT INTO map_bounds_index VALUES (NEW.id," + newBounds + "); END");
+            db.execSQL("CREATE TRIGGER downloaded_maps_bounds_update AFTER UPDATE OF northeast_latitude," +
+                    "northeast_longitude,southwest_latitude,southwest_longitude ON downloaded_maps" +
+                    " BEGIN DELETE FROM map_bounds_index WHERE id = OLD.id;" +
+                    " INSERT INTO map_bounds_index VALUES (NEW.id," + newBounds + "); END");
+            db.execSQL("CREATE TRIGGER downloaded_maps_bounds_delete AFTER DELETE ON downloaded_maps" +
+                    " BEGIN DELETE FROM map_bounds_index WHERE id = OLD.id; END");
+            db.execSQL("INSERT INTO map_bounds_index SELECT id," + String.format(bounds, "") + " FROM downloaded_maps");
+        }
+    };
+
+    // Version 4: download_date as epoch millis and coordinates as E7 integers
+    static final Migration MIGRATION_3_4 = new Migration(3, 4) {
+        @Override
+        void migrate(SQLiteDatabase db) {
+            db.execSQL("CREATE TABLE downloaded_maps_v4(id INTEGER PRIMARY KEY AUTOINCREMENT," +
+                    "label TEXT NOT NULL,description TEXT," +
+                    "center_lat_e7 INTEGER NOT NULL,center_lng_e7 INTEGER NOT NULL," +
+                    "northeast_lat_e7 INTEGER NOT NULL,northeast_lng_e7 INTEGER NOT NULL," +
+                    "southwest_lat_e7 INTEGER NOT NULL,southwest_lng_e7 INTEGER NOT NULL," +
+                    "zoom_level INTEGER NOT NULL,download_date INTEGER NOT NULL," +
+                    "file_size_bytes INTEGER DEFAULT 0,map_type TEXT NOT NULL,is_available_offline INTEGER DEFAULT 1)");
+
+            // Dates were written with the device's default locale and time zone, so parse them the same way
+            SimpleDateFormat v3DateFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss", Locale.getDefault());
+            SQLiteStatement insert = db.compileStatement("INSERT INTO downloaded_maps_v4 VALUES (?,?,?,?,?,?,?,?,?,?,?,?,?,?)");
+            int copied = 0;
+            try (Cursor cursor = db.rawQuery("SELECT id,label,description,center_latitude,center_longitude," +
+                    "northeast_latitude,northeast_longitude,southwest_latitude,southwest_longitude," +
+                    "zoom_level,download_date,file_size_bytes,map_type,is_available_offline FROM downloaded_maps", null)) {
+                while (cursor.moveToNext()) {
+                    insert.clearBindings();
+                    insert.bindLong(1, cursor.getLong(0));
+                    insert.bindString(2, cursor.getString(1));
+                    if (!cursor.isNull(2)) {
+                        insert.bindString(3, cursor.getString(2));
+                    }
+                    for (int column = 3; column <= 8; column++) {
+                        insert.bindLong(column + 1, E7.fromDegrees(cursor.getDouble(column)));
+                    }
+                    insert.bindLong(10, cursor.getInt(9));
+                    insert.bindLong(11, parseV3Date(v3DateFormat, cursor.getString(10)));
+                    insert.bindLong(12, cursor.getLong(11));
+                    insert.bindString(13, cursor.getString(12));
+                    insert.bindLong(14, cursor.getInt(13));
+                    insert.executeInsert();
+                    copied++;
+                }
+            } finally {
+                insert.close();
+            }
+
+            // Carry the AUTOINCREMENT high-water mark over so ids of deleted maps are never reused
+            db.execSQL("UPDATE sqlite_sequence SET seq = (SELECT seq FROM sqlite_sequence WHERE name = 'downloaded_maps')" +
+                    " WHERE name = 'downloaded_maps_v4' AND EXISTS (SELECT 1 FROM sqlite_sequence WHERE name = 'downloaded_maps')");
+            // Dropping the old table also drops its bounds triggers
+            db.execSQL("DROP TABLE downloaded_maps");
+            db.execSQL("ALTER TABLE downloaded_maps_v4 RENAME TO downloaded_maps");
+            db.execSQL("CREATE INDEX idx_downloaded_maps_date ON downloaded_maps(download_date)");
+
+            String bounds = "MIN(%1$ssouthwest_lat_e7,%1$snortheast_lat_e7) / 10000000.0," +
+                    "MAX(%1$ssouthwest_lat_e7,%1$snortheast_lat_e7) / 10000000.0," +
+                    "CASE WHEN %1$ssouthwest_lng_e7 > %1$snortheast_lng_e7 THEN -180 ELSE %1$ssouthwest_lng_e7 / 10000000.0 END," +
+                    "CASE WHEN %1$ssouthwest_lng_e7 > %1$snortheast_lng_e7 THEN 180 ELSE %1$snortheast_lng_e7 / 10000000.0 END";
+            String newBounds = String.format(bounds, "NEW.");
+            db.execSQL("CREATE TRIGGER downloaded_maps_bounds_insert AFTER INSERT ON downloaded_maps" +
+                    " BEGIN INSERT INTO map_bounds_index VALUES (NEW.id," + newBounds + "); END");
+            db.execSQL("CREATE TRIGGER downloaded_maps_bounds_update AFTER UPDATE OF northeast_lat_e7," +
+                    "northeast_lng_e7,southwest_lat_e7,southwest_lng_e7 ON downloaded_maps" +
+                    " BEGIN DELETE FROM map_bounds_index WHERE id = OLD.id;" +
+                    " INSERT INTO map_bounds_index VALUES (NEW.id," + newBounds + "); END");
+            db.execSQL("CREATE TRIGGER downloaded_maps_bounds_delete AFTER DELETE ON downloaded_maps" +
+                    " BEGIN DELETE FROM map_bounds_index WHERE id = OLD.id; END");
+            db.execSQL("DELETE FROM map_bounds_index");
+            db.execSQL("INSERT INTO map_bounds_index SELECT id," + String.format(bounds, "") + " FROM downloaded_maps");
+            Log.d(TAG, "Converted " + copied + " maps to epoch dates and E7 coordinates");
+        }
+    };
+
+    // Version 5: full-text search over labels and descriptions
+    static final Migration MIGRATION_4_5 = new Migration(4, 5) {
+        @Override
+        void migrate(SQLiteDatabase db) {
+            MapDatabaseHelper.createSearchTable(db);
+            db.execSQL("CREATE TRIGGER downloaded_maps_search_insert AFTER INSERT ON downloaded_maps" +
+                    " BEGIN INSERT INTO map_search(rowid,label,description) VALUES (NEW.id,NEW.label,NEW.description); END");
+            db.execSQL("CREATE TRIGGER downloaded_maps_search_update AFTER UPDATE OF label,description ON downloaded_maps" +
+                    " BEGIN DELETE FROM map_search WHERE rowid = OLD.id;" +
+                    " INSERT INTO map_search(rowid,label,description) VALUES (NEW.id,NEW.label,NEW.description); END");
+            db.execSQL("CREATE TRIGGER downloaded_maps_search_delete AFTER DELETE ON downloaded_maps" +
+                    " BEGIN DELETE FROM map_search WHERE rowid = OLD.id; END");
+            db.execSQL("INSERT INTO map_search(rowid,label,description) SELECT id,label,description FROM downloaded_maps");
+        }
+    };
+
+    // Version 6: indexes for filtering and sorting the maps list in SQLite
+    static final Migration MIGRATION_5_6 = new Migration(5, 6) {
+        @Override
+        void migrate(SQLiteDatabase db) {
+            db.execSQL("CREATE INDEX idx_downloaded_maps_type_date ON downloaded_maps(map_type,download_date)");
+            db.execSQL("CREATE INDEX idx_downloaded_maps_offline_date ON downloaded_maps(is_available_offline,download_date)");
+            db.execSQL("CREATE INDEX idx_downloaded_maps_size ON downloaded_maps(file_size_bytes)");
+            db.execSQL("CREATE INDEX idx_downloaded_maps_type_size ON downloaded_maps(map_type,file_size_bytes)");
+            db.execSQL("CREATE INDEX idx_downloaded_maps_label ON downloaded_maps(label COLLATE NOCASE)");
+            db.execSQL("CREATE INDEX idx_downloaded_maps_type_label ON downloaded_maps(map_type,label COLLATE NOCASE)");
+        }
+    };
+
+    // Version 7: storage of each map's sealed archive, recorded when its download completes
+    static final Migration MIGRATION_6_7 = new Migration(6, 7) {
+        @Override
+        void migrate(SQLiteDatabase db) {
+            db.execSQL("ALTER TABLE downloaded_maps ADD COLUMN tile_count INTEGER DEFAULT 0");
+            db.execSQL("ALTER TABLE downloaded_maps ADD COLUMN unique_tile_count INTEGER DEFAULT 0");
+            db.execSQL("ALTER TABLE downloaded_maps ADD COLUMN logical_bytes INTEGER DEFAULT 0");
+            db.execSQL("ALTER TABLE downloaded_maps ADD COLUMN stored_bytes INTEGER DEFAULT 0");
+        }
+    };
+
+    static final Migration[] ALL = {MIGRATION_1_2, MIGRATION_2_3, MIGRATION_3_4, MIGRATION_4_5, MIGRATION_5_6,
+            MIGRATION_6_7};
+
+    private MapDatabaseMigrations() {
+    }
+
+    // Apply every step from oldVersion to newVersion; the caller's upgrade transaction makes this all-or-nothing
+    static void migrate(SQLiteDatabase db, int oldVersion, int newVersion) {
+        int version = oldVersion;
+        while (version < newVersion) {
+            Migration step = null;
+            for (Migration migration : ALL) {
+                if (migration.startVersion == version) {
+                    step = migration;
+                    break;
+                }
+            }
+            if (step == null || step.endVersion > newVersion) {
+                throw new IllegalStateException("No migration from version " + version + " to " + newVersion);
+            }
+            Log.d(TAG, "Migrating from version " + step.startVersion + " to " + step.endVersion);
+            step.migrate(db);
+            version = step.endVersion;
+        }
+    }
+
+    private static long parseV3Date(SimpleDateFormat format, String date) {
+        try {
+            Date parsed = format.parse(date);
+            if (parsed != null) {
+                return parsed.getTime();
+            }
+        } catch (ParseException e) {
+            Log.e(TAG, "Error parsing date: " + date, e);
+        }
+        return System.currentTimeMillis(); // Same default the old reader used
+    }
+}
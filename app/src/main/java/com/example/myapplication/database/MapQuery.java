@@ -0,0 +1,139 @@
+package com.example.myapplication.database;
+
+import java.util.Objects;
+
+/**
+ * Filters and sort order for listing saved maps with MapDatabaseHelper.queryMaps.
+ *
+ * Every filter and sort order has an index, so SQLite filters and orders the rows and a page
+ * reads only the rows it returns. The defaults list every map, newest first.
+ */
+public class MapQuery {
+    public static final int SORT_NEWEST = 0;   // download date, newest first
+    public static final int SORT_LARGEST = 1;  // file size, largest first
+    public static final int SORT_LABEL = 2;    // label A to Z, ignoring case
+    public static final int SORT_NEAREST = 3;  // distance of the region from the origin, nearest first
+
+    private int sort = SORT_NEWEST;
+    private double originLat;
+    private double originLng;
+    private String mapType;
+    private Boolean availableOffline;
+    private long minSizeBytes = 0;
+    private long maxSizeBytes = Long.MAX_VALUE;
+
+    public MapQuery() {
+    }
+
+    // Copy, so a query handed to a background read is not changed under it
+    public MapQuery(MapQuery other) {
+        sort = other.sort;
+        originLat = other.originLat;
+        originLng = other.originLng;
+        mapType = other.mapType;
+        availableOffline = other.availableOffline;
+        minSizeBytes = other.minSizeBytes;
+        maxSizeBytes = other.maxSizeBytes;
+    }
+
+    public int getSort() {
+        return sort;
+    }
+
+    // One of the SORT_ constants; use sortByDistanceFrom for SORT_NEAREST
+    public MapQuery setSort(int sort) {
+        if (sort < SORT_NEWEST || sort > SORT_NEAREST) {
+            throw new IllegalArgumentException("Unknown sort order: " + sort);
+        }
+        this.sort = sort;
+        return this;
+    }
+
+    public MapQuery sortByDistanceFrom(double lat, double lng) {
+        this.sort = SORT_NEAREST;
+        this.originLat = lat;
+        this.originLng = lng;
+        return this;
+    }
+
+    public double getOriginLat() {
+        return originLat;
+    }
+
+    public double getOriginLng() {
+        return originLng;
+    }
+
+    // Map type such as "SATELLITE", or null for every type
+    public String getMapType() {
+        return mapType;
+    }
+
+    public MapQuery setMapType(String mapType) {
+        this.mapType = mapType;
+        return this;
+    }
+
+    // True or false to keep only maps with that offline availability, or null for both
+    public Boolean getAvailableOffline() {
+        return availableOffline;
+    }
+
+    public MapQuery setAvailableOffline(Boolean availableOffline) {
+        this.availableOffline = availableOffline;
+        return this;
+    }
+
+    public long getMinSizeBytes() {
+        return minSizeBytes;
+    }
+
+    public long getMaxSizeBytes() {
+        return maxSizeBytes;
+    }
+
+    // Inclusive file size range; 0 and Long.MAX_VALUE leave that end open
+    public MapQuery setSizeRange(long minSizeBytes, long maxSizeBytes) {
+        this.minSizeBytes = Math.max(0, minSizeBytes);
+        this.maxSizeBytes = maxSizeBytes;
+        return this;
+    }
+
+    public boolean hasFilters() {
+        return mapType != null || availableOffline != null || minSizeBytes > 0 || maxSizeBytes != Long.MAX_VALUE;
+    }
+
+    // True for the plain newest-first list of every map
+    public boolean isDefault() {
+        return sort == SORT_NEWEST && !hasFilters();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof MapQuery)) {
+            return false;
+        }
+        MapQuery other = (MapQuery) o;
+        return sort == other.sort
+                && Double.compare(originLat, other.originLat) == 0
+                && Double.compare(originLng, other.originLng) == 0
+                && Objects.equals(mapType, other.mapType)
+                && Objects.equals(availableOffline, other.availableOffline)
+                && minSizeBytes == other.minSizeBytes
+                && maxSizeBytes == other.maxSizeBytes;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(sort, originLat, originLng, mapType, availableOffline, minSizeBytes, maxSizeBytes);
+    }
+
+    @Override
+    public String toString() {
+        return "MapQuery{sort=" + sort + ", mapType=" + mapType + ", availableOffline=" + availableOffline +
+                ", size=" + minSizeBytes + ".." + maxSizeBytes + '}';
+    }
+}
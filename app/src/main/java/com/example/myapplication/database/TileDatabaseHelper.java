@@ -0,0 +1,456 @@
+package com.example.myapplication.database;
+
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteOpenHelper;
+import android.database.sqlite.SQLiteStatement;
+import android.util.Log;
+
+import com.example.myapplication.tiles.PackedTileArchiveWriter;
+import com.example.myapplication.tiles.TileDedupStats;
+import com.example.myapplication.tiles.TileHash;
+import com.example.myapplication.tiles.TileRange;
+import com.example.myapplication.tiles.TileSources;
+import com.example.myapplication.tiles.TileStore;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * MBTiles-style SQLite store for downloaded map tiles, kept in its own database
+ * next to OfflineMaps.db. Each map type has its own database and archive directory,
+ * since the same z/x/y is a different image on every map type.
+ *
+ * Tiles are buffered in memory and written in batches: one transaction and one
+ * precompiled INSERT statement per BATCH_SIZE tiles. The database runs in WAL mode
+ * so the map can keep reading tiles while a download is writing them.
+ * Rows use XYZ numbering (row 0 at the north edge), not the TMS rows of the MBTiles spec.
+ *
+ * Payloads are stored once per content hash (128-bit MurmurHash3) in tile_blobs and
+ * referenced from tiles, so the many identical water/empty tiles of a region cost one blob.
+ */
+public class TileDatabaseHelper extends SQLiteOpenHelper implements TileStore {
+    private static final String TAG = "TileDatabaseHelper";
+
+    // Database Info
+    private static final String DATABASE_PREFIX = "OfflineTiles_";
+    private static final int DATABASE_VERSION = 2;
+
+    // Tiles written per transaction
+    public static final int BATCH_SIZE = 256;
+
+    // Table Names
+    private static final String TABLE_TILES = "tiles";
+    private static final String TABLE_BLOBS = "tile_blobs";
+
+    // Column Names
+    private static final String KEY_ZOOM = "zoom_level";
+    private static final String KEY_COLUMN = "tile_column";
+    private static final String KEY_ROW = "tile_row";
+    private static final String KEY_DATA = "tile_data";
+    private static final String KEY_REGION_ID = "region_id";
+    private static final String KEY_HASH_HI = "hash_hi";
+    private static final String KEY_HASH_LO = "hash_lo";
+    private static final String KEY_SIZE = "tile_size";
+
+    // Sealed regions live in files/archives/region_<id>.mtpk
+    private static final String ARCHIVE_DIR = "archives";
+
+    // One store per map type, see TileSources.normalize
+    private static final Map<String, TileDatabaseHelper> instances = new HashMap<>();
+    private final File archiveDir;
+
+    // Tiles waiting for the next batch commit, guarded by pendingLock
+    private final Object pendingLock = new Object();
+    private List<PendingTile> pendingTiles = new ArrayList<>(BATCH_SIZE);
+
+    // Only one batch is committed at a time, guarded by writeLock. Batches are taken from
+    // pendingTiles only while holding it, always before pendingLock, so a flush that gets the
+    // lock knows every batch taken before it has been committed.
+    private final Object writeLock = new Object();
+    private SQLiteStatement insertBlobStatement;
+    private SQLiteStatement insertTileStatement;
+
+    private final Object existsLock = new Object();
+    private SQLiteStatement existsStatement;
+
+    private static class PendingTile {
+        final long regionId;
+        final int zoom;
+        final int x;
+        final int y;
+        final byte[] data;
+        final TileHash hash;
+
+        PendingTile(long regionId, int zoom, int x, int y, byte[] data) {
+            this.regionId = regionId;
+            this.zoom = zoom;
+            this.x = x;
+            this.y = y;
+            this.data = data;
+            // Hashed on the caller's (download worker's) thread, outside any lock
+            this.hash = TileHash.of(data);
+        }
+    }
+
+    // The tile store of a map type ("NORMAL", "SATELLITE", "HYBRID" or "TERRAIN")
+    public static synchronized TileDatabaseHelper getInstance(Context context, String mapType) {
+        String type = TileSources.normalize(mapType);
+        TileDatabaseHelper instance = instances.get(type);
+        if (instance == null) {
+            instance = new TileDatabaseHelper(context.getApplicationContext(), type.toLowerCase(Locale.US));
+            instances.put(type, instance);
+        }
+        return instance;
+    }
+
+    private TileDatabaseHelper(Context context, String name) {
+        super(context, DATABASE_PREFIX + name + ".db", null, DATABASE_VERSION);
+        setWriteAheadLoggingEnabled(true);
+        archiveDir = new File(new File(context.getFilesDir(), ARCHIVE_DIR), name);
+    }
+
+    @Override
+    public void onConfigure(SQLiteDatabase db) {
+        super.onConfigure(db);
+        // WAL only needs NORMAL sync; a crash can lose the last batch but never corrupt the file
+        db.execSQL("PRAGMA synchronous=NORMAL");
+    }
+
+    @Override
+    public void onCreate(SQLiteDatabase db) {
+        createTables(db);
+        Log.d(TAG, "Tile tables created successfully");
+    }
+
+    private void createTables(SQLiteDatabase db) {
+        String CREATE_BLOBS_TABLE = "CREATE TABLE " + TABLE_BLOBS +
+                "(" +
+                KEY_HASH_HI + " INTEGER NOT NULL," +
+                KEY_HASH_LO + " INTEGER NOT NULL," +
+                KEY_DATA + " BLOB NOT NULL," +
+                "PRIMARY KEY (" + KEY_HASH_HI + "," + KEY_HASH_LO + ")" +
+                ") WITHOUT ROWID";
+
+        String CREATE_TILES_TABLE = "CREATE TABLE " + TABLE_TILES +
+                "(" +
+                KEY_ZOOM + " INTEGER NOT NULL," +
+                KEY_COLUMN + " INTEGER NOT NULL," +
+                KEY_ROW + " INTEGER NOT NULL," +
+                KEY_HASH_HI + " INTEGER NOT NULL," +
+                KEY_HASH_LO + " INTEGER NOT NULL," +
+                KEY_SIZE + " INTEGER NOT NULL," +
+                KEY_REGION_ID + " INTEGER NOT NULL," +
+                "PRIMARY KEY (" + KEY_ZOOM + "," + KEY_COLUMN + "," + KEY_ROW + ")" +
+                ") WITHOUT ROWID";
+
+        db.execSQL(CREATE_BLOBS_TABLE);
+        db.execSQL(CREATE_TILES_TABLE);
+        db.execSQL("CREATE INDEX idx_tiles_region ON " + TABLE_TILES + "(" + KEY_REGION_ID + ")");
+        db.execSQL("CREATE INDEX idx_tiles_hash ON " + TABLE_TILES + "(" + KEY_HASH_HI + "," + KEY_HASH_LO + ")");
+    }
+
+    @Override
+    public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
+        Log.d(TAG, "Upgrading tile database from version " + oldVersion + " to " + newVersion);
+        if (oldVersion < 2) {
+            migrateToDeduplicatedBlobs(db);
+        }
+    }
+
+    // Version 1 kept the payload inline in tiles; move payloads into tile_blobs by hash
+    private void migrateToDeduplicatedBlobs(SQLiteDatabase db) {
+        db.execSQL("DROP INDEX IF EXISTS idx_tiles_region");
+        db.execSQL("ALTER TABLE " + TABLE_TILES + " RENAME TO tiles_v1");
+        createTables(db);
+
+        SQLiteStatement insertBlob = db.compileStatement("INSERT OR IGNORE INTO " + TABLE_BLOBS + " VALUES (?,?,?)");
+        SQLiteStatement insertTile = db.compileStatement("INSERT INTO " + TABLE_TILES + " VALUES (?,?,?,?,?,?,?)");
+        try (Cursor cursor = db.rawQuery("SELECT " + KEY_ZOOM + "," + KEY_COLUMN + "," + KEY_ROW + "," +
+                KEY_DATA + "," + KEY_REGION_ID + " FROM tiles_v1", null)) {
+            while (cursor.moveToNext()) {
+                byte[] data = cursor.getBlob(3);
+                TileHash hash = TileHash.of(data);
+                insertBlob.bindLong(1, hash.getHigh());
+                insertBlob.bindLong(2, hash.getLow());
+                insertBlob.bindBlob(3, data);
+                insertBlob.executeInsert();
+
+                insertTile.bindLong(1, cursor.getInt(0));
+                insertTile.bindLong(2, cursor.getInt(1));
+                insertTile.bindLong(3, cursor.getInt(2));
+                insertTile.bindLong(4, hash.getHigh());
+                insertTile.bindLong(5, hash.getLow());
+                insertTile.bindLong(6, data.length);
+                insertTile.bindLong(7, cursor.getLong(4));
+                insertTile.executeInsert();
+            }
+        } finally {
+            insertBlob.close();
+            insertTile.close();
+        }
+        db.execSQL("DROP TABLE tiles_v1");
+    }
+
+    // Queue a tile for the next batch; commits the batch once it is full
+    @Override
+    public void putTile(long regionId, int zoom, int x, int y, byte[] data) {
+        PendingTile tile = new PendingTile(regionId, zoom, x, y, data);
+        boolean full;
+        synchronized (pendingLock) {
+            pendingTiles.add(tile);
+            full = pendingTiles.size() >= BATCH_SIZE;
+        }
+        // Commit outside pendingLock so other workers can keep queueing tiles
+        if (full) {
+            commitPending(BATCH_SIZE);
+        }
+    }
+
+    // Write several tiles of one region in a single transaction
+    public void putTiles(long regionId, int[] zooms, int[] xs, int[] ys, byte[][] payloads) {
+        List<PendingTile> batch = new ArrayList<>(payloads.length);
+        for (int i = 0; i < payloads.length; i++) {
+            batch.add(new PendingTile(regionId, zooms[i], xs[i], ys[i], payloads[i]));
+        }
+        writeBatch(batch);
+    }
+
+    // Returns once every tile queued before the call is committed, including batches other
+    // workers took from the queue and are still writing
+    @Override
+    public void flush() {
+        commitPending(1);
+    }
+
+    // Take the queued tiles if there are at least minimum of them and commit them
+    private void commitPending(int minimum) {
+        synchronized (writeLock) {
+            List<PendingTile> batch;
+            synchronized (pendingLock) {
+                if (pendingTiles.size() < minimum) {
+                    return;
+                }
+                batch = pendingTiles;
+                pendingTiles = new ArrayList<>(BATCH_SIZE);
+            }
+            writeBatch(batch);
+        }
+    }
+
+    private void writeBatch(List<PendingTile> batch) {
+        synchronized (writeLock) {
+            SQLiteDatabase db = getWritableDatabase();
+            if (insertTileStatement == null) {
+                insertBlobStatement = db.compileStatement("INSERT OR IGNORE INTO " + TABLE_BLOBS +
+                        " (" + KEY_HASH_HI + "," + KEY_HASH_LO + "," + KEY_DATA + ") VALUES (?,?,?)");
+                insertTileStatement = db.compileStatement("INSERT OR REPLACE INTO " + TABLE_TILES +
+                        " (" + KEY_ZOOM + "," + KEY_COLUMN + "," + KEY_ROW + "," + KEY_HASH_HI + "," + KEY_HASH_LO +
+                        "," + KEY_SIZE + "," + KEY_REGION_ID + ") VALUES (?,?,?,?,?,?,?)");
+            }
+
+            // Payloads already written in this batch need no second blob insert
+            Set<TileHash> batchHashes = new HashSet<>();
+            db.beginTransactionNonExclusive();
+            try {
+                for (PendingTile tile : batch) {
+                    if (batchHashes.add(tile.hash)) {
+                        insertBlobStatement.bindLong(1, tile.hash.getHigh());
+                        insertBlobStatement.bindLong(2, tile.hash.getLow());
+                        insertBlobStatement.bindBlob(3, tile.data);
+                        insertBlobStatement.executeInsert();
+                    }
+
+                    insertTileStatement.bindLong(1, tile.zoom);
+                    insertTileStatement.bindLong(2, tile.x);
+                    insertTileStatement.bindLong(3, tile.y);
+                    insertTileStatement.bindLong(4, tile.hash.getHigh());
+                    insertTileStatement.bindLong(5, tile.hash.getLow());
+                    insertTileStatement.bindLong(6, tile.data.length);
+                    insertTileStatement.bindLong(7, tile.regionId);
+                    insertTileStatement.executeInsert();
+                }
+                db.setTransactionSuccessful();
+            } finally {
+                db.endTransaction();
+                insertBlobStatement.clearBindings();
+                insertTileStatement.clearBindings();
+            }
+        }
+    }
+
+    @Override
+    public byte[] getTile(int zoom, int x, int y) {
+        SQLiteDatabase db = getReadableDatabase();
+        try (Cursor cursor = db.rawQuery("SELECT b." + KEY_DATA + " FROM " + TABLE_TILES + " t" +
+                        " JOIN " + TABLE_BLOBS + " b ON b." + KEY_HASH_HI + "=t." + KEY_HASH_HI +
+                        " AND b." + KEY_HASH_LO + "=t." + KEY_HASH_LO +
+                        " WHERE t." + KEY_ZOOM + "=? AND t." + KEY_COLUMN + "=? AND t." + KEY_ROW + "=?",
+                new String[]{String.valueOf(zoom), String.valueOf(x), String.valueOf(y)})) {
+            return cursor.moveToFirst() ? cursor.getBlob(0) : null;
+        }
+    }
+
+    @Override
+    public boolean hasTile(int zoom, int x, int y) {
+        synchronized (existsLock) {
+            if (existsStatement == null) {
+                existsStatement = getReadableDatabase().compileStatement("SELECT COUNT(*) FROM " + TABLE_TILES +
+                        " WHERE " + KEY_ZOOM + "=? AND " + KEY_COLUMN + "=? AND " + KEY_ROW + "=?");
+            }
+            existsStatement.bindLong(1, zoom);
+            existsStatement.bindLong(2, x);
+            existsStatement.bindLong(3, y);
+            return existsStatement.simpleQueryForLong() > 0;
+        }
+    }
+
+    // Number of stored tiles belonging to a region
+    public long getRegionTileCount(long regionId) {
+        SQLiteDatabase db = getReadableDatabase();
+        try (Cursor cursor = db.rawQuery("SELECT COUNT(*) FROM " + TABLE_TILES +
+                " WHERE " + KEY_REGION_ID + "=?", new String[]{String.valueOf(regionId)})) {
+            return cursor.moveToFirst() ? cursor.getLong(0) : 0;
+        }
+    }
+
+    // Total payload bytes of a region's tiles, counting shared payloads once per tile
+    public long getRegionByteCount(long regionId) {
+        SQLiteDatabase db = getReadableDatabase();
+        try (Cursor cursor = db.rawQuery("SELECT TOTAL(" + KEY_SIZE + ") FROM " + TABLE_TILES +
+                " WHERE " + KEY_REGION_ID + "=?", new String[]{String.valueOf(regionId)})) {
+            return cursor.moveToFirst() ? cursor.getLong(0) : 0;
+        }
+    }
+
+    // Logical against stored size of a region, i.e. what deduplication saved
+    public TileDedupStats getRegionDedupStats(long regionId) {
+        flush();
+        SQLiteDatabase db = getReadableDatabase();
+        String[] args = {String.valueOf(regionId)};
+        long tileCount = 0;
+        long logicalBytes = 0;
+        try (Cursor cursor = db.rawQuery("SELECT COUNT(*), TOTAL(" + KEY_SIZE + ") FROM " + TABLE_TILES +
+                " WHERE " + KEY_REGION_ID + "=?", args)) {
+            if (cursor.moveToFirst()) {
+                tileCount = cursor.getLong(0);
+                logicalBytes = cursor.getLong(1);
+            }
+        }
+        long uniqueCount = 0;
+        long storedBytes = 0;
+        try (Cursor cursor = db.rawQuery("SELECT COUNT(*), TOTAL(" + KEY_SIZE + ") FROM (SELECT DISTINCT " +
+                KEY_HASH_HI + "," + KEY_HASH_LO + "," + KEY_SIZE + " FROM " + TABLE_TILES +
+                " WHERE " + KEY_REGION_ID + "=?)", args)) {
+            if (cursor.moveToFirst()) {
+                uniqueCount = cursor.getLong(0);
+                storedBytes = cursor.getLong(1);
+            }
+        }
+        return new TileDedupStats(tileCount, uniqueCount, logicalBytes, storedBytes);
+    }
+
+    // Remove every tile downloaded for a region
+    public void deleteRegionTiles(long regionId) {
+        deleteRegionTiles(regionId, Collections.emptyMap());
+    }
+
+    /**
+     * Remove the tiles downloaded for a region, except those inside the range of one of the
+     * given unfinished regions: those regions may have skipped them as already stored, so
+     * the rows are handed over to them instead.
+     */
+    public void deleteRegionTiles(long regionId, Map<Long, TileRange> unfinishedRegions) {
+        flush();
+        synchronized (writeLock) {
+            SQLiteDatabase db = getWritableDatabase();
+            db.beginTransactionNonExclusive();
+            try {
+                int kept = 0;
+                for (Map.Entry<Long, TileRange> region : unfinishedRegions.entrySet()) {
+                    TileRange range = region.getValue();
+                    for (int zoom = range.getMinZoom(); zoom <= range.getMaxZoom(); zoom++) {
+                        ContentValues owner = new ContentValues();
+                        owner.put(KEY_REGION_ID, region.getKey());
+                        kept += db.update(TABLE_TILES, owner, KEY_REGION_ID + "=? AND " + KEY_ZOOM + "=? AND " +
+                                        rangeFilter(range, zoom, ""),
+                                new String[]{String.valueOf(regionId), String.valueOf(zoom),
+                                        String.valueOf(range.getMinX(zoom)), String.valueOf(range.getMaxX(zoom)),
+                                        String.valueOf(range.getMinY(zoom)), String.valueOf(range.getMaxY(zoom))});
+                    }
+                }
+                int deleted = db.delete(TABLE_TILES, KEY_REGION_ID + "=?", new String[]{String.valueOf(regionId)});
+                // Drop payloads no remaining tile refers to
+                int orphans = db.delete(TABLE_BLOBS, "NOT EXISTS (SELECT 1 FROM " + TABLE_TILES + " t WHERE t." +
+                        KEY_HASH_HI + "=" + TABLE_BLOBS + "." + KEY_HASH_HI + " AND t." + KEY_HASH_LO + "=" +
+                        TABLE_BLOBS + "." + KEY_HASH_LO + ")", null);
+                db.setTransactionSuccessful();
+                Log.d(TAG, "Deleted " + deleted + " tiles and " + orphans + " payloads of region " + regionId +
+                        ", kept " + kept + " for unfinished regions");
+            } finally {
+                db.endTransaction();
+            }
+        }
+    }
+
+    public File getArchiveDir() {
+        return archiveDir;
+    }
+
+    // Location of the packed archive for a sealed region
+    public File getArchiveFile(long regionId) {
+        return new File(archiveDir, "region_" + regionId + ".mtpk");
+    }
+
+    /**
+     * Convert a finished region into a read-only PackedTileArchive holding every stored tile
+     * inside the region's range, including tiles first downloaded for an overlapping region.
+     * The rows stay in this database; callers that switch to the archive can drop the
+     * region's own rows with deleteRegionTiles, passing the unfinished regions that may still
+     * rely on some of them. Returns what sharing identical payloads saved in the archive.
+     */
+    public TileDedupStats sealRegion(long regionId, TileRange range) throws IOException {
+        flush();
+        File archiveFile = getArchiveFile(regionId);
+        SQLiteDatabase db = getReadableDatabase();
+        try (PackedTileArchiveWriter writer = new PackedTileArchiveWriter(archiveFile)) {
+            for (int zoom = range.getMinZoom(); zoom <= range.getMaxZoom(); zoom++) {
+                try (Cursor cursor = db.rawQuery("SELECT t." + KEY_COLUMN + ",t." + KEY_ROW + ",b." + KEY_DATA +
+                                " FROM " + TABLE_TILES + " t JOIN " + TABLE_BLOBS + " b ON b." +
+                                KEY_HASH_HI + "=t." + KEY_HASH_HI + " AND b." + KEY_HASH_LO + "=t." + KEY_HASH_LO +
+                                " WHERE t." + KEY_ZOOM + "=? AND " + rangeFilter(range, zoom, "t."),
+                        new String[]{String.valueOf(zoom),
+                                String.valueOf(range.getMinX(zoom)), String.valueOf(range.getMaxX(zoom)),
+                                String.valueOf(range.getMinY(zoom)), String.valueOf(range.getMaxY(zoom))})) {
+                    while (cursor.moveToNext()) {
+                        writer.addTile(zoom, cursor.getInt(0), cursor.getInt(1), cursor.getBlob(2));
+                    }
+                }
+            }
+            writer.finish();
+            TileDedupStats stats = writer.getDedupStats();
+            Log.d(TAG, "Sealed region " + regionId + ": " + stats);
+            return stats;
+        }
+    }
+
+    // Condition on a tile's column and row for the range at one zoom, taking minX, maxX,
+    // minY and maxY as arguments. A range across the antimeridian holds the columns from
+    // its west edge to the last and from 0 on.
+    private static String rangeFilter(TileRange range, int zoom, String table) {
+        String columnFilter = range.wrapsAntimeridian(zoom)
+                ? "(" + table + KEY_COLUMN + " >= ? OR " + table + KEY_COLUMN + " <= ?)"
+                : table + KEY_COLUMN + " BETWEEN ? AND ?";
+        return columnFilter + " AND " + table + KEY_ROW + " BETWEEN ? AND ?";
+    }
+}
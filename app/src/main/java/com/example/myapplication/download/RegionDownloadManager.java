@@ -0,0 +1,326 @@
+package com.example.myapplication.download;
+
+import android.content.Context;
+import android.net.ConnectivityManager;
+import android.net.Network;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import com.example.myapplication.database.MapDatabaseHelper;
+import com.example.myapplication.database.TileDatabaseHelper;
+import com.example.myapplication.model.DownloadJob;
+import com.example.myapplication.model.DownloadedMap;
+import com.example.myapplication.tiles.PrefetchConfig;
+import com.example.myapplication.tiles.PrefetchStats;
+import com.example.myapplication.tiles.TileDedupStats;
+import com.example.myapplication.tiles.TilePrefetcher;
+import com.example.myapplication.tiles.TileRange;
+import com.example.myapplication.tiles.TileSources;
+
+import java.io.IOException;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Runs region downloads from the persistent job table, one region at a time.
+ * Progress is checkpointed per chunk of tiles, so a job interrupted by process death
+ * or a lost connection resumes without fetching its stored chunks again.
+ */
+public class RegionDownloadManager {
+    private static final String TAG = "RegionDownloadManager";
+
+    /** Download events, delivered on the main thread */
+    public interface Listener {
+        void onProgress(long mapId, long completedTiles, long totalTiles, long bytesDownloaded);
+
+        void onFinished(long mapId, DownloadJob job, PrefetchStats stats);
+    }
+
+    /** Told when a region archive of a map type was sealed or deleted, on the main thread */
+    public interface ArchiveListener {
+        void onArchivesChanged(String mapType);
+    }
+
+    private static RegionDownloadManager instance;
+
+    private final Context context;
+    private final MapDatabaseHelper mapDatabase;
+    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+    private final Handler uiHandler = new Handler(Looper.getMainLooper());
+    private final CopyOnWriteArrayList<Listener> listeners = new CopyOnWriteArrayList<>();
+    private final CopyOnWriteArrayList<ArchiveListener> archiveListeners = new CopyOnWriteArrayList<>();
+    // Map ids queued or running, so a job is never scheduled twice
+    private final Set<Long> scheduled = new HashSet<>();
+    // Map ids cancelled whose job row is not marked yet; guarded by the scheduled lock, like the
+    // active download
+    private final Set<Long> cancelled = new HashSet<>();
+    private TilePrefetcher activePrefetcher;
+    private long activeMapId = -1;
+
+    public static synchronized RegionDownloadManager getInstance(Context context) {
+        if (instance == null) {
+            instance = new RegionDownloadManager(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    private RegionDownloadManager(Context context) {
+        this.context = context;
+        mapDatabase = MapDatabaseHelper.getInstance(context);
+
+        // Paused jobs continue as soon as a network is available again
+        ConnectivityManager connectivityManager =
+                (ConnectivityManager) context.getSystemService(Context.CONNECTIVITY_SERVICE);
+        if (connectivityManager != null) {
+            connectivityManager.registerDefaultNetworkCallback(new ConnectivityManager.NetworkCallback() {
+                @Override
+                public void onAvailable(Network network) {
+                    resumePendingDownloads();
+                }
+            });
+        }
+    }
+
+    public void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    public void addArchiveListener(ArchiveListener listener) {
+        archiveListeners.add(listener);
+    }
+
+    public void removeArchiveListener(ArchiveListener listener) {
+        archiveListeners.remove(listener);
+    }
+
+    // Create the job for a freshly saved map and start it; the job row is written on the download thread
+    public void startDownload(DownloadedMap map, PrefetchConfig config) {
+        TileRange range = new TileRange(map.getSouthWestLat(), map.getSouthWestLng(),
+                map.getNorthEastLat(), map.getNorthEastLng(), config.getMinZoom(), config.getMaxZoom());
+        DownloadJob job = new DownloadJob(map.getId(), config.getMinZoom(), config.getMaxZoom(),
+                config.getUrlTemplate(), range.size());
+        executor.execute(() -> {
+            synchronized (scheduled) {
+                if (cancelled.contains(job.getMapId())) {
+                    return;
+                }
+            }
+            mapDatabase.addDownloadJob(job);
+            schedule(job.getMapId());
+        });
+    }
+
+    // Queue every job that was pending, running or paused when it last stopped
+    public void resumePendingDownloads() {
+        executor.execute(() -> {
+            for (DownloadJob job : mapDatabase.getResumableDownloadJobs()) {
+                schedule(job.getMapId());
+            }
+        });
+    }
+
+    /**
+     * Stop a job for good; it is not resumed on reconnect or restart. A job not created or not
+     * started yet never runs, and the job row is marked on the download thread after the
+     * running download stops.
+     */
+    public void cancel(long mapId) {
+        TilePrefetcher prefetcher = null;
+        synchronized (scheduled) {
+            cancelled.add(mapId);
+            if (activeMapId == mapId) {
+                prefetcher = activePrefetcher;
+            }
+        }
+        if (prefetcher != null) {
+            prefetcher.cancel();
+        }
+        executor.execute(() -> {
+            DownloadJob job = mapDatabase.getDownloadJob(mapId);
+            if (job != null && job.isResumable()) {
+                mapDatabase.updateDownloadJobStatus(mapId, DownloadJob.STATUS_CANCELLED);
+            }
+            synchronized (scheduled) {
+                cancelled.remove(mapId);
+            }
+        });
+    }
+
+    /**
+     * Drop a deleted map's tiles and archive. This runs on the download thread, after any
+     * running job, so no download can skip one of the tiles while they are removed.
+     */
+    public void deleteRegion(DownloadedMap map) {
+        executor.execute(() -> {
+            TileDatabaseHelper tileDatabase = TileDatabaseHelper.getInstance(context, map.getMapType());
+            releaseRegionTiles(tileDatabase, map);
+            if (tileDatabase.getArchiveFile(map.getId()).delete()) {
+                notifyArchivesChanged(map.getMapType());
+            }
+        });
+    }
+
+    // Delete a map's tile rows, handing those inside other unfinished downloads of the same
+    // store to them: those downloads skipped the tiles as already stored
+    private void releaseRegionTiles(TileDatabaseHelper tileDatabase, DownloadedMap map) {
+        Map<Long, TileRange> unfinished = new HashMap<>();
+        for (DownloadJob job : mapDatabase.getResumableDownloadJobs()) {
+            DownloadedMap other = job.getMapId() == map.getId() ? null : mapDatabase.getDownloadedMap(job.getMapId());
+            if (other != null && TileDatabaseHelper.getInstance(context, other.getMapType()) == tileDatabase) {
+                unfinished.put(other.getId(), new TileRange(other.getSouthWestLat(), other.getSouthWestLng(),
+                        other.getNorthEastLat(), other.getNorthEastLng(), job.getMinZoom(), job.getMaxZoom()));
+            }
+        }
+        tileDatabase.deleteRegionTiles(map.getId(), unfinished);
+    }
+
+    private void notifyArchivesChanged(String mapType) {
+        String type = TileSources.normalize(mapType);
+        uiHandler.post(() -> {
+            for (ArchiveListener listener : archiveListeners) {
+                listener.onArchivesChanged(type);
+            }
+        });
+    }
+
+    public boolean isDownloading(long mapId) {
+        synchronized (scheduled) {
+            return scheduled.contains(mapId);
+        }
+    }
+
+    private void schedule(long mapId) {
+        synchronized (scheduled) {
+            if (!scheduled.add(mapId)) {
+                return;
+            }
+        }
+        executor.execute(() -> {
+            try {
+                runJob(mapId);
+            } finally {
+                synchronized (scheduled) {
+                    scheduled.remove(mapId);
+                }
+            }
+        });
+    }
+
+    private void runJob(long mapId) {
+        DownloadJob job = mapDatabase.getDownloadJob(mapId);
+        DownloadedMap map = mapDatabase.getDownloadedMap(mapId);
+        if (job == null || map == null || !job.isResumable()) {
+            return;
+        }
+
+        // Only fetch from the server currently configured for the map's type; jobs saved with
+        // another one, or whose type lost its server, wait until it is configured again
+        String urlTemplate = TileSources.urlTemplate(map.getMapType());
+        if (urlTemplate == null || !urlTemplate.equals(job.getUrlTemplate())) {
+            Log.w(TAG, "No matching tile server configured for map " + mapId + ", pausing its download");
+            mapDatabase.updateDownloadJobStatus(mapId, DownloadJob.STATUS_PAUSED);
+            return;
+        }
+
+        TileDatabaseHelper tileDatabase = TileDatabaseHelper.getInstance(context, map.getMapType());
+        PrefetchConfig config = new PrefetchConfig(urlTemplate, job.getMinZoom(), job.getMaxZoom());
+        TilePrefetcher prefetcher = new TilePrefetcher(config, tileDatabase);
+        TileRange range = prefetcher.rangeFor(map.getSouthWestLat(), map.getSouthWestLng(),
+                map.getNorthEastLat(), map.getNorthEastLng());
+        if (range.size() != job.getTotalTiles()) {
+            // The chunk layout changed, so the old checkpoints no longer line up
+            Log.w(TAG, "Tile range of map " + mapId + " changed, restarting from the first chunk");
+            job.setCompletedChunks(new BitSet());
+            job.setTotalTiles(range.size());
+            mapDatabase.addDownloadJob(job);
+        }
+
+        final long previousBytes = job.getBytesDownloaded();
+        final AtomicLong runBytes = new AtomicLong();
+        final BitSet completedChunks = job.getCompletedChunks();
+        TilePrefetcher.Checkpoint checkpoint = new TilePrefetcher.Checkpoint() {
+            @Override
+            public boolean isChunkComplete(int chunk) {
+                synchronized (completedChunks) {
+                    return completedChunks.get(chunk);
+                }
+            }
+
+            @Override
+            public void markChunkComplete(int chunk) {
+                synchronized (completedChunks) {
+                    completedChunks.set(chunk);
+                    mapDatabase.updateDownloadJobProgress(mapId, completedChunks, previousBytes + runBytes.get());
+                }
+            }
+        };
+
+        mapDatabase.updateDownloadJobStatus(mapId, DownloadJob.STATUS_RUNNING);
+        // A cancel from here on finds the prefetcher; one that came earlier is marked in the job
+        // row by its own task, queued behind this one
+        synchronized (scheduled) {
+            if (cancelled.contains(mapId)) {
+                return;
+            }
+            activePrefetcher = prefetcher;
+            activeMapId = mapId;
+        }
+        PrefetchStats stats;
+        try {
+            stats = prefetcher.prefetch(mapId, range, checkpoint, (completed, total, bytes) -> {
+                runBytes.set(bytes);
+                uiHandler.post(() -> {
+                    for (Listener listener : listeners) {
+                        listener.onProgress(mapId, completed, total, previousBytes + bytes);
+                    }
+                });
+            });
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            mapDatabase.updateDownloadJobStatus(mapId, DownloadJob.STATUS_PAUSED);
+            return;
+        } finally {
+            synchronized (scheduled) {
+                activePrefetcher = null;
+                activeMapId = -1;
+            }
+        }
+        Log.d(TAG, "Download of map " + mapId + " finished: " + stats);
+
+        if (stats.isComplete()) {
+            try {
+                // Finished regions are served from a memory-mapped archive
+                TileDedupStats storage = tileDatabase.sealRegion(mapId, range);
+                mapDatabase.completeDownloadJob(mapId, tileDatabase.getArchiveFile(mapId).length(), storage);
+                releaseRegionTiles(tileDatabase, map);
+                notifyArchivesChanged(map.getMapType());
+            } catch (IOException e) {
+                // The tiles are still in the database; sealing is retried on the next resume
+                Log.e(TAG, "Could not seal region " + mapId, e);
+                mapDatabase.updateDownloadJobStatus(mapId, DownloadJob.STATUS_PAUSED);
+            }
+        } else if (!stats.isCancelled()) {
+            // Failed chunks stay unchecked and are fetched again when the network returns
+            mapDatabase.updateDownloadJobStatus(mapId, DownloadJob.STATUS_PAUSED);
+        }
+
+        final DownloadJob result = mapDatabase.getDownloadJob(mapId);
+        uiHandler.post(() -> {
+            for (Listener listener : listeners) {
+                listener.onFinished(mapId, result, stats);
+            }
+        });
+    }
+}
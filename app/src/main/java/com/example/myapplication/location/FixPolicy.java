@@ -0,0 +1,251 @@
+package com.example.myapplication.location;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeSet;
+
+/**
+ * When LocationFixEngine accepts a sample, which sample is the best fix, how far along the
+ * search is and when it is done. gps() and network() are the two searches of the maps screen.
+ */
+public class FixPolicy {
+    private boolean acceptGps = true;
+    private float likelyGpsAccuracyMeters = 20;
+    private long likelyGpsMaxAgeMillis = 30000;
+    private long maxSampleAgeMillis = 5 * 60 * 1000;
+    private long timeoutMillis = 0;
+    private long tickIntervalMillis = 5000;
+    private float agePenaltyMetersPerSecond = 10;
+    private int sampleCapacity = 32;
+    private float fusionAcceleration = 0;
+    private boolean requireGpsSample;
+    private int maxProgressWithoutFix = 30;
+    private int maxTimeProgress = 90;
+    private final List<Step> completionRules = new ArrayList<>();
+    private final List<Step> progressSteps = new ArrayList<>();
+
+    // Accuracy threshold paired with a time or a number of progress points
+    private static final class Step {
+        final float accuracyMeters;
+        final long value;
+
+        Step(float accuracyMeters, long value) {
+            this.accuracyMeters = accuracyMeters;
+            this.value = value;
+        }
+    }
+
+    /**
+     * Samples from every source fused into one estimate, done at 30 m once a GPS or fused
+     * sample has arrived, so network fixes alone never finish it. Progress follows accuracy
+     * alone and the search runs until cancelled.
+     */
+    public static FixPolicy gps() {
+        return new FixPolicy()
+                .setTickIntervalMillis(5000)
+                .setAgePenalty(Float.POSITIVE_INFINITY)
+                .setFusion(2)
+                .setRequireGpsSample(true)
+                .addCompletionRule(30, 0)
+                .addProgressStep(1000, 20)
+                .addProgressStep(500, 30)
+                .addProgressStep(100, 40)
+                .addProgressStep(50, 50)
+                .addProgressStep(40, 70);
+    }
+
+    /**
+     * Cell towers, Wi-Fi and cached fixes only. Waits longer for worse accuracy and gives up
+     * after 45 s; progress is mostly time, with a bonus for accuracy.
+     */
+    public static FixPolicy network() {
+        return new FixPolicy()
+                .setAcceptGps(false)
+                .setTimeoutMillis(45000)
+                .setTickIntervalMillis(3000)
+                .addCompletionRule(100, 0)
+                .addCompletionRule(300, 15000)
+                .addCompletionRule(500, 30000)
+                .addProgressStep(1000, 2)
+                .addProgressStep(500, 4)
+                .addProgressStep(300, 6)
+                .addProgressStep(200, 8)
+                .addProgressStep(100, 10);
+    }
+
+    public boolean isAcceptGps() {
+        return acceptGps;
+    }
+
+    // When false, GPS samples and samples that look like GPS are rejected
+    public FixPolicy setAcceptGps(boolean acceptGps) {
+        this.acceptGps = acceptGps;
+        return this;
+    }
+
+    // Samples more accurate and fresher than this are taken for GPS whatever their source says
+    public FixPolicy setLikelyGps(float accuracyMeters, long maxAgeMillis) {
+        this.likelyGpsAccuracyMeters = accuracyMeters;
+        this.likelyGpsMaxAgeMillis = maxAgeMillis;
+        return this;
+    }
+
+    public boolean isGps(LocationSample sample, long nowMillis) {
+        return sample.getSource() == LocationSample.SOURCE_GPS
+                || (sample.getAccuracyMeters() < likelyGpsAccuracyMeters
+                && sample.getTimeMillis() > nowMillis - likelyGpsMaxAgeMillis);
+    }
+
+    public long getMaxSampleAgeMillis() {
+        return maxSampleAgeMillis;
+    }
+
+    // Older samples, such as stale cached fixes, are rejected, and held samples expire at this age
+    public FixPolicy setMaxSampleAgeMillis(long maxSampleAgeMillis) {
+        this.maxSampleAgeMillis = maxSampleAgeMillis;
+        return this;
+    }
+
+    public long getTimeoutMillis() {
+        return timeoutMillis;
+    }
+
+    // Finish with the best fix so far after this long; 0 searches until a rule completes or the caller cancels
+    public FixPolicy setTimeoutMillis(long timeoutMillis) {
+        this.timeoutMillis = timeoutMillis;
+        return this;
+    }
+
+    public long getTickIntervalMillis() {
+        return tickIntervalMillis;
+    }
+
+    // How often progress is reported while no sample arrives; completion never waits for it
+    public FixPolicy setTickIntervalMillis(long tickIntervalMillis) {
+        this.tickIntervalMillis = Math.max(1, tickIntervalMillis);
+        return this;
+    }
+
+    public float getAgePenaltyMetersPerSecond() {
+        return agePenaltyMetersPerSecond;
+    }
+
+    /**
+     * The best fix is the held sample with the least accuracy plus this much per second of age,
+     * so 10 lets a sample 10 s newer win while up to 100 m less accurate. Infinity makes the
+     * newest sample the best.
+     */
+    public FixPolicy setAgePenalty(float metersPerSecond) {
+        this.agePenaltyMetersPerSecond = metersPerSecond;
+        return this;
+    }
+
+    public int getSampleCapacity() {
+        return sampleCapacity;
+    }
+
+    // How many of the most recent samples are held as candidates for the best fix
+    public FixPolicy setSampleCapacity(int sampleCapacity) {
+        this.sampleCapacity = Math.max(1, sampleCapacity);
+        return this;
+    }
+
+    public boolean isFusion() {
+        return fusionAcceleration > 0;
+    }
+
+    public float getFusionAcceleration() {
+        return fusionAcceleration;
+    }
+
+    /**
+     * With a positive acceleration, in m/s^2, the best fix is a LocationKalmanFilter estimate
+     * over all accepted samples rather than one of them; 0 turns fusion off.
+     */
+    public FixPolicy setFusion(float accelerationMetersPerSecond2) {
+        this.fusionAcceleration = Math.max(0, accelerationMetersPerSecond2);
+        return this;
+    }
+
+    public boolean isRequireGpsSample() {
+        return requireGpsSample;
+    }
+
+    // When true, completion rules only apply after a GPS or fused sample was accepted
+    public FixPolicy setRequireGpsSample(boolean requireGpsSample) {
+        this.requireGpsSample = requireGpsSample;
+        return this;
+    }
+
+    // Whether the sample counts for setRequireGpsSample
+    public static boolean isGpsSample(LocationSample sample) {
+        return sample.getSource() == LocationSample.SOURCE_GPS || sample.getSource() == LocationSample.SOURCE_FUSED;
+    }
+
+    SampleRingBuffer newSampleBuffer() {
+        return new SampleRingBuffer(sampleCapacity, maxSampleAgeMillis, agePenaltyMetersPerSecond);
+    }
+
+    // The search is done once the best fix is this accurate and this much time has passed
+    public FixPolicy addCompletionRule(float accuracyMeters, long afterMillis) {
+        completionRules.add(new Step(accuracyMeters, afterMillis));
+        return this;
+    }
+
+    // Elapsed times at which a rule starts to apply, when a fix already held may become good enough
+    public long[] getCompletionDelaysMillis() {
+        TreeSet<Long> delays = new TreeSet<>();
+        for (Step rule : completionRules) {
+            if (rule.value > 0) {
+                delays.add(rule.value);
+            }
+        }
+        long[] result = new long[delays.size()];
+        int i = 0;
+        for (long delay : delays) {
+            result[i++] = delay;
+        }
+        return result;
+    }
+
+    public boolean isComplete(float accuracyMeters, long elapsedMillis) {
+        for (Step rule : completionRules) {
+            if (accuracyMeters <= rule.accuracyMeters && elapsedMillis >= rule.value) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Progress points for a best fix at least this accurate; the largest matching step counts
+    public FixPolicy addProgressStep(float accuracyMeters, int points) {
+        progressSteps.add(new Step(accuracyMeters, points));
+        return this;
+    }
+
+    // Caps on the time share of progress, before and after the first fix
+    public FixPolicy setMaxTimeProgress(int withoutFix, int withFix) {
+        this.maxProgressWithoutFix = withoutFix;
+        this.maxTimeProgress = withFix;
+        return this;
+    }
+
+    // Percent done; time counts only with a timeout
+    public int progress(LocationSample best, long elapsedMillis) {
+        int timeProgress = 0;
+        if (timeoutMillis > 0) {
+            timeProgress = (int) Math.min(elapsedMillis * 100 / timeoutMillis,
+                    best == null ? maxProgressWithoutFix : maxTimeProgress);
+        }
+        if (best == null) {
+            return timeProgress;
+        }
+        long accuracyPoints = 0;
+        for (Step step : progressSteps) {
+            if (best.getAccuracyMeters() <= step.accuracyMeters) {
+                accuracyPoints = Math.max(accuracyPoints, step.value);
+            }
+        }
+        return (int) Math.min(timeProgress + accuracyPoints, 100);
+    }
+}
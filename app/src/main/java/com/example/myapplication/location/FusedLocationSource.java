@@ -0,0 +1,56 @@
+package com.example.myapplication.location;
+
+import android.location.Location;
+import android.os.Looper;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+
+import com.google.android.gms.location.FusedLocationProviderClient;
+import com.google.android.gms.location.LocationCallback;
+import com.google.android.gms.location.LocationRequest;
+import com.google.android.gms.location.LocationResult;
+
+import java.util.function.Consumer;
+
+/**
+ * Samples from the fused location provider, delivered on the main looper. The caller checks
+ * the location permission before starting it.
+ */
+public class FusedLocationSource implements LocationSource {
+    private static final String TAG = "FusedLocationSource";
+
+    private final FusedLocationProviderClient client;
+    private final LocationRequest request;
+    private LocationCallback callback;
+
+    public FusedLocationSource(FusedLocationProviderClient client, LocationRequest request) {
+        this.client = client;
+        this.request = request;
+    }
+
+    @Override
+    public void start(Consumer<LocationSample> sink) {
+        callback = new LocationCallback() {
+            @Override
+            public void onLocationResult(@NonNull LocationResult locationResult) {
+                for (Location location : locationResult.getLocations()) {
+                    sink.accept(ProviderLocationSource.sampleOf(location));
+                }
+            }
+        };
+        try {
+            client.requestLocationUpdates(request, callback, Looper.getMainLooper());
+        } catch (SecurityException e) {
+            Log.w(TAG, "No location permission", e);
+        }
+    }
+
+    @Override
+    public void stop() {
+        if (callback != null) {
+            client.removeLocationUpdates(callback);
+            callback = null;
+        }
+    }
+}
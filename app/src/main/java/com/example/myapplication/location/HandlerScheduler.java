@@ -0,0 +1,33 @@
+package com.example.myapplication.location;
+
+import android.os.Handler;
+import android.os.Looper;
+
+/**
+ * Scheduler on a Looper's Handler. The main-thread instance is shared by every location
+ * search, so no search needs a timer thread of its own.
+ */
+public class HandlerScheduler implements Scheduler {
+    private static HandlerScheduler mainThread;
+
+    private final Handler handler;
+
+    public static synchronized HandlerScheduler getMainThread() {
+        if (mainThread == null) {
+            mainThread = new HandlerScheduler(Looper.getMainLooper());
+        }
+        return mainThread;
+    }
+
+    public HandlerScheduler(Looper looper) {
+        this.handler = new Handler(looper);
+    }
+
+    @Override
+    public Cancellable schedule(Runnable task, long delayMillis) {
+        // A wrapper per task, so cancelling removes only this posting even if the task is posted twice
+        final Runnable posted = task::run;
+        handler.postDelayed(posted, Math.max(0, delayMillis));
+        return () -> handler.removeCallbacks(posted);
+    }
+}
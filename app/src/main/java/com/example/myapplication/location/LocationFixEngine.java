@@ -0,0 +1,228 @@
+package com.example.myapplication.location;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Picks a location fix from the samples of one or more sources under a FixPolicy.
+ *
+ * Sources push samples through offer(), and every accepted sample is checked against the
+ * policy at once, so a good enough fix finishes the search when it arrives. The only waits are
+ * the policy's own: a task on the Scheduler at each time a completion rule starts to apply and
+ * at the timeout, plus a progress report every tick interval. The engine reads time only from
+ * its Clock, so with a VirtualClock the same samples give the same events in a unit test.
+ * The best fix comes from a SampleRingBuffer of the latest samples, or with fusion from a
+ * LocationKalmanFilter over them, and is dropped again once every held sample is older than
+ * the policy's maximum age.
+ * All calls, and the scheduler's tasks, must run on one thread.
+ */
+public class LocationFixEngine {
+    // Why a sample was not considered
+    public static final int REJECTED_GPS = 1;
+    public static final int REJECTED_STALE = 2;
+
+    /** Source of the current time, in epoch milliseconds like LocationSample times */
+    public interface Clock {
+        long currentTimeMillis();
+    }
+
+    public static final Clock SYSTEM_CLOCK = System::currentTimeMillis;
+
+    /** Events of a search, delivered on the thread calling the engine */
+    public interface Listener {
+        // A sample was accepted; best is the best fix after it
+        default void onSample(LocationSample sample, LocationSample best) {
+        }
+
+        default void onSampleRejected(LocationSample sample, int reason) {
+        }
+
+        // Sent for each accepted sample and every tick interval while the search runs; best is null before the first fix
+        default void onProgress(int percent, LocationSample best, long elapsedMillis) {
+        }
+
+        // The search finished with this fix
+        void onFix(LocationSample fix);
+
+        // The search timed out without any fix
+        default void onNoFix() {
+        }
+    }
+
+    private final FixPolicy policy;
+    private final Clock clock;
+    private final Scheduler scheduler;
+    private final Listener listener;
+    private final List<LocationSource> sources = new ArrayList<>();
+    private final List<Scheduler.Cancellable> deadlines = new ArrayList<>();
+    private Scheduler.Cancellable progressTask;
+    private boolean running;
+    private long startMillis;
+    private SampleRingBuffer samples;
+    private LocationKalmanFilter filter;
+    private LocationSample best;
+    private LocationSample latest;
+    private boolean gpsSampleSeen;
+
+    public LocationFixEngine(FixPolicy policy, Clock clock, Scheduler scheduler, Listener listener) {
+        this.policy = policy;
+        this.clock = clock;
+        this.scheduler = scheduler;
+        this.listener = listener;
+    }
+
+    public LocationFixEngine addSource(LocationSource source) {
+        sources.add(source);
+        return this;
+    }
+
+    public FixPolicy getPolicy() {
+        return policy;
+    }
+
+    // Start a new search and every source
+    public void start() {
+        if (running) {
+            return;
+        }
+        running = true;
+        startMillis = clock.currentTimeMillis();
+        samples = policy.newSampleBuffer();
+        filter = policy.isFusion() ? new LocationKalmanFilter(policy.getFusionAcceleration()) : null;
+        best = null;
+        latest = null;
+        gpsSampleSeen = false;
+        for (final long delay : policy.getCompletionDelaysMillis()) {
+            deadlines.add(scheduler.schedule(() -> evaluate(delay), delay));
+        }
+        if (policy.getTimeoutMillis() > 0) {
+            deadlines.add(scheduler.schedule(() -> evaluate(policy.getTimeoutMillis()), policy.getTimeoutMillis()));
+        }
+        scheduleProgress(0);
+        for (LocationSource source : sources) {
+            if (!running) {
+                break; // A cached sample was already good enough
+            }
+            source.start(this::offer);
+        }
+    }
+
+    // Report progress now and every tick interval until the search ends
+    private void scheduleProgress(long delayMillis) {
+        progressTask = scheduler.schedule(() -> {
+            evaluate(0);
+            if (running) {
+                scheduleProgress(policy.getTickIntervalMillis());
+            }
+        }, delayMillis);
+    }
+
+    /**
+     * Consider one sample. Returns whether it was accepted; samples arriving when no search
+     * runs are ignored.
+     */
+    public boolean offer(LocationSample sample) {
+        if (!running) {
+            return false;
+        }
+        long now = clock.currentTimeMillis();
+        if (!policy.isAcceptGps() && policy.isGps(sample, now)) {
+            listener.onSampleRejected(sample, REJECTED_GPS);
+            return false;
+        }
+        if (now - sample.getTimeMillis() > policy.getMaxSampleAgeMillis()) {
+            listener.onSampleRejected(sample, REJECTED_STALE);
+            return false;
+        }
+        latest = sample;
+        gpsSampleSeen |= FixPolicy.isGpsSample(sample);
+        samples.expire(now);
+        samples.add(sample);
+        if (filter != null) {
+            filter.update(sample);
+            best = filter.getEstimate();
+        } else {
+            best = samples.getBest();
+        }
+        listener.onSample(sample, best);
+        evaluate(0);
+        return true;
+    }
+
+    /**
+     * Finish when the policy says the best fix is good enough or time is up, otherwise report
+     * progress. A scheduled deadline passes its own time as the least elapsed time, so a timer
+     * firing a little early on a real clock still counts as on time.
+     */
+    private void evaluate(long minElapsedMillis) {
+        if (!running) {
+            return;
+        }
+        long now = clock.currentTimeMillis();
+        if (samples.expire(now) > 0) {
+            if (filter == null) {
+                best = samples.getBest();
+            } else if (samples.isEmpty()) {
+                filter.reset();
+                best = null;
+            }
+        }
+        long elapsed = Math.max(now - startMillis, minElapsedMillis);
+        boolean timedOut = policy.getTimeoutMillis() > 0 && elapsed >= policy.getTimeoutMillis();
+        boolean completable = !policy.isRequireGpsSample() || gpsSampleSeen;
+        if (best != null && (timedOut || completable && policy.isComplete(best.getAccuracyMeters(), elapsed))) {
+            LocationSample fix = best;
+            listener.onProgress(100, fix, elapsed);
+            stop();
+            listener.onFix(fix);
+            return;
+        }
+        listener.onProgress(policy.progress(best, elapsed), best, elapsed);
+        if (timedOut) {
+            stop();
+            listener.onNoFix();
+        }
+    }
+
+    // Stop the search without a fix event; returns the best fix so far, or null
+    public LocationSample cancel() {
+        LocationSample fix = best;
+        stop();
+        return fix;
+    }
+
+    private void stop() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        for (Scheduler.Cancellable deadline : deadlines) {
+            deadline.cancel();
+        }
+        deadlines.clear();
+        if (progressTask != null) {
+            progressTask.cancel();
+            progressTask = null;
+        }
+        for (LocationSource source : sources) {
+            source.stop();
+        }
+    }
+
+    public boolean isRunning() {
+        return running;
+    }
+
+    public LocationSample getBestFix() {
+        return best;
+    }
+
+    // The most recently accepted sample, which need not be the best one
+    public LocationSample getLatestSample() {
+        return latest;
+    }
+
+    public long getElapsedMillis() {
+        return running ? clock.currentTimeMillis() - startMillis : 0;
+    }
+}
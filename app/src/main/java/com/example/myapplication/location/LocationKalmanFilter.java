@@ -0,0 +1,198 @@
+package com.example.myapplication.location;
+
+import com.example.myapplication.geo.GeoBounds;
+
+/**
+ * Constant-velocity Kalman filter over location samples from any source, each weighted by its
+ * reported accuracy.
+ *
+ * Positions are tracked in meters east and north of the first sample, which is exact enough
+ * for the few kilometers a search covers. A sample's accuracy is taken as the standard
+ * deviation on each axis, so both axes share one covariance and the filter keeps a 2x2 matrix
+ * instead of a 4x4 one. The estimate's accuracy is the same measure, from that covariance.
+ * A sample repeating one of the last few, as the passive provider repeats other providers'
+ * fixes, is the same measurement and is skipped rather than counted twice.
+ * Updates only touch primitive fields; nothing is allocated until getEstimate().
+ */
+public class LocationKalmanFilter {
+    // Speed uncertainty of the first estimate, in m/s: anything from standing to driving in town
+    private static final double INITIAL_SPEED_DEVIATION = 10;
+    // How many of the latest samples a repeat is looked for among
+    private static final int RECENT_SAMPLES = 4;
+
+    private final double accelerationVariance;
+
+    private boolean initialized;
+    private long timeMillis;
+    private int sampleCount;
+    private double originLatitude;
+    private double originLongitude;
+    private double metersPerDegreeLatitude;
+    private double metersPerDegreeLongitude;
+
+    // State: position and velocity on each axis
+    private double east;
+    private double north;
+    private double eastVelocity;
+    private double northVelocity;
+
+    // Covariance of position and velocity, the same for both axes
+    private double positionVariance;
+    private double covariance;
+    private double velocityVariance;
+
+    // The latest samples blended in, oldest overwritten first
+    private final long[] recentTimes = new long[RECENT_SAMPLES];
+    private final double[] recentLatitudes = new double[RECENT_SAMPLES];
+    private final double[] recentLongitudes = new double[RECENT_SAMPLES];
+    private final float[] recentAccuracies = new float[RECENT_SAMPLES];
+    private int recentCount;
+
+    /**
+     * @param accelerationMetersPerSecond2 how hard the device is expected to change speed;
+     *                                     higher follows turns faster but smooths less
+     */
+    public LocationKalmanFilter(float accelerationMetersPerSecond2) {
+        this.accelerationVariance = (double) accelerationMetersPerSecond2 * accelerationMetersPerSecond2;
+    }
+
+    public void reset() {
+        initialized = false;
+        sampleCount = 0;
+        recentCount = 0;
+    }
+
+    public boolean update(LocationSample sample) {
+        return update(sample.getLatitude(), sample.getLongitude(), sample.getAccuracyMeters(), sample.getTimeMillis());
+    }
+
+    /**
+     * Move the estimate forward to the sample's time and blend the sample in. A sample older than
+     * the estimate is blended in without moving time back. Returns false for a repeat of a recent
+     * sample, which leaves the estimate as it was.
+     */
+    public boolean update(double latitude, double longitude, float accuracyMeters, long sampleTimeMillis) {
+        if (isRecent(latitude, longitude, accuracyMeters, sampleTimeMillis)) {
+            return false;
+        }
+        int slot = sampleCount % RECENT_SAMPLES;
+        recentTimes[slot] = sampleTimeMillis;
+        recentLatitudes[slot] = latitude;
+        recentLongitudes[slot] = longitude;
+        recentAccuracies[slot] = accuracyMeters;
+        recentCount = Math.min(recentCount + 1, RECENT_SAMPLES);
+
+        double measurementVariance = Math.max(1.0, (double) accuracyMeters * accuracyMeters);
+        sampleCount++;
+        if (!initialized) {
+            initialized = true;
+            timeMillis = sampleTimeMillis;
+            originLatitude = latitude;
+            originLongitude = longitude;
+            metersPerDegreeLatitude = GeoBounds.METERS_PER_DEGREE;
+            metersPerDegreeLongitude = metersPerDegreeLatitude * Math.cos(Math.toRadians(latitude));
+            east = 0;
+            north = 0;
+            eastVelocity = 0;
+            northVelocity = 0;
+            positionVariance = measurementVariance;
+            covariance = 0;
+            velocityVariance = INITIAL_SPEED_DEVIATION * INITIAL_SPEED_DEVIATION;
+            return true;
+        }
+
+        predict(Math.max(0, sampleTimeMillis - timeMillis) / 1000.0);
+        timeMillis = Math.max(timeMillis, sampleTimeMillis);
+
+        double residualVariance = positionVariance + measurementVariance;
+        double positionGain = positionVariance / residualVariance;
+        double velocityGain = covariance / residualVariance;
+
+        double eastResidual = toEast(longitude) - east;
+        east += positionGain * eastResidual;
+        eastVelocity += velocityGain * eastResidual;
+        double northResidual = toNorth(latitude) - north;
+        north += positionGain * northResidual;
+        northVelocity += velocityGain * northResidual;
+
+        velocityVariance -= velocityGain * covariance;
+        covariance *= 1 - positionGain;
+        positionVariance *= 1 - positionGain;
+        return true;
+    }
+
+    private boolean isRecent(double latitude, double longitude, float accuracyMeters, long sampleTimeMillis) {
+        for (int i = 0; i < recentCount; i++) {
+            if (recentTimes[i] == sampleTimeMillis && recentLatitudes[i] == latitude
+                    && recentLongitudes[i] == longitude && recentAccuracies[i] == accuracyMeters) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Time update: position moves with velocity, and random acceleration adds uncertainty
+    private void predict(double dt) {
+        if (dt == 0) {
+            return;
+        }
+        east += eastVelocity * dt;
+        north += northVelocity * dt;
+        double dt2 = dt * dt;
+        positionVariance += 2 * dt * covariance + dt2 * velocityVariance + accelerationVariance * dt2 * dt2 / 4;
+        covariance += dt * velocityVariance + accelerationVariance * dt2 * dt / 2;
+        velocityVariance += accelerationVariance * dt2;
+    }
+
+    private double toEast(double longitude) {
+        double degrees = longitude - originLongitude;
+        if (degrees > 180) {
+            degrees -= 360;
+        } else if (degrees < -180) {
+            degrees += 360;
+        }
+        return degrees * metersPerDegreeLongitude;
+    }
+
+    private double toNorth(double latitude) {
+        return (latitude - originLatitude) * metersPerDegreeLatitude;
+    }
+
+    public boolean hasEstimate() {
+        return initialized;
+    }
+
+    public int getSampleCount() {
+        return sampleCount;
+    }
+
+    public long getTimeMillis() {
+        return timeMillis;
+    }
+
+    public double getLatitude() {
+        return originLatitude + north / metersPerDegreeLatitude;
+    }
+
+    public double getLongitude() {
+        double longitude = originLongitude + east / metersPerDegreeLongitude;
+        return longitude > 180 ? longitude - 360 : longitude < -180 ? longitude + 360 : longitude;
+    }
+
+    public float getAccuracyMeters() {
+        return (float) Math.sqrt(positionVariance);
+    }
+
+    public float getSpeedMetersPerSecond() {
+        return (float) Math.hypot(eastVelocity, northVelocity);
+    }
+
+    // The estimate as a sample, or null before the first update
+    public LocationSample getEstimate() {
+        if (!initialized) {
+            return null;
+        }
+        return new LocationSample(LocationSample.SOURCE_FILTERED, getLatitude(), getLongitude(),
+                getAccuracyMeters(), timeMillis);
+    }
+}
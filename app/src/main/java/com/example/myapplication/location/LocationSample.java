@@ -0,0 +1,104 @@
+package com.example.myapplication.location;
+
+/**
+ * One position report from a location source, free of Android types so the fix logic runs
+ * in plain JVM tests.
+ */
+public final class LocationSample {
+    public static final int SOURCE_OTHER = 0;
+    public static final int SOURCE_GPS = 1;
+    public static final int SOURCE_NETWORK = 2;  // cell towers and Wi-Fi
+    public static final int SOURCE_PASSIVE = 3;  // fixes requested by other apps
+    public static final int SOURCE_FUSED = 4;
+    public static final int SOURCE_FILTERED = 5; // estimate combining several samples
+
+    private final int source;
+    private final double latitude;
+    private final double longitude;
+    private final float accuracyMeters;
+    private final long timeMillis;
+    private final float speedMetersPerSecond;
+    private final float bearingDegrees;
+
+    public LocationSample(int source, double latitude, double longitude, float accuracyMeters, long timeMillis) {
+        this(source, latitude, longitude, accuracyMeters, timeMillis, Float.NaN, Float.NaN);
+    }
+
+    // Speed and bearing are NaN when the source did not report them
+    public LocationSample(int source, double latitude, double longitude, float accuracyMeters, long timeMillis,
+                          float speedMetersPerSecond, float bearingDegrees) {
+        this.source = source;
+        this.latitude = latitude;
+        this.longitude = longitude;
+        this.accuracyMeters = accuracyMeters;
+        this.timeMillis = timeMillis;
+        this.speedMetersPerSecond = speedMetersPerSecond;
+        this.bearingDegrees = bearingDegrees;
+    }
+
+    // Source constant for an Android provider name such as "gps" or "network"
+    public static int sourceOf(String provider) {
+        if (provider == null) {
+            return SOURCE_OTHER;
+        }
+        switch (provider) {
+            case "gps":
+                return SOURCE_GPS;
+            case "network":
+                return SOURCE_NETWORK;
+            case "passive":
+                return SOURCE_PASSIVE;
+            case "fused":
+                return SOURCE_FUSED;
+            default:
+                return SOURCE_OTHER;
+        }
+    }
+
+    public int getSource() {
+        return source;
+    }
+
+    public double getLatitude() {
+        return latitude;
+    }
+
+    public double getLongitude() {
+        return longitude;
+    }
+
+    // Radius of 68% confidence, as Android reports it
+    public float getAccuracyMeters() {
+        return accuracyMeters;
+    }
+
+    // Wall clock time of the fix, in epoch milliseconds
+    public long getTimeMillis() {
+        return timeMillis;
+    }
+
+    public boolean hasSpeed() {
+        return !Float.isNaN(speedMetersPerSecond);
+    }
+
+    public float getSpeedMetersPerSecond() {
+        return speedMetersPerSecond;
+    }
+
+    public boolean hasBearing() {
+        return !Float.isNaN(bearingDegrees);
+    }
+
+    // Direction of travel, degrees clockwise from north
+    public float getBearingDegrees() {
+        return bearingDegrees;
+    }
+
+    @Override
+    public String toString() {
+        return "LocationSample{source=" + source + ", lat=" + latitude + ", lng=" + longitude +
+                ", accuracy=" + accuracyMeters + "m, time=" + timeMillis +
+                (hasSpeed() ? ", speed=" + speedMetersPerSecond + "m/s" : "") +
+                (hasBearing() ? ", bearing=" + bearingDegrees : "") + '}';
+    }
+}
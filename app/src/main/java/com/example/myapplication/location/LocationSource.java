@@ -0,0 +1,14 @@
+package com.example.myapplication.location;
+
+import java.util.function.Consumer;
+
+/**
+ * Something that reports positions, such as a platform provider or a recorded trace.
+ * LocationFixEngine starts its sources when a fix starts and stops them when it ends.
+ */
+public interface LocationSource {
+    // Begin passing samples to the sink, on the thread that drives the engine
+    void start(Consumer<LocationSample> sink);
+
+    void stop();
+}
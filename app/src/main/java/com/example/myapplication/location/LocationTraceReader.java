@@ -0,0 +1,122 @@
+package com.example.myapplication.location;
+
+import com.example.myapplication.geo.E7;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads the samples of a trace written by LocationTraceWriter, in the order they were written.
+ * Uses plain java.io only, so recorded traces can be replayed on a desktop JVM. A record cut
+ * short at the end of the file is taken as the end of the trace.
+ */
+public class LocationTraceReader implements Closeable {
+    private final InputStream in;
+    private final long baseTimeMillis;
+    private long lastTime;
+    private long lastLatitude;
+    private long lastLongitude;
+
+    public LocationTraceReader(InputStream in) throws IOException {
+        this.in = in instanceof BufferedInputStream ? in : new BufferedInputStream(in, 8 * 1024);
+        int magic;
+        try {
+            magic = readIntLe();
+        } catch (EOFException e) {
+            throw new IOException("Not a location trace");
+        }
+        if (magic != LocationTraceWriter.MAGIC) {
+            throw new IOException("Not a location trace");
+        }
+        int version = readIntLe();
+        if (version != LocationTraceWriter.VERSION) {
+            throw new IOException("Unsupported trace version " + version);
+        }
+        baseTimeMillis = (readIntLe() & 0xFFFFFFFFL) | ((long) readIntLe() << 32);
+        lastTime = baseTimeMillis;
+    }
+
+    // Samples of the given files in order; empty files, such as one just rotated, are skipped
+    public static List<LocationSample> readAll(List<File> files) throws IOException {
+        List<LocationSample> samples = new ArrayList<>();
+        for (File file : files) {
+            if (file.length() == 0) {
+                continue;
+            }
+            try (InputStream in = new FileInputStream(file)) {
+                LocationTraceReader reader = new LocationTraceReader(in);
+                LocationSample sample;
+                while ((sample = reader.next()) != null) {
+                    samples.add(sample);
+                }
+            }
+        }
+        return samples;
+    }
+
+    public long getBaseTimeMillis() {
+        return baseTimeMillis;
+    }
+
+    // The next sample, or null at the end of the trace
+    public LocationSample next() throws IOException {
+        int flags = in.read();
+        if (flags < 0) {
+            return null;
+        }
+        try {
+            long time = lastTime + LocationTraceWriter.unzigzag(readVarint());
+            long latitude = lastLatitude + LocationTraceWriter.unzigzag(readVarint());
+            long longitude = lastLongitude + LocationTraceWriter.unzigzag(readVarint());
+            float accuracy = readVarint() / 10f;
+            float speed = (flags & LocationTraceWriter.FLAG_SPEED) != 0 ? readVarint() / 100f : Float.NaN;
+            float bearing = (flags & LocationTraceWriter.FLAG_BEARING) != 0 ? readVarint() / 100f : Float.NaN;
+            lastTime = time;
+            lastLatitude = latitude;
+            lastLongitude = longitude;
+            return new LocationSample(flags & LocationTraceWriter.SOURCE_MASK, E7.toDegrees(latitude),
+                    E7.toDegrees(longitude), accuracy, time, speed, bearing);
+        } catch (EOFException e) {
+            return null;
+        }
+    }
+
+    private long readVarint() throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = in.read();
+            if (b < 0) {
+                throw new EOFException();
+            }
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed varint in trace");
+    }
+
+    private int readIntLe() throws IOException {
+        int value = 0;
+        for (int i = 0; i < 4; i++) {
+            int b = in.read();
+            if (b < 0) {
+                throw new EOFException();
+            }
+            value |= b << (8 * i);
+        }
+        return value;
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+}
@@ -0,0 +1,230 @@
+package com.example.myapplication.location;
+
+import com.example.myapplication.geo.E7;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Appends location samples to a compact binary trace, rotating to a new file at a size cap.
+ *
+ * File layout (little endian header, then varint records):
+ * <pre>
+ *   header  magic "LTRC", version, base time in epoch ms (long)
+ *   record  flags byte: source in the low 4 bits, 0x10 speed follows, 0x20 bearing follows
+ *           time      zigzag varint, ms after the previous record (the base time for the first)
+ *           latitude  zigzag varint, E7 delta from the previous record (from 0 for the first)
+ *           longitude zigzag varint, E7 delta likewise
+ *           accuracy  varint, decimeters
+ *           speed     varint, cm/s, if flagged
+ *           bearing   varint, hundredths of a degree, if flagged
+ * </pre>
+ * A sample taken a second after the last one nearby fits in about 10 bytes. Every file starts
+ * its own deltas, so each can be read alone, and a record cut short by a crash only loses that
+ * record. Older files are kept as name.1, name.2 and so on, up to maxFiles in all; a writer
+ * opened on a non-empty file rotates it first. Writes are buffered until flush().
+ */
+public class LocationTraceWriter implements Closeable {
+    static final int MAGIC = 0x4352544C; // "LTRC" read little endian
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 16;
+    static final int SOURCE_MASK = 0x0F;
+    static final int FLAG_SPEED = 0x10;
+    static final int FLAG_BEARING = 0x20;
+    private static final int MAX_RECORD_SIZE = 1 + 6 * 10; // flags and six varints
+
+    private final File file;
+    private final long maxFileBytes;
+    private final int maxFiles;
+    private final byte[] record = new byte[Math.max(MAX_RECORD_SIZE, HEADER_SIZE)];
+    private OutputStream out;
+    private long fileBytes;
+    private long recordCount;
+
+    // Previous record, for deltas
+    private long lastTime;
+    private int lastLatitude;
+    private int lastLongitude;
+
+    /**
+     * @param maxFileBytes a file is rotated before a record would take it past this size
+     * @param maxFiles     files kept, counting the one being written
+     */
+    public LocationTraceWriter(File file, long maxFileBytes, int maxFiles) throws IOException {
+        if (maxFileBytes < HEADER_SIZE + MAX_RECORD_SIZE) {
+            throw new IllegalArgumentException("File size cap too small: " + maxFileBytes);
+        }
+        if (maxFiles < 1) {
+            throw new IllegalArgumentException("Must keep at least one file: " + maxFiles);
+        }
+        this.file = file;
+        this.maxFileBytes = maxFileBytes;
+        this.maxFiles = maxFiles;
+        File parent = file.getParentFile();
+        if (parent != null && !parent.isDirectory() && !parent.mkdirs() && !parent.isDirectory()) {
+            throw new IOException("Could not create trace directory " + parent);
+        }
+        if (file.length() > 0) {
+            shiftFiles();
+        }
+        open();
+    }
+
+    public void append(LocationSample sample) throws IOException {
+        if (out == null) {
+            throw new IOException("Trace writer is closed");
+        }
+        if (fileBytes == 0) {
+            writeHeader(sample.getTimeMillis());
+        }
+        int length = encode(sample);
+        if (fileBytes + length > maxFileBytes) {
+            rotate();
+            writeHeader(sample.getTimeMillis());
+            length = encode(sample);
+        }
+        out.write(record, 0, length);
+        fileBytes += length;
+        lastTime = sample.getTimeMillis();
+        lastLatitude = E7.fromDegrees(sample.getLatitude());
+        lastLongitude = E7.fromDegrees(sample.getLongitude());
+        recordCount++;
+    }
+
+    private int encode(LocationSample sample) {
+        int flags = sample.getSource() & SOURCE_MASK;
+        if (sample.hasSpeed()) {
+            flags |= FLAG_SPEED;
+        }
+        if (sample.hasBearing()) {
+            flags |= FLAG_BEARING;
+        }
+        int position = 0;
+        record[position++] = (byte) flags;
+        position = putVarint(record, position, zigzag(sample.getTimeMillis() - lastTime));
+        position = putVarint(record, position, zigzag((long) E7.fromDegrees(sample.getLatitude()) - lastLatitude));
+        position = putVarint(record, position, zigzag((long) E7.fromDegrees(sample.getLongitude()) - lastLongitude));
+        position = putVarint(record, position, Math.round(Math.max(0, sample.getAccuracyMeters()) * 10.0));
+        if (sample.hasSpeed()) {
+            position = putVarint(record, position, Math.round(Math.max(0, sample.getSpeedMetersPerSecond()) * 100.0));
+        }
+        if (sample.hasBearing()) {
+            double bearing = sample.getBearingDegrees() % 360;
+            position = putVarint(record, position, Math.round((bearing < 0 ? bearing + 360 : bearing) * 100.0) % 36000);
+        }
+        return position;
+    }
+
+    private void writeHeader(long baseTimeMillis) throws IOException {
+        putIntLe(record, 0, MAGIC);
+        putIntLe(record, 4, VERSION);
+        putIntLe(record, 8, (int) baseTimeMillis);
+        putIntLe(record, 12, (int) (baseTimeMillis >>> 32));
+        out.write(record, 0, HEADER_SIZE);
+        fileBytes = HEADER_SIZE;
+        lastTime = baseTimeMillis;
+        lastLatitude = 0;
+        lastLongitude = 0;
+    }
+
+    private void rotate() throws IOException {
+        out.close();
+        out = null;
+        shiftFiles();
+        open();
+    }
+
+    // The oldest file is dropped, each other file moves up one, and the current file becomes name.1
+    private void shiftFiles() throws IOException {
+        File oldest = maxFiles == 1 ? file : rotated(maxFiles - 1);
+        if (oldest.exists() && !oldest.delete()) {
+            throw new IOException("Could not remove old trace " + oldest);
+        }
+        for (int i = maxFiles - 2; i >= 1; i--) {
+            File from = rotated(i);
+            if (from.exists() && !from.renameTo(rotated(i + 1))) {
+                throw new IOException("Could not rotate trace " + from);
+            }
+        }
+        if (maxFiles > 1 && file.exists() && !file.renameTo(rotated(1))) {
+            throw new IOException("Could not rotate trace " + file);
+        }
+    }
+
+    private void open() throws IOException {
+        out = new BufferedOutputStream(new FileOutputStream(file), 8 * 1024);
+        fileBytes = 0;
+    }
+
+    private File rotated(int index) {
+        return new File(file.getPath() + "." + index);
+    }
+
+    // The trace files on disk, oldest first
+    public List<File> getFiles() {
+        List<File> files = new ArrayList<>();
+        for (int i = maxFiles - 1; i >= 1; i--) {
+            File rotated = rotated(i);
+            if (rotated.exists()) {
+                files.add(rotated);
+            }
+        }
+        if (file.exists()) {
+            files.add(file);
+        }
+        return files;
+    }
+
+    public long getRecordCount() {
+        return recordCount;
+    }
+
+    // Size of the current file, including what is still buffered
+    public long getFileBytes() {
+        return fileBytes;
+    }
+
+    public void flush() throws IOException {
+        if (out != null) {
+            out.flush();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (out != null) {
+            out.close();
+            out = null;
+        }
+    }
+
+    static long zigzag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    static long unzigzag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private static int putVarint(byte[] buffer, int position, long value) {
+        while ((value & ~0x7FL) != 0) {
+            buffer[position++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        buffer[position++] = (byte) value;
+        return position;
+    }
+
+    private static void putIntLe(byte[] buffer, int position, int value) {
+        buffer[position] = (byte) value;
+        buffer[position + 1] = (byte) (value >>> 8);
+        buffer[position + 2] = (byte) (value >>> 16);
+        buffer[position + 3] = (byte) (value >>> 24);
+    }
+}
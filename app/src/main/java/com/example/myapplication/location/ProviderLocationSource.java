@@ -0,0 +1,85 @@
+package com.example.myapplication.location;
+
+import android.location.Location;
+import android.location.LocationListener;
+import android.location.LocationManager;
+import android.os.Bundle;
+import android.os.Looper;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+
+import java.util.function.Consumer;
+
+/**
+ * Samples from one LocationManager provider, delivered on the main looper. The caller checks
+ * the location permission before starting it.
+ */
+public class ProviderLocationSource implements LocationSource {
+    private static final String TAG = "ProviderLocationSource";
+
+    private final LocationManager locationManager;
+    private final String provider;
+    private final long minTimeMillis;
+    private final boolean includeLastKnown;
+    private LocationListener listener;
+
+    // includeLastKnown also offers the provider's cached fix first; the engine drops it if too old
+    public ProviderLocationSource(LocationManager locationManager, String provider, long minTimeMillis,
+                                  boolean includeLastKnown) {
+        this.locationManager = locationManager;
+        this.provider = provider;
+        this.minTimeMillis = minTimeMillis;
+        this.includeLastKnown = includeLastKnown;
+    }
+
+    // The sample for a platform fix; the source comes from the provider that computed it
+    public static LocationSample sampleOf(Location location) {
+        return new LocationSample(LocationSample.sourceOf(location.getProvider()), location.getLatitude(),
+                location.getLongitude(), location.getAccuracy(), location.getTime(),
+                location.hasSpeed() ? location.getSpeed() : Float.NaN,
+                location.hasBearing() ? location.getBearing() : Float.NaN);
+    }
+
+    @Override
+    public void start(Consumer<LocationSample> sink) {
+        listener = new LocationListener() {
+            @Override
+            public void onLocationChanged(@NonNull Location location) {
+                sink.accept(sampleOf(location));
+            }
+
+            @Override
+            public void onStatusChanged(String provider, int status, Bundle extras) {
+            }
+
+            @Override
+            public void onProviderEnabled(@NonNull String provider) {
+            }
+
+            @Override
+            public void onProviderDisabled(@NonNull String provider) {
+                Log.d(TAG, "Provider disabled: " + provider);
+            }
+        };
+        try {
+            if (includeLastKnown) {
+                Location lastKnown = locationManager.getLastKnownLocation(provider);
+                if (lastKnown != null) {
+                    sink.accept(sampleOf(lastKnown));
+                }
+            }
+            locationManager.requestLocationUpdates(provider, minTimeMillis, 0, listener, Looper.getMainLooper());
+        } catch (SecurityException | IllegalArgumentException e) {
+            Log.w(TAG, "Cannot use provider " + provider, e);
+        }
+    }
+
+    @Override
+    public void stop() {
+        if (listener != null) {
+            locationManager.removeUpdates(listener);
+            listener = null;
+        }
+    }
+}
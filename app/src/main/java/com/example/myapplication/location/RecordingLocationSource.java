@@ -0,0 +1,57 @@
+package com.example.myapplication.location;
+
+import java.io.IOException;
+import java.util.function.Consumer;
+
+/**
+ * Passes through the samples of another source and appends each one to a trace, whether or
+ * not the engine goes on to accept it. The trace is flushed when the source stops. After a
+ * write fails the error goes to the error handler once and recording stops; samples still
+ * flow to the engine.
+ */
+public class RecordingLocationSource implements LocationSource {
+    private final LocationSource source;
+    private final LocationTraceWriter trace;
+    private final Consumer<IOException> errorHandler;
+    private boolean failed;
+
+    public RecordingLocationSource(LocationSource source, LocationTraceWriter trace,
+                                   Consumer<IOException> errorHandler) {
+        this.source = source;
+        this.trace = trace;
+        this.errorHandler = errorHandler;
+    }
+
+    @Override
+    public void start(Consumer<LocationSample> sink) {
+        source.start(sample -> {
+            record(sample);
+            sink.accept(sample);
+        });
+    }
+
+    private void record(LocationSample sample) {
+        if (failed) {
+            return;
+        }
+        try {
+            trace.append(sample);
+        } catch (IOException e) {
+            failed = true;
+            errorHandler.accept(e);
+        }
+    }
+
+    @Override
+    public void stop() {
+        source.stop();
+        if (!failed) {
+            try {
+                trace.flush();
+            } catch (IOException e) {
+                failed = true;
+                errorHandler.accept(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,176 @@
+package com.example.myapplication.location;
+
+/**
+ * The most recent location samples in fixed arrays of primitives, with the best of them kept
+ * up to date as samples arrive, fall out or expire.
+ *
+ * A sample's rank is its accuracy plus an age penalty per second. Since every sample ages at
+ * the same rate, the order never changes over time, so the rank reduces to a fixed key
+ * (accuracy - time * penalty) and the best sample does not depend on arrival order. Eviction
+ * is first in, first out, so a monotonic queue of candidates gives the best sample in O(1)
+ * amortized per add: a new sample removes every older candidate it beats, because those would
+ * leave the buffer first. Nothing is allocated after construction.
+ *
+ * Samples are expected in time order, as a source delivers them; expiry drops samples from
+ * the oldest end. Not thread-safe.
+ */
+public class SampleRingBuffer {
+    private final int capacity;
+    private final long maxAgeMillis;
+    private final double penaltyPerMilli;
+    private final boolean newestWins;
+
+    private final long[] times;
+    private final double[] latitudes;
+    private final double[] longitudes;
+    private final float[] accuracies;
+    private final byte[] sources;
+
+    // Sequence numbers of samples still in the buffer are [oldest, next); slot = sequence % capacity
+    private long oldest;
+    private long next;
+
+    // Candidates for best, oldest first, each better than the ones before it; best at the front
+    private final long[] candidates;
+    private int candidateHead;
+    private int candidateCount;
+
+    /**
+     * @param maxAgeMillis samples older than this, against the time passed to expire, are dropped
+     * @param agePenaltyMetersPerSecond accuracy a sample loses per second of age; infinity
+     *                                  makes the newest sample the best
+     */
+    public SampleRingBuffer(int capacity, long maxAgeMillis, float agePenaltyMetersPerSecond) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+        }
+        this.capacity = capacity;
+        this.maxAgeMillis = maxAgeMillis;
+        this.newestWins = Float.isInfinite(agePenaltyMetersPerSecond);
+        this.penaltyPerMilli = newestWins ? 0 : agePenaltyMetersPerSecond / 1000.0;
+        times = new long[capacity];
+        latitudes = new double[capacity];
+        longitudes = new double[capacity];
+        accuracies = new float[capacity];
+        sources = new byte[capacity];
+        candidates = new long[capacity];
+    }
+
+    public void add(LocationSample sample) {
+        add(sample.getSource(), sample.getLatitude(), sample.getLongitude(), sample.getAccuracyMeters(),
+                sample.getTimeMillis());
+    }
+
+    // Append a sample, evicting the oldest when full
+    public void add(int source, double latitude, double longitude, float accuracyMeters, long timeMillis) {
+        if (next - oldest == capacity) {
+            removeOldest();
+        }
+        int slot = slot(next);
+        times[slot] = timeMillis;
+        latitudes[slot] = latitude;
+        longitudes[slot] = longitude;
+        accuracies[slot] = accuracyMeters;
+        sources[slot] = (byte) source;
+
+        // Older candidates this one beats can never be best again
+        while (candidateCount > 0 && !isBetter(candidateAt(candidateCount - 1), next)) {
+            candidateCount--;
+        }
+        candidates[(candidateHead + candidateCount) % capacity] = next;
+        candidateCount++;
+        next++;
+    }
+
+    // Drop samples older than maxAgeMillis before now; returns how many were dropped
+    public int expire(long nowMillis) {
+        int dropped = 0;
+        while (oldest < next && nowMillis - times[slot(oldest)] > maxAgeMillis) {
+            removeOldest();
+            dropped++;
+        }
+        return dropped;
+    }
+
+    public void clear() {
+        oldest = next;
+        candidateHead = 0;
+        candidateCount = 0;
+    }
+
+    private void removeOldest() {
+        if (candidateCount > 0 && candidates[candidateHead] == oldest) {
+            candidateHead = (candidateHead + 1) % capacity;
+            candidateCount--;
+        }
+        oldest++;
+    }
+
+    // Whether the sample with sequence a ranks before the one with sequence b; ties go to the newer
+    private boolean isBetter(long a, long b) {
+        int i = slot(a);
+        int j = slot(b);
+        if (newestWins) {
+            return times[i] > times[j] || (times[i] == times[j] && accuracies[i] < accuracies[j]);
+        }
+        // Difference of the keys, from the time difference to keep epoch times out of the rounding
+        double difference = (accuracies[i] - accuracies[j]) - (times[i] - times[j]) * penaltyPerMilli;
+        return difference < 0 || (difference == 0 && times[i] > times[j]);
+    }
+
+    private long candidateAt(int index) {
+        return candidates[(candidateHead + index) % capacity];
+    }
+
+    private int slot(long sequence) {
+        return (int) (sequence % capacity);
+    }
+
+    public int size() {
+        return (int) (next - oldest);
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+
+    public boolean isEmpty() {
+        return oldest == next;
+    }
+
+    public boolean hasBest() {
+        return candidateCount > 0;
+    }
+
+    private int bestSlot() {
+        if (candidateCount == 0) {
+            throw new IllegalStateException("Buffer is empty");
+        }
+        return slot(candidates[candidateHead]);
+    }
+
+    public float getBestAccuracyMeters() {
+        return accuracies[bestSlot()];
+    }
+
+    public long getBestTimeMillis() {
+        return times[bestSlot()];
+    }
+
+    // The best sample as an object, or null when empty
+    public LocationSample getBest() {
+        return candidateCount > 0 ? sampleAt(bestSlot()) : null;
+    }
+
+    // Sample at index 0 (oldest) to size() - 1 (newest)
+    public LocationSample get(int index) {
+        if (index < 0 || index >= size()) {
+            throw new IndexOutOfBoundsException("Index " + index + " of " + size());
+        }
+        return sampleAt(slot(oldest + index));
+    }
+
+    private LocationSample sampleAt(int slot) {
+        return new LocationSample(sources[slot], latitudes[slot], longitudes[slot], accuracies[slot], times[slot]);
+    }
+}
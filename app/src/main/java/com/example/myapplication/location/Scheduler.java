@@ -0,0 +1,15 @@
+package com.example.myapplication.location;
+
+/**
+ * Runs delayed tasks on the thread that drives a LocationFixEngine. The app shares one
+ * main-thread scheduler; tests and replays use a VirtualClock.
+ */
+public interface Scheduler {
+    /** Handle of a scheduled task */
+    interface Cancellable {
+        // Drop the task if it has not run yet
+        void cancel();
+    }
+
+    Cancellable schedule(Runnable task, long delayMillis);
+}
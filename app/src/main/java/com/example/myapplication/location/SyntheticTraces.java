@@ -0,0 +1,81 @@
+package com.example.myapplication.location;
+
+import com.example.myapplication.geo.GeoBounds;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Generated traces of a device standing still, for replaying searches when there are no field
+ * recordings. Each sample's error is drawn to match its reported accuracy, taken as the 68%
+ * radius of a circular normal distribution, and every trace comes from the seed alone.
+ */
+public final class SyntheticTraces {
+    // A 68% radius is about 1.51 standard deviations per axis in two dimensions
+    private static final double RADIUS_68_TO_SIGMA = 1 / 1.51;
+
+    private SyntheticTraces() {
+    }
+
+    /**
+     * Network search: often a cached fix from up to 10 minutes ago at once, then a cell or
+     * Wi-Fi fix every 3 s or so for 60 s. Wi-Fi is in range for 60% of traces and its fixes
+     * tighten as more access points are heard.
+     */
+    public static List<LocationSample> network(Random random, long startMillis, double latitude, double longitude) {
+        List<LocationSample> trace = new ArrayList<>();
+        if (random.nextInt(3) > 0) {
+            add(trace, random, LocationSample.SOURCE_PASSIVE, latitude, longitude, 50 + random.nextInt(1500),
+                    startMillis - 10_000 - random.nextInt(590_000));
+        }
+        boolean wifi = random.nextInt(10) < 6;
+        long time = startMillis + 1000 + random.nextInt(4000);
+        for (int i = 0; time < startMillis + 60_000; i++) {
+            float accuracy;
+            if (wifi && i > 0) {
+                accuracy = (float) (20 + (150 + random.nextInt(200)) / Math.sqrt(i));
+            } else {
+                accuracy = 300 + random.nextInt(1200);
+            }
+            add(trace, random, LocationSample.SOURCE_NETWORK, latitude, longitude, accuracy, time);
+            time += 2500 + random.nextInt(1500);
+        }
+        return trace;
+    }
+
+    /**
+     * GPS search: network fixes every 3 s from the start, and after a time to first fix of 3 to
+     * 40 s satellite fixes each second, from 30-80 m down towards 3-10 m. One trace in ten is
+     * indoors, where satellites never get better than 25-60 m.
+     */
+    public static List<LocationSample> gps(Random random, long startMillis, double latitude, double longitude) {
+        List<LocationSample> trace = new ArrayList<>();
+        long end = startMillis + 120_000;
+        long firstFix = startMillis + 3000 + (long) (37_000 * Math.pow(random.nextDouble(), 2));
+        double initial = 30 + random.nextInt(50);
+        double floor = random.nextInt(10) == 0 ? 25 + random.nextInt(35) : 3 + random.nextInt(7);
+        double settleSeconds = 5 + random.nextInt(15);
+        long nextNetwork = startMillis + 1000 + random.nextInt(2000);
+        for (long time = firstFix; time < end; time += 1000) {
+            while (nextNetwork <= time) {
+                add(trace, random, LocationSample.SOURCE_NETWORK, latitude, longitude, 300 + random.nextInt(1200), nextNetwork);
+                nextNetwork += 3000;
+            }
+            double settled = Math.exp(-(time - firstFix) / 1000.0 / settleSeconds);
+            float accuracy = (float) (floor + (initial - floor) * settled) * (0.8f + 0.4f * random.nextFloat());
+            add(trace, random, LocationSample.SOURCE_GPS, latitude, longitude, accuracy, time);
+        }
+        return trace;
+    }
+
+    private static void add(List<LocationSample> trace, Random random, int source, double latitude,
+                            double longitude, float accuracy, long time) {
+        double sigma = accuracy * RADIUS_68_TO_SIGMA;
+        double north = random.nextGaussian() * sigma;
+        double east = random.nextGaussian() * sigma;
+        double metersPerDegree = GeoBounds.METERS_PER_DEGREE;
+        trace.add(new LocationSample(source, latitude + north / metersPerDegree,
+                longitude + east / (metersPerDegree * Math.cos(Math.toRadians(latitude))), accuracy, time));
+    }
+}
@@ -0,0 +1,264 @@
+package com.example.myapplication.location;
+
+import com.example.myapplication.geo.GeoBounds;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.Consumer;
+
+/**
+ * Replays location traces through LocationFixEngine on a VirtualClock and measures how long
+ * each search takes to a fix and how far that fix is from the truth.
+ *
+ * A trace is the samples in the order they arrived. Each one is delivered at its own time, or
+ * when the previous one was if that is later, so cached fixes from before the search arrive
+ * as soon as it starts. Nothing waits on a real clock, so a search of a minute replays in
+ * microseconds and a Summary over thousands of traces runs in a unit test.
+ */
+public final class TraceReplay {
+    // How long a search with no timeout is followed after the last sample
+    private static final long NO_TIMEOUT_TAIL_MILLIS = 60_000;
+
+    private TraceReplay() {
+    }
+
+    /** Outcome of one replayed search */
+    public static final class Result {
+        private final LocationSample fix;
+        private final long timeToFixMillis;
+        private final double errorMeters;
+        private final long simulatedMillis;
+        private final long wallNanos;
+
+        Result(LocationSample fix, long timeToFixMillis, double errorMeters, long simulatedMillis, long wallNanos) {
+            this.fix = fix;
+            this.timeToFixMillis = timeToFixMillis;
+            this.errorMeters = errorMeters;
+            this.simulatedMillis = simulatedMillis;
+            this.wallNanos = wallNanos;
+        }
+
+        public boolean hasFix() {
+            return fix != null;
+        }
+
+        public LocationSample getFix() {
+            return fix;
+        }
+
+        // From the start of the search to the fix, or -1 without one
+        public long getTimeToFixMillis() {
+            return timeToFixMillis;
+        }
+
+        // Distance from the fix to the truth, NaN without a fix
+        public double getErrorMeters() {
+            return errorMeters;
+        }
+
+        public long getSimulatedMillis() {
+            return simulatedMillis;
+        }
+
+        public long getWallNanos() {
+            return wallNanos;
+        }
+    }
+
+    /** Time-to-fix and error percentiles over many replays */
+    public static final class Summary {
+        private final String name;
+        private long[] timesToFix = new long[64];
+        private double[] errors = new double[64];
+        private int runs;
+        private int fixes;
+        private long simulatedMillis;
+        private long wallNanos;
+
+        public Summary(String name) {
+            this.name = name;
+        }
+
+        public Summary add(Result result) {
+            runs++;
+            simulatedMillis += result.getSimulatedMillis();
+            wallNanos += result.getWallNanos();
+            if (result.hasFix()) {
+                if (fixes == timesToFix.length) {
+                    timesToFix = Arrays.copyOf(timesToFix, fixes * 2);
+                    errors = Arrays.copyOf(errors, fixes * 2);
+                }
+                timesToFix[fixes] = result.getTimeToFixMillis();
+                errors[fixes] = result.getErrorMeters();
+                fixes++;
+            }
+            return this;
+        }
+
+        public int getRuns() {
+            return runs;
+        }
+
+        public int getFixes() {
+            return fixes;
+        }
+
+        // Time to fix at the given percentile of the runs that got one, or -1 with none
+        public long timeToFixPercentile(int percentile) {
+            if (fixes == 0) {
+                return -1;
+            }
+            long[] sorted = Arrays.copyOf(timesToFix, fixes);
+            Arrays.sort(sorted);
+            return sorted[index(percentile)];
+        }
+
+        public double errorPercentile(int percentile) {
+            if (fixes == 0) {
+                return Double.NaN;
+            }
+            double[] sorted = Arrays.copyOf(errors, fixes);
+            Arrays.sort(sorted);
+            return sorted[index(percentile)];
+        }
+
+        private int index(int percentile) {
+            return Math.min(fixes - 1, fixes * percentile / 100);
+        }
+
+        // Simulated search time per unit of wall time spent replaying it
+        public double getSpeedup() {
+            return wallNanos == 0 ? Double.POSITIVE_INFINITY : simulatedMillis * 1e6 / wallNanos;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.US,
+                    "%s: %d runs, %d fixes, time to fix p50=%.1fs p95=%.1fs p99=%.1fs, " +
+                            "error p50=%.0fm p95=%.0fm p99=%.0fm, %.0fx real time",
+                    name, runs, fixes, timeToFixPercentile(50) / 1000.0, timeToFixPercentile(95) / 1000.0,
+                    timeToFixPercentile(99) / 1000.0, errorPercentile(50), errorPercentile(95),
+                    errorPercentile(99), getSpeedup());
+        }
+    }
+
+    /**
+     * Split a recording into searches at gaps of more than gapMillis between sample times. The
+     * recorder does not mark where searches start, so this is a guess that holds when searches
+     * are further apart than the sources' update intervals.
+     */
+    public static List<List<LocationSample>> splitSearches(List<LocationSample> samples, long gapMillis) {
+        List<List<LocationSample>> searches = new ArrayList<>();
+        List<LocationSample> current = new ArrayList<>();
+        long newest = Long.MIN_VALUE;
+        for (LocationSample sample : samples) {
+            if (!current.isEmpty() && sample.getTimeMillis() - newest > gapMillis) {
+                searches.add(current);
+                current = new ArrayList<>();
+                newest = Long.MIN_VALUE;
+            }
+            current.add(sample);
+            newest = Math.max(newest, sample.getTimeMillis());
+        }
+        if (!current.isEmpty()) {
+            searches.add(current);
+        }
+        return searches;
+    }
+
+    /**
+     * Replay a recorded search, taken to start with its first fresh sample, so the wait for
+     * that sample is not counted. Error is measured against the most accurate sample, the best
+     * guess of the truth a field recording has.
+     */
+    public static Result replay(FixPolicy policy, List<LocationSample> trace) {
+        if (trace.isEmpty()) {
+            throw new IllegalArgumentException("Empty trace");
+        }
+        // Pass over cached fixes much older than the sample after them
+        int first = 0;
+        while (first + 1 < trace.size() && trace.get(first + 1).getTimeMillis() - trace.get(first).getTimeMillis()
+                > policy.getMaxSampleAgeMillis()) {
+            first++;
+        }
+        LocationSample reference = trace.get(0);
+        for (LocationSample sample : trace) {
+            if (sample.getAccuracyMeters() < reference.getAccuracyMeters()) {
+                reference = sample;
+            }
+        }
+        return replay(policy, trace, trace.get(first).getTimeMillis(), reference.getLatitude(), reference.getLongitude());
+    }
+
+    // Replay a trace with a search starting at startMillis and a known true position
+    public static Result replay(FixPolicy policy, List<LocationSample> trace, long startMillis,
+                                double trueLatitude, double trueLongitude) {
+        long wallStart = System.nanoTime();
+        VirtualClock clock = new VirtualClock(startMillis);
+        final LocationSample[] fix = new LocationSample[1];
+        final long[] fixTime = new long[1];
+        LocationFixEngine engine = new LocationFixEngine(policy, clock, clock, new LocationFixEngine.Listener() {
+            @Override
+            public void onFix(LocationSample location) {
+                fix[0] = location;
+                fixTime[0] = clock.currentTimeMillis();
+            }
+        });
+        TraceSource source = new TraceSource(clock, trace);
+        engine.addSource(source).start();
+
+        long end = policy.getTimeoutMillis() > 0 ? startMillis + policy.getTimeoutMillis()
+                : source.getLastArrivalMillis() + NO_TIMEOUT_TAIL_MILLIS;
+        while (engine.isRunning() && clock.currentTimeMillis() < end) {
+            clock.advanceTo(Math.min(end, clock.currentTimeMillis() + policy.getTickIntervalMillis()));
+        }
+        engine.cancel();
+
+        long simulated = (fix[0] != null ? fixTime[0] : clock.currentTimeMillis()) - startMillis;
+        double error = fix[0] != null
+                ? GeoBounds.distanceMeters(trueLatitude, trueLongitude, fix[0].getLatitude(), fix[0].getLongitude())
+                : Double.NaN;
+        return new Result(fix[0], fix[0] != null ? fixTime[0] - startMillis : -1, error, simulated,
+                System.nanoTime() - wallStart);
+    }
+
+    /** Delivers a trace's samples at their arrival times on a virtual clock */
+    static final class TraceSource implements LocationSource {
+        private final VirtualClock clock;
+        private final List<LocationSample> trace;
+        private final List<Scheduler.Cancellable> pending = new ArrayList<>();
+        private long lastArrivalMillis;
+
+        TraceSource(VirtualClock clock, List<LocationSample> trace) {
+            this.clock = clock;
+            this.trace = trace;
+            lastArrivalMillis = clock.currentTimeMillis();
+            for (LocationSample sample : trace) {
+                lastArrivalMillis = Math.max(lastArrivalMillis, sample.getTimeMillis());
+            }
+        }
+
+        long getLastArrivalMillis() {
+            return lastArrivalMillis;
+        }
+
+        @Override
+        public void start(Consumer<LocationSample> sink) {
+            long arrival = clock.currentTimeMillis();
+            for (final LocationSample sample : trace) {
+                arrival = Math.max(arrival, sample.getTimeMillis());
+                pending.add(clock.schedule(() -> sink.accept(sample), arrival - clock.currentTimeMillis()));
+            }
+        }
+
+        @Override
+        public void stop() {
+            for (Scheduler.Cancellable task : pending) {
+                task.cancel();
+            }
+            pending.clear();
+        }
+    }
+}
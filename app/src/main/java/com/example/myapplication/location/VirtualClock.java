@@ -0,0 +1,74 @@
+package com.example.myapplication.location;
+
+import java.util.PriorityQueue;
+
+/**
+ * A clock and scheduler that only move when told to, so engine runs over recorded samples
+ * are exact and take no real time. Tasks due at the same time run in the order they were scheduled.
+ */
+public class VirtualClock implements LocationFixEngine.Clock, Scheduler {
+    private final PriorityQueue<Task> tasks = new PriorityQueue<>();
+    private long now;
+    private long sequence;
+
+    private static final class Task implements Comparable<Task>, Cancellable {
+        final long time;
+        final long order;
+        final Runnable runnable;
+        boolean cancelled;
+
+        Task(long time, long order, Runnable runnable) {
+            this.time = time;
+            this.order = order;
+            this.runnable = runnable;
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+        }
+
+        @Override
+        public int compareTo(Task other) {
+            int byTime = Long.compare(time, other.time);
+            return byTime != 0 ? byTime : Long.compare(order, other.order);
+        }
+    }
+
+    public VirtualClock(long startMillis) {
+        this.now = startMillis;
+    }
+
+    @Override
+    public long currentTimeMillis() {
+        return now;
+    }
+
+    @Override
+    public Cancellable schedule(Runnable runnable, long delayMillis) {
+        Task task = new Task(now + Math.max(0, delayMillis), sequence++, runnable);
+        tasks.add(task);
+        return task;
+    }
+
+    // Move time forward to the given instant, running every task due by then at its own time
+    public void advanceTo(long timeMillis) {
+        while (!tasks.isEmpty() && tasks.peek().time <= timeMillis) {
+            Task task = tasks.poll();
+            if (!task.cancelled) {
+                now = Math.max(now, task.time);
+                task.runnable.run();
+            }
+        }
+        now = Math.max(now, timeMillis);
+    }
+
+    public void advanceBy(long millis) {
+        advanceTo(now + millis);
+    }
+
+    // Number of tasks still waiting, cancelled ones included until their time passes
+    public int getPendingTaskCount() {
+        return tasks.size();
+    }
+}
@@ -0,0 +1,117 @@
+package com.example.myapplication.model;
+
+import java.util.BitSet;
+
+/**
+ * Persistent state of a region download: what to fetch and which chunks of the
+ * region's tile range have already been stored
+ */
+public class DownloadJob {
+    public static final String STATUS_PENDING = "PENDING";
+    public static final String STATUS_RUNNING = "RUNNING";
+    public static final String STATUS_PAUSED = "PAUSED";
+    public static final String STATUS_CANCELLED = "CANCELLED";
+    public static final String STATUS_COMPLETE = "COMPLETE";
+
+    private long mapId;
+    private int minZoom;
+    private int maxZoom;
+    private String urlTemplate;
+    private long totalTiles;
+    private BitSet completedChunks;
+    private String status;
+    private long bytesDownloaded;
+    private long updatedAt;
+
+    public DownloadJob() {
+        this.completedChunks = new BitSet();
+        this.status = STATUS_PENDING;
+    }
+
+    public DownloadJob(long mapId, int minZoom, int maxZoom, String urlTemplate, long totalTiles) {
+        this();
+        this.mapId = mapId;
+        this.minZoom = minZoom;
+        this.maxZoom = maxZoom;
+        this.urlTemplate = urlTemplate;
+        this.totalTiles = totalTiles;
+    }
+
+    public long getMapId() {
+        return mapId;
+    }
+
+    public void setMapId(long mapId) {
+        this.mapId = mapId;
+    }
+
+    public int getMinZoom() {
+        return minZoom;
+    }
+
+    public void setMinZoom(int minZoom) {
+        this.minZoom = minZoom;
+    }
+
+    public int getMaxZoom() {
+        return maxZoom;
+    }
+
+    public void setMaxZoom(int maxZoom) {
+        this.maxZoom = maxZoom;
+    }
+
+    public String getUrlTemplate() {
+        return urlTemplate;
+    }
+
+    public void setUrlTemplate(String urlTemplate) {
+        this.urlTemplate = urlTemplate;
+    }
+
+    public long getTotalTiles() {
+        return totalTiles;
+    }
+
+    public void setTotalTiles(long totalTiles) {
+        this.totalTiles = totalTiles;
+    }
+
+    // One bit per TilePrefetcher chunk, set once the chunk is durably stored
+    public BitSet getCompletedChunks() {
+        return completedChunks;
+    }
+
+    public void setCompletedChunks(BitSet completedChunks) {
+        this.completedChunks = completedChunks;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public void setStatus(String status) {
+        this.status = status;
+    }
+
+    public long getBytesDownloaded() {
+        return bytesDownloaded;
+    }
+
+    public void setBytesDownloaded(long bytesDownloaded) {
+        this.bytesDownloaded = bytesDownloaded;
+    }
+
+    public long getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public void setUpdatedAt(long updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+
+    // Jobs in these states are picked up again after a restart or reconnect
+    public boolean isResumable() {
+        return STATUS_PENDING.equals(status) || STATUS_RUNNING.equals(status) || STATUS_PAUSED.equals(status);
+    }
+}
@@ -1,11 +1,38 @@
 package com.example.myapplication.model;
 
+import com.example.myapplication.geo.E7;
+
 import java.util.Date;
 
 /**
  * Data model representing a downloaded/cached map with user-defined label
  */
 public class DownloadedMap {
+    /**
+     * A saved map as stored: coordinates in E7, the date in epoch milliseconds and the offline
+     * flag as 0 or 1. The database reads its cursor rows through it.
+     */
+    public interface StoredRow {
+        long getId();
+        String getLabel();
+        String getDescription();
+        long getCenterLatE7();
+        long getCenterLngE7();
+        long getNorthEastLatE7();
+        long getNorthEastLngE7();
+        long getSouthWestLatE7();
+        long getSouthWestLngE7();
+        int getZoomLevel();
+        long getDownloadDateMillis();
+        long getFileSizeBytes();
+        String getMapType();
+        int getAvailableOffline();
+        long getTileCount();
+        long getUniqueTileCount();
+        long getLogicalBytes();
+        long getStoredBytes();
+    }
+
     private long id;
     private String label;
     private String description;
@@ -20,6 +47,11 @@ public class DownloadedMap {
     private long fileSizeBytes;
     private String mapType; // "NORMAL", "SATELLITE", "HYBRID", "TERRAIN"
     private boolean isAvailableOffline;
+    // Storage of the sealed archive, all 0 until the download completes
+    private long tileCount;
+    private long uniqueTileCount;
+    private long logicalBytes;
+    private long storedBytes;
 
     // Default constructor
     public DownloadedMap() {
@@ -43,6 +75,30 @@ public class DownloadedMap {
         this.mapType = mapType;
     }
 
+    // The map a stored row holds
+    public static DownloadedMap fromRow(StoredRow row) {
+        DownloadedMap map = new DownloadedMap();
+        map.setId(row.getId());
+        map.setLabel(row.getLabel());
+        map.setDescription(row.getDescription());
+        map.setCenterLatitude(E7.toDegrees(row.getCenterLatE7()));
+        map.setCenterLongitude(E7.toDegrees(row.getCenterLngE7()));
+        map.setNorthEastLat(E7.toDegrees(row.getNorthEastLatE7()));
+        map.setNorthEastLng(E7.toDegrees(row.getNorthEastLngE7()));
+        map.setSouthWestLat(E7.toDegrees(row.getSouthWestLatE7()));
+        map.setSouthWestLng(E7.toDegrees(row.getSouthWestLngE7()));
+        map.setZoomLevel(row.getZoomLevel());
+        map.setFileSizeBytes(row.getFileSizeBytes());
+        map.setMapType(row.getMapType());
+        map.setAvailableOffline(row.getAvailableOffline() == 1);
+        map.setDownloadDate(new Date(row.getDownloadDateMillis()));
+        map.setTileCount(row.getTileCount());
+        map.setUniqueTileCount(row.getUniqueTileCount());
+        map.setLogicalBytes(row.getLogicalBytes());
+        map.setStoredBytes(row.getStoredBytes());
+        return map;
+    }
+
     // Getters and Setters
     public long getId() {
         return id;
@@ -156,14 +212,57 @@ public class DownloadedMap {
         isAvailableOffline = availableOffline;
     }
 
+    public long getTileCount() {
+        return tileCount;
+    }
+
+    public void setTileCount(long tileCount) {
+        this.tileCount = tileCount;
+    }
+
+    // Distinct payloads among the archive's tiles
+    public long getUniqueTileCount() {
+        return uniqueTileCount;
+    }
+
+    public void setUniqueTileCount(long uniqueTileCount) {
+        this.uniqueTileCount = uniqueTileCount;
+    }
+
+    // Bytes the tiles would take without sharing identical payloads
+    public long getLogicalBytes() {
+        return logicalBytes;
+    }
+
+    public void setLogicalBytes(long logicalBytes) {
+        this.logicalBytes = logicalBytes;
+    }
+
+    // Bytes of the distinct payloads written to the archive
+    public long getStoredBytes() {
+        return storedBytes;
+    }
+
+    public void setStoredBytes(long storedBytes) {
+        this.storedBytes = storedBytes;
+    }
+
     // Utility methods
+    public double getDedupRatio() {
+        return storedBytes > 0 ? logicalBytes / (double) storedBytes : 1.0;
+    }
+
     public String getFormattedSize() {
-        if (fileSizeBytes < 1024) {
-            return fileSizeBytes + " B";
-        } else if (fileSizeBytes < 1024 * 1024) {
-            return String.format("%.1f KB", fileSizeBytes / 1024.0);
+        return formatSize(fileSizeBytes);
+    }
+
+    public static String formatSize(long bytes) {
+        if (bytes < 1024) {
+            return bytes + " B";
+        } else if (bytes < 1024 * 1024) {
+            return String.format("%.1f KB", bytes / 1024.0);
         } else {
-            return String.format("%.1f MB", fileSizeBytes / (1024.0 * 1024.0));
+            return String.format("%.1f MB", bytes / (1024.0 * 1024.0));
         }
     }
 
@@ -0,0 +1,63 @@
+package com.example.myapplication.tiles;
+
+import java.util.Locale;
+
+/**
+ * Exact tile counts and estimated bytes of a region download, per zoom level
+ */
+public class DownloadEstimate {
+    private final int minZoom;
+    private final long[] tileCounts;
+    private final long[] estimatedBytes;
+    private final int sampledTiles;
+
+    public DownloadEstimate(int minZoom, long[] tileCounts, long[] estimatedBytes, int sampledTiles) {
+        this.minZoom = minZoom;
+        this.tileCounts = tileCounts;
+        this.estimatedBytes = estimatedBytes;
+        this.sampledTiles = sampledTiles;
+    }
+
+    public int getMinZoom() {
+        return minZoom;
+    }
+
+    public int getMaxZoom() {
+        return minZoom + tileCounts.length - 1;
+    }
+
+    public long getTileCount(int zoom) {
+        return tileCounts[zoom - minZoom];
+    }
+
+    public long getTileCount() {
+        long total = 0;
+        for (long count : tileCounts) {
+            total += count;
+        }
+        return total;
+    }
+
+    public long getEstimatedBytes(int zoom) {
+        return estimatedBytes[zoom - minZoom];
+    }
+
+    public long getEstimatedBytes() {
+        long total = 0;
+        for (long bytes : estimatedBytes) {
+            total += bytes;
+        }
+        return total;
+    }
+
+    // Tiles whose real size went into the estimate; 0 means it is a pure guess
+    public int getSampledTiles() {
+        return sampledTiles;
+    }
+
+    @Override
+    public String toString() {
+        return String.format(Locale.US, "DownloadEstimate{zoom=%d..%d, tiles=%d, bytes=%d, sampled=%d}",
+                getMinZoom(), getMaxZoom(), getTileCount(), getEstimatedBytes(), sampledTiles);
+    }
+}
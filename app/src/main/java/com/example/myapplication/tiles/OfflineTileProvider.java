@@ -0,0 +1,121 @@
+package com.example.myapplication.tiles;
+
+import android.util.Log;
+
+import com.example.myapplication.database.TileDatabaseHelper;
+import com.google.android.gms.maps.model.Tile;
+import com.google.android.gms.maps.model.TileProvider;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Serves downloaded tiles to a GoogleMap TileOverlay: memory cache first, then the
+ * sealed region archives, then the writable tile database.
+ * getTile is called concurrently from the map's tile threads; refreshArchives picks up
+ * regions sealed or deleted since.
+ */
+public class OfflineTileProvider implements TileProvider {
+    private static final String TAG = "OfflineTileProvider";
+    private static final int TILE_SIZE = 256;
+
+    private final TileDatabaseHelper tileDatabase;
+    private final TileCache cache;
+    private final File archiveDir;
+    private final Map<File, PackedTileArchive> archives = new ConcurrentHashMap<>();
+
+    public OfflineTileProvider(TileDatabaseHelper tileDatabase, TileCache cache, File archiveDir) {
+        this.tileDatabase = tileDatabase;
+        this.cache = cache;
+        this.archiveDir = archiveDir;
+        refreshArchives();
+    }
+
+    /**
+     * Open the archives sealed since the last call and close those whose region was deleted.
+     * Returns whether anything changed, in which case the overlay should drop its tiles.
+     */
+    public synchronized boolean refreshArchives() {
+        Set<File> current = new HashSet<>();
+        File[] files = archiveDir.listFiles((dir, name) -> name.endsWith(".mtpk"));
+        if (files != null) {
+            current.addAll(Arrays.asList(files));
+        }
+
+        boolean added = false;
+        boolean removed = false;
+        for (File file : current) {
+            if (!archives.containsKey(file)) {
+                try {
+                    archives.put(file, PackedTileArchive.open(file));
+                    added = true;
+                } catch (IOException e) {
+                    Log.e(TAG, "Skipping unreadable archive " + file, e);
+                }
+            }
+        }
+        for (Iterator<Map.Entry<File, PackedTileArchive>> it = archives.entrySet().iterator(); it.hasNext(); ) {
+            Map.Entry<File, PackedTileArchive> archive = it.next();
+            if (!current.contains(archive.getKey())) {
+                it.remove();
+                close(archive.getValue());
+                removed = true;
+            }
+        }
+        if (removed) {
+            // Cached tiles may belong to a deleted region
+            cache.clear();
+        }
+        return added || removed;
+    }
+
+    @Override
+    public Tile getTile(int x, int y, int zoom) {
+        long key = TileMath.packKey(zoom, x, y);
+        byte[] data = cache.get(key);
+        if (data == null) {
+            data = readTile(zoom, x, y);
+            if (data == null) {
+                return NO_TILE;
+            }
+            cache.put(key, data);
+        }
+        return new Tile(TILE_SIZE, TILE_SIZE, data);
+    }
+
+    private byte[] readTile(int zoom, int x, int y) {
+        for (PackedTileArchive archive : archives.values()) {
+            ByteBuffer buffer = archive.getTile(zoom, x, y);
+            if (buffer != null) {
+                // Tile needs its own array, this is the only copy on the read path
+                byte[] data = new byte[buffer.remaining()];
+                buffer.get(data);
+                return data;
+            }
+        }
+        return tileDatabase.getTile(zoom, x, y);
+    }
+
+    public synchronized void close() {
+        for (PackedTileArchive archive : archives.values()) {
+            close(archive);
+        }
+        archives.clear();
+    }
+
+    // The mapping stays valid for tile threads still reading it, see PackedTileArchive.close
+    private static void close(PackedTileArchive archive) {
+        try {
+            archive.close();
+        } catch (IOException e) {
+            // Nothing useful to do while closing
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package com.example.myapplication.tiles;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Read-only packed tile archive for one sealed region, memory-mapped with FileChannel.map.
+ *
+ * File layout (little endian):
+ * <pre>
+ *   header     magic "MTPK", version, tile count, reserved, directory offset (long), data offset (long)
+ *   data       tile payloads back to back
+ *   directory  count quadkeys (long, ascending), count payload offsets (long), count lengths (int)
+ * </pre>
+ * Lookups binary-search the quadkey block and return a slice of the mapping, so
+ * reading a tile copies nothing.
+ */
+public class PackedTileArchive implements Closeable {
+    static final int MAGIC = 0x4B50544D; // "MTPK" read little endian
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 32;
+
+    private final RandomAccessFile file;
+    private final MappedByteBuffer buffer;
+    private final int tileCount;
+    private final int keysOffset;
+    private final int offsetsOffset;
+    private final int lengthsOffset;
+
+    private PackedTileArchive(RandomAccessFile file, MappedByteBuffer buffer) throws IOException {
+        this.file = file;
+        this.buffer = buffer;
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+
+        if (buffer.capacity() < HEADER_SIZE || buffer.getInt(0) != MAGIC) {
+            throw new IOException("Not a packed tile archive");
+        }
+        if (buffer.getInt(4) != VERSION) {
+            throw new IOException("Unsupported archive version " + buffer.getInt(4));
+        }
+        tileCount = buffer.getInt(8);
+        long directoryOffset = buffer.getLong(16);
+        if (tileCount < 0 || directoryOffset + tileCount * 20L > buffer.capacity()) {
+            throw new IOException("Archive directory is truncated");
+        }
+        keysOffset = (int) directoryOffset;
+        offsetsOffset = keysOffset + tileCount * 8;
+        lengthsOffset = offsetsOffset + tileCount * 8;
+    }
+
+    public static PackedTileArchive open(File archiveFile) throws IOException {
+        RandomAccessFile file = new RandomAccessFile(archiveFile, "r");
+        try {
+            long size = file.length();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("Archive too large to map: " + size + " bytes");
+            }
+            MappedByteBuffer buffer = file.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, size);
+            return new PackedTileArchive(file, buffer);
+        } catch (IOException | RuntimeException e) {
+            file.close();
+            throw e;
+        }
+    }
+
+    public int getTileCount() {
+        return tileCount;
+    }
+
+    public boolean hasTile(int zoom, int x, int y) {
+        return indexOf(TileMath.quadKey(zoom, x, y)) >= 0;
+    }
+
+    /**
+     * Returns a read-only view of the tile payload inside the mapping, or null if the
+     * tile is not in the archive. The returned buffer is independent, so concurrent
+     * readers do not interfere.
+     */
+    public ByteBuffer getTile(int zoom, int x, int y) {
+        int index = indexOf(TileMath.quadKey(zoom, x, y));
+        if (index < 0) {
+            return null;
+        }
+        int offset = (int) buffer.getLong(offsetsOffset + index * 8);
+        int length = buffer.getInt(lengthsOffset + index * 4);
+        ByteBuffer slice = buffer.duplicate();
+        slice.limit(offset + length).position(offset);
+        return slice.slice().asReadOnlyBuffer();
+    }
+
+    // Binary search of the sorted quadkey block, -1 if absent
+    private int indexOf(long quadKey) {
+        int low = 0;
+        int high = tileCount - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            long key = buffer.getLong(keysOffset + mid * 8);
+            if (key < quadKey) {
+                low = mid + 1;
+            } else if (key > quadKey) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public void close() throws IOException {
+        // The mapping itself is released when the buffer is garbage collected
+        file.close();
+    }
+}
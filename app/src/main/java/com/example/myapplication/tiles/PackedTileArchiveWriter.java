@@ -0,0 +1,194 @@
+package com.example.myapplication.tiles;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Writes a PackedTileArchive. Tiles may be added in any order; payloads are streamed
+ * to disk as they arrive and the sorted directory is appended by finish().
+ * The archive is built in a temporary file and renamed into place, so a reader never
+ * sees a half-written archive. Identical payloads are written once and shared by
+ * several directory entries.
+ */
+public class PackedTileArchiveWriter implements Closeable {
+    private final File targetFile;
+    private final File tempFile;
+    private final OutputStream out;
+    private long position;
+    private boolean finished;
+
+    private int count;
+    private long[] keys = new long[1024];
+    private long[] offsets = new long[1024];
+    private int[] lengths = new int[1024];
+
+    // Content hash to {hash low bits, offset} of payloads already written
+    private final Map<Long, long[]> writtenPayloads = new HashMap<>();
+    private int payloadCount;
+    private long payloadBytes;
+    private long logicalBytes;
+
+    public PackedTileArchiveWriter(File targetFile) throws IOException {
+        this.targetFile = targetFile;
+        this.tempFile = new File(targetFile.getPath() + ".tmp");
+        File parent = targetFile.getParentFile();
+        if (parent != null && !parent.isDirectory() && !parent.mkdirs() && !parent.isDirectory()) {
+            throw new IOException("Could not create archive directory " + parent);
+        }
+        out = new BufferedOutputStream(new FileOutputStream(tempFile), 64 * 1024);
+        // Header is patched in finish() once the directory offset is known
+        out.write(new byte[PackedTileArchive.HEADER_SIZE]);
+        position = PackedTileArchive.HEADER_SIZE;
+    }
+
+    public void addTile(int zoom, int x, int y, byte[] data) throws IOException {
+        addTile(zoom, x, y, data, 0, data.length);
+    }
+
+    public void addTile(int zoom, int x, int y, byte[] data, int offset, int length) throws IOException {
+        ensureCapacity(count + 1);
+        keys[count] = TileMath.quadKey(zoom, x, y);
+        lengths[count] = length;
+        logicalBytes += length;
+
+        TileHash hash = TileHash.of(data, offset, length);
+        long[] written = writtenPayloads.get(hash.getHigh());
+        if (written != null && written[0] == hash.getLow()) {
+            offsets[count] = written[1];
+        } else {
+            offsets[count] = position;
+            if (written == null) {
+                writtenPayloads.put(hash.getHigh(), new long[]{hash.getLow(), position});
+            }
+            out.write(data, offset, length);
+            position += length;
+            payloadCount++;
+            payloadBytes += length;
+        }
+        count++;
+    }
+
+    // Bytes of distinct payloads written so far
+    public long getPayloadBytes() {
+        return payloadBytes;
+    }
+
+    public int getTileCount() {
+        return count;
+    }
+
+    // What sharing identical payloads saved over the tiles added so far
+    public TileDedupStats getDedupStats() {
+        return new TileDedupStats(count, payloadCount, logicalBytes, payloadBytes);
+    }
+
+    // Sort the directory, append it, patch the header and move the archive into place
+    public void finish() throws IOException {
+        if (finished) {
+            return;
+        }
+
+        sortDirectory(0, count - 1);
+        for (int i = 1; i < count; i++) {
+            if (keys[i] == keys[i - 1]) {
+                throw new IllegalStateException("Tile added twice: quadkey " + keys[i]);
+            }
+        }
+
+        long directoryOffset = position;
+        ByteBuffer directory = ByteBuffer.allocate(count * 20).order(ByteOrder.LITTLE_ENDIAN);
+        for (int i = 0; i < count; i++) {
+            directory.putLong(keys[i]);
+        }
+        for (int i = 0; i < count; i++) {
+            directory.putLong(offsets[i]);
+        }
+        for (int i = 0; i < count; i++) {
+            directory.putInt(lengths[i]);
+        }
+        out.write(directory.array());
+        out.close();
+
+        ByteBuffer header = ByteBuffer.allocate(PackedTileArchive.HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        header.putInt(PackedTileArchive.MAGIC);
+        header.putInt(PackedTileArchive.VERSION);
+        header.putInt(count);
+        header.putInt(0);
+        header.putLong(directoryOffset);
+        header.putLong(PackedTileArchive.HEADER_SIZE);
+        try (RandomAccessFile file = new RandomAccessFile(tempFile, "rw")) {
+            file.write(header.array());
+            file.getFD().sync();
+        }
+
+        if (!tempFile.renameTo(targetFile)) {
+            throw new IOException("Could not move archive into place: " + targetFile);
+        }
+        finished = true;
+    }
+
+    // Abandons the archive unless finish() completed
+    @Override
+    public void close() throws IOException {
+        if (!finished) {
+            finished = true;
+            out.close();
+            tempFile.delete();
+        }
+    }
+
+    private void ensureCapacity(int needed) {
+        if (needed > keys.length) {
+            int size = Math.max(needed, keys.length * 2);
+            keys = Arrays.copyOf(keys, size);
+            offsets = Arrays.copyOf(offsets, size);
+            lengths = Arrays.copyOf(lengths, size);
+        }
+    }
+
+    // Quicksort of the three directory arrays by quadkey
+    private void sortDirectory(int low, int high) {
+        while (low < high) {
+            long pivot = keys[(low + high) >>> 1];
+            int i = low;
+            int j = high;
+            while (i <= j) {
+                while (keys[i] < pivot) i++;
+                while (keys[j] > pivot) j--;
+                if (i <= j) {
+                    swap(i++, j--);
+                }
+            }
+            // Recurse into the smaller half to bound stack depth
+            if (j - low < high - i) {
+                sortDirectory(low, j);
+                low = i;
+            } else {
+                sortDirectory(i, high);
+                high = j;
+            }
+        }
+    }
+
+    private void swap(int a, int b) {
+        long key = keys[a];
+        keys[a] = keys[b];
+        keys[b] = key;
+        long offset = offsets[a];
+        offsets[a] = offsets[b];
+        offsets[b] = offset;
+        int length = lengths[a];
+        lengths[a] = lengths[b];
+        lengths[b] = length;
+    }
+}
@@ -0,0 +1,100 @@
+package com.example.myapplication.tiles;
+
+/**
+ * Settings for a tile prefetch run
+ */
+public class PrefetchConfig {
+    // No default: bulk downloads must go to a server that allows them, see TileSources
+    private String urlTemplate;
+    private int minZoom = 10;
+    private int maxZoom = 16;
+    private int threadCount = 4;
+    private int connectTimeoutMillis = 10000;
+    private int readTimeoutMillis = 15000;
+    private int maxRetries = 2;
+    private String userAgent = "MyApplication-OfflineMaps/1.0";
+
+    public PrefetchConfig() {
+    }
+
+    public PrefetchConfig(String urlTemplate, int minZoom, int maxZoom) {
+        this.urlTemplate = urlTemplate;
+        this.minZoom = minZoom;
+        this.maxZoom = maxZoom;
+    }
+
+    // Template containing {z}, {x} and {y} placeholders
+    public String getUrlTemplate() {
+        return urlTemplate;
+    }
+
+    public PrefetchConfig setUrlTemplate(String urlTemplate) {
+        this.urlTemplate = urlTemplate;
+        return this;
+    }
+
+    public int getMinZoom() {
+        return minZoom;
+    }
+
+    public PrefetchConfig setMinZoom(int minZoom) {
+        this.minZoom = minZoom;
+        return this;
+    }
+
+    public int getMaxZoom() {
+        return maxZoom;
+    }
+
+    public PrefetchConfig setMaxZoom(int maxZoom) {
+        this.maxZoom = maxZoom;
+        return this;
+    }
+
+    // Number of parallel download workers. The platform keeps up to 5 idle connections per host
+    // (the http.maxConnections default), so more workers than that reconnect more often
+    public int getThreadCount() {
+        return threadCount;
+    }
+
+    public PrefetchConfig setThreadCount(int threadCount) {
+        this.threadCount = Math.max(1, threadCount);
+        return this;
+    }
+
+    public int getConnectTimeoutMillis() {
+        return connectTimeoutMillis;
+    }
+
+    public PrefetchConfig setConnectTimeoutMillis(int connectTimeoutMillis) {
+        this.connectTimeoutMillis = connectTimeoutMillis;
+        return this;
+    }
+
+    public int getReadTimeoutMillis() {
+        return readTimeoutMillis;
+    }
+
+    public PrefetchConfig setReadTimeoutMillis(int readTimeoutMillis) {
+        this.readTimeoutMillis = readTimeoutMillis;
+        return this;
+    }
+
+    public int getMaxRetries() {
+        return maxRetries;
+    }
+
+    public PrefetchConfig setMaxRetries(int maxRetries) {
+        this.maxRetries = Math.max(0, maxRetries);
+        return this;
+    }
+
+    public String getUserAgent() {
+        return userAgent;
+    }
+
+    public PrefetchConfig setUserAgent(String userAgent) {
+        this.userAgent = userAgent;
+        return this;
+    }
+}
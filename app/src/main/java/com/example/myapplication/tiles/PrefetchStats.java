@@ -0,0 +1,77 @@
+package com.example.myapplication.tiles;
+
+import java.util.Locale;
+
+/**
+ * Result of a tile prefetch run with throughput figures
+ */
+public class PrefetchStats {
+    private final long tilesFetched;
+    private final long tilesSkipped;
+    private final long tilesFailed;
+    private final long tilesMissing;
+    private final long bytesFetched;
+    private final long elapsedNanos;
+    private final boolean cancelled;
+
+    public PrefetchStats(long tilesFetched, long tilesSkipped, long tilesFailed,
+                         long tilesMissing, long bytesFetched, long elapsedNanos, boolean cancelled) {
+        this.tilesFetched = tilesFetched;
+        this.tilesSkipped = tilesSkipped;
+        this.tilesFailed = tilesFailed;
+        this.tilesMissing = tilesMissing;
+        this.bytesFetched = bytesFetched;
+        this.elapsedNanos = elapsedNanos;
+        this.cancelled = cancelled;
+    }
+
+    public long getTilesFetched() {
+        return tilesFetched;
+    }
+
+    // Tiles already present in the store and therefore not downloaded again
+    public long getTilesSkipped() {
+        return tilesSkipped;
+    }
+
+    public long getTilesFailed() {
+        return tilesFailed;
+    }
+
+    // Tiles the server answered with 404/204, e.g. outside its coverage
+    public long getTilesMissing() {
+        return tilesMissing;
+    }
+
+    public long getBytesFetched() {
+        return bytesFetched;
+    }
+
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    public boolean isComplete() {
+        return !cancelled && tilesFailed == 0;
+    }
+
+    public double getTilesPerSecond() {
+        return elapsedNanos > 0 ? tilesFetched * 1e9 / elapsedNanos : 0;
+    }
+
+    public double getBytesPerSecond() {
+        return elapsedNanos > 0 ? bytesFetched * 1e9 / elapsedNanos : 0;
+    }
+
+    @Override
+    public String toString() {
+        return String.format(Locale.US,
+                "PrefetchStats{fetched=%d, skipped=%d, failed=%d, missing=%d, bytes=%d, %.1f tiles/s, %.1f KB/s%s}",
+                tilesFetched, tilesSkipped, tilesFailed, tilesMissing, bytesFetched,
+                getTilesPerSecond(), getBytesPerSecond() / 1024.0, cancelled ? ", cancelled" : "");
+    }
+}
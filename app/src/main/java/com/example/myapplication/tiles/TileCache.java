@@ -0,0 +1,336 @@
+package com.example.myapplication.tiles;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * In-memory LRU cache of tile payloads bounded by total bytes rather than entry count.
+ *
+ * Keys are packed longs (see TileMath.packKey) so lookups allocate nothing. The cache is
+ * split into independently locked segments chosen by key hash, so tile provider threads
+ * only contend when they hit the same segment. Each segment keeps its own LRU order in
+ * primitive arrays: an open-addressing hash table of entry slots plus a doubly linked list.
+ */
+public class TileCache {
+    private static final int DEFAULT_SEGMENTS = 8;
+
+    private final Segment[] segments;
+    private final int segmentMask;
+    private final long maxBytes;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    public TileCache(long maxBytes) {
+        this(maxBytes, DEFAULT_SEGMENTS);
+    }
+
+    // segmentCount is rounded up to a power of two
+    public TileCache(long maxBytes, int segmentCount) {
+        int count = 1;
+        while (count < segmentCount) {
+            count <<= 1;
+        }
+        this.maxBytes = maxBytes;
+        segments = new Segment[count];
+        for (int i = 0; i < count; i++) {
+            segments[i] = new Segment(maxBytes / count);
+        }
+        segmentMask = count - 1;
+    }
+
+    public byte[] get(int zoom, int x, int y) {
+        return get(TileMath.packKey(zoom, x, y));
+    }
+
+    public byte[] get(long key) {
+        byte[] value = segmentFor(key).get(key);
+        if (value != null) {
+            hits.increment();
+        } else {
+            misses.increment();
+        }
+        return value;
+    }
+
+    public void put(int zoom, int x, int y, byte[] data) {
+        put(TileMath.packKey(zoom, x, y), data);
+    }
+
+    // Tiles larger than one segment's share of the budget are not cached
+    public void put(long key, byte[] data) {
+        evictions.add(segmentFor(key).put(key, data));
+    }
+
+    public void remove(long key) {
+        segmentFor(key).remove(key);
+    }
+
+    // Evict least recently used tiles until at most maxBytes remain
+    public void trimToSize(long maxBytes) {
+        long perSegment = maxBytes / segments.length;
+        for (Segment segment : segments) {
+            evictions.add(segment.trimTo(perSegment));
+        }
+    }
+
+    public void clear() {
+        trimToSize(0);
+    }
+
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+
+    public long getSizeBytes() {
+        long size = 0;
+        for (Segment segment : segments) {
+            size += segment.sizeBytes();
+        }
+        return size;
+    }
+
+    public int getEntryCount() {
+        int count = 0;
+        for (Segment segment : segments) {
+            count += segment.entryCount();
+        }
+        return count;
+    }
+
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    public long getEvictionCount() {
+        return evictions.sum();
+    }
+
+    @Override
+    public String toString() {
+        return "TileCache{entries=" + getEntryCount() + ", bytes=" + getSizeBytes() + "/" + maxBytes +
+                ", hits=" + getHitCount() + ", misses=" + getMissCount() +
+                ", evictions=" + getEvictionCount() + "}";
+    }
+
+    private Segment segmentFor(long key) {
+        return segments[(int) (mix(key) >>> 40) & segmentMask];
+    }
+
+    // Finalizer of MurmurHash3, spreads packed z/x/y keys over all bits
+    static long mix(long key) {
+        key ^= key >>> 33;
+        key *= 0xff51afd7ed558ccdL;
+        key ^= key >>> 33;
+        key *= 0xc4ceb9fe1a85ec53L;
+        key ^= key >>> 33;
+        return key;
+    }
+
+    private static final class Segment {
+        private static final int NONE = -1;
+
+        private final long maxBytes;
+        private long sizeBytes;
+        private int count;
+
+        // Entry slots
+        private long[] keys = new long[16];
+        private byte[][] values = new byte[16][];
+        private int[] prev = new int[16];
+        private int[] next = new int[16];
+        private int freeHead = NONE;
+        private int used;
+
+        // LRU list: head is most recently used
+        private int head = NONE;
+        private int tail = NONE;
+
+        // Hash table of slot index + 1, 0 means empty; linear probing
+        private int[] table = new int[32];
+
+        Segment(long maxBytes) {
+            this.maxBytes = maxBytes;
+        }
+
+        synchronized byte[] get(long key) {
+            int slot = find(key);
+            if (slot == NONE) {
+                return null;
+            }
+            moveToHead(slot);
+            return values[slot];
+        }
+
+        // Returns the number of entries evicted to make room
+        synchronized int put(long key, byte[] data) {
+            if (data.length > maxBytes) {
+                remove(key);
+                return 0;
+            }
+            int slot = find(key);
+            if (slot != NONE) {
+                sizeBytes += data.length - values[slot].length;
+                values[slot] = data;
+                moveToHead(slot);
+            } else {
+                slot = allocateSlot();
+                keys[slot] = key;
+                values[slot] = data;
+                sizeBytes += data.length;
+                count++;
+                insertIntoTable(slot);
+                linkAtHead(slot);
+            }
+            return trimTo(maxBytes);
+        }
+
+        synchronized void remove(long key) {
+            int slot = find(key);
+            if (slot != NONE) {
+                removeSlot(slot);
+            }
+        }
+
+        synchronized int trimTo(long limit) {
+            int evicted = 0;
+            while (sizeBytes > limit && tail != NONE) {
+                removeSlot(tail);
+                evicted++;
+            }
+            return evicted;
+        }
+
+        synchronized long sizeBytes() {
+            return sizeBytes;
+        }
+
+        synchronized int entryCount() {
+            return count;
+        }
+
+        private int find(long key) {
+            int mask = table.length - 1;
+            for (int i = (int) mix(key) & mask; ; i = (i + 1) & mask) {
+                int entry = table[i];
+                if (entry == 0) {
+                    return NONE;
+                }
+                if (keys[entry - 1] == key) {
+                    return entry - 1;
+                }
+            }
+        }
+
+        private void insertIntoTable(int slot) {
+            if ((count << 1) > table.length) {
+                rehash(table.length << 1);
+            }
+            int mask = table.length - 1;
+            int i = (int) mix(keys[slot]) & mask;
+            while (table[i] != 0) {
+                i = (i + 1) & mask;
+            }
+            table[i] = slot + 1;
+        }
+
+        private void rehash(int size) {
+            int[] old = table;
+            table = new int[size];
+            int mask = size - 1;
+            for (int entry : old) {
+                if (entry != 0) {
+                    int i = (int) mix(keys[entry - 1]) & mask;
+                    while (table[i] != 0) {
+                        i = (i + 1) & mask;
+                    }
+                    table[i] = entry;
+                }
+            }
+        }
+
+        // Backward-shift deletion keeps probe chains intact without tombstones
+        private void removeFromTable(int slot) {
+            int mask = table.length - 1;
+            int i = (int) mix(keys[slot]) & mask;
+            while (table[i] != slot + 1) {
+                i = (i + 1) & mask;
+            }
+            int hole = i;
+            for (int j = (hole + 1) & mask; table[j] != 0; j = (j + 1) & mask) {
+                int home = (int) mix(keys[table[j] - 1]) & mask;
+                // Move the entry back if the hole lies between its home slot and j
+                if (((j - home) & mask) >= ((j - hole) & mask)) {
+                    table[hole] = table[j];
+                    hole = j;
+                }
+            }
+            table[hole] = 0;
+        }
+
+        private int allocateSlot() {
+            if (freeHead != NONE) {
+                int slot = freeHead;
+                freeHead = next[slot];
+                return slot;
+            }
+            if (used == keys.length) {
+                int size = keys.length << 1;
+                keys = Arrays.copyOf(keys, size);
+                values = Arrays.copyOf(values, size);
+                prev = Arrays.copyOf(prev, size);
+                next = Arrays.copyOf(next, size);
+            }
+            return used++;
+        }
+
+        private void removeSlot(int slot) {
+            removeFromTable(slot);
+            unlink(slot);
+            sizeBytes -= values[slot].length;
+            values[slot] = null;
+            count--;
+            next[slot] = freeHead;
+            freeHead = slot;
+        }
+
+        private void moveToHead(int slot) {
+            if (slot != head) {
+                unlink(slot);
+                linkAtHead(slot);
+            }
+        }
+
+        private void linkAtHead(int slot) {
+            prev[slot] = NONE;
+            next[slot] = head;
+            if (head != NONE) {
+                prev[head] = slot;
+            }
+            head = slot;
+            if (tail == NONE) {
+                tail = slot;
+            }
+        }
+
+        private void unlink(int slot) {
+            int p = prev[slot];
+            int n = next[slot];
+            if (p != NONE) {
+                next[p] = n;
+            } else {
+                head = n;
+            }
+            if (n != NONE) {
+                prev[n] = p;
+            } else {
+                tail = p;
+            }
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package com.example.myapplication.tiles;
+
+import java.util.Locale;
+
+/**
+ * How much content-hash deduplication saved for one region
+ */
+public class TileDedupStats {
+    private final long tileCount;
+    private final long uniqueTileCount;
+    private final long logicalBytes;
+    private final long storedBytes;
+
+    public TileDedupStats(long tileCount, long uniqueTileCount, long logicalBytes, long storedBytes) {
+        this.tileCount = tileCount;
+        this.uniqueTileCount = uniqueTileCount;
+        this.logicalBytes = logicalBytes;
+        this.storedBytes = storedBytes;
+    }
+
+    public long getTileCount() {
+        return tileCount;
+    }
+
+    // Distinct payloads among the region's tiles
+    public long getUniqueTileCount() {
+        return uniqueTileCount;
+    }
+
+    // Bytes the region would take without deduplication
+    public long getLogicalBytes() {
+        return logicalBytes;
+    }
+
+    // Bytes of the distinct payloads actually stored
+    public long getStoredBytes() {
+        return storedBytes;
+    }
+
+    // Logical bytes per stored byte; 1.0 means nothing was shared
+    public double getDedupRatio() {
+        return storedBytes > 0 ? logicalBytes / (double) storedBytes : 1.0;
+    }
+
+    @Override
+    public String toString() {
+        return String.format(Locale.US, "TileDedupStats{tiles=%d, unique=%d, logical=%d, stored=%d, ratio=%.2f}",
+                tileCount, uniqueTileCount, logicalBytes, storedBytes, getDedupRatio());
+    }
+}
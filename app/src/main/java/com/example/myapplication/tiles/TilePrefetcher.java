@@ -0,0 +1,335 @@
+package com.example.myapplication.tiles;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Downloads every tile of a TileRange from a tile server into a TileStore.
+ *
+ * A fixed number of workers pull chunks of tile indexes from a shared counter, so memory
+ * use does not grow with the size of the region. HttpURLConnection keeps connections
+ * alive and pools them per host as long as every response body is fully read and
+ * closed, which is what fetchTile does.
+ */
+public class TilePrefetcher {
+
+    public interface ProgressListener {
+        // Called from worker threads, roughly every few dozen tiles
+        void onProgress(long completed, long total, long bytes);
+    }
+
+    /**
+     * Remembers which chunks of a tile range are fully stored, so an interrupted
+     * download can resume. Chunk n covers tile indexes [n * CHUNK_SIZE, (n + 1) * CHUNK_SIZE).
+     */
+    public interface Checkpoint {
+        boolean isChunkComplete(int chunk);
+
+        // Called from worker threads once the chunk's tiles are flushed to the store
+        void markChunkComplete(int chunk);
+    }
+
+    // Tiles per checkpoint chunk, also the unit of work handed to a worker
+    public static final int CHUNK_SIZE = 256;
+
+    private static final int PROGRESS_INTERVAL = 32;
+    private static final int INITIAL_BUFFER_SIZE = 32 * 1024;
+
+    private final PrefetchConfig config;
+    private final TileStore store;
+    // The URL template split around its placeholders, see buildUrl
+    private final String[] templateParts;
+    private final char[] templateKeys;
+    private volatile boolean cancelled;
+
+    public TilePrefetcher(PrefetchConfig config, TileStore store) {
+        this.config = config;
+        this.store = store;
+
+        String template = config.getUrlTemplate();
+        if (template == null || template.isEmpty()) {
+            throw new IllegalArgumentException("No tile URL template configured");
+        }
+        int placeholders = 0;
+        for (int i = template.indexOf('{'); i >= 0; i = template.indexOf('{', i + 1)) {
+            placeholders++;
+        }
+        templateParts = new String[placeholders + 1];
+        templateKeys = new char[placeholders];
+        int part = 0;
+        int start = 0;
+        for (int i = template.indexOf('{'); i >= 0; i = template.indexOf('{', i + 1)) {
+            int end = template.indexOf('}', i);
+            if (end != i + 2 || "zxy".indexOf(template.charAt(i + 1)) < 0) {
+                throw new IllegalArgumentException("Unsupported placeholder in tile URL template: " + template);
+            }
+            templateParts[part] = template.substring(start, i);
+            templateKeys[part] = template.charAt(i + 1);
+            part++;
+            start = end + 1;
+        }
+        templateParts[part] = template.substring(start);
+    }
+
+    public PrefetchConfig getConfig() {
+        return config;
+    }
+
+    // Stop handing out new tiles; in-flight requests finish normally
+    public void cancel() {
+        cancelled = true;
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    // Tile range for this config's zoom levels over the given bounds
+    public TileRange rangeFor(double southLat, double westLng, double northLat, double eastLng) {
+        return new TileRange(southLat, westLng, northLat, eastLng, config.getMinZoom(), config.getMaxZoom());
+    }
+
+    /**
+     * Fetch every tile in the range that is not already stored. Blocks until all workers finish.
+     */
+    public PrefetchStats prefetch(long regionId, TileRange range, ProgressListener listener)
+            throws InterruptedException {
+        return prefetch(regionId, range, null, listener);
+    }
+
+    /**
+     * Fetch every tile in the range, skipping chunks the checkpoint already reports complete.
+     * A chunk is only marked complete after its tiles have been flushed to the store, so
+     * a download killed at any point resumes without losing or re-fetching finished chunks.
+     */
+    public PrefetchStats prefetch(long regionId, TileRange range, Checkpoint checkpoint,
+                                  ProgressListener listener) throws InterruptedException {
+        final long total = range.size();
+        final long chunkCount = chunkCount(total);
+        final AtomicLong nextChunk = new AtomicLong();
+        final AtomicLong completed = new AtomicLong();
+        final AtomicLong fetched = new AtomicLong();
+        final AtomicLong skipped = new AtomicLong();
+        final AtomicLong failed = new AtomicLong();
+        final AtomicLong missing = new AtomicLong();
+        final AtomicLong bytes = new AtomicLong();
+
+        int workers = (int) Math.max(1, Math.min(config.getThreadCount(), chunkCount));
+        final AtomicInteger threadNumber = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(workers, r -> {
+            Thread thread = new Thread(r, "tile-prefetch-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        long startNanos = System.nanoTime();
+        for (int w = 0; w < workers; w++) {
+            executor.execute(() -> {
+                ResponseBuffer buffer = new ResponseBuffer(INITIAL_BUFFER_SIZE);
+                StringBuilder url = new StringBuilder(128);
+                TileRange.Cursor tiles = range.cursor(0);
+                long chunk;
+                while (!cancelled && (chunk = nextChunk.getAndIncrement()) < chunkCount) {
+                    long first = chunk * CHUNK_SIZE;
+                    long end = Math.min(total, first + CHUNK_SIZE);
+
+                    if (checkpoint != null && checkpoint.isChunkComplete((int) chunk)) {
+                        skipped.addAndGet(end - first);
+                        reportProgress(listener, completed.addAndGet(end - first), end - first, total, bytes);
+                        continue;
+                    }
+
+                    long chunkFailures = 0;
+                    long index = first;
+                    tiles.moveTo(first);
+                    for (; index < end && !cancelled; index++, tiles.next()) {
+                        int zoom = tiles.getZoom();
+                        int x = tiles.getX();
+                        int y = tiles.getY();
+
+                        if (store.hasTile(zoom, x, y)) {
+                            skipped.incrementAndGet();
+                        } else {
+                            buildUrl(url, zoom, x, y);
+                            byte[] tile = null;
+                            boolean notOnServer = false;
+                            for (int attempt = 0; tile == null && !notOnServer
+                                    && attempt <= config.getMaxRetries() && !cancelled; attempt++) {
+                                try {
+                                    int length = fetchTile(url.toString(), buffer);
+                                    if (length < 0) {
+                                        notOnServer = true;
+                                    } else {
+                                        tile = Arrays.copyOf(buffer.bytes, length);
+                                    }
+                                } catch (IOException e) {
+                                    // Try again on the next attempt
+                                }
+                            }
+
+                            if (notOnServer) {
+                                missing.incrementAndGet();
+                            } else if (tile != null) {
+                                try {
+                                    store.putTile(regionId, zoom, x, y, tile);
+                                    fetched.incrementAndGet();
+                                    bytes.addAndGet(tile.length);
+                                } catch (IOException e) {
+                                    chunkFailures++;
+                                }
+                            } else {
+                                chunkFailures++;
+                            }
+                        }
+                        reportProgress(listener, completed.incrementAndGet(), 1, total, bytes);
+                    }
+                    failed.addAndGet(chunkFailures);
+
+                    if (checkpoint != null && index == end && chunkFailures == 0) {
+                        try {
+                            store.flush();
+                            checkpoint.markChunkComplete((int) chunk);
+                        } catch (IOException e) {
+                            failed.incrementAndGet();
+                        }
+                    }
+                }
+            });
+        }
+
+        executor.shutdown();
+        try {
+            while (!executor.awaitTermination(1, TimeUnit.SECONDS)) {
+                // Keep waiting; cancel() makes workers drain quickly
+            }
+        } catch (InterruptedException e) {
+            cancelled = true;
+            executor.shutdownNow();
+            throw e;
+        }
+
+        try {
+            store.flush();
+        } catch (IOException e) {
+            failed.incrementAndGet();
+        }
+
+        return new PrefetchStats(fetched.get(), skipped.get(), failed.get(), missing.get(), bytes.get(),
+                System.nanoTime() - startNanos, cancelled);
+    }
+
+    /**
+     * Download one tile only to measure it. Returns the body length in bytes, or -1 if
+     * the server has no such tile.
+     */
+    public int fetchTileSize(int zoom, int x, int y) throws IOException {
+        StringBuilder url = new StringBuilder();
+        buildUrl(url, zoom, x, y);
+        return fetchTile(url.toString(), new ResponseBuffer(4096));
+    }
+
+    // Number of checkpoint chunks a range of this many tiles is split into
+    public static long chunkCount(long tileCount) {
+        return (tileCount + CHUNK_SIZE - 1) / CHUNK_SIZE;
+    }
+
+    private static void reportProgress(ProgressListener listener, long done, long added, long total, AtomicLong bytes) {
+        if (listener != null && (done / PROGRESS_INTERVAL != (done - added) / PROGRESS_INTERVAL || done == total)) {
+            listener.onProgress(done, total, bytes.get());
+        }
+    }
+
+    private void buildUrl(StringBuilder url, int zoom, int x, int y) {
+        url.setLength(0);
+        for (int i = 0; i < templateKeys.length; i++) {
+            url.append(templateParts[i]);
+            switch (templateKeys[i]) {
+                case 'z':
+                    url.append(zoom);
+                    break;
+                case 'x':
+                    url.append(x);
+                    break;
+                default:
+                    url.append(y);
+                    break;
+            }
+        }
+        url.append(templateParts[templateKeys.length]);
+    }
+
+    /**
+     * Read one tile body into the buffer, growing it to fit, so every tile takes a single
+     * request. Returns the body length, or -1 if the server has no such tile.
+     */
+    private int fetchTile(String url, ResponseBuffer buffer) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL(url).openConnection();
+        connection.setConnectTimeout(config.getConnectTimeoutMillis());
+        connection.setReadTimeout(config.getReadTimeoutMillis());
+        connection.setRequestProperty("User-Agent", config.getUserAgent());
+        connection.setRequestProperty("Connection", "keep-alive");
+
+        int status = connection.getResponseCode();
+        if (status == HttpURLConnection.HTTP_NOT_FOUND || status == HttpURLConnection.HTTP_NO_CONTENT) {
+            drain(connection.getErrorStream());
+            return -1;
+        }
+        if (status != HttpURLConnection.HTTP_OK) {
+            drain(connection.getErrorStream());
+            throw new IOException("HTTP " + status + " for " + url);
+        }
+
+        // Closing (not disconnecting) after a full read returns the socket to the pool
+        try (InputStream in = connection.getInputStream()) {
+            int contentLength = connection.getContentLength();
+            if (contentLength > buffer.bytes.length) {
+                buffer.grow(contentLength);
+            }
+            int length = 0;
+            int read;
+            while ((read = in.read(buffer.bytes, length, buffer.bytes.length - length)) > 0) {
+                length += read;
+                if (length == buffer.bytes.length) {
+                    buffer.grow(length + 1);
+                }
+            }
+            return length;
+        }
+    }
+
+    private static void drain(InputStream in) {
+        if (in == null) {
+            return;
+        }
+        try (InputStream stream = in) {
+            byte[] skip = new byte[4096];
+            while (stream.read(skip) > 0) {
+                // Discard so the connection can be reused
+            }
+        } catch (IOException e) {
+            // Connection will simply not be reused
+        }
+    }
+
+    // A worker's reusable response body buffer; it only ever grows
+    private static final class ResponseBuffer {
+        byte[] bytes;
+
+        ResponseBuffer(int size) {
+            bytes = new byte[size];
+        }
+
+        // Make room for at least minimum bytes, keeping the ones read so far
+        void grow(int minimum) {
+            bytes = Arrays.copyOf(bytes, Math.max(minimum, bytes.length * 2));
+        }
+    }
+}
@@ -0,0 +1,145 @@
+package com.example.myapplication.tiles;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Estimates what a region download will cost before it starts. Tile counts are exact and
+ * come straight from the tile range; bytes are extrapolated per zoom level from a few
+ * sample tiles, read from the store when present and otherwise fetched from the server.
+ */
+public class TileSizeEstimator {
+    public static final int DEFAULT_SAMPLES_PER_ZOOM = 3;
+    // Assumed size of a tile when nothing could be measured
+    public static final int FALLBACK_TILE_BYTES = 12 * 1024;
+
+    // Sample result for a tile that could not be measured
+    private static final int UNKNOWN = Integer.MIN_VALUE;
+
+    private final TileStore store;
+    private final TilePrefetcher prefetcher;
+    private final int samplesPerZoom;
+
+    public TileSizeEstimator(TileStore store, TilePrefetcher prefetcher) {
+        this(store, prefetcher, DEFAULT_SAMPLES_PER_ZOOM);
+    }
+
+    public TileSizeEstimator(TileStore store, TilePrefetcher prefetcher, int samplesPerZoom) {
+        this.store = store;
+        this.prefetcher = prefetcher;
+        this.samplesPerZoom = samplesPerZoom;
+    }
+
+    // Exact tile counts without any I/O; bytes assume FALLBACK_TILE_BYTES per tile
+    public static DownloadEstimate countTiles(TileRange range) {
+        int levels = range.getMaxZoom() - range.getMinZoom() + 1;
+        long[] counts = new long[levels];
+        long[] bytes = new long[levels];
+        for (int i = 0; i < levels; i++) {
+            counts[i] = range.sizeAtZoom(range.getMinZoom() + i);
+            bytes[i] = counts[i] * FALLBACK_TILE_BYTES;
+        }
+        return new DownloadEstimate(range.getMinZoom(), counts, bytes, 0);
+    }
+
+    /**
+     * Measure a few tiles per zoom level, spread along the diagonal of the range, and
+     * scale their mean size by the level's tile count. Tiles the server does not have
+     * count as empty, since the download will not store them either.
+     */
+    public DownloadEstimate estimate(TileRange range) throws InterruptedException {
+        int minZoom = range.getMinZoom();
+        int levels = range.getMaxZoom() - minZoom + 1;
+        long[] counts = new long[levels];
+        List<List<Future<Integer>>> samples = new ArrayList<>(levels);
+
+        int threads = prefetcher != null ? prefetcher.getConfig().getThreadCount() : 1;
+        final AtomicInteger threadNumber = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, threads), r -> {
+            Thread thread = new Thread(r, "tile-estimate-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            for (int i = 0; i < levels; i++) {
+                final int zoom = minZoom + i;
+                counts[i] = range.sizeAtZoom(zoom);
+                int columns = range.getColumnCount(zoom);
+                int rows = range.getRowCount(zoom);
+                int sampleCount = Math.min(samplesPerZoom, Math.max(columns, rows));
+                List<Future<Integer>> levelSamples = new ArrayList<>(sampleCount);
+                for (int s = 0; s < sampleCount; s++) {
+                    // Centres of equal slices along the diagonal
+                    // Columns wrap to 0 past the antimeridian
+                    final int x = (range.getMinX(zoom) + (int) ((2L * s + 1) * columns / (2L * sampleCount)))
+                            & ((1 << zoom) - 1);
+                    final int y = range.getMinY(zoom) + (int) ((2L * s + 1) * rows / (2L * sampleCount));
+                    levelSamples.add(executor.submit((Callable<Integer>) () -> sampleTile(zoom, x, y)));
+                }
+                samples.add(levelSamples);
+            }
+
+            // Per-level mean of the measured tiles, NaN where nothing could be measured
+            double[] meanBytes = new double[levels];
+            long measuredBytes = 0;
+            int measured = 0;
+            for (int i = 0; i < levels; i++) {
+                long levelBytes = 0;
+                int levelMeasured = 0;
+                for (Future<Integer> sample : samples.get(i)) {
+                    int size = get(sample);
+                    if (size != UNKNOWN) {
+                        levelBytes += size;
+                        levelMeasured++;
+                    }
+                }
+                meanBytes[i] = levelMeasured > 0 ? levelBytes / (double) levelMeasured : Double.NaN;
+                measuredBytes += levelBytes;
+                measured += levelMeasured;
+            }
+
+            double fallback = measured > 0 ? measuredBytes / (double) measured : FALLBACK_TILE_BYTES;
+            long[] bytes = new long[levels];
+            for (int i = 0; i < levels; i++) {
+                double mean = Double.isNaN(meanBytes[i]) ? fallback : meanBytes[i];
+                bytes[i] = Math.round(mean * counts[i]);
+            }
+            return new DownloadEstimate(minZoom, counts, bytes, measured);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private int sampleTile(int zoom, int x, int y) {
+        try {
+            if (store != null) {
+                byte[] stored = store.getTile(zoom, x, y);
+                if (stored != null) {
+                    return stored.length;
+                }
+            }
+            if (prefetcher == null) {
+                return UNKNOWN;
+            }
+            int size = prefetcher.fetchTileSize(zoom, x, y);
+            return size < 0 ? 0 : size;
+        } catch (IOException e) {
+            return UNKNOWN;
+        }
+    }
+
+    private static int get(Future<Integer> sample) throws InterruptedException {
+        try {
+            return sample.get();
+        } catch (ExecutionException e) {
+            return UNKNOWN;
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package com.example.myapplication.tiles;
+
+import com.example.myapplication.BuildConfig;
+
+import java.util.Locale;
+
+/**
+ * Tile servers for offline downloads, one per map type ("NORMAL", "SATELLITE", "HYBRID",
+ * "TERRAIN"), so saved tiles look like the map they were saved from. The URL templates come
+ * from the build configuration (see app/build.gradle.kts); none points at a public server.
+ */
+public final class TileSources {
+
+    private TileSources() {
+    }
+
+    // URL template for the map type, or null when no server is configured for it
+    public static String urlTemplate(String mapType) {
+        String template;
+        switch (normalize(mapType)) {
+            case "NORMAL":
+                template = BuildConfig.TILE_URL_TEMPLATE_NORMAL;
+                break;
+            case "SATELLITE":
+                template = BuildConfig.TILE_URL_TEMPLATE_SATELLITE;
+                break;
+            case "TERRAIN":
+                template = BuildConfig.TILE_URL_TEMPLATE_TERRAIN;
+                break;
+            case "HYBRID":
+            default:
+                template = BuildConfig.TILE_URL_TEMPLATE_HYBRID;
+                break;
+        }
+        return template.isEmpty() ? null : template;
+    }
+
+    // One of the four map types; saved maps without a known type were taken from the hybrid
+    // map, the screen's default
+    public static String normalize(String mapType) {
+        String type = mapType == null ? "" : mapType.toUpperCase(Locale.US);
+        switch (type) {
+            case "NORMAL":
+            case "SATELLITE":
+            case "TERRAIN":
+                return type;
+            default:
+                return "HYBRID";
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package com.example.myapplication.tiles;
+
+import java.io.IOException;
+
+/**
+ * Local storage for downloaded map tiles, keyed by zoom/x/y and owning region
+ */
+public interface TileStore {
+
+    // Store a tile payload for the given region, replacing any existing copy
+    void putTile(long regionId, int zoom, int x, int y, byte[] data) throws IOException;
+
+    // Returns the tile payload, or null if the tile is not stored
+    byte[] getTile(int zoom, int x, int y) throws IOException;
+
+    boolean hasTile(int zoom, int x, int y);
+
+    // Push any buffered writes to disk
+    void flush() throws IOException;
+}
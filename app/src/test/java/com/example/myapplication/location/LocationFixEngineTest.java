@@ -0,0 +1,336 @@
+package com.example.myapplication.location;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+import static org.junit.Assert.*;
+
+public class LocationFixEngineTest {
+    private static final long START = 1_700_000_000_000L;
+
+    private VirtualClock clock;
+    private final List<String> events = new ArrayList<>();
+    private final List<Integer> progress = new ArrayList<>();
+    private LocationSample fix;
+    private long fixTime;
+
+    private final LocationFixEngine.Listener listener = new LocationFixEngine.Listener() {
+        @Override
+        public void onSample(LocationSample sample, LocationSample best) {
+            events.add("sample " + (int) sample.getAccuracyMeters() + " best " + (int) best.getAccuracyMeters());
+        }
+
+        @Override
+        public void onSampleRejected(LocationSample sample, int reason) {
+            events.add("rejected " + reason);
+        }
+
+        @Override
+        public void onProgress(int percent, LocationSample best, long elapsedMillis) {
+            progress.add(percent);
+        }
+
+        @Override
+        public void onFix(LocationSample location) {
+            events.add("fix " + (int) location.getAccuracyMeters());
+            fix = location;
+            fixTime = clock.currentTimeMillis();
+        }
+
+        @Override
+        public void onNoFix() {
+            events.add("no fix");
+        }
+    };
+
+    // Source fed by the test, recording whether the engine has it running
+    private static final class FakeSource implements LocationSource {
+        Consumer<LocationSample> sink;
+        boolean running;
+
+        @Override
+        public void start(Consumer<LocationSample> sink) {
+            this.sink = sink;
+            running = true;
+        }
+
+        @Override
+        public void stop() {
+            running = false;
+        }
+
+        void emit(int source, float accuracy, long time) {
+            sink.accept(new LocationSample(source, 52.5, 13.4, accuracy, time));
+        }
+    }
+
+    @Before
+    public void setUp() {
+        clock = new VirtualClock(START);
+    }
+
+    private LocationFixEngine engine(FixPolicy policy, LocationSource source) {
+        return new LocationFixEngine(policy, clock, clock, listener).addSource(source);
+    }
+
+    @Test
+    public void network_rejectsGpsAndLikelyGpsSamples() {
+        FakeSource source = new FakeSource();
+        engine(FixPolicy.network(), source).start();
+        assertTrue(source.running);
+
+        long now = clock.currentTimeMillis();
+        source.emit(LocationSample.SOURCE_GPS, 400, now);
+        source.emit(LocationSample.SOURCE_NETWORK, 12, now - 1000);       // too accurate and fresh for a network fix
+        source.emit(LocationSample.SOURCE_PASSIVE, 400, now - 10 * 60_000); // cached for too long
+        source.emit(LocationSample.SOURCE_NETWORK, 12, now - 60_000);     // accurate but old enough to be network
+        assertEquals(5, events.size());
+        assertEquals("rejected " + LocationFixEngine.REJECTED_GPS, events.get(0));
+        assertEquals("rejected " + LocationFixEngine.REJECTED_GPS, events.get(1));
+        assertEquals("rejected " + LocationFixEngine.REJECTED_STALE, events.get(2));
+        assertEquals("sample 12 best 12", events.get(3));
+        assertEquals("fix 12", events.get(4));
+    }
+
+    @Test
+    public void network_waitsLongerForWorseAccuracy() {
+        FakeSource source = new FakeSource();
+        LocationFixEngine engine = engine(FixPolicy.network(), source);
+        engine.start();
+
+        clock.advanceBy(9000);
+        assertEquals(20, (int) last(progress)); // 9 of 45 s, no fix yet
+
+        source.emit(LocationSample.SOURCE_NETWORK, 280, clock.currentTimeMillis());
+        assertEquals(20 + 6, (int) last(progress));
+        clock.advanceBy(5999);
+        assertTrue(engine.isRunning());
+
+        clock.advanceBy(1); // 15 s: 300 m is good enough now, without waiting for a tick
+        assertFalse(engine.isRunning());
+        assertFalse(source.running);
+        assertEquals(100, (int) last(progress));
+        assertEquals(280, fix.getAccuracyMeters(), 0);
+        assertEquals(START + 15_000, fixTime);
+        assertEquals(0, pendingAfterRun());
+    }
+
+    @Test
+    public void network_finishesOnTheSampleBelow100Meters() {
+        FakeSource source = new FakeSource();
+        engine(FixPolicy.network(), source).start();
+        clock.advanceBy(4321);
+        source.emit(LocationSample.SOURCE_NETWORK, 90, clock.currentTimeMillis());
+        assertEquals("fix 90", last(events));
+        assertEquals(START + 4321, fixTime);
+    }
+
+    @Test
+    public void network_timesOutWithBestOrWithoutFix() {
+        FakeSource source = new FakeSource();
+        LocationFixEngine engine = engine(FixPolicy.network(), source);
+        engine.start();
+        clock.advanceBy(45_000);
+        assertEquals("no fix", last(events));
+        assertFalse(source.running);
+
+        clock.advanceBy(1000);
+        engine.start();
+        source.emit(LocationSample.SOURCE_NETWORK, 2000, clock.currentTimeMillis());
+        clock.advanceBy(44_999);
+        assertTrue(engine.isRunning());
+        clock.advanceBy(1);
+        assertEquals("fix 2000", last(events));
+    }
+
+    @Test
+    public void bestFix_weighsAccuracyAgainstAge() {
+        FakeSource source = new FakeSource();
+        LocationFixEngine engine = engine(FixPolicy.network(), source);
+        engine.start();
+
+        // Network policy: 10 m of accuracy per second of age
+        long now = clock.currentTimeMillis();
+        source.emit(LocationSample.SOURCE_NETWORK, 600, now);
+        source.emit(LocationSample.SOURCE_NETWORK, 570, now + 1000);   // 30 m better and 1 s newer
+        assertEquals(570, engine.getBestFix().getAccuracyMeters(), 0);
+        source.emit(LocationSample.SOURCE_NETWORK, 700, now + 2000);   // 1 s newer, 130 m worse
+        assertEquals(570, engine.getBestFix().getAccuracyMeters(), 0);
+        assertEquals(700, engine.getLatestSample().getAccuracyMeters(), 0);
+        source.emit(LocationSample.SOURCE_NETWORK, 610, now + 13_000); // 12 s newer, 40 m worse
+        assertEquals(610, engine.getBestFix().getAccuracyMeters(), 0);
+        source.emit(LocationSample.SOURCE_NETWORK, 800, now + 30_000); // 17 s newer, 190 m worse
+        assertEquals(610, engine.getBestFix().getAccuracyMeters(), 0);
+    }
+
+    @Test
+    public void bestFix_expiresWithItsSamples() {
+        FakeSource source = new FakeSource();
+        LocationFixEngine engine = engine(FixPolicy.gps().setMaxSampleAgeMillis(60_000), source);
+        engine.start();
+        source.emit(LocationSample.SOURCE_GPS, 45, clock.currentTimeMillis());
+        assertEquals(45, engine.getBestFix().getAccuracyMeters(), 0);
+
+        clock.advanceBy(60_000);
+        assertNotNull(engine.getBestFix());
+        clock.advanceBy(5000); // next tick: the only sample is over a minute old
+        assertNull(engine.getBestFix());
+        assertEquals(0, (int) last(progress));
+    }
+
+    @Test
+    public void gps_withoutFusionFollowsLatestSampleUntil30Meters() {
+        FakeSource source = new FakeSource();
+        LocationFixEngine engine = engine(FixPolicy.gps().setFusion(0), source);
+        engine.start();
+        clock.advanceBy(0);
+        assertEquals(0, (int) last(progress));
+
+        source.emit(LocationSample.SOURCE_GPS, 45, clock.currentTimeMillis());
+        source.emit(LocationSample.SOURCE_FUSED, 80, clock.currentTimeMillis() + 1000); // newest wins even when worse
+        assertEquals(40, (int) last(progress));
+
+        source.emit(LocationSample.SOURCE_GPS, 35, clock.currentTimeMillis() + 2000);
+        assertEquals(70, (int) last(progress));
+
+        // No timeout: the search keeps going until a fix is good enough, reporting every tick
+        int reports = progress.size();
+        clock.advanceBy(600_000);
+        assertTrue(engine.isRunning());
+        assertEquals(reports + 120, progress.size());
+
+        source.emit(LocationSample.SOURCE_GPS, 8, clock.currentTimeMillis());
+        assertFalse(engine.isRunning());
+        assertEquals(8, fix.getAccuracyMeters(), 0);
+    }
+
+    @Test
+    public void gps_fusesSamplesIntoAFixBetterThanAnyOfThem() {
+        FakeSource source = new FakeSource();
+        LocationFixEngine engine = engine(FixPolicy.gps(), source);
+        engine.start();
+        for (int i = 0; i < 2; i++) {
+            source.emit(LocationSample.SOURCE_GPS, 45, clock.currentTimeMillis());
+            assertTrue(engine.isRunning());
+            assertEquals(LocationSample.SOURCE_FILTERED, engine.getBestFix().getSource());
+            clock.advanceBy(1000);
+        }
+        // No sample reaches 30 m, but three that agree do
+        source.emit(LocationSample.SOURCE_NETWORK, 45, clock.currentTimeMillis());
+        assertFalse(engine.isRunning());
+        assertTrue(fix.getAccuracyMeters() <= 30);
+        assertEquals(START + 2000, fixTime);
+    }
+
+    // Wi-Fi fixes alone, however well they agree, never finish the GPS search
+    @Test
+    public void gps_waitsForAGpsOrFusedSample() {
+        FakeSource source = new FakeSource();
+        LocationFixEngine engine = engine(FixPolicy.gps(), source);
+        engine.start();
+        for (int i = 0; i < 10; i++) {
+            source.emit(LocationSample.SOURCE_NETWORK, 40, clock.currentTimeMillis());
+            source.emit(LocationSample.SOURCE_PASSIVE, 40, clock.currentTimeMillis()); // the same fix again
+            clock.advanceBy(1000);
+        }
+        assertTrue(engine.isRunning());
+        assertTrue(engine.getBestFix().getAccuracyMeters() <= 30);
+
+        source.emit(LocationSample.SOURCE_FUSED, 40, clock.currentTimeMillis());
+        assertFalse(engine.isRunning());
+        assertTrue(fix.getAccuracyMeters() <= 30);
+    }
+
+    @Test
+    public void cancel_stopsSourcesAndScheduledTasks() {
+        FakeSource source = new FakeSource();
+        LocationFixEngine engine = engine(FixPolicy.network(), source);
+        engine.start();
+        source.emit(LocationSample.SOURCE_NETWORK, 700, clock.currentTimeMillis());
+
+        LocationSample best = engine.cancel();
+        assertEquals(700, best.getAccuracyMeters(), 0);
+        assertFalse(source.running);
+        assertFalse(engine.isRunning());
+
+        // Late samples and deadlines after cancelling are ignored
+        assertFalse(engine.offer(new LocationSample(LocationSample.SOURCE_NETWORK, 0, 0, 50, clock.currentTimeMillis())));
+        int eventCount = events.size();
+        int progressCount = progress.size();
+        clock.advanceBy(60_000);
+        assertEquals(eventCount, events.size());
+        assertEquals(progressCount, progress.size());
+        assertNull(fix);
+    }
+
+    /**
+     * Recorded traces of (arrival ms, accuracy m). A fix is taken when its sample arrives, where
+     * polling at the tick interval took it at the next poll.
+     */
+    @Test
+    public void timeToFix_isTheArrivalOfTheFirstGoodEnoughSample() {
+        long[][] networkTrace = {{2100, 900}, {5300, 450}, {8200, 260}, {11_400, 95}, {14_000, 60}};
+        long[][] gpsTrace = {{1000, 120}, {3000, 60}, {4200, 38}, {6100, 24}, {8000, 9}};
+
+        long networkFix = replay(FixPolicy.network(), LocationSample.SOURCE_NETWORK, networkTrace);
+        assertEquals(11_400, networkFix);
+        assertEquals(12_000, polled(networkFix, 3000));
+
+        long gpsFix = replay(FixPolicy.gps(), LocationSample.SOURCE_GPS, gpsTrace);
+        assertEquals(6100, gpsFix);
+        assertEquals(10_000, polled(gpsFix, 5000));
+    }
+
+    @Test
+    public void timeToFix_ofAHeldFixIsTheRuleTime() {
+        // 450 m becomes good enough at 30 s; 33 s was the next 3 s poll after the last sample
+        long[][] trace = {{1800, 1500}, {5300, 450}, {31_000, 700}};
+        assertEquals(30_000, replay(FixPolicy.network(), LocationSample.SOURCE_NETWORK, trace));
+    }
+
+    // Feed the trace on a virtual clock and return the elapsed time of the fix
+    private long replay(FixPolicy policy, int sourceType, long[][] trace) {
+        clock = new VirtualClock(START);
+        fix = null;
+        FakeSource source = new FakeSource();
+        engine(policy, source).start();
+        for (long[] sample : trace) {
+            clock.advanceTo(START + sample[0]);
+            if (fix != null) {
+                break;
+            }
+            source.emit(sourceType, sample[1], clock.currentTimeMillis());
+        }
+        clock.advanceBy(policy.getTimeoutMillis());
+        assertNotNull(fix);
+        return fixTime - START;
+    }
+
+    // When a poll every interval ms would first have seen a fix available at the given time
+    private static long polled(long availableMillis, long intervalMillis) {
+        return (availableMillis + intervalMillis - 1) / intervalMillis * intervalMillis;
+    }
+
+    // Tasks left on the clock once the cancelled ones have passed
+    private int pendingAfterRun() {
+        clock.advanceBy(3_600_000);
+        return clock.getPendingTaskCount();
+    }
+
+    private static <T> T last(List<T> list) {
+        return list.get(list.size() - 1);
+    }
+
+    @Test
+    public void sourceOf_mapsProviderNames() {
+        assertEquals(LocationSample.SOURCE_GPS, LocationSample.sourceOf("gps"));
+        assertEquals(LocationSample.SOURCE_NETWORK, LocationSample.sourceOf("network"));
+        assertEquals(LocationSample.SOURCE_PASSIVE, LocationSample.sourceOf("passive"));
+        assertEquals(LocationSample.SOURCE_FUSED, LocationSample.sourceOf("fused"));
+        assertEquals(LocationSample.SOURCE_OTHER, LocationSample.sourceOf(null));
+    }
+}
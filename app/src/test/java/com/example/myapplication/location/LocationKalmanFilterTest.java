@@ -0,0 +1,202 @@
+package com.example.myapplication.location;
+
+import com.example.myapplication.geo.GeoBounds;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class LocationKalmanFilterTest {
+    private static final long START = 1_700_000_000_000L;
+    private static final double LAT = 52.5;
+    private static final double LNG = 13.4;
+
+    // Point the given meters east and north of (LAT, LNG)
+    private static double latitude(double north) {
+        return LAT + north / GeoBounds.METERS_PER_DEGREE;
+    }
+
+    private static double longitude(double east) {
+        return LNG + east / (GeoBounds.METERS_PER_DEGREE * Math.cos(Math.toRadians(LAT)));
+    }
+
+    @Test
+    public void firstSampleIsTheEstimate() {
+        LocationKalmanFilter filter = new LocationKalmanFilter(2);
+        assertFalse(filter.hasEstimate());
+        assertNull(filter.getEstimate());
+
+        filter.update(LAT, LNG, 40, START);
+        LocationSample estimate = filter.getEstimate();
+        assertEquals(LocationSample.SOURCE_FILTERED, estimate.getSource());
+        assertEquals(LAT, estimate.getLatitude(), 1e-9);
+        assertEquals(LNG, estimate.getLongitude(), 1e-9);
+        assertEquals(40, estimate.getAccuracyMeters(), 1e-3);
+        assertEquals(START, estimate.getTimeMillis());
+        assertEquals(1, filter.getSampleCount());
+    }
+
+    @Test
+    public void repeatedSamplesNarrowTheAccuracy() {
+        LocationKalmanFilter filter = new LocationKalmanFilter(2);
+        float previous = Float.MAX_VALUE;
+        for (int i = 0; i < 5; i++) {
+            filter.update(LAT, LNG, 45, START + i * 1000);
+            assertTrue(filter.getAccuracyMeters() < previous);
+            previous = filter.getAccuracyMeters();
+        }
+        // Five 45 m samples agree on a fix under 30 m
+        assertTrue(previous < 30);
+        assertEquals(LAT, filter.getLatitude(), 1e-9);
+        assertEquals(LNG, filter.getLongitude(), 1e-9);
+    }
+
+    @Test
+    public void samplesCountByTheirAccuracy() {
+        LocationKalmanFilter filter = new LocationKalmanFilter(2);
+        filter.update(LAT, LNG, 10, START);
+        filter.update(latitude(500), LNG, 1000, START); // a coarse cell fix 500 m north
+        double north = GeoBounds.distanceMeters(LAT, LNG, filter.getLatitude(), filter.getLongitude());
+        assertEquals(500 * 100.0 / (100 + 1_000_000), north, 1e-3);
+        assertTrue(filter.getAccuracyMeters() < 10);
+    }
+
+    // The passive provider hands on other providers' fixes, time and all: one measurement, not two
+    @Test
+    public void repeatedSample_isBlendedInOnce() {
+        LocationKalmanFilter once = new LocationKalmanFilter(2);
+        LocationKalmanFilter twice = new LocationKalmanFilter(2);
+        for (int i = 0; i < 5; i++) {
+            double lat = latitude(10 * i);
+            once.update(lat, LNG, 40, START + i * 3000L);
+            assertTrue(twice.update(lat, LNG, 40, START + i * 3000L));
+            assertFalse(twice.update(lat, LNG, 40, START + i * 3000L));
+        }
+        assertEquals(5, twice.getSampleCount());
+        assertEquals(once.getAccuracyMeters(), twice.getAccuracyMeters(), 0);
+        assertEquals(once.getLatitude(), twice.getLatitude(), 0);
+
+        // The same place at the same time with another accuracy is another measurement
+        assertTrue(twice.update(latitude(40), LNG, 30, START + 12_000));
+    }
+
+    @Test
+    public void followsSteadyMotion() {
+        LocationKalmanFilter filter = new LocationKalmanFilter(2);
+        for (int i = 0; i <= 60; i++) {
+            filter.update(latitude(0), longitude(10 * i), 20, START + i * 1000);
+        }
+        assertEquals(10, filter.getSpeedMetersPerSecond(), 0.5);
+        assertEquals(0, GeoBounds.distanceMeters(LAT, longitude(600), filter.getLatitude(), filter.getLongitude()), 2);
+    }
+
+    @Test
+    public void olderSampleDoesNotMoveTimeBack() {
+        LocationKalmanFilter filter = new LocationKalmanFilter(2);
+        filter.update(LAT, LNG, 50, START + 10_000);
+        filter.update(LAT, LNG, 300, START); // cached passive fix
+        assertEquals(START + 10_000, filter.getTimeMillis());
+        assertEquals(START + 10_000, filter.getEstimate().getTimeMillis());
+        assertTrue(filter.getAccuracyMeters() < 50);
+    }
+
+    @Test
+    public void resetStartsOver() {
+        LocationKalmanFilter filter = new LocationKalmanFilter(2);
+        filter.update(LAT, LNG, 50, START);
+        filter.reset();
+        assertFalse(filter.hasEstimate());
+        filter.update(-33.9, 151.2, 80, START + 1000);
+        assertEquals(-33.9, filter.getLatitude(), 1e-9);
+        assertEquals(151.2, filter.getLongitude(), 1e-9);
+        assertEquals(80, filter.getAccuracyMeters(), 1e-3);
+    }
+
+    @Test
+    public void acrossTheAntimeridian() {
+        LocationKalmanFilter filter = new LocationKalmanFilter(2);
+        filter.update(0, 179.9999, 20, START);
+        filter.update(0, -179.9999, 20, START);
+        assertEquals(180, Math.abs(filter.getLongitude()), 1e-6);
+    }
+
+    /**
+     * A walk east at 1.4 m/s with 15 m of noise on each axis, one sample a second: the
+     * estimate is closer to the true track and moves in smaller steps than the raw samples.
+     */
+    @Test
+    public void noisyWalk_isSmootherAndCloserThanTheSamples() {
+        Random random = new Random(5);
+        LocationKalmanFilter filter = new LocationKalmanFilter(1);
+        double rawSquares = 0;
+        double filteredSquares = 0;
+        double rawSteps = 0;
+        double filteredSteps = 0;
+        double lastRawLat = 0, lastRawLng = 0, lastLat = 0, lastLng = 0;
+        int counted = 0;
+        for (int i = 0; i < 600; i++) {
+            double trueEast = 1.4 * i;
+            double lat = latitude(random.nextGaussian() * 15);
+            double lng = longitude(trueEast + random.nextGaussian() * 15);
+            filter.update(lat, lng, 15, START + i * 1000L);
+            if (i >= 20) { // past the first few samples
+                double raw = GeoBounds.distanceMeters(latitude(0), longitude(trueEast), lat, lng);
+                double filtered = GeoBounds.distanceMeters(latitude(0), longitude(trueEast),
+                        filter.getLatitude(), filter.getLongitude());
+                rawSquares += raw * raw;
+                filteredSquares += filtered * filtered;
+                rawSteps += GeoBounds.distanceMeters(lastRawLat, lastRawLng, lat, lng);
+                filteredSteps += GeoBounds.distanceMeters(lastLat, lastLng, filter.getLatitude(), filter.getLongitude());
+                counted++;
+            }
+            lastRawLat = lat;
+            lastRawLng = lng;
+            lastLat = filter.getLatitude();
+            lastLng = filter.getLongitude();
+        }
+        double rawError = Math.sqrt(rawSquares / counted);
+        double filteredError = Math.sqrt(filteredSquares / counted);
+        assertTrue("filtered " + filteredError + " m vs raw " + rawError + " m", filteredError < rawError / 2);
+        assertTrue(filteredSteps < rawSteps / 4);
+        // The reported accuracy is in line with the actual error
+        assertEquals(filteredError, filter.getAccuracyMeters(), filteredError / 2);
+    }
+
+    // A drive at 12 m/s with GPS each second and a coarse network fix every fifth second: the
+    // estimate stays closer to the true track than the samples
+    @Test
+    public void mixedTrace_isCloserThanTheSamples() {
+        Random random = new Random(9);
+        LocationKalmanFilter filter = new LocationKalmanFilter(2);
+        double metersPerDegreeLng = GeoBounds.METERS_PER_DEGREE * Math.cos(Math.toRadians(LAT));
+        double heading = 0;
+        double east = 0;
+        double north = 0;
+        double rawSquares = 0;
+        double filteredSquares = 0;
+        int samples = 20000;
+        for (int i = 0; i < samples; i++) {
+            heading += random.nextGaussian() * 0.05;
+            east += Math.cos(heading) * 12;
+            north += Math.sin(heading) * 12;
+            float accuracy = i % 5 == 4 ? 150 + random.nextInt(400) : 5 + random.nextInt(20);
+            double deviation = accuracy * random.nextGaussian();
+            double angle = random.nextDouble() * 2 * Math.PI;
+            double trueLat = LAT + north / GeoBounds.METERS_PER_DEGREE;
+            double trueLng = LNG + east / metersPerDegreeLng;
+            double lat = trueLat + deviation * Math.sin(angle) / GeoBounds.METERS_PER_DEGREE;
+            double lng = trueLng + deviation * Math.cos(angle) / metersPerDegreeLng;
+            filter.update(lat, lng, accuracy, START + i * 1000L);
+
+            double raw = GeoBounds.distanceMeters(trueLat, trueLng, lat, lng);
+            double filtered = GeoBounds.distanceMeters(trueLat, trueLng, filter.getLatitude(), filter.getLongitude());
+            rawSquares += raw * raw;
+            filteredSquares += filtered * filtered;
+        }
+        double rawError = Math.sqrt(rawSquares / samples);
+        double filteredError = Math.sqrt(filteredSquares / samples);
+        assertTrue("filtered " + filteredError + " m vs raw " + rawError + " m", filteredError < rawError);
+    }
+}
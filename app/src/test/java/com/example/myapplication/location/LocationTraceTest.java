@@ -0,0 +1,213 @@
+package com.example.myapplication.location;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Consumer;
+
+import static org.junit.Assert.*;
+
+public class LocationTraceTest {
+    private static final long START = 1_700_000_000_000L;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    // A drive with GPS each second and a network fix every five, some without speed or bearing
+    private static List<LocationSample> drive(int count) {
+        Random random = new Random(13);
+        List<LocationSample> samples = new ArrayList<>();
+        double lat = 48.137154;
+        double lng = 11.576124;
+        for (int i = 0; i < count; i++) {
+            lat += random.nextGaussian() * 1e-4;
+            lng += random.nextGaussian() * 1e-4;
+            if (i % 5 == 4) {
+                samples.add(new LocationSample(LocationSample.SOURCE_NETWORK, lat, lng,
+                        150 + random.nextInt(500), START + i * 1000L - random.nextInt(3000)));
+            } else {
+                samples.add(new LocationSample(LocationSample.SOURCE_GPS, lat, lng, 3 + random.nextFloat() * 20,
+                        START + i * 1000L, random.nextFloat() * 30, random.nextFloat() * 360));
+            }
+        }
+        return samples;
+    }
+
+    private static void assertSameSample(LocationSample expected, LocationSample actual) {
+        assertEquals(expected.getSource(), actual.getSource());
+        assertEquals(expected.getTimeMillis(), actual.getTimeMillis());
+        assertEquals(expected.getLatitude(), actual.getLatitude(), 0.6e-7);
+        assertEquals(expected.getLongitude(), actual.getLongitude(), 0.6e-7);
+        assertEquals(expected.getAccuracyMeters(), actual.getAccuracyMeters(), 0.051);
+        assertEquals(expected.hasSpeed(), actual.hasSpeed());
+        assertEquals(expected.hasBearing(), actual.hasBearing());
+        if (expected.hasSpeed()) {
+            assertEquals(expected.getSpeedMetersPerSecond(), actual.getSpeedMetersPerSecond(), 0.0051);
+        }
+        if (expected.hasBearing()) {
+            assertEquals(expected.getBearingDegrees() % 360, actual.getBearingDegrees(), 0.0051);
+        }
+    }
+
+    @Test
+    public void roundTripsEverySampleCompactly() throws Exception {
+        File file = new File(folder.getRoot(), "traces/trace.bin");
+        List<LocationSample> samples = drive(1000);
+        try (LocationTraceWriter writer = new LocationTraceWriter(file, 1024 * 1024, 3)) {
+            for (LocationSample sample : samples) {
+                writer.append(sample);
+            }
+            assertEquals(1000, writer.getRecordCount());
+        }
+        // Against 8 + 8 + 8 + 4 + 4 + 4 + 1 bytes of raw fields
+        assertTrue("bytes per sample " + file.length() / 1000.0, file.length() < 16 + 1000 * 16);
+
+        List<LocationSample> read = LocationTraceReader.readAll(Collections.singletonList(file));
+        assertEquals(samples.size(), read.size());
+        for (int i = 0; i < samples.size(); i++) {
+            assertSameSample(samples.get(i), read.get(i));
+        }
+        try (LocationTraceReader reader = new LocationTraceReader(new FileInputStream(file))) {
+            assertEquals(samples.get(0).getTimeMillis(), reader.getBaseTimeMillis());
+        }
+    }
+
+    @Test
+    public void extremeValuesRoundTrip() throws Exception {
+        File file = new File(folder.getRoot(), "trace.bin");
+        List<LocationSample> samples = new ArrayList<>();
+        samples.add(new LocationSample(LocationSample.SOURCE_FUSED, -90, -180, 0, 0));
+        samples.add(new LocationSample(LocationSample.SOURCE_PASSIVE, 90, 180, 99999, START, 0, 359.99f));
+        samples.add(new LocationSample(LocationSample.SOURCE_OTHER, -89.5, 179.9999999, 12.3f, START - 86_400_000L, 250, -90));
+        try (LocationTraceWriter writer = new LocationTraceWriter(file, 4096, 1)) {
+            for (LocationSample sample : samples) {
+                writer.append(sample);
+            }
+        }
+        List<LocationSample> read = LocationTraceReader.readAll(Collections.singletonList(file));
+        assertEquals(3, read.size());
+        assertSameSample(samples.get(0), read.get(0));
+        assertSameSample(samples.get(1), read.get(1));
+        assertEquals(270, read.get(2).getBearingDegrees(), 0.0051); // -90 is stored as 270
+        assertEquals(START - 86_400_000L, read.get(2).getTimeMillis());
+    }
+
+    @Test
+    public void rotatesAtTheSizeCapAndKeepsTheNewestFiles() throws Exception {
+        File file = new File(folder.getRoot(), "trace.bin");
+        List<LocationSample> samples = drive(2000);
+        List<File> files;
+        try (LocationTraceWriter writer = new LocationTraceWriter(file, 2048, 3)) {
+            for (LocationSample sample : samples) {
+                writer.append(sample);
+                assertTrue(writer.getFileBytes() <= 2048);
+            }
+            files = writer.getFiles();
+        }
+        assertEquals(3, files.size());
+        assertEquals(new File(folder.getRoot(), "trace.bin.2"), files.get(0));
+        assertEquals(file, files.get(2));
+        assertFalse(new File(folder.getRoot(), "trace.bin.3").exists());
+        for (File each : files) {
+            assertTrue(each.length() <= 2048);
+        }
+
+        // The kept files hold the last samples, each file readable on its own
+        List<LocationSample> read = LocationTraceReader.readAll(files);
+        int skipped = samples.size() - read.size();
+        assertTrue(skipped > 0);
+        for (int i = 0; i < read.size(); i++) {
+            assertSameSample(samples.get(skipped + i), read.get(i));
+        }
+    }
+
+    @Test
+    public void reopeningStartsANewFile() throws Exception {
+        File file = new File(folder.getRoot(), "trace.bin");
+        List<LocationSample> samples = drive(20);
+        try (LocationTraceWriter writer = new LocationTraceWriter(file, 4096, 2)) {
+            for (LocationSample sample : samples.subList(0, 10)) {
+                writer.append(sample);
+            }
+        }
+        List<File> files;
+        try (LocationTraceWriter writer = new LocationTraceWriter(file, 4096, 2)) {
+            for (LocationSample sample : samples.subList(10, 20)) {
+                writer.append(sample);
+            }
+            files = writer.getFiles();
+        }
+        assertEquals(2, files.size());
+        List<LocationSample> read = LocationTraceReader.readAll(files);
+        assertEquals(20, read.size());
+        assertSameSample(samples.get(10), read.get(10));
+    }
+
+    @Test
+    public void recordCutShortEndsTheTrace() throws Exception {
+        File file = new File(folder.getRoot(), "trace.bin");
+        List<LocationSample> samples = drive(10);
+        try (LocationTraceWriter writer = new LocationTraceWriter(file, 4096, 1)) {
+            for (LocationSample sample : samples) {
+                writer.append(sample);
+            }
+        }
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.setLength(raf.length() - 2);
+        }
+        List<LocationSample> read = LocationTraceReader.readAll(Collections.singletonList(file));
+        assertEquals(9, read.size());
+        assertSameSample(samples.get(8), read.get(8));
+    }
+
+    @Test(expected = IOException.class)
+    public void rejectsOtherFiles() throws Exception {
+        new LocationTraceReader(new ByteArrayInputStream(new byte[]{'M', 'T', 'P', 'K', 1, 0, 0, 0}));
+    }
+
+    @Test
+    public void recordingSourceTeesSamplesAndFlushesOnStop() throws Exception {
+        File file = new File(folder.getRoot(), "trace.bin");
+        List<LocationSample> delivered = new ArrayList<>();
+        List<IOException> errors = new ArrayList<>();
+        final List<Consumer<LocationSample>> sinks = new ArrayList<>();
+        LocationSource source = new LocationSource() {
+            @Override
+            public void start(Consumer<LocationSample> sink) {
+                sinks.add(sink);
+            }
+
+            @Override
+            public void stop() {
+            }
+        };
+        LocationTraceWriter writer = new LocationTraceWriter(file, 4096, 1);
+        RecordingLocationSource recording = new RecordingLocationSource(source, writer, errors::add);
+        recording.start(delivered::add);
+        LocationSample sample = drive(1).get(0);
+        sinks.get(0).accept(sample);
+        assertEquals(1, delivered.size());
+        assertEquals(0, file.length()); // still buffered
+
+        recording.stop();
+        assertEquals(1, LocationTraceReader.readAll(Collections.singletonList(file)).size());
+
+        // After the trace fails, samples still reach the engine and the error is reported once
+        writer.close();
+        recording.start(delivered::add);
+        sinks.get(1).accept(sample);
+        sinks.get(1).accept(sample);
+        assertEquals(3, delivered.size());
+        assertEquals(1, errors.size());
+    }
+}
@@ -0,0 +1,223 @@
+package com.example.myapplication.location;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class SampleRingBufferTest {
+    private static final long START = 1_700_000_000_000L;
+    private static final int NETWORK = LocationSample.SOURCE_NETWORK;
+
+    private static void add(SampleRingBuffer buffer, float accuracy, long offsetMillis) {
+        buffer.add(NETWORK, 52.5, 13.4, accuracy, START + offsetMillis);
+    }
+
+    @Test
+    public void keepsTheLatestSamplesOldestFirst() {
+        SampleRingBuffer buffer = new SampleRingBuffer(3, 60_000, 10);
+        assertTrue(buffer.isEmpty());
+        assertNull(buffer.getBest());
+        for (int i = 0; i < 5; i++) {
+            buffer.add(i, i, -i, 100 + i, START + i * 1000);
+        }
+        assertEquals(3, buffer.size());
+        assertEquals(3, buffer.capacity());
+        LocationSample oldest = buffer.get(0);
+        assertEquals(2, oldest.getSource());
+        assertEquals(2, oldest.getLatitude(), 0);
+        assertEquals(-2, oldest.getLongitude(), 0);
+        assertEquals(102, oldest.getAccuracyMeters(), 0);
+        assertEquals(START + 2000, oldest.getTimeMillis());
+        assertEquals(START + 4000, buffer.get(2).getTimeMillis());
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void get_outsideTheHeldSamplesThrows() {
+        SampleRingBuffer buffer = new SampleRingBuffer(4, 60_000, 10);
+        add(buffer, 100, 0);
+        buffer.get(1);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void bestOfAnEmptyBufferThrows() {
+        new SampleRingBuffer(4, 60_000, 10).getBestAccuracyMeters();
+    }
+
+    @Test
+    public void best_weighsAccuracyAgainstAge() {
+        SampleRingBuffer buffer = new SampleRingBuffer(8, 60_000, 10);
+        add(buffer, 300, 0);
+        add(buffer, 250, 1000);
+        assertEquals(250, buffer.getBestAccuracyMeters(), 0);
+        add(buffer, 340, 5000);  // 4 s newer makes up for 40 m, not 90 m
+        assertEquals(250, buffer.getBestAccuracyMeters(), 0);
+        add(buffer, 340, 11_000); // 10 s newer makes up for 100 m
+        assertEquals(340, buffer.getBestAccuracyMeters(), 0);
+        assertEquals(START + 11_000, buffer.getBestTimeMillis());
+    }
+
+    @Test
+    public void best_equalRanksGoToTheNewer() {
+        SampleRingBuffer buffer = new SampleRingBuffer(8, 60_000, 10);
+        add(buffer, 100, 0);
+        add(buffer, 110, 1000);
+        assertEquals(START + 1000, buffer.getBestTimeMillis());
+    }
+
+    @Test
+    public void best_withInfinitePenaltyIsTheNewest() {
+        SampleRingBuffer buffer = new SampleRingBuffer(8, 60_000, Float.POSITIVE_INFINITY);
+        add(buffer, 10, 0);
+        add(buffer, 500, 1000);
+        assertEquals(500, buffer.getBestAccuracyMeters(), 0);
+        add(buffer, 40, 1000); // same time: the more accurate
+        add(buffer, 60, 1000);
+        assertEquals(40, buffer.getBestAccuracyMeters(), 0);
+    }
+
+    @Test
+    public void best_doesNotDependOnArrivalOrder() {
+        float[] accuracies = {600, 570, 700, 610, 800, 450, 900};
+        long[] offsets = {0, 1000, 2000, 13_000, 30_000, 31_000, 40_000};
+        Integer[] order = {0, 1, 2, 3, 4, 5, 6};
+        Random random = new Random(42);
+        for (int round = 0; round < 50; round++) {
+            List<Integer> shuffled = new ArrayList<>(Arrays.asList(order));
+            Collections.shuffle(shuffled, random);
+            SampleRingBuffer buffer = new SampleRingBuffer(8, 60_000, 10);
+            for (int i : shuffled) {
+                add(buffer, accuracies[i], offsets[i]);
+            }
+            // 450 m at 31 s ranks 140 m ahead of 610 m at 13 s
+            assertEquals(450, buffer.getBestAccuracyMeters(), 0);
+        }
+    }
+
+    @Test
+    public void best_followsEviction() {
+        SampleRingBuffer buffer = new SampleRingBuffer(3, 600_000, 10);
+        add(buffer, 50, 0);
+        add(buffer, 400, 1000);
+        add(buffer, 300, 2000);
+        assertEquals(50, buffer.getBestAccuracyMeters(), 0);
+        add(buffer, 500, 3000); // evicts 50 m
+        assertEquals(300, buffer.getBestAccuracyMeters(), 0);
+        add(buffer, 600, 4000);
+        add(buffer, 700, 5000); // evicts 300 m
+        assertEquals(500, buffer.getBestAccuracyMeters(), 0);
+    }
+
+    @Test
+    public void expire_dropsSamplesOverTheMaximumAge() {
+        SampleRingBuffer buffer = new SampleRingBuffer(8, 30_000, 10);
+        add(buffer, 50, 0);
+        add(buffer, 400, 10_000);
+        add(buffer, 550, 20_000);
+        assertEquals(0, buffer.expire(START + 30_000));
+        assertEquals(50, buffer.getBestAccuracyMeters(), 0);
+
+        assertEquals(1, buffer.expire(START + 30_001));
+        assertEquals(2, buffer.size());
+        assertEquals(400, buffer.getBestAccuracyMeters(), 0);
+
+        assertEquals(2, buffer.expire(START + 60_000));
+        assertTrue(buffer.isEmpty());
+        assertFalse(buffer.hasBest());
+        assertNull(buffer.getBest());
+
+        add(buffer, 200, 60_000);
+        assertEquals(200, buffer.getBestAccuracyMeters(), 0);
+    }
+
+    @Test
+    public void clear_emptiesTheBuffer() {
+        SampleRingBuffer buffer = new SampleRingBuffer(2, 30_000, 10);
+        add(buffer, 50, 0);
+        add(buffer, 60, 1000);
+        add(buffer, 70, 2000);
+        buffer.clear();
+        assertEquals(0, buffer.size());
+        assertFalse(buffer.hasBest());
+        add(buffer, 90, 3000);
+        assertEquals(1, buffer.size());
+        assertEquals(90, buffer.getBestAccuracyMeters(), 0);
+    }
+
+    // The incremental best matches a scan of the held samples through a long seeded run
+    @Test
+    public void best_matchesAFullScan() {
+        Random random = new Random(7);
+        SampleRingBuffer buffer = new SampleRingBuffer(16, 20_000, 10);
+        List<LocationSample> held = new ArrayList<>();
+        long time = START;
+        for (int i = 0; i < 5000; i++) {
+            time += random.nextInt(3000);
+            if (random.nextInt(10) == 0) {
+                buffer.expire(time);
+                final long now = time;
+                held.removeIf(sample -> now - sample.getTimeMillis() > 20_000);
+            } else {
+                float accuracy = 20 + random.nextInt(1000);
+                buffer.add(NETWORK, 0, 0, accuracy, time);
+                held.add(new LocationSample(NETWORK, 0, 0, accuracy, time));
+                if (held.size() > 16) {
+                    held.remove(0);
+                }
+            }
+            assertEquals(held.size(), buffer.size());
+            LocationSample expected = scan(held, 10);
+            if (expected == null) {
+                assertFalse(buffer.hasBest());
+            } else {
+                assertEquals(expected.getAccuracyMeters(), buffer.getBestAccuracyMeters(), 0);
+                assertEquals(expected.getTimeMillis(), buffer.getBestTimeMillis());
+            }
+        }
+    }
+
+    // The network search's buffer, expired and filled a sample at a time through a long session,
+    // picks the best of its latest samples under the maximum age
+    @Test
+    public void networkPolicy_matchesAScanOfTheLatestSamples() {
+        FixPolicy policy = FixPolicy.network();
+        SampleRingBuffer buffer = policy.newSampleBuffer();
+        List<LocationSample> held = new ArrayList<>();
+        Random random = new Random(3);
+        long time = START;
+        for (int i = 0; i < 10000; i++) {
+            time += 500 + random.nextInt(1000);
+            float accuracy = 20 + random.nextInt(1500);
+            buffer.expire(time);
+            buffer.add(NETWORK, 52.5, 13.4, accuracy, time);
+
+            final long now = time;
+            held.removeIf(sample -> now - sample.getTimeMillis() > policy.getMaxSampleAgeMillis());
+            held.add(new LocationSample(NETWORK, 52.5, 13.4, accuracy, time));
+            if (held.size() > policy.getSampleCapacity()) {
+                held.remove(0);
+            }
+            LocationSample expected = scan(held, policy.getAgePenaltyMetersPerSecond());
+            assertEquals(expected.getAccuracyMeters(), buffer.getBestAccuracyMeters(), 0);
+            assertEquals(expected.getTimeMillis(), buffer.getBestTimeMillis());
+        }
+    }
+
+    private static LocationSample scan(List<LocationSample> samples, float metersPerSecond) {
+        LocationSample best = null;
+        double bestRank = 0;
+        for (LocationSample sample : samples) {
+            double rank = sample.getAccuracyMeters() - (sample.getTimeMillis() - START) * (metersPerSecond / 1000.0);
+            if (best == null || rank <= bestRank) {
+                best = sample;
+                bestRank = rank;
+            }
+        }
+        return best;
+    }
+}
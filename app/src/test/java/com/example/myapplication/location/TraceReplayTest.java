@@ -0,0 +1,160 @@
+package com.example.myapplication.location;
+
+import org.junit.Assume;
+import org.junit.Test;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.Assert.*;
+
+/**
+ * Time to fix and error of both searches over generated traces, and over field recordings
+ * when run with -DlocationTraceDir=path/to/traces.
+ */
+public class TraceReplayTest {
+    private static final long START = 1_700_000_000_000L;
+    private static final double LAT = 48.137154;
+    private static final double LNG = 11.576124;
+    private static final int TRACES = 2000;
+    // trace.bin and its rotations trace.bin.1, trace.bin.2, ...
+    private static final Pattern TRACE_FILE = Pattern.compile("trace\\.bin(?:\\.(\\d+))?");
+
+    private interface Generator {
+        List<LocationSample> generate(Random random, long startMillis, double latitude, double longitude);
+    }
+
+    private static TraceReplay.Summary run(String name, FixPolicy policy, Generator generator, long seed) {
+        Random random = new Random(seed);
+        TraceReplay.Summary summary = new TraceReplay.Summary(name);
+        for (int i = 0; i < TRACES; i++) {
+            summary.add(TraceReplay.replay(policy, generator.generate(random, START, LAT, LNG), START, LAT, LNG));
+        }
+        return summary;
+    }
+
+    @Test
+    public void networkSearch() {
+        TraceReplay.Summary summary = run("network", FixPolicy.network(), SyntheticTraces::network, 1);
+        // Every search ends with a fix by the 45 s timeout, since every trace has network fixes
+        assertEquals(summary.toString(), TRACES, summary.getFixes());
+        assertTrue(summary.toString(), summary.timeToFixPercentile(99) <= 45_000);
+        assertTrue(summary.toString(), summary.errorPercentile(50) < 500);
+    }
+
+    @Test
+    public void gpsSearch() {
+        TraceReplay.Summary summary = run("gps", FixPolicy.gps(), SyntheticTraces::gps, 2);
+        assertTrue(summary.toString(), summary.getFixes() > TRACES * 9 / 10);
+        assertTrue(summary.toString(), summary.errorPercentile(50) < 30);
+    }
+
+    // Fusion is what the GPS search gained over taking the newest sample
+    @Test
+    public void gpsSearch_fusionFixesSooner() {
+        TraceReplay.Summary fused = run("gps fused", FixPolicy.gps(), SyntheticTraces::gps, 3);
+        TraceReplay.Summary newest = run("gps newest", FixPolicy.gps().setFusion(0), SyntheticTraces::gps, 3);
+        String report = fused + "\n" + newest;
+        assertTrue(report, fused.timeToFixPercentile(50) < newest.timeToFixPercentile(50));
+        assertTrue(report, fused.getFixes() >= newest.getFixes());
+    }
+
+    /**
+     * The network tiers against a stricter variant: waiting longer for the 300 and 500 m tiers
+     * trades time to fix for median error. The tail is set by traces without Wi-Fi, where no
+     * amount of waiting helps. Adjust the variant to try other thresholds.
+     */
+    @Test
+    public void networkTiers_comparedWithAStricterVariant() {
+        FixPolicy stricter = new FixPolicy()
+                .setAcceptGps(false)
+                .setTimeoutMillis(45000)
+                .setTickIntervalMillis(3000)
+                .addCompletionRule(100, 0)
+                .addCompletionRule(300, 25000)
+                .addCompletionRule(500, 40000);
+        TraceReplay.Summary current = run("network 100/300@15s/500@30s", FixPolicy.network(), SyntheticTraces::network, 4);
+        TraceReplay.Summary variant = run("network 100/300@25s/500@40s", stricter, SyntheticTraces::network, 4);
+        String report = current + "\n" + variant;
+        assertTrue(report, variant.timeToFixPercentile(50) >= current.timeToFixPercentile(50));
+        assertTrue(report, variant.errorPercentile(50) < current.errorPercentile(50));
+    }
+
+    @Test
+    public void replayIsDeterministic() {
+        List<LocationSample> trace = SyntheticTraces.network(new Random(99), START, LAT, LNG);
+        TraceReplay.Result first = TraceReplay.replay(FixPolicy.network(), trace, START, LAT, LNG);
+        TraceReplay.Result second = TraceReplay.replay(FixPolicy.network(), trace, START, LAT, LNG);
+        assertEquals(first.getTimeToFixMillis(), second.getTimeToFixMillis());
+        assertEquals(first.getErrorMeters(), second.getErrorMeters(), 0);
+        assertEquals(SyntheticTraces.network(new Random(99), START, LAT, LNG).size(), trace.size());
+    }
+
+    @Test
+    public void replay_cachedFixArrivesAtTheStart() {
+        List<LocationSample> trace = Arrays.asList(
+                new LocationSample(LocationSample.SOURCE_PASSIVE, LAT, LNG, 80, START - 60_000),
+                new LocationSample(LocationSample.SOURCE_NETWORK, LAT, LNG, 400, START + 3000));
+        TraceReplay.Result result = TraceReplay.replay(FixPolicy.network(), trace, START, LAT, LNG);
+        assertEquals(0, result.getTimeToFixMillis()); // 80 m is under the 100 m tier
+        assertEquals(80, result.getFix().getAccuracyMeters(), 0);
+        assertEquals(0, result.getErrorMeters(), 1e-6);
+    }
+
+    @Test
+    public void replay_withoutAnyFixReportsNone() {
+        List<LocationSample> trace = Arrays.asList(
+                new LocationSample(LocationSample.SOURCE_GPS, LAT, LNG, 5, START + 1000));
+        TraceReplay.Result result = TraceReplay.replay(FixPolicy.network(), trace, START, LAT, LNG);
+        assertFalse(result.hasFix());
+        assertEquals(-1, result.getTimeToFixMillis());
+        assertTrue(Double.isNaN(result.getErrorMeters()));
+        assertEquals(45_000, result.getSimulatedMillis());
+    }
+
+    @Test
+    public void splitSearches_atGapsInTime() {
+        List<LocationSample> samples = new ArrayList<>();
+        for (long t : new long[]{0, 3000, 6000, 400_000, 403_000, 402_000, 900_000}) {
+            samples.add(new LocationSample(LocationSample.SOURCE_NETWORK, LAT, LNG, 100, START + t));
+        }
+        List<List<LocationSample>> searches = TraceReplay.splitSearches(samples, 120_000);
+        assertEquals(3, searches.size());
+        assertEquals(3, searches.get(0).size());
+        assertEquals(3, searches.get(1).size());
+        assertEquals(1, searches.get(2).size());
+    }
+
+    // Field recordings from the trace recorder, split into searches and replayed in both modes
+    @Test
+    public void recordedTraces() throws Exception {
+        String directory = System.getProperty("locationTraceDir", "");
+        Assume.assumeFalse("No -DlocationTraceDir given", directory.isEmpty());
+        File[] files = new File(directory).listFiles((dir, name) -> TRACE_FILE.matcher(name).matches());
+        assertNotNull("Not a directory: " + directory, files);
+        // trace.bin.N is older for larger N, and trace.bin is the newest
+        Arrays.sort(files, (a, b) -> Integer.compare(rotation(b), rotation(a)));
+        List<List<LocationSample>> searches = TraceReplay.splitSearches(LocationTraceReader.readAll(Arrays.asList(files)), 120_000);
+
+        TraceReplay.Summary gps = new TraceReplay.Summary("recorded gps");
+        TraceReplay.Summary network = new TraceReplay.Summary("recorded network");
+        for (List<LocationSample> search : searches) {
+            gps.add(TraceReplay.replay(FixPolicy.gps(), search));
+            network.add(TraceReplay.replay(FixPolicy.network(), search));
+        }
+        String report = searches.size() + " recorded searches\n" + gps + "\n" + network;
+        assertFalse(report, searches.isEmpty());
+        assertEquals(report, searches.size(), gps.getRuns());
+        assertEquals(report, searches.size(), network.getRuns());
+    }
+
+    private static int rotation(File file) {
+        Matcher matcher = TRACE_FILE.matcher(file.getName());
+        return matcher.matches() && matcher.group(1) != null ? Integer.parseInt(matcher.group(1)) : 0;
+    }
+}
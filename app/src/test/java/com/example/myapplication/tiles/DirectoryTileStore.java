@@ -0,0 +1,71 @@
+package com.example.myapplication.tiles;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+/**
+ * Simple tile store for the prefetcher tests that keeps each tile as a file under
+ * root/z/x/y.tile; the region id is not recorded.
+ */
+public class DirectoryTileStore implements TileStore {
+    private final File rootDir;
+
+    public DirectoryTileStore(File rootDir) {
+        this.rootDir = rootDir;
+    }
+
+    @Override
+    public void putTile(long regionId, int zoom, int x, int y, byte[] data) throws IOException {
+        File file = tileFile(zoom, x, y);
+        File parent = file.getParentFile();
+        if (parent != null && !parent.isDirectory() && !parent.mkdirs() && !parent.isDirectory()) {
+            throw new IOException("Could not create tile directory " + parent);
+        }
+
+        // Write to a temp file first so a crash never leaves a truncated tile behind
+        File tmp = new File(file.getPath() + ".tmp");
+        try (FileOutputStream out = new FileOutputStream(tmp)) {
+            out.write(data);
+        }
+        if (!tmp.renameTo(file)) {
+            tmp.delete();
+            throw new IOException("Could not move tile into place: " + file);
+        }
+    }
+
+    @Override
+    public byte[] getTile(int zoom, int x, int y) throws IOException {
+        File file = tileFile(zoom, x, y);
+        if (!file.isFile()) {
+            return null;
+        }
+        byte[] data = new byte[(int) file.length()];
+        try (FileInputStream in = new FileInputStream(file)) {
+            int offset = 0;
+            while (offset < data.length) {
+                int read = in.read(data, offset, data.length - offset);
+                if (read < 0) {
+                    throw new IOException("Tile file truncated: " + file);
+                }
+                offset += read;
+            }
+        }
+        return data;
+    }
+
+    @Override
+    public boolean hasTile(int zoom, int x, int y) {
+        return tileFile(zoom, x, y).isFile();
+    }
+
+    @Override
+    public void flush() {
+        // Every put is written through
+    }
+
+    private File tileFile(int zoom, int x, int y) {
+        return new File(rootDir, zoom + File.separator + x + File.separator + y + ".tile");
+    }
+}
@@ -0,0 +1,106 @@
+package com.example.myapplication.tiles;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.*;
+
+public class PackedTileArchiveTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void quadKey_roundTripsCoordinates() {
+        int[][] tiles = {{0, 0, 0}, {1, 1, 0}, {14, 4823, 6160}, {22, (1 << 22) - 1, 12345}};
+        for (int[] tile : tiles) {
+            long key = TileMath.quadKey(tile[0], tile[1], tile[2]);
+            assertEquals(tile[0], TileMath.quadKeyZoom(key));
+            assertEquals(tile[1], TileMath.quadKeyX(key));
+            assertEquals(tile[2], TileMath.quadKeyY(key));
+        }
+        // Lower zoom levels always sort first
+        assertTrue(TileMath.quadKey(10, 1023, 1023) < TileMath.quadKey(11, 0, 0));
+    }
+
+    @Test
+    public void archive_returnsEveryTileWrittenInAnyOrder() throws Exception {
+        File file = new File(folder.getRoot(), "region.mtpk");
+        TileRange range = new TileRange(40.66, -74.06, 40.76, -73.96, 10, 15);
+        try (PackedTileArchiveWriter writer = new PackedTileArchiveWriter(file)) {
+            // Write back to front so the directory has to be sorted
+            for (long i = range.size() - 1; i >= 0; i--) {
+                long key = range.keyAt(i);
+                writer.addTile(TileMath.keyZoom(key), TileMath.keyX(key), TileMath.keyY(key), payload(key));
+            }
+            writer.finish();
+        }
+
+        try (PackedTileArchive archive = PackedTileArchive.open(file)) {
+            assertEquals(range.size(), archive.getTileCount());
+            for (long i = 0; i < range.size(); i++) {
+                long key = range.keyAt(i);
+                ByteBuffer tile = archive.getTile(TileMath.keyZoom(key), TileMath.keyX(key), TileMath.keyY(key));
+                assertNotNull(tile);
+                assertTrue(tile.isReadOnly());
+                byte[] data = new byte[tile.remaining()];
+                tile.get(data);
+                assertArrayEquals(payload(key), data);
+            }
+            assertFalse(archive.hasTile(9, 0, 0));
+            assertNull(archive.getTile(16, 1, 1));
+        }
+    }
+
+    @Test
+    public void archive_storesIdenticalPayloadsOnce() throws Exception {
+        File file = new File(folder.getRoot(), "water.mtpk");
+        byte[] water = new byte[4096];
+        try (PackedTileArchiveWriter writer = new PackedTileArchiveWriter(file)) {
+            for (int x = 0; x < 50; x++) {
+                writer.addTile(14, x, 0, water);
+            }
+            writer.addTile(14, 0, 1, payload(1));
+            writer.finish();
+            assertEquals(water.length + payload(1).length, writer.getPayloadBytes());
+            TileDedupStats stats = writer.getDedupStats();
+            assertEquals(51, stats.getTileCount());
+            assertEquals(2, stats.getUniqueTileCount());
+            assertEquals(50L * water.length + payload(1).length, stats.getLogicalBytes());
+            assertEquals(writer.getPayloadBytes(), stats.getStoredBytes());
+        }
+        assertTrue(file.length() < 2 * water.length);
+
+        try (PackedTileArchive archive = PackedTileArchive.open(file)) {
+            assertEquals(51, archive.getTileCount());
+            assertEquals(water.length, archive.getTile(14, 49, 0).remaining());
+        }
+    }
+
+    @Test
+    public void tileHash_matchesMurmur3ReferenceVector() {
+        // MurmurHash3_x64_128("hello", seed 0)
+        TileHash hash = TileHash.of("hello".getBytes(StandardCharsets.US_ASCII));
+        assertEquals(0xcbd8a7b341bd9b02L, hash.getHigh());
+        assertEquals(0x5b1e906a48ae1d19L, hash.getLow());
+        assertNotEquals(TileHash.of(new byte[17]), TileHash.of(new byte[18]));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void finish_rejectsDuplicateTiles() throws Exception {
+        try (PackedTileArchiveWriter writer = new PackedTileArchiveWriter(new File(folder.getRoot(), "dup.mtpk"))) {
+            writer.addTile(12, 5, 5, new byte[]{1});
+            writer.addTile(12, 5, 5, new byte[]{2});
+            writer.finish();
+        }
+    }
+
+    private static byte[] payload(long key) {
+        return ("tile-" + key).getBytes(StandardCharsets.US_ASCII);
+    }
+}
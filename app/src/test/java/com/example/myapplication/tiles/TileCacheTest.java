@@ -0,0 +1,120 @@
+package com.example.myapplication.tiles;
+
+import org.junit.Test;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.*;
+
+public class TileCacheTest {
+
+    @Test
+    public void put_evictsLeastRecentlyUsedByBytes() {
+        TileCache cache = new TileCache(300, 1);
+        cache.put(10, 1, 1, new byte[100]);
+        cache.put(10, 1, 2, new byte[100]);
+        cache.put(10, 1, 3, new byte[100]);
+
+        // Touch the oldest entry so the second one becomes least recently used
+        assertNotNull(cache.get(10, 1, 1));
+        cache.put(10, 1, 4, new byte[150]);
+
+        assertNotNull(cache.get(10, 1, 1));
+        assertNull(cache.get(10, 1, 2));
+        assertNull(cache.get(10, 1, 3));
+        assertNotNull(cache.get(10, 1, 4));
+        assertEquals(250, cache.getSizeBytes());
+        assertEquals(2, cache.getEvictionCount());
+        assertEquals(3, cache.getHitCount());
+        assertEquals(2, cache.getMissCount());
+    }
+
+    @Test
+    public void put_skipsTilesLargerThanBudget() {
+        TileCache cache = new TileCache(100, 1);
+        cache.put(12, 3, 3, new byte[101]);
+        assertNull(cache.get(12, 3, 3));
+        assertEquals(0, cache.getSizeBytes());
+    }
+
+    @Test
+    public void trimToSize_releasesMemory() {
+        TileCache cache = new TileCache(1 << 20, 4);
+        for (int i = 0; i < 1000; i++) {
+            cache.put(14, i, i, new byte[512]);
+        }
+        cache.trimToSize(64 * 1024);
+        assertTrue(cache.getSizeBytes() <= 64 * 1024);
+        cache.clear();
+        assertEquals(0, cache.getSizeBytes());
+        assertEquals(0, cache.getEntryCount());
+    }
+
+    @Test
+    public void randomOperations_matchReferenceLru() {
+        long budget = 64 * 100;
+        TileCache cache = new TileCache(budget, 1);
+        LinkedHashMap<Long, byte[]> reference = new LinkedHashMap<>(16, 0.75f, true);
+        long referenceBytes = 0;
+        Random random = new Random(1);
+
+        for (int i = 0; i < 200000; i++) {
+            long key = TileMath.packKey(16, random.nextInt(300), random.nextInt(4));
+            int op = random.nextInt(10);
+            if (op < 5) {
+                byte[] expected = reference.get(key);
+                assertSame(expected, cache.get(key));
+            } else if (op < 9) {
+                byte[] value = new byte[1 + random.nextInt(128)];
+                byte[] old = reference.put(key, value);
+                referenceBytes += value.length - (old != null ? old.length : 0);
+                Iterator<Map.Entry<Long, byte[]>> it = reference.entrySet().iterator();
+                while (referenceBytes > budget) {
+                    referenceBytes -= it.next().getValue().length;
+                    it.remove();
+                }
+                cache.put(key, value);
+            } else {
+                byte[] old = reference.remove(key);
+                if (old != null) {
+                    referenceBytes -= old.length;
+                }
+                cache.remove(key);
+            }
+            assertEquals(referenceBytes, cache.getSizeBytes());
+        }
+        assertEquals(reference.size(), cache.getEntryCount());
+    }
+
+    @Test
+    public void concurrentReadersAndWriters_stayWithinBudget() throws Exception {
+        final TileCache cache = new TileCache(256 * 1024);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        Future<?>[] futures = new Future<?>[8];
+        for (int t = 0; t < futures.length; t++) {
+            final int seed = t;
+            futures[t] = executor.submit(() -> {
+                Random random = new Random(seed);
+                for (int i = 0; i < 50000; i++) {
+                    int x = random.nextInt(2000);
+                    if (cache.get(15, x, 7) == null) {
+                        cache.put(15, x, 7, new byte[256 + random.nextInt(1024)]);
+                    }
+                }
+            });
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+
+        assertTrue(cache.getSizeBytes() <= 256 * 1024);
+        assertEquals(8 * 50000, cache.getHitCount() + cache.getMissCount());
+    }
+}
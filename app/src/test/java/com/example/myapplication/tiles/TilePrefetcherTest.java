@@ -0,0 +1,206 @@
+package com.example.myapplication.tiles;
+
+import com.sun.net.httpserver.HttpServer;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+/**
+ * Runs the prefetcher against a local stand-in tile server.
+ */
+public class TilePrefetcherTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private HttpServer server;
+    private final AtomicInteger requests = new AtomicInteger();
+    private String urlTemplate;
+    private volatile boolean failZoom13;
+    // When set, tile bodies are padded to this many bytes; sent chunked on odd columns, so
+    // without a Content-Length
+    private volatile int largeTileBytes;
+
+    @Before
+    public void startServer() throws Exception {
+        // Without this the stand-in server's split writes stall on delayed ACKs
+        System.setProperty("sun.net.httpserver.nodelay", "true");
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/tiles/", exchange -> {
+            requests.incrementAndGet();
+            // Path is /tiles/z/x/y.png, echo the coordinates back as the tile body
+            String path = exchange.getRequestURI().getPath();
+            String[] parts = path.substring("/tiles/".length(), path.length() - ".png".length()).split("/");
+            if (failZoom13 && parts[0].equals("13")) {
+                exchange.sendResponseHeaders(503, -1);
+                exchange.close();
+                return;
+            }
+            if (Integer.parseInt(parts[0]) > 14) {
+                exchange.sendResponseHeaders(404, -1);
+                exchange.close();
+                return;
+            }
+            byte[] body = (parts[0] + "/" + parts[1] + "/" + parts[2]).getBytes(StandardCharsets.US_ASCII);
+            if (largeTileBytes > 0) {
+                body = Arrays.copyOf(body, largeTileBytes);
+            }
+            boolean chunked = largeTileBytes > 0 && Integer.parseInt(parts[1]) % 2 == 1;
+            exchange.sendResponseHeaders(200, chunked ? 0 : body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        server.setExecutor(Executors.newFixedThreadPool(8));
+        server.start();
+        urlTemplate = "http://127.0.0.1:" + server.getAddress().getPort() + "/tiles/{z}/{x}/{y}.png";
+    }
+
+    @After
+    public void stopServer() {
+        server.stop(0);
+    }
+
+    @Test
+    public void tileRange_matchesPerZoomCounts() {
+        TileRange range = new TileRange(40.66, -74.06, 40.76, -73.96, 10, 14);
+        long sum = 0;
+        for (int zoom = 10; zoom <= 14; zoom++) {
+            long count = TileMath.tileCount(40.66, -74.06, 40.76, -73.96, zoom);
+            assertEquals(count, range.sizeAtZoom(zoom));
+            sum += count;
+        }
+        assertEquals(sum, range.size());
+
+        long first = range.keyAt(0);
+        assertEquals(10, TileMath.keyZoom(first));
+        assertEquals(TileMath.lngToTileX(-74.06, 10), TileMath.keyX(first));
+        assertEquals(TileMath.latToTileY(40.76, 10), TileMath.keyY(first));
+        assertEquals(14, TileMath.keyZoom(range.keyAt(range.size() - 1)));
+    }
+
+    @Test
+    public void prefetch_storesEveryTileAndReportsThroughput() throws Exception {
+        DirectoryTileStore store = new DirectoryTileStore(folder.newFolder("tiles"));
+        PrefetchConfig config = new PrefetchConfig(urlTemplate, 10, 14).setThreadCount(4);
+        TilePrefetcher prefetcher = new TilePrefetcher(config, store);
+        TileRange range = prefetcher.rangeFor(40.66, -74.06, 40.76, -73.96);
+
+        PrefetchStats stats = prefetcher.prefetch(1, range, null);
+
+        assertEquals(stats.toString(), range.size(), stats.getTilesFetched());
+        assertEquals(stats.toString(), 0, stats.getTilesFailed());
+        assertTrue(stats.toString(), stats.isComplete());
+        assertTrue(stats.toString(), stats.getTilesPerSecond() > 0);
+        assertTrue(stats.toString(), stats.getBytesPerSecond() > 0);
+
+        long key = range.keyAt(range.size() / 2);
+        String expected = TileMath.keyZoom(key) + "/" + TileMath.keyX(key) + "/" + TileMath.keyY(key);
+        byte[] tile = store.getTile(TileMath.keyZoom(key), TileMath.keyX(key), TileMath.keyY(key));
+        assertEquals(expected, new String(tile, StandardCharsets.US_ASCII));
+    }
+
+    @Test
+    public void prefetch_fetchesTilesLargerThanTheBufferInOneRequest() throws Exception {
+        largeTileBytes = 100_000;
+        DirectoryTileStore store = new DirectoryTileStore(folder.newFolder("tiles"));
+        TilePrefetcher prefetcher = new TilePrefetcher(new PrefetchConfig(urlTemplate, 12, 13), store);
+        TileRange range = prefetcher.rangeFor(40.66, -74.06, 40.76, -73.96);
+
+        PrefetchStats stats = prefetcher.prefetch(1, range, null);
+
+        assertEquals(range.size(), stats.getTilesFetched());
+        assertEquals("one request per tile", range.size(), requests.get());
+        for (TileRange.Cursor tile = range.cursor(0); tile.hasTile(); tile.next()) {
+            byte[] data = store.getTile(tile.getZoom(), tile.getX(), tile.getY());
+            assertEquals(largeTileBytes, data.length);
+            String expected = tile.getZoom() + "/" + tile.getX() + "/" + tile.getY();
+            assertEquals(expected, new String(data, 0, expected.length(), StandardCharsets.US_ASCII));
+        }
+    }
+
+    @Test
+    public void prefetch_skipsStoredTilesOnSecondRun() throws Exception {
+        DirectoryTileStore store = new DirectoryTileStore(folder.newFolder("tiles"));
+        TilePrefetcher prefetcher = new TilePrefetcher(new PrefetchConfig(urlTemplate, 10, 13), store);
+        TileRange range = prefetcher.rangeFor(40.66, -74.06, 40.76, -73.96);
+
+        prefetcher.prefetch(1, range, null);
+        int requestsAfterFirstRun = requests.get();
+        PrefetchStats second = prefetcher.prefetch(1, range, null);
+
+        assertEquals(requestsAfterFirstRun, requests.get());
+        assertEquals(range.size(), second.getTilesSkipped());
+        assertEquals(0, second.getTilesFetched());
+    }
+
+    @Test
+    public void prefetch_countsMissingTilesWithoutRetrying() throws Exception {
+        DirectoryTileStore store = new DirectoryTileStore(folder.newFolder("tiles"));
+        PrefetchConfig config = new PrefetchConfig(urlTemplate, 15, 15).setMaxRetries(3);
+        TilePrefetcher prefetcher = new TilePrefetcher(config, store);
+        TileRange range = prefetcher.rangeFor(40.70, -74.02, 40.72, -74.00);
+
+        PrefetchStats stats = prefetcher.prefetch(1, range, null);
+
+        assertEquals(range.size(), stats.getTilesMissing());
+        assertEquals(range.size(), requests.get());
+        assertEquals(0, stats.getTilesFailed());
+    }
+
+    @Test
+    public void prefetch_resumesFromCheckpointAfterFailures() throws Exception {
+        DirectoryTileStore store = new DirectoryTileStore(folder.newFolder("tiles"));
+        TilePrefetcher prefetcher = new TilePrefetcher(new PrefetchConfig(urlTemplate, 10, 14).setMaxRetries(0), store);
+        TileRange range = prefetcher.rangeFor(40.40, -74.40, 40.90, -73.70);
+        BitSetCheckpoint checkpoint = new BitSetCheckpoint();
+
+        failZoom13 = true;
+        PrefetchStats first = prefetcher.prefetch(1, range, checkpoint, null);
+        long zoom13 = range.sizeAtZoom(13);
+        assertEquals(zoom13, first.getTilesFailed());
+        assertTrue(checkpoint.done.cardinality() < TilePrefetcher.chunkCount(range.size()));
+
+        // Connection is back: only the zoom 13 tiles are requested again
+        failZoom13 = false;
+        requests.set(0);
+        PrefetchStats second = prefetcher.prefetch(1, range, checkpoint, null);
+        assertEquals(zoom13, requests.get());
+        assertEquals(zoom13, second.getTilesFetched());
+        assertTrue(second.isComplete());
+        assertEquals(TilePrefetcher.chunkCount(range.size()), checkpoint.done.cardinality());
+
+        // Completed chunks are trusted without even asking the store
+        requests.set(0);
+        new TilePrefetcher(new PrefetchConfig(urlTemplate, 10, 14),
+                new DirectoryTileStore(folder.newFolder("empty"))).prefetch(1, range, checkpoint, null);
+        assertEquals(0, requests.get());
+    }
+
+    private static class BitSetCheckpoint implements TilePrefetcher.Checkpoint {
+        final BitSet done = new BitSet();
+
+        @Override
+        public synchronized boolean isChunkComplete(int chunk) {
+            return done.get(chunk);
+        }
+
+        @Override
+        public synchronized void markChunkComplete(int chunk) {
+            done.set(chunk);
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package com.example.myapplication.tiles;
+
+import com.sun.net.httpserver.HttpServer;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks download estimates against a local stand-in tile server whose tiles are
+ * 100 bytes per zoom level, with no tiles above zoom 16.
+ */
+public class TileSizeEstimatorTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private HttpServer server;
+    private final AtomicInteger requests = new AtomicInteger();
+    private String urlTemplate;
+
+    @Before
+    public void startServer() throws Exception {
+        System.setProperty("sun.net.httpserver.nodelay", "true");
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/tiles/", exchange -> {
+            requests.incrementAndGet();
+            String path = exchange.getRequestURI().getPath();
+            int zoom = Integer.parseInt(path.split("/")[2]);
+            if (zoom > 16) {
+                exchange.sendResponseHeaders(404, -1);
+                exchange.close();
+                return;
+            }
+            byte[] body = new byte[100 * zoom];
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        server.setExecutor(Executors.newFixedThreadPool(4));
+        server.start();
+        urlTemplate = "http://127.0.0.1:" + server.getAddress().getPort() + "/tiles/{z}/{x}/{y}.png";
+    }
+
+    @After
+    public void stopServer() {
+        server.stop(0);
+    }
+
+    @Test
+    public void estimate_countsExactlyAndSamplesFewTilesUpToZoom18() throws Exception {
+        DirectoryTileStore store = new DirectoryTileStore(folder.newFolder("tiles"));
+        TilePrefetcher prefetcher = new TilePrefetcher(new PrefetchConfig(urlTemplate, 10, 18), store);
+        TileRange range = prefetcher.rangeFor(40.66, -74.06, 40.76, -73.96);
+
+        long start = System.nanoTime();
+        DownloadEstimate estimate = new TileSizeEstimator(store, prefetcher).estimate(range);
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+
+        long total = 0;
+        for (int zoom = 10; zoom <= 18; zoom++) {
+            long count = TileMath.tileCount(40.66, -74.06, 40.76, -73.96, zoom);
+            assertEquals(count, estimate.getTileCount(zoom));
+            assertEquals(zoom > 16 ? 0 : 100L * zoom * count, estimate.getEstimatedBytes(zoom));
+            total += count;
+        }
+        assertEquals(total, estimate.getTileCount());
+        assertTrue(requests.get() <= 9 * TileSizeEstimator.DEFAULT_SAMPLES_PER_ZOOM);
+        assertEquals(requests.get(), estimate.getSampledTiles());
+        assertTrue("Estimate took " + elapsedMillis + " ms", elapsedMillis < 2000);
+    }
+
+    @Test
+    public void estimate_prefersStoredTilesAndFillsUnmeasuredLevels() throws Exception {
+        DirectoryTileStore store = new DirectoryTileStore(folder.newFolder("tiles"));
+        TileRange range = new TileRange(40.66, -74.06, 40.76, -73.96, 10, 12);
+        for (int x = range.getMinX(10); x <= range.getMaxX(10); x++) {
+            for (int y = range.getMinY(10); y <= range.getMaxY(10); y++) {
+                store.putTile(1, 10, x, y, new byte[500]);
+            }
+        }
+
+        // No server at all: zoom 10 is measured from the store, 11 and 12 reuse its mean
+        DownloadEstimate estimate = new TileSizeEstimator(store, null).estimate(range);
+
+        assertTrue(estimate.getSampledTiles() > 0);
+        for (int zoom = 10; zoom <= 12; zoom++) {
+            assertEquals(500 * range.sizeAtZoom(zoom), estimate.getEstimatedBytes(zoom));
+        }
+        assertEquals(0, requests.get());
+    }
+
+    @Test
+    public void countTiles_needsNoSamples() {
+        TileRange range = new TileRange(40.66, -74.06, 40.76, -73.96, 10, 18);
+        DownloadEstimate estimate = TileSizeEstimator.countTiles(range);
+        assertEquals(range.size(), estimate.getTileCount());
+        assertEquals(range.size() * TileSizeEstimator.FALLBACK_TILE_BYTES, estimate.getEstimatedBytes());
+        assertEquals(0, estimate.getSampledTiles());
+    }
+}
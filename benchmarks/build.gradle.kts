@@ -0,0 +1,54 @@
+// JMH benchmarks for the framework-free hot paths of :app. A JVM module can't depend on an
+// Android application module, so the app's pure sources are compiled here as this module's
+// main source set, and the benchmarks under src/jmh run against them and :geo-core.
+//
+//   ./gradlew :benchmarks:jmh                       all benchmarks
+//   ./gradlew :benchmarks:jmh -PjmhIncludes=TileMath  a subset, by regex
+//
+// Results are written as JSON to build/results/jmh/results.json, or to -PjmhResultsFile=path,
+// so runs can be kept and compared over time.
+plugins {
+    java
+    alias(libs.plugins.jmh)
+}
+
+java {
+    sourceCompatibility = JavaVersion.VERSION_11
+    targetCompatibility = JavaVersion.VERSION_11
+}
+
+sourceSets {
+    main {
+        java {
+            srcDir("../app/src/main/java")
+            include(
+                "com/example/myapplication/location/**",
+                "com/example/myapplication/model/DownloadedMap.java"
+            )
+            // Location sources backed by Android services
+            exclude(
+                "com/example/myapplication/location/FusedLocationSource.java",
+                "com/example/myapplication/location/HandlerScheduler.java",
+                "com/example/myapplication/location/ProviderLocationSource.java"
+            )
+        }
+    }
+}
+
+dependencies {
+    implementation(project(":geo-core"))
+}
+
+jmh {
+    jmhVersion.set(libs.versions.jmh.get())
+    warmupIterations.set(3)
+    iterations.set(5)
+    fork.set(1)
+    resultFormat.set("JSON")
+    val resultsPath = findProperty("jmhResultsFile")?.toString()
+    resultsFile.set(
+        if (resultsPath != null) layout.projectDirectory.file(resultsPath)
+        else layout.buildDirectory.file("results/jmh/results.json").get()
+    )
+    findProperty("jmhIncludes")?.let { includes.add(it.toString()) }
+}
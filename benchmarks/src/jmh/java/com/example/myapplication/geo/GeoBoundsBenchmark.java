@@ -0,0 +1,72 @@
+package com.example.myapplication.geo;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Distances and boxes around points, as the nearest-region search and region downloads use
+ * them, and the containment checks that filter the spatial index's candidates.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class GeoBoundsBenchmark {
+    private static final int POINTS = 1024;
+
+    private final double[] latitudes = new double[POINTS];
+    private final double[] longitudes = new double[POINTS];
+    private final double[] radii = new double[POINTS];
+    private final double[] box = new double[4];
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(7);
+        for (int i = 0; i < POINTS; i++) {
+            latitudes[i] = random.nextDouble() * 160 - 80;
+            longitudes[i] = random.nextDouble() * 360 - 180;
+            radii[i] = Math.pow(10, 2 + random.nextDouble() * 4); // 100 m to 1000 km
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(POINTS)
+    public double distanceMeters() {
+        double sum = 0;
+        for (int i = 1; i < POINTS; i++) {
+            sum += GeoBounds.distanceMeters(latitudes[i - 1], longitudes[i - 1], latitudes[i], longitudes[i]);
+        }
+        return sum;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(POINTS)
+    public double boundsAround() {
+        double sum = 0;
+        for (int i = 0; i < POINTS; i++) {
+            GeoBounds.boundsAround(latitudes[i], longitudes[i], radii[i], box);
+            sum += box[GeoBounds.WEST] + box[GeoBounds.EAST];
+        }
+        return sum;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(POINTS)
+    public int contains() {
+        int count = 0;
+        for (int i = 0; i < POINTS; i++) {
+            if (GeoBounds.contains(-20, 170, 20, -170, latitudes[i], longitudes[i])) {
+                count++;
+            }
+        }
+        return count;
+    }
+}
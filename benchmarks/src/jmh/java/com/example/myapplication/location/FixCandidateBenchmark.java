@@ -0,0 +1,100 @@
+package com.example.myapplication.location;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost per sample of keeping the best fix candidate over a network search session: the ring
+ * buffer the engine uses, a list of every sample rescanned for each one as the search used to
+ * pick its best network location, and the Kalman filter of the GPS search.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class FixCandidateBenchmark {
+    private static final long START = 1_700_000_000_000L;
+    private static final int SAMPLES = 1000;
+
+    private final FixPolicy policy = FixPolicy.network();
+    private final long[] times = new long[SAMPLES];
+    private final double[] latitudes = new double[SAMPLES];
+    private final double[] longitudes = new double[SAMPLES];
+    private final float[] accuracies = new float[SAMPLES];
+    private final LocationSample[] samples = new LocationSample[SAMPLES];
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(3);
+        long time = START;
+        for (int i = 0; i < SAMPLES; i++) {
+            time += 500 + random.nextInt(1000);
+            times[i] = time;
+            latitudes[i] = 48.137154 + random.nextGaussian() * 1e-3;
+            longitudes[i] = 11.576124 + random.nextGaussian() * 1e-3;
+            accuracies[i] = 20 + random.nextInt(1500);
+            samples[i] = new LocationSample(LocationSample.SOURCE_NETWORK, latitudes[i], longitudes[i],
+                    accuracies[i], times[i]);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SAMPLES)
+    public float ringBuffer() {
+        SampleRingBuffer buffer = policy.newSampleBuffer();
+        float sum = 0;
+        for (int i = 0; i < SAMPLES; i++) {
+            buffer.expire(times[i]);
+            buffer.add(LocationSample.SOURCE_NETWORK, latitudes[i], longitudes[i], accuracies[i], times[i]);
+            sum += buffer.getBestAccuracyMeters();
+        }
+        return sum;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SAMPLES)
+    public float listScan() {
+        List<LocationSample> list = new ArrayList<>();
+        double penaltyPerMilli = policy.getAgePenaltyMetersPerSecond() / 1000.0;
+        float sum = 0;
+        for (int i = 0; i < SAMPLES; i++) {
+            list.add(samples[i]);
+            LocationSample best = null;
+            double bestRank = 0;
+            for (LocationSample sample : list) {
+                if (times[i] - sample.getTimeMillis() > policy.getMaxSampleAgeMillis()) {
+                    continue;
+                }
+                double rank = sample.getAccuracyMeters() - (sample.getTimeMillis() - START) * penaltyPerMilli;
+                if (best == null || rank <= bestRank) {
+                    best = sample;
+                    bestRank = rank;
+                }
+            }
+            sum += best.getAccuracyMeters();
+        }
+        return sum;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SAMPLES)
+    public float kalmanFilter() {
+        LocationKalmanFilter filter = new LocationKalmanFilter(2);
+        float sum = 0;
+        for (int i = 0; i < SAMPLES; i++) {
+            filter.update(latitudes[i], longitudes[i], accuracies[i], times[i]);
+            sum += filter.getAccuracyMeters();
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,204 @@
+package com.example.myapplication.model;
+
+import com.example.myapplication.geo.E7;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Building DownloadedMap rows for the saved maps list and formatting the strings each list
+ * item shows.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class DownloadedMapBenchmark {
+    private static final int ROWS = 256;
+    private static final String[] MAP_TYPES = {"NORMAL", "SATELLITE", "HYBRID", "TERRAIN"};
+
+    // Columns of a downloaded_maps query as the cursor window holds them
+    private final long[] ids = new long[ROWS];
+    private final String[] labels = new String[ROWS];
+    private final String[] descriptions = new String[ROWS];
+    private final long[] centerLats = new long[ROWS];
+    private final long[] centerLngs = new long[ROWS];
+    private final long[] northEastLats = new long[ROWS];
+    private final long[] northEastLngs = new long[ROWS];
+    private final long[] southWestLats = new long[ROWS];
+    private final long[] southWestLngs = new long[ROWS];
+    private final int[] zoomLevels = new int[ROWS];
+    private final long[] downloadDates = new long[ROWS];
+    private final long[] fileSizes = new long[ROWS];
+    private final String[] mapTypes = new String[ROWS];
+    private final int[] availableOffline = new int[ROWS];
+    private final long[] tileCounts = new long[ROWS];
+    private final long[] uniqueTileCounts = new long[ROWS];
+    private final long[] logicalBytes = new long[ROWS];
+    private final long[] storedBytes = new long[ROWS];
+    private final ArrayRow cursor = new ArrayRow();
+
+    private final DownloadedMap[] maps = new DownloadedMap[ROWS];
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(5);
+        for (int i = 0; i < ROWS; i++) {
+            double lat = random.nextDouble() * 140 - 70;
+            double lng = random.nextDouble() * 360 - 180;
+            ids[i] = i + 1;
+            labels[i] = "Region " + i;
+            descriptions[i] = i % 3 == 0 ? null : "Saved for the trip on day " + i;
+            centerLats[i] = E7.fromDegrees(lat);
+            centerLngs[i] = E7.fromDegrees(lng);
+            northEastLats[i] = E7.fromDegrees(lat + 0.05);
+            northEastLngs[i] = E7.fromDegrees(lng + 0.05);
+            southWestLats[i] = E7.fromDegrees(lat - 0.05);
+            southWestLngs[i] = E7.fromDegrees(lng - 0.05);
+            zoomLevels[i] = 10 + random.nextInt(8);
+            downloadDates[i] = 1_700_000_000_000L + random.nextInt(1_000_000_000);
+            // Sizes from bytes to hundreds of megabytes, so every unit is formatted
+            fileSizes[i] = (long) Math.pow(10, random.nextDouble() * 9);
+            mapTypes[i] = MAP_TYPES[random.nextInt(MAP_TYPES.length)];
+            availableOffline[i] = random.nextInt(10) == 0 ? 0 : 1;
+            tileCounts[i] = 1000 + random.nextInt(100_000);
+            uniqueTileCounts[i] = tileCounts[i] - random.nextInt((int) tileCounts[i] / 2);
+            storedBytes[i] = fileSizes[i];
+            logicalBytes[i] = storedBytes[i] * tileCounts[i] / uniqueTileCounts[i];
+            maps[i] = read(i);
+        }
+    }
+
+    // The column arrays as a stored row, read the way the database reads its cursor
+    private final class ArrayRow implements DownloadedMap.StoredRow {
+        int row;
+
+        @Override
+        public long getId() {
+            return ids[row];
+        }
+
+        @Override
+        public String getLabel() {
+            return labels[row];
+        }
+
+        @Override
+        public String getDescription() {
+            return descriptions[row];
+        }
+
+        @Override
+        public long getCenterLatE7() {
+            return centerLats[row];
+        }
+
+        @Override
+        public long getCenterLngE7() {
+            return centerLngs[row];
+        }
+
+        @Override
+        public long getNorthEastLatE7() {
+            return northEastLats[row];
+        }
+
+        @Override
+        public long getNorthEastLngE7() {
+            return northEastLngs[row];
+        }
+
+        @Override
+        public long getSouthWestLatE7() {
+            return southWestLats[row];
+        }
+
+        @Override
+        public long getSouthWestLngE7() {
+            return southWestLngs[row];
+        }
+
+        @Override
+        public int getZoomLevel() {
+            return zoomLevels[row];
+        }
+
+        @Override
+        public long getDownloadDateMillis() {
+            return downloadDates[row];
+        }
+
+        @Override
+        public long getFileSizeBytes() {
+            return fileSizes[row];
+        }
+
+        @Override
+        public String getMapType() {
+            return mapTypes[row];
+        }
+
+        @Override
+        public int getAvailableOffline() {
+            return availableOffline[row];
+        }
+
+        @Override
+        public long getTileCount() {
+            return tileCounts[row];
+        }
+
+        @Override
+        public long getUniqueTileCount() {
+            return uniqueTileCounts[row];
+        }
+
+        @Override
+        public long getLogicalBytes() {
+            return logicalBytes[row];
+        }
+
+        @Override
+        public long getStoredBytes() {
+            return storedBytes[row];
+        }
+    }
+
+    private DownloadedMap read(int row) {
+        cursor.row = row;
+        return DownloadedMap.fromRow(cursor);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public void rowToModel(Blackhole blackhole) {
+        for (int i = 0; i < ROWS; i++) {
+            blackhole.consume(read(i));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public void formattedSize(Blackhole blackhole) {
+        for (int i = 0; i < ROWS; i++) {
+            blackhole.consume(maps[i].getFormattedSize());
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public void boundsDescription(Blackhole blackhole) {
+        for (int i = 0; i < ROWS; i++) {
+            blackhole.consume(maps[i].getBoundsDescription());
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package com.example.myapplication.tiles;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tile coordinate math per point, and walking the tiles of a city-sized region download from
+ * zoom 10 up to the given zoom by index and with a cursor.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class TileMathBenchmark {
+    private static final int POINTS = 1024;
+    private static final double CENTER_LAT = 48.137154;
+    private static final double CENTER_LNG = 11.576124;
+
+    @Param({"12", "16"})
+    public int zoom;
+
+    private final double[] latitudes = new double[POINTS];
+    private final double[] longitudes = new double[POINTS];
+    private final int[] tileX = new int[POINTS];
+    private final int[] tileY = new int[POINTS];
+    private final long[] quadKeys = new long[POINTS];
+    private final long[] hilbertIndexes = new long[POINTS];
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(1);
+        for (int i = 0; i < POINTS; i++) {
+            latitudes[i] = (random.nextDouble() * 2 - 1) * TileMath.MAX_LATITUDE;
+            longitudes[i] = random.nextDouble() * 360 - 180;
+            tileX[i] = TileMath.lngToTileX(longitudes[i], zoom);
+            tileY[i] = TileMath.latToTileY(latitudes[i], zoom);
+            quadKeys[i] = TileMath.quadKey(zoom, tileX[i], tileY[i]);
+            hilbertIndexes[i] = TileMath.hilbertIndex(zoom, tileX[i], tileY[i]);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(POINTS)
+    public long latLngToTileKey() {
+        long sum = 0;
+        for (int i = 0; i < POINTS; i++) {
+            sum += TileMath.packKey(zoom, TileMath.lngToTileX(longitudes[i], zoom),
+                    TileMath.latToTileY(latitudes[i], zoom));
+        }
+        return sum;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(POINTS)
+    public double tileToLatLng() {
+        double sum = 0;
+        for (int i = 0; i < POINTS; i++) {
+            sum += TileMath.tileYToLat(tileY[i], zoom) + TileMath.tileXToLng(tileX[i], zoom);
+        }
+        return sum;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(POINTS)
+    public long quadKeyRoundTrip() {
+        long sum = 0;
+        for (int i = 0; i < POINTS; i++) {
+            long key = quadKeys[i];
+            sum += TileMath.quadKey(TileMath.quadKeyZoom(key), TileMath.quadKeyX(key), TileMath.quadKeyY(key));
+        }
+        return sum;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(POINTS)
+    public long hilbertRoundTrip() {
+        long sum = 0;
+        for (int i = 0; i < POINTS; i++) {
+            long key = TileMath.hilbertToKey(hilbertIndexes[i]);
+            sum += TileMath.hilbertIndex(zoom, TileMath.keyX(key), TileMath.keyY(key));
+        }
+        return sum;
+    }
+
+    // Every tile key of a 0.1 degree box, as a region download enumerates them
+    @Benchmark
+    public long regionTileKeys() {
+        TileRange range = new TileRange(CENTER_LAT - 0.05, CENTER_LNG - 0.05, CENTER_LAT + 0.05,
+                CENTER_LNG + 0.05, 10, zoom);
+        long sum = 0;
+        for (long i = 0, size = range.size(); i < size; i++) {
+            sum += range.keyAt(i);
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public long regionTileCursor() {
+        TileRange range = new TileRange(CENTER_LAT - 0.05, CENTER_LNG - 0.05, CENTER_LAT + 0.05,
+                CENTER_LNG + 0.05, 10, zoom);
+        long sum = 0;
+        for (TileRange.Cursor tile = range.cursor(0); tile.hasTile(); tile.next()) {
+            sum += tile.getKey();
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,14 @@
+// Framework-free geo and tile math shared by :app and :benchmarks. Primitives in and out and
+// no Android dependencies, so it is tested and benchmarked on a plain JVM.
+plugins {
+    `java-library`
+}
+
+java {
+    sourceCompatibility = JavaVersion.VERSION_11
+    targetCompatibility = JavaVersion.VERSION_11
+}
+
+dependencies {
+    testImplementation(libs.junit)
+}
@@ -0,0 +1,20 @@
+package com.example.myapplication.geo;
+
+/**
+ * Fixed-point coordinates: degrees times 10^7 in an int, about 1.1 cm of resolution.
+ * Every latitude and longitude fits, and comparisons are plain integer comparisons.
+ */
+public final class E7 {
+    public static final double SCALE = 1e7;
+
+    private E7() {
+    }
+
+    public static int fromDegrees(double degrees) {
+        return (int) Math.round(degrees * SCALE);
+    }
+
+    public static double toDegrees(long e7) {
+        return e7 / SCALE;
+    }
+}
@@ -0,0 +1,123 @@
+package com.example.myapplication.geo;
+
+/**
+ * Geometry on lat/lng bounding boxes given as south, west, north, east in degrees.
+ * A box whose west edge is greater than its east edge crosses the antimeridian.
+ */
+public final class GeoBounds {
+    public static final double EARTH_RADIUS_METERS = 6371008.8;
+    // Length of a degree of latitude, and of longitude at the equator
+    public static final double METERS_PER_DEGREE = Math.toRadians(EARTH_RADIUS_METERS);
+
+    // Positions of the edges in the arrays boundsAround fills
+    public static final int SOUTH = 0;
+    public static final int WEST = 1;
+    public static final int NORTH = 2;
+    public static final int EAST = 3;
+
+    private GeoBounds() {
+    }
+
+    public static boolean crossesAntimeridian(double west, double east) {
+        return west > east;
+    }
+
+    public static boolean contains(double south, double west, double north, double east,
+                                   double lat, double lng) {
+        if (lat < south || lat > north) {
+            return false;
+        }
+        return crossesAntimeridian(west, east) ? lng >= west || lng <= east : lng >= west && lng <= east;
+    }
+
+    public static boolean intersects(double south1, double west1, double north1, double east1,
+                                     double south2, double west2, double north2, double east2) {
+        if (south1 > north2 || south2 > north1) {
+            return false;
+        }
+        // Compare as one or two plain longitude intervals each
+        boolean cross1 = crossesAntimeridian(west1, east1);
+        boolean cross2 = crossesAntimeridian(west2, east2);
+        if (cross1 && cross2) {
+            return true; // both contain the antimeridian
+        }
+        if (cross1) {
+            return overlaps(west1, 180, west2, east2) || overlaps(-180, east1, west2, east2);
+        }
+        if (cross2) {
+            return overlaps(west1, east1, west2, 180) || overlaps(west1, east1, -180, east2);
+        }
+        return overlaps(west1, east1, west2, east2);
+    }
+
+    private static boolean overlaps(double min1, double max1, double min2, double max2) {
+        return min1 <= max2 && min2 <= max1;
+    }
+
+    // Great-circle distance in meters, by the haversine formula
+    public static double distanceMeters(double lat1, double lng1, double lat2, double lng2) {
+        double dLat = Math.toRadians(lat2 - lat1);
+        double dLng = Math.toRadians(lng2 - lng1);
+        double a = Math.sin(dLat / 2) * Math.sin(dLat / 2) +
+                Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2)) *
+                        Math.sin(dLng / 2) * Math.sin(dLng / 2);
+        return 2 * EARTH_RADIUS_METERS * Math.asin(Math.min(1, Math.sqrt(a)));
+    }
+
+    /**
+     * The smallest box holding every point within radiusMeters of a point, written to
+     * bounds[SOUTH..EAST] and returned. Exact on the sphere: the east and west edges are where
+     * the circle is widest in longitude, which is poleward of the center, so they reach further
+     * than the radius at the center's latitude would. A circle over a pole spans every
+     * longitude, and one past the antimeridian gives a crossing box.
+     */
+    public static double[] boundsAround(double lat, double lng, double radiusMeters, double[] bounds) {
+        double angle = radiusMeters / EARTH_RADIUS_METERS;
+        double latRadians = Math.toRadians(lat);
+        double south = Math.toDegrees(latRadians - angle);
+        double north = Math.toDegrees(latRadians + angle);
+        if (south <= -90 || north >= 90) {
+            // The circle reaches a pole, so it spans every longitude
+            bounds[SOUTH] = Math.max(-90, south);
+            bounds[WEST] = -180;
+            bounds[NORTH] = Math.min(90, north);
+            bounds[EAST] = 180;
+            return bounds;
+        }
+        double lngDelta = Math.toDegrees(Math.asin(Math.min(1, Math.sin(angle) / Math.cos(latRadians))));
+        double west = lng - lngDelta;
+        double east = lng + lngDelta;
+        bounds[SOUTH] = south;
+        // Wrap edges past the antimeridian, which turns the box into a crossing one
+        bounds[WEST] = west < -180 ? west + 360 : west;
+        bounds[NORTH] = north;
+        bounds[EAST] = east > 180 ? east - 360 : east;
+        return bounds;
+    }
+
+    /**
+     * Distance in meters from a point to the nearest point of a box, 0 inside it. The nearest
+     * point is taken by clamping latitude and longitude, which is exact along the edges'
+     * meridians and a close approximation elsewhere.
+     */
+    public static double distanceToBoundsMeters(double south, double west, double north, double east,
+                                                double lat, double lng) {
+        if (contains(south, west, north, east, lat, lng)) {
+            return 0;
+        }
+        double nearestLat = Math.max(south, Math.min(north, lat));
+        double nearestLng;
+        if (contains(-90, west, 90, east, 0, lng)) {
+            nearestLng = lng;
+        } else {
+            nearestLng = longitudeGap(lng, west) <= longitudeGap(lng, east) ? west : east;
+        }
+        return distanceMeters(lat, lng, nearestLat, nearestLng);
+    }
+
+    // Smallest angle between two longitudes, in degrees
+    private static double longitudeGap(double lng1, double lng2) {
+        double gap = Math.abs(lng1 - lng2) % 360;
+        return gap > 180 ? 360 - gap : gap;
+    }
+}
@@ -0,0 +1,193 @@
+package com.example.myapplication.tiles;
+
+import com.example.myapplication.geo.GeoBounds;
+
+/**
+ * Web Mercator (XYZ / "slippy map") tile coordinate helpers
+ */
+public final class TileMath {
+
+    // Web Mercator cannot represent the poles, tiles stop at this latitude
+    public static final double MAX_LATITUDE = 85.05112878;
+    public static final int MAX_ZOOM = 22;
+
+    private TileMath() {
+    }
+
+    // Tile column containing the given longitude at the given zoom
+    public static int lngToTileX(double lng, int zoom) {
+        int n = 1 << zoom;
+        int x = (int) Math.floor((lng + 180.0) / 360.0 * n);
+        return clamp(x, 0, n - 1);
+    }
+
+    // Tile row containing the given latitude at the given zoom (row 0 is the north edge)
+    public static int latToTileY(double lat, int zoom) {
+        int n = 1 << zoom;
+        double clamped = Math.max(-MAX_LATITUDE, Math.min(MAX_LATITUDE, lat));
+        double latRad = Math.toRadians(clamped);
+        int y = (int) Math.floor((1.0 - Math.log(Math.tan(latRad) + 1.0 / Math.cos(latRad)) / Math.PI) / 2.0 * n);
+        return clamp(y, 0, n - 1);
+    }
+
+    // Longitude of the west edge of a tile column
+    public static double tileXToLng(int x, int zoom) {
+        return x / (double) (1 << zoom) * 360.0 - 180.0;
+    }
+
+    // Latitude of the north edge of a tile row
+    public static double tileYToLat(int y, int zoom) {
+        double n = Math.PI - 2.0 * Math.PI * y / (double) (1 << zoom);
+        return Math.toDegrees(Math.atan(Math.sinh(n)));
+    }
+
+    // Number of tiles covering the bounds at a single zoom level
+    public static long tileCount(double southLat, double westLng, double northLat, double eastLng, int zoom) {
+        long rows = latToTileY(southLat, zoom) - latToTileY(northLat, zoom) + 1L;
+        return columnCount(westLng, eastLng, zoom) * rows;
+    }
+
+    /**
+     * Number of tile columns from the west edge's column east to the east edge's. Bounds across
+     * the antimeridian (west > east) wrap from the last column to column 0.
+     */
+    public static int columnCount(double westLng, double eastLng, int zoom) {
+        int x0 = lngToTileX(westLng, zoom);
+        int x1 = lngToTileX(eastLng, zoom);
+        if (GeoBounds.crossesAntimeridian(westLng, eastLng)) {
+            // Both edges can fall in one column at low zooms, where the box covers every column
+            return Math.min(1 << zoom, (1 << zoom) - x0 + x1 + 1);
+        }
+        return x1 - x0 + 1;
+    }
+
+    // Packed key (see packKey) of the tile containing a point
+    public static long tileKey(double lat, double lng, int zoom) {
+        return packKey(zoom, lngToTileX(lng, zoom), latToTileY(lat, zoom));
+    }
+
+    // Pack z/x/y into one long: 5 bits of zoom, 29 bits each for x and y
+    public static long packKey(int zoom, int x, int y) {
+        return ((long) zoom << 58) | ((long) x << 29) | (long) y;
+    }
+
+    public static int keyZoom(long key) {
+        return (int) (key >>> 58);
+    }
+
+    public static int keyX(long key) {
+        return (int) ((key >>> 29) & 0x1FFFFFFFL);
+    }
+
+    public static int keyY(long key) {
+        return (int) (key & 0x1FFFFFFFL);
+    }
+
+    /**
+     * Quadkey index of a tile: the zoom in the top byte followed by the x/y bits
+     * interleaved (Morton / Z-order), so sorting by index groups nearby tiles together.
+     */
+    public static long quadKey(int zoom, int x, int y) {
+        return ((long) zoom << 56) | spreadBits(x) | (spreadBits(y) << 1);
+    }
+
+    public static int quadKeyZoom(long quadKey) {
+        return (int) (quadKey >>> 56);
+    }
+
+    public static int quadKeyX(long quadKey) {
+        return compactBits(quadKey & 0x00FFFFFFFFFFFFFFL);
+    }
+
+    public static int quadKeyY(long quadKey) {
+        return compactBits((quadKey & 0x00FFFFFFFFFFFFFFL) >>> 1);
+    }
+
+    /**
+     * Hilbert curve index of a tile: the zoom in the top byte followed by the tile's distance
+     * along the curve through every tile of its zoom level. Unlike quadkey order, consecutive
+     * indexes are always edge neighbours, so a range of indexes is a compact patch of tiles.
+     */
+    public static long hilbertIndex(int zoom, int x, int y) {
+        long d = 0;
+        for (int s = 1 << (zoom - 1); s > 0; s >>>= 1) {
+            int rx = (x & s) != 0 ? 1 : 0;
+            int ry = (y & s) != 0 ? 1 : 0;
+            d += (long) s * s * ((3 * rx) ^ ry);
+            // Turn the quadrant so the curve inside it starts and ends at the right corners
+            if (ry == 0) {
+                if (rx == 1) {
+                    x = s - 1 - (x & (s - 1));
+                    y = s - 1 - (y & (s - 1));
+                }
+                int t = x;
+                x = y;
+                y = t;
+            }
+        }
+        return ((long) zoom << 56) | d;
+    }
+
+    public static int hilbertZoom(long hilbertIndex) {
+        return (int) (hilbertIndex >>> 56);
+    }
+
+    public static int hilbertX(long hilbertIndex) {
+        return keyX(hilbertToKey(hilbertIndex));
+    }
+
+    public static int hilbertY(long hilbertIndex) {
+        return keyY(hilbertToKey(hilbertIndex));
+    }
+
+    // Packed key (see packKey) of the tile at a Hilbert index, decoding x and y in one pass
+    public static long hilbertToKey(long hilbertIndex) {
+        int zoom = hilbertZoom(hilbertIndex);
+        long d = hilbertIndex & 0x00FFFFFFFFFFFFFFL;
+        int x = 0;
+        int y = 0;
+        for (int s = 1; s < 1 << zoom; s <<= 1) {
+            int rx = (int) (d >>> 1) & 1;
+            int ry = (int) (d ^ rx) & 1;
+            if (ry == 0) {
+                if (rx == 1) {
+                    x = s - 1 - x;
+                    y = s - 1 - y;
+                }
+                int t = x;
+                x = y;
+                y = t;
+            }
+            x += s * rx;
+            y += s * ry;
+            d >>>= 2;
+        }
+        return packKey(zoom, x, y);
+    }
+
+    // Insert a zero bit between each of the low 28 bits of value
+    private static long spreadBits(int value) {
+        long v = value & 0x0FFFFFFFL;
+        v = (v | (v << 16)) & 0x0000FFFF0000FFFFL;
+        v = (v | (v << 8)) & 0x00FF00FF00FF00FFL;
+        v = (v | (v << 4)) & 0x0F0F0F0F0F0F0F0FL;
+        v = (v | (v << 2)) & 0x3333333333333333L;
+        v = (v | (v << 1)) & 0x5555555555555555L;
+        return v;
+    }
+
+    // Inverse of spreadBits: collect every second bit
+    private static int compactBits(long value) {
+        long v = value & 0x5555555555555555L;
+        v = (v | (v >>> 1)) & 0x3333333333333333L;
+        v = (v | (v >>> 2)) & 0x0F0F0F0F0F0F0F0FL;
+        v = (v | (v >>> 4)) & 0x00FF00FF00FF00FFL;
+        v = (v | (v >>> 8)) & 0x0000FFFF0000FFFFL;
+        v = (v | (v >>> 16)) & 0x00000000FFFFFFFFL;
+        return (int) v;
+    }
+
+    private static int clamp(int value, int min, int max) {
+        return value < min ? min : (value > max ? max : value);
+    }
+}
@@ -0,0 +1,198 @@
+package com.example.myapplication.tiles;
+
+/**
+ * The set of XYZ tiles covering a lat/lng bounding box over a range of zoom levels.
+ * Tiles are addressed by a flat index so callers can walk or split the range
+ * without materializing a list of tile objects.
+ *
+ * A box across the antimeridian (west > east) wraps: its columns run from the west edge's
+ * column to the last one and on from column 0 to the east edge's.
+ */
+public final class TileRange {
+    private final int minZoom;
+    private final int maxZoom;
+    private final int[] minX;
+    private final int[] minY;
+    private final int[] width;
+    private final int[] height;
+    // Index of the first tile of each zoom level, plus the total at the end
+    private final long[] offsets;
+
+    public TileRange(double southLat, double westLng, double northLat, double eastLng,
+                     int minZoom, int maxZoom) {
+        if (minZoom < 0 || maxZoom > TileMath.MAX_ZOOM || minZoom > maxZoom) {
+            throw new IllegalArgumentException("Invalid zoom range: " + minZoom + ".." + maxZoom);
+        }
+        this.minZoom = minZoom;
+        this.maxZoom = maxZoom;
+
+        int levels = maxZoom - minZoom + 1;
+        minX = new int[levels];
+        minY = new int[levels];
+        width = new int[levels];
+        height = new int[levels];
+        offsets = new long[levels + 1];
+
+        for (int i = 0; i < levels; i++) {
+            int zoom = minZoom + i;
+            int y0 = TileMath.latToTileY(northLat, zoom);
+            int y1 = TileMath.latToTileY(southLat, zoom);
+            minX[i] = TileMath.lngToTileX(westLng, zoom);
+            minY[i] = y0;
+            width[i] = TileMath.columnCount(westLng, eastLng, zoom);
+            height[i] = y1 - y0 + 1;
+            offsets[i + 1] = offsets[i] + (long) width[i] * height[i];
+        }
+    }
+
+    public int getMinZoom() {
+        return minZoom;
+    }
+
+    public int getMaxZoom() {
+        return maxZoom;
+    }
+
+    // Total number of tiles across all zoom levels
+    public long size() {
+        return offsets[offsets.length - 1];
+    }
+
+    // Number of tiles at a single zoom level
+    public long sizeAtZoom(int zoom) {
+        int level = zoom - minZoom;
+        return offsets[level + 1] - offsets[level];
+    }
+
+    // Inclusive column and row bounds of the range at one zoom level
+    public int getMinX(int zoom) {
+        return minX[zoom - minZoom];
+    }
+
+    // Less than getMinX when the range wraps across the antimeridian
+    public int getMaxX(int zoom) {
+        int level = zoom - minZoom;
+        return (minX[level] + width[level] - 1) & ((1 << zoom) - 1);
+    }
+
+    public int getMinY(int zoom) {
+        return minY[zoom - minZoom];
+    }
+
+    public int getMaxY(int zoom) {
+        int level = zoom - minZoom;
+        return minY[level] + height[level] - 1;
+    }
+
+    public int getColumnCount(int zoom) {
+        return width[zoom - minZoom];
+    }
+
+    public int getRowCount(int zoom) {
+        return height[zoom - minZoom];
+    }
+
+    public boolean wrapsAntimeridian(int zoom) {
+        return getMaxX(zoom) < getMinX(zoom);
+    }
+
+    // Packed z/x/y key (see TileMath.packKey) of the tile at a flat index
+    public long keyAt(long index) {
+        if (index < 0 || index >= size()) {
+            throw new IndexOutOfBoundsException("Tile index " + index + " of " + size());
+        }
+        int level = 0;
+        while (index >= offsets[level + 1]) {
+            level++;
+        }
+        long local = index - offsets[level];
+        int zoom = minZoom + level;
+        int x = (minX[level] + (int) (local % width[level])) & ((1 << zoom) - 1);
+        int y = minY[level] + (int) (local / width[level]);
+        return TileMath.packKey(zoom, x, y);
+    }
+
+    // A cursor on the tile at the given index, or past the end at size()
+    public Cursor cursor(long index) {
+        Cursor cursor = new Cursor();
+        cursor.moveTo(index);
+        return cursor;
+    }
+
+    /**
+     * Walks the tiles in index order. Stepping to the next tile is an add and a compare, with
+     * none of keyAt's division or level search, and nothing is allocated, so one cursor per
+     * worker can cover any number of tiles.
+     */
+    public final class Cursor {
+        private long index;
+        private int level;
+        private int column;
+        private int zoom;
+        private int x;
+        private int y;
+
+        private Cursor() {
+        }
+
+        public void moveTo(long index) {
+            if (index < 0 || index > size()) {
+                throw new IndexOutOfBoundsException("Tile index " + index + " of " + size());
+            }
+            this.index = index;
+            if (index == size()) {
+                return;
+            }
+            level = 0;
+            while (index >= offsets[level + 1]) {
+                level++;
+            }
+            long local = index - offsets[level];
+            zoom = minZoom + level;
+            column = (int) (local % width[level]);
+            x = (minX[level] + column) & ((1 << zoom) - 1);
+            y = minY[level] + (int) (local / width[level]);
+        }
+
+        // Step to the next tile; past the last one, hasTile turns false
+        public void next() {
+            if (index >= size()) {
+                return;
+            }
+            index++;
+            if (index == offsets[level + 1]) {
+                moveTo(index);
+            } else if (++column < width[level]) {
+                x = (x + 1) & ((1 << zoom) - 1);
+            } else {
+                column = 0;
+                x = minX[level];
+                y++;
+            }
+        }
+
+        public boolean hasTile() {
+            return index < size();
+        }
+
+        public long getIndex() {
+            return index;
+        }
+
+        public int getZoom() {
+            return zoom;
+        }
+
+        public int getX() {
+            return x;
+        }
+
+        public int getY() {
+            return y;
+        }
+
+        public long getKey() {
+            return TileMath.packKey(zoom, x, y);
+        }
+    }
+}
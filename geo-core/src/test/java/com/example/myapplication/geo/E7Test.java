@@ -0,0 +1,42 @@
+package com.example.myapplication.geo;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class E7Test {
+
+    @Test
+    public void fromDegrees_coversTheWholeCoordinateRange() {
+        assertEquals(1_800_000_000, E7.fromDegrees(180));
+        assertEquals(-1_800_000_000, E7.fromDegrees(-180));
+        assertEquals(900_000_000, E7.fromDegrees(90));
+        assertEquals(0, E7.fromDegrees(0));
+        assertEquals(-120_464_017, E7.fromDegrees(-12.0464017));
+    }
+
+    @Test
+    public void roundTrip_staysWithinHalfAUnit() {
+        Random random = new Random(7);
+        for (int i = 0; i < 100_000; i++) {
+            double degrees = -180 + random.nextDouble() * 360;
+            assertEquals(degrees, E7.toDegrees(E7.fromDegrees(degrees)), 0.5e-7 + 1e-12);
+        }
+    }
+
+    @Test
+    public void integerOrder_matchesDegreeOrder() {
+        Random random = new Random(11);
+        for (int i = 0; i < 100_000; i++) {
+            double a = -90 + random.nextDouble() * 180;
+            double b = -90 + random.nextDouble() * 180;
+            if (a < b) {
+                assertTrue(E7.fromDegrees(a) <= E7.fromDegrees(b));
+            } else {
+                assertTrue(E7.fromDegrees(a) >= E7.fromDegrees(b));
+            }
+        }
+    }
+}
@@ -0,0 +1,161 @@
+package com.example.myapplication.geo;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class GeoBoundsTest {
+
+    @Test
+    public void contains_handlesBoxesAcrossTheAntimeridian() {
+        assertTrue(GeoBounds.contains(40, -75, 41, -73, 40.5, -74));
+        assertFalse(GeoBounds.contains(40, -75, 41, -73, 40.5, -72));
+        assertFalse(GeoBounds.contains(40, -75, 41, -73, 41.5, -74));
+
+        // Fiji-style box from 177E to 178W
+        assertTrue(GeoBounds.contains(-19, 177, -16, -178, -17, 179.5));
+        assertTrue(GeoBounds.contains(-19, 177, -16, -178, -17, -179));
+        assertFalse(GeoBounds.contains(-19, 177, -16, -178, -17, 0));
+    }
+
+    @Test
+    public void intersects_matchesPointSamplingOnRandomBoxes() {
+        Random random = new Random(3);
+        for (int i = 0; i < 2000; i++) {
+            double[] a = randomBox(random);
+            double[] b = randomBox(random);
+            boolean expected = false;
+            for (double lat = -20; lat <= 20 && !expected; lat += 0.5) {
+                for (double lng = -180; lng <= 180 && !expected; lng += 0.5) {
+                    expected = GeoBounds.contains(a[0], a[1], a[2], a[3], lat, lng)
+                            && GeoBounds.contains(b[0], b[1], b[2], b[3], lat, lng);
+                }
+            }
+            assertEquals(expected, GeoBounds.intersects(a[0], a[1], a[2], a[3], b[0], b[1], b[2], b[3]));
+        }
+    }
+
+    // Boxes on the half-degree grid so point sampling is exact
+    private static double[] randomBox(Random random) {
+        double south = -20 + random.nextInt(60) * 0.5;
+        double north = south + random.nextInt(20) * 0.5;
+        double west = -180 + random.nextInt(720) * 0.5;
+        double east = west + random.nextInt(80) * 0.5;
+        return new double[]{south, west, north, east > 180 ? east - 360 : east};
+    }
+
+    @Test
+    public void distanceToBounds_isZeroInsideAndGreatCircleOutside() {
+        // Paris to London is about 343.5 km
+        assertEquals(343_500, GeoBounds.distanceMeters(48.8566, 2.3522, 51.5074, -0.1278), 1000);
+
+        assertEquals(0, GeoBounds.distanceToBoundsMeters(40, -75, 41, -73, 40.5, -74), 0);
+        // Due south of the box: distance to its south edge along the meridian
+        assertEquals(GeoBounds.distanceMeters(39, -74, 40, -74),
+                GeoBounds.distanceToBoundsMeters(40, -75, 41, -73, 39, -74), 1e-6);
+        // Beyond the antimeridian from a crossing box's east edge
+        assertEquals(GeoBounds.distanceMeters(-17, -177, -17, -178),
+                GeoBounds.distanceToBoundsMeters(-19, 177, -16, -178, -17, -177), 1e-6);
+    }
+
+    // Point at a distance and initial bearing from a start point, on the same sphere
+    private static double[] destination(double lat, double lng, double meters, double bearingDegrees) {
+        double angle = meters / GeoBounds.EARTH_RADIUS_METERS;
+        double lat1 = Math.toRadians(lat);
+        double bearing = Math.toRadians(bearingDegrees);
+        double lat2 = Math.asin(Math.sin(lat1) * Math.cos(angle)
+                + Math.cos(lat1) * Math.sin(angle) * Math.cos(bearing));
+        double lng2 = lng + Math.toDegrees(Math.atan2(Math.sin(bearing) * Math.sin(angle) * Math.cos(lat1),
+                Math.cos(angle) - Math.sin(lat1) * Math.sin(lat2)));
+        lng2 = lng2 > 180 ? lng2 - 360 : (lng2 < -180 ? lng2 + 360 : lng2);
+        return new double[]{Math.toDegrees(lat2), lng2};
+    }
+
+    @Test
+    public void boundsAround_holdsTheCircleAndTouchesItOnEverySide() {
+        Random random = new Random(17);
+        double[] box = new double[4];
+        for (int i = 0; i < 300; i++) {
+            double lat = -80 + random.nextDouble() * 160;
+            double lng = -180 + random.nextDouble() * 360;
+            double radius = Math.pow(10, 1 + random.nextDouble() * 5); // 10 m to 1000 km
+            GeoBounds.boundsAround(lat, lng, radius, box);
+            double south = box[GeoBounds.SOUTH];
+            double west = box[GeoBounds.WEST];
+            double north = box[GeoBounds.NORTH];
+            double east = box[GeoBounds.EAST];
+            boolean wholeLongitude = west == -180 && east == 180;
+            double lngSpan = wholeLongitude ? 360 : (east - west + 360) % 360;
+
+            double nearestSouth = 180;
+            double nearestNorth = 180;
+            double nearestWest = 360;
+            double nearestEast = 360;
+            for (int step = 0; step < 7200; step++) {
+                double[] point = destination(lat, lng, radius, step * 0.05);
+                assertTrue("point on the circle outside the box",
+                        GeoBounds.contains(south - 1e-9, west - 1e-9, north + 1e-9, east + 1e-9, point[0], point[1]));
+                assertEquals(radius, GeoBounds.distanceMeters(lat, lng, point[0], point[1]), radius * 1e-9 + 1e-6);
+                nearestSouth = Math.min(nearestSouth, point[0] - south);
+                nearestNorth = Math.min(nearestNorth, north - point[0]);
+                nearestWest = Math.min(nearestWest, (point[1] - west + 360) % 360);
+                nearestEast = Math.min(nearestEast, (east - point[1] + 360) % 360);
+            }
+            // No smaller box would do: the sampled circle comes within a hair of each edge, apart
+            // from those of a circle over a pole, which holds the pole inside it
+            if (!wholeLongitude) {
+                assertEquals(0, nearestSouth, 1e-9);
+                assertEquals(0, nearestNorth, 1e-9);
+                assertEquals(0, nearestWest, lngSpan * 1e-5);
+                assertEquals(0, nearestEast, lngSpan * 1e-5);
+            }
+        }
+    }
+
+    @Test
+    public void boundsAround_reachesFurtherInLongitudeThanTheCenterLatitudeSuggests() {
+        double[] box = GeoBounds.boundsAround(60, 10, 500_000, new double[4]);
+        double atCenterLatitude = Math.toDegrees(500_000 / (GeoBounds.EARTH_RADIUS_METERS * Math.cos(Math.toRadians(60))));
+        assertTrue(box[GeoBounds.EAST] - 10 > atCenterLatitude);
+        assertEquals(500_000 / GeoBounds.METERS_PER_DEGREE, box[GeoBounds.NORTH] - 60, 1e-9);
+    }
+
+    @Test
+    public void boundsAround_polesAndTheAntimeridian() {
+        double[] box = GeoBounds.boundsAround(89.99, 45, 5000, new double[4]);
+        assertEquals(-180, box[GeoBounds.WEST], 0);
+        assertEquals(180, box[GeoBounds.EAST], 0);
+        assertEquals(90, box[GeoBounds.NORTH], 0);
+        assertEquals(89.99 - 5000 / GeoBounds.METERS_PER_DEGREE, box[GeoBounds.SOUTH], 1e-9);
+
+        GeoBounds.boundsAround(-17, 179.99, 5000, box);
+        assertTrue(GeoBounds.crossesAntimeridian(box[GeoBounds.WEST], box[GeoBounds.EAST]));
+        assertTrue(GeoBounds.contains(box[0], box[1], box[2], box[3], -17, -179.99));
+        assertFalse(GeoBounds.contains(box[0], box[1], box[2], box[3], -17, 0));
+
+        // The whole sphere
+        GeoBounds.boundsAround(10, 20, Math.PI * GeoBounds.EARTH_RADIUS_METERS, box);
+        assertArrayEquals(new double[]{-90, -180, 90, 180}, box, 0);
+    }
+
+    @Test
+    public void distanceMeters_isAMetric() {
+        Random random = new Random(19);
+        for (int i = 0; i < 10_000; i++) {
+            double[] a = {-90 + random.nextDouble() * 180, -180 + random.nextDouble() * 360};
+            double[] b = {-90 + random.nextDouble() * 180, -180 + random.nextDouble() * 360};
+            double[] c = {-90 + random.nextDouble() * 180, -180 + random.nextDouble() * 360};
+            double ab = GeoBounds.distanceMeters(a[0], a[1], b[0], b[1]);
+            assertEquals(0, GeoBounds.distanceMeters(a[0], a[1], a[0], a[1]), 0);
+            assertEquals(ab, GeoBounds.distanceMeters(b[0], b[1], a[0], a[1]), 1e-6);
+            assertTrue(ab <= Math.PI * GeoBounds.EARTH_RADIUS_METERS + 1e-6);
+            assertTrue(ab <= GeoBounds.distanceMeters(a[0], a[1], c[0], c[1])
+                    + GeoBounds.distanceMeters(c[0], c[1], b[0], b[1]) + 1e-6);
+        }
+        // A degree along the equator, and across the antimeridian
+        assertEquals(GeoBounds.METERS_PER_DEGREE, GeoBounds.distanceMeters(0, 0, 0, 1), 1e-6);
+        assertEquals(GeoBounds.METERS_PER_DEGREE, GeoBounds.distanceMeters(0, 179.5, 0, -179.5), 1e-6);
+    }
+}
@@ -0,0 +1,112 @@
+package com.example.myapplication.tiles;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class TileMathTest {
+
+    @Test
+    public void tileKey_isTheTileContainingThePoint() {
+        Random random = new Random(1);
+        for (int i = 0; i < 100_000; i++) {
+            double lat = (random.nextDouble() * 2 - 1) * TileMath.MAX_LATITUDE;
+            double lng = random.nextDouble() * 360 - 180;
+            int zoom = random.nextInt(TileMath.MAX_ZOOM + 1);
+            long key = TileMath.tileKey(lat, lng, zoom);
+            int x = TileMath.keyX(key);
+            int y = TileMath.keyY(key);
+            assertEquals(zoom, TileMath.keyZoom(key));
+            assertTrue(TileMath.tileXToLng(x, zoom) <= lng + 1e-9);
+            assertTrue(TileMath.tileXToLng(x + 1, zoom) >= lng - 1e-9);
+            assertTrue(TileMath.tileYToLat(y, zoom) >= lat - 1e-9);
+            assertTrue(TileMath.tileYToLat(y + 1, zoom) <= lat + 1e-9);
+        }
+        // Beyond Web Mercator's reach, points fall in the edge rows
+        assertEquals(0, TileMath.keyY(TileMath.tileKey(89.9, 0, 5)));
+        assertEquals(31, TileMath.keyY(TileMath.tileKey(-89.9, 0, 5)));
+    }
+
+    @Test
+    public void keys_roundTripEveryZoom() {
+        Random random = new Random(2);
+        for (int i = 0; i < 100_000; i++) {
+            int zoom = random.nextInt(TileMath.MAX_ZOOM + 1);
+            int x = random.nextInt(1 << zoom);
+            int y = random.nextInt(1 << zoom);
+
+            long key = TileMath.packKey(zoom, x, y);
+            assertEquals(zoom, TileMath.keyZoom(key));
+            assertEquals(x, TileMath.keyX(key));
+            assertEquals(y, TileMath.keyY(key));
+
+            long quadKey = TileMath.quadKey(zoom, x, y);
+            assertEquals(zoom, TileMath.quadKeyZoom(quadKey));
+            assertEquals(x, TileMath.quadKeyX(quadKey));
+            assertEquals(y, TileMath.quadKeyY(quadKey));
+
+            long hilbert = TileMath.hilbertIndex(zoom, x, y);
+            assertEquals(zoom, TileMath.hilbertZoom(hilbert));
+            assertEquals(x, TileMath.hilbertX(hilbert));
+            assertEquals(y, TileMath.hilbertY(hilbert));
+            assertEquals(key, TileMath.hilbertToKey(hilbert));
+        }
+    }
+
+    @Test
+    public void hilbertIndex_visitsEveryTileOnceThroughNeighbours() {
+        assertEquals(0, TileMath.hilbertIndex(0, 0, 0));
+        // The first-order curve: down the west column, then up the east one
+        assertEquals(TileMath.packKey(1, 0, 0), TileMath.hilbertToKey(TileMath.hilbertIndex(1, 0, 0)));
+        assertEquals(1, TileMath.hilbertIndex(1, 0, 1) & 0xFF);
+        assertEquals(2, TileMath.hilbertIndex(1, 1, 1) & 0xFF);
+        assertEquals(3, TileMath.hilbertIndex(1, 1, 0) & 0xFF);
+
+        for (int zoom = 1; zoom <= 8; zoom++) {
+            int side = 1 << zoom;
+            boolean[] seen = new boolean[side * side];
+            long base = (long) zoom << 56;
+            int lastX = 0;
+            int lastY = 0;
+            for (long d = 0; d < (long) side * side; d++) {
+                long key = TileMath.hilbertToKey(base | d);
+                int x = TileMath.keyX(key);
+                int y = TileMath.keyY(key);
+                assertFalse(seen[y * side + x]);
+                seen[y * side + x] = true;
+                if (d > 0) {
+                    assertEquals("step " + d + " at zoom " + zoom, 1, Math.abs(x - lastX) + Math.abs(y - lastY));
+                }
+                assertEquals(base | d, TileMath.hilbertIndex(zoom, x, y));
+                lastX = x;
+                lastY = y;
+            }
+        }
+    }
+
+    @Test
+    public void hilbertIndex_ordersByZoomFirst() {
+        Random random = new Random(3);
+        for (int i = 0; i < 10_000; i++) {
+            int zoom = random.nextInt(TileMath.MAX_ZOOM);
+            long lower = TileMath.hilbertIndex(zoom, random.nextInt(1 << zoom), random.nextInt(1 << zoom));
+            long higher = TileMath.hilbertIndex(zoom + 1, random.nextInt(2 << zoom), random.nextInt(2 << zoom));
+            assertTrue(lower < higher);
+        }
+    }
+
+    @Test
+    public void columnCount_wrapsAcrossTheAntimeridian() {
+        // 177E to 178W at zoom 3 is the last column and the first
+        assertEquals(2, TileMath.columnCount(177, -178, 3));
+        assertEquals(TileMath.columnCount(177, 180, 10) + TileMath.columnCount(-180, -178, 10),
+                TileMath.columnCount(177, -178, 10));
+        // Both edges in one column: every column but none twice
+        assertEquals(16, TileMath.columnCount(10, 5, 4));
+        assertEquals(1, TileMath.columnCount(179.9, -179.9, 0));
+        assertEquals(TileMath.tileCount(-17, 177, -16, 180, 12) + TileMath.tileCount(-17, -180, -16, -178, 12),
+                TileMath.tileCount(-17, 177, -16, -178, 12));
+    }
+}
@@ -0,0 +1,120 @@
+package com.example.myapplication.tiles;
+
+import com.example.myapplication.geo.GeoBounds;
+
+import org.junit.Test;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+public class TileRangeTest {
+
+    // Boxes up to a few degrees across, a quarter of them across the antimeridian
+    private static TileRange randomRange(Random random) {
+        double south = -80 + random.nextDouble() * 150;
+        double north = south + random.nextDouble() * 3;
+        double west = random.nextInt(4) == 0 ? 176 + random.nextDouble() * 4 : -180 + random.nextDouble() * 356;
+        double east = west + random.nextDouble() * 4;
+        int minZoom = random.nextInt(12);
+        return new TileRange(south, west, north, east > 180 ? east - 360 : east, minZoom, minZoom + random.nextInt(4));
+    }
+
+    @Test
+    public void cursor_walksTheSameTilesAsKeyAt() {
+        Random random = new Random(1);
+        for (int i = 0; i < 300; i++) {
+            TileRange range = randomRange(random);
+            TileRange.Cursor cursor = range.cursor(0);
+            for (long index = 0; index < range.size(); index++, cursor.next()) {
+                assertTrue(cursor.hasTile());
+                assertEquals(index, cursor.getIndex());
+                assertEquals(range.keyAt(index), cursor.getKey());
+                assertEquals(TileMath.packKey(cursor.getZoom(), cursor.getX(), cursor.getY()), cursor.getKey());
+            }
+            assertFalse(cursor.hasTile());
+            cursor.next();
+            assertEquals(range.size(), cursor.getIndex());
+
+            long start = (long) (random.nextDouble() * range.size());
+            cursor.moveTo(start);
+            for (long index = start; index < Math.min(range.size(), start + 1000); index++, cursor.next()) {
+                assertEquals(range.keyAt(index), cursor.getKey());
+            }
+        }
+    }
+
+    @Test
+    public void everyTileMeetsTheBoxAndAppearsOnce() {
+        Random random = new Random(2);
+        for (int i = 0; i < 100; i++) {
+            double south = -60 + random.nextDouble() * 120;
+            double north = south + random.nextDouble() * 2;
+            double west = 178 + random.nextDouble() * 2;
+            double east = -180 + random.nextDouble() * 2;
+            TileRange range = new TileRange(south, west, north, east, 6, 10);
+            Set<Long> keys = new HashSet<>();
+            for (TileRange.Cursor tile = range.cursor(0); tile.hasTile(); tile.next()) {
+                assertTrue(keys.add(tile.getKey()));
+                int zoom = tile.getZoom();
+                double tileWest = TileMath.tileXToLng(tile.getX(), zoom);
+                double tileEast = TileMath.tileXToLng(tile.getX() + 1, zoom);
+                double tileNorth = TileMath.tileYToLat(tile.getY(), zoom);
+                double tileSouth = TileMath.tileYToLat(tile.getY() + 1, zoom);
+                assertTrue(GeoBounds.intersects(tileSouth, tileWest, tileNorth, tileEast, south, west, north, east));
+            }
+            assertEquals(range.size(), keys.size());
+            // The crossing range is the two halves on either side of the antimeridian
+            for (int zoom = 6; zoom <= 10; zoom++) {
+                assertTrue(range.wrapsAntimeridian(zoom));
+                long halves = new TileRange(south, west, north, 180, zoom, zoom).size()
+                        + new TileRange(south, -180, north, east, zoom, zoom).size();
+                assertEquals(halves, range.sizeAtZoom(zoom));
+            }
+        }
+    }
+
+    @Test
+    public void wrappedBoundsPerZoom() {
+        TileRange range = new TileRange(-19, 177, -16, -178, 3, 8);
+        assertTrue(range.wrapsAntimeridian(8));
+        assertEquals(TileMath.lngToTileX(177, 8), range.getMinX(8));
+        assertEquals(TileMath.lngToTileX(-178, 8), range.getMaxX(8));
+        assertEquals(range.getColumnCount(8) * (long) range.getRowCount(8), range.sizeAtZoom(8));
+        assertEquals(TileMath.tileCount(-19, 177, -16, -178, 8), range.sizeAtZoom(8));
+
+        TileRange plain = new TileRange(40.66, -74.06, 40.76, -73.96, 10, 14);
+        assertFalse(plain.wrapsAntimeridian(14));
+        assertEquals(plain.getMaxX(14) - plain.getMinX(14) + 1, plain.getColumnCount(14));
+    }
+
+    @Test
+    public void rangeAroundAPointHoldsItsCircle() {
+        double[] box = GeoBounds.boundsAround(51.5074, -0.1278, 5000, new double[4]);
+        TileRange range = new TileRange(box[GeoBounds.SOUTH], box[GeoBounds.WEST], box[GeoBounds.NORTH],
+                box[GeoBounds.EAST], 10, 16);
+        Set<Long> keys = new HashSet<>();
+        for (TileRange.Cursor tile = range.cursor(0); tile.hasTile(); tile.next()) {
+            keys.add(tile.getKey());
+        }
+        Random random = new Random(3);
+        for (int i = 0; i < 1000; i++) {
+            // Points within 5 km, scaled to meters per degree at the center's latitude
+            double north = (random.nextDouble() * 2 - 1) * 3500;
+            double east = (random.nextDouble() * 2 - 1) * 3500;
+            double lat = 51.5074 + north / GeoBounds.METERS_PER_DEGREE;
+            double lng = -0.1278 + east / (GeoBounds.METERS_PER_DEGREE * Math.cos(Math.toRadians(51.5074)));
+            for (int zoom = 10; zoom <= 16; zoom++) {
+                assertTrue(keys.contains(TileMath.tileKey(lat, lng, zoom)));
+            }
+        }
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void cursor_rejectsIndexesPastTheEnd() {
+        TileRange range = new TileRange(40.66, -74.06, 40.76, -73.96, 10, 10);
+        range.cursor(range.size() + 1);
+    }
+}